@@ -0,0 +1,102 @@
+package benchmarks;
+
+import general.CompositionScorer;
+import general.QoSAttribute;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of the aggregated QoS of a composition, both through
+ * the checked QoSAttribute.calculateAggregatedQoS() and through the trusted
+ * CompositionScorer.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregationBenchmark {
+
+	/**
+	 * The number of compositions evaluated in a round.
+	 */
+	private static final int NO_COMPOSITIONS = 256;
+
+	@Param({ "10", "100" })
+	public int noAbstractServices;
+
+	@Param({ "10", "100" })
+	public int noConcreteServices;
+
+	@Param({ "3", "8" })
+	public int noAttributes;
+
+	@Param({ "linear", "all" })
+	public String mix;
+
+	private QoSAttribute[] mAttributes;
+
+	private CompositionScorer mScorer;
+
+	private int[][] mCompositions;
+
+	private int[] mPackedCompositions;
+
+	private double[] mResults;
+
+	private int mNext;
+
+	@Setup
+	public void setUp() {
+		mAttributes = BenchmarkInstances.createAttributes(noAbstractServices,
+				noConcreteServices, noAttributes, mix);
+		mScorer = new CompositionScorer(mAttributes);
+
+		Random random = new Random(1);
+		mCompositions = new int[NO_COMPOSITIONS][];
+		mPackedCompositions = new int[NO_COMPOSITIONS * noAbstractServices];
+		for (int k = 0; k < NO_COMPOSITIONS; k++) {
+			mCompositions[k] = BenchmarkInstances.createComposition(
+					mAttributes, random);
+			System.arraycopy(mCompositions[k], 0, mPackedCompositions, k
+					* noAbstractServices, noAbstractServices);
+		}
+		mResults = new double[NO_COMPOSITIONS];
+	}
+
+	@Benchmark
+	public double calculateAggregatedQoS() {
+		mNext = (mNext + 1) % NO_COMPOSITIONS;
+		return QoSAttribute.calculateAggregatedQoS(mAttributes,
+				mCompositions[mNext]);
+	}
+
+	@Benchmark
+	public double score() {
+		mNext = (mNext + 1) % NO_COMPOSITIONS;
+		return mScorer.score(mCompositions[mNext]);
+	}
+
+	@Benchmark
+	public double[] scoreBatch() {
+		mScorer.scoreBatch(mPackedCompositions, NO_COMPOSITIONS, mResults);
+		return mResults;
+	}
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import general.CompositionScorer;
+import general.QoSAttribute;
+import general.TotalQoS;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aco.Ant;
+
+/**
+ * Measures a complete pass of an ant through the search space, from the nest
+ * to the source, one Ant.walk() per abstract service.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AntWalkBenchmark {
+
+	@Param({ "10", "100" })
+	public int noAbstractServices;
+
+	@Param({ "10", "100" })
+	public int noConcreteServices;
+
+	@Param({ "3", "8" })
+	public int noAttributes;
+
+	@Param({ "linear", "all" })
+	public String mix;
+
+	private Ant mAnt;
+
+	@Setup
+	public void setUp() {
+		QoSAttribute[] attributes = BenchmarkInstances.createAttributes(
+				noAbstractServices, noConcreteServices, noAttributes, mix);
+		TotalQoS totalQoS = new TotalQoS(attributes);
+		double[] pheromone = new double[totalQoS.getValues().length];
+		Arrays.fill(pheromone, 1);
+
+		mAnt = new Ant(new CompositionScorer(attributes),
+				totalQoS.getValues(), pheromone, 1, 1);
+	}
+
+	@Benchmark
+	public int[] walk() {
+		for (int i = 0; i <= noAbstractServices; i++) {
+			mAnt.walk();
+		}
+		return mAnt.getSolution();
+	}
+}
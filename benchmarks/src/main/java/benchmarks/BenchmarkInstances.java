@@ -0,0 +1,113 @@
+package benchmarks;
+
+import general.QoSAttribute;
+
+import java.util.Random;
+
+/**
+ * Builds the deterministic instances shared by the benchmarks, so that the
+ * results of different releases can be compared.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class BenchmarkInstances {
+
+	/* The possible aggregation mixes. */
+	public static final String MIX_SUM = "sum";
+	public static final String MIX_AVERAGE = "average";
+	public static final String MIX_PRODUCT = "product";
+	public static final String MIX_LINEAR = "linear";
+	public static final String MIX_ALL = "all";
+
+	/**
+	 * The seed of the random values.
+	 */
+	private static final long SEED = 0x5753434FL;
+
+	private BenchmarkInstances() {
+	}
+
+	/**
+	 * Creates the attributes of an instance with uniform random values and
+	 * equal weights.
+	 * 
+	 * @param noAbstractServices
+	 *            The number of abstract services.
+	 * @param noConcreteServices
+	 *            The number of concrete services of each abstract service.
+	 * @param noAttributes
+	 *            The number of attributes.
+	 * @param mix
+	 *            How the attributes are aggregated: MIX_SUM, MIX_AVERAGE or
+	 *            MIX_PRODUCT for all of them, MIX_LINEAR to alternate sum and
+	 *            average, and MIX_ALL to cycle through the three methods.
+	 * @return The attributes.
+	 */
+	public static QoSAttribute[] createAttributes(int noAbstractServices,
+			int noConcreteServices, int noAttributes, String mix) {
+		Random random = new Random(SEED);
+		QoSAttribute[] attributes = new QoSAttribute[noAttributes];
+
+		for (int attr = 0; attr < noAttributes; attr++) {
+			double[][] values = new double[noAbstractServices][noConcreteServices];
+			for (int i = 0; i < noAbstractServices; i++) {
+				for (int j = 0; j < noConcreteServices; j++) {
+					values[i][j] = random.nextDouble();
+				}
+			}
+			attributes[attr] = new QoSAttribute(values,
+					getAggregationMethod(mix, attr), 1.0 / noAttributes);
+		}
+
+		return attributes;
+	}
+
+	/**
+	 * Returns the aggregation method of an attribute in a mix.
+	 * 
+	 * @param mix
+	 *            The aggregation mix.
+	 * @param attribute
+	 *            The index of the attribute.
+	 * @return The aggregation method.
+	 */
+	private static int getAggregationMethod(String mix, int attribute) {
+		if (MIX_SUM.equals(mix)) {
+			return QoSAttribute.AGGREGATE_BY_SUM;
+		} else if (MIX_AVERAGE.equals(mix)) {
+			return QoSAttribute.AGGREGATE_BY_AVERAGE;
+		} else if (MIX_PRODUCT.equals(mix)) {
+			return QoSAttribute.AGGREGATE_BY_PRODUCT;
+		} else if (MIX_LINEAR.equals(mix)) {
+			return attribute % 2 == 0 ? QoSAttribute.AGGREGATE_BY_SUM
+					: QoSAttribute.AGGREGATE_BY_AVERAGE;
+		} else if (MIX_ALL.equals(mix)) {
+			int[] methods = { QoSAttribute.AGGREGATE_BY_SUM,
+					QoSAttribute.AGGREGATE_BY_AVERAGE,
+					QoSAttribute.AGGREGATE_BY_PRODUCT };
+			return methods[attribute % methods.length];
+		}
+
+		throw new IllegalArgumentException("Unknown aggregation mix: " + mix);
+	}
+
+	/**
+	 * Creates a random composition of an instance.
+	 * 
+	 * @param attributes
+	 *            The attributes of the instance.
+	 * @param random
+	 *            The source of randomness.
+	 * @return The composition.
+	 */
+	public static int[] createComposition(QoSAttribute[] attributes,
+			Random random) {
+		int[] composition = new int[attributes[0].getNoAbstractServices()];
+		for (int i = 0; i < composition.length; i++) {
+			composition[i] = random.nextInt(attributes[0]
+					.getNoConcreteServices(i));
+		}
+		return composition;
+	}
+}
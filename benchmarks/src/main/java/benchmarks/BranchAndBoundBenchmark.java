@@ -0,0 +1,75 @@
+package benchmarks;
+
+import general.QoSAttribute;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bb.Simplex;
+import bb.WscHelper;
+
+/**
+ * Measures Branch and Bound on a composition problem, including the
+ * generation of the MIP problem. The constrained variant bounds the aggregated
+ * value of the first attribute, which forces the search to branch.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BranchAndBoundBenchmark {
+
+	@Param({ "5", "10" })
+	public int noAbstractServices;
+
+	@Param({ "5", "10" })
+	public int noConcreteServices;
+
+	@Param({ "3", "8" })
+	public int noAttributes;
+
+	@Param({ "sum", "linear" })
+	public String mix;
+
+	@Param({ "false", "true" })
+	public boolean constrained;
+
+	private QoSAttribute[] mAttributes;
+
+	@Setup
+	public void setUp() {
+		mAttributes = BenchmarkInstances.createAttributes(noAbstractServices,
+				noConcreteServices, noAttributes, mix);
+	}
+
+	@Benchmark
+	public int[] solve() {
+		WscHelper helper = new WscHelper(mAttributes);
+		if (constrained) {
+			/*
+			 * The first attribute is aggregated by sum in both mixes, so this
+			 * is half of its largest possible aggregated value.
+			 */
+			helper.addConstraintOnAttribute(0, Simplex.LTE,
+					0.5 * noAbstractServices);
+		}
+		helper.solveProblem();
+		return helper.getSolution();
+	}
+}
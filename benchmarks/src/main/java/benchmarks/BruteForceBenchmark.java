@@ -0,0 +1,61 @@
+package benchmarks;
+
+import general.QoSAttribute;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bruteforce.BruteForce;
+
+/**
+ * Measures the exhaustive search of Brute Force. The instances are kept small,
+ * since the number of compositions is exponential in the number of abstract
+ * services.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BruteForceBenchmark {
+
+	@Param({ "4", "6" })
+	public int noAbstractServices;
+
+	@Param({ "4", "8" })
+	public int noConcreteServices;
+
+	@Param({ "3", "8" })
+	public int noAttributes;
+
+	@Param({ "linear", "all" })
+	public String mix;
+
+	private QoSAttribute[] mAttributes;
+
+	@Setup
+	public void setUp() {
+		mAttributes = BenchmarkInstances.createAttributes(noAbstractServices,
+				noConcreteServices, noAttributes, mix);
+	}
+
+	@Benchmark
+	public int[] getBestComposition() {
+		return new BruteForce(mAttributes).getBestComposition();
+	}
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import general.QoSAttribute;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bb.Simplex;
+import bb.WscHelper;
+
+/**
+ * Measures the solution of the linear relaxation of a composition problem,
+ * which is dominated by Simplex pivots. Simplex instances are solved in place,
+ * so each invocation solves a fresh copy, made outside the measurement.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimplexBenchmark {
+
+	@Param({ "5", "20" })
+	public int noAbstractServices;
+
+	@Param({ "5", "20" })
+	public int noConcreteServices;
+
+	@Param({ "3", "8" })
+	public int noAttributes;
+
+	@Param({ "sum", "linear" })
+	public String mix;
+
+	private Simplex mBaseProblem;
+
+	private Simplex mProblem;
+
+	@Setup
+	public void setUp() {
+		QoSAttribute[] attributes = BenchmarkInstances.createAttributes(
+				noAbstractServices, noConcreteServices, noAttributes, mix);
+		mBaseProblem = new WscHelper(attributes).getProblem()
+				.getRelaxedProblem();
+	}
+
+	@Setup(Level.Invocation)
+	public void copyProblem() {
+		mProblem = new Simplex(mBaseProblem);
+	}
+
+	@Benchmark
+	public boolean solve() {
+		return mProblem.solve();
+	}
+}
@@ -1,20 +1,48 @@
 package aco;
 
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
 import general.DoubleComparator;
+import general.Incumbent;
+import general.IncumbentListener;
 import general.QoSAttribute;
+import general.TotalQoS;
+import metrics.AcoIterationEvent;
+import metrics.Metrics;
+import metrics.MetricsRegistry;
 
 import java.util.Arrays;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The entry point for the Ant Colony Optimization algorithm.
  * 
+ * It can run on its own thread, with start() or startWithTimeOut(), or on an
+ * executor, through solver.AcoSolver and solver.AsyncSolver, which doesn't
+ * create a thread for each run.
+ * 
+ * With setForkJoinPool(), the ants of each iteration walk concurrently, and
+ * the pheromone is then evaporated and deposited by tasks that own disjoint
+ * ranges of abstract services, adding the solutions in the order of the ants.
+ * Each ant draws from its own random stream, split from the seed of the run
+ * in the order of the ants, so a run with a given seed produces the same
+ * result on any number of threads, and with or without a pool.
+ * 
  * @author Andre Luiz Verucci da Cunha
  * 
  */
 public class ACO extends Thread {
 
+	/**
+	 * The minimum number of tasks per thread of the pool in each parallel
+	 * phase, so that work stealing can balance them.
+	 */
+	private static final int TASKS_PER_THREAD = 4;
+
 	/**
 	 * The ants that will traverse the search space.
 	 */
@@ -26,14 +54,36 @@ public class ACO extends Thread {
 	private QoSAttribute[] mQoSAttributes;
 
 	/**
-	 * The total QoS of each concrete service.
+	 * The scorer shared by the ants to evaluate their solutions.
+	 */
+	private CompositionScorer mScorer;
+
+	/**
+	 * The cached total QoS of each concrete service.
+	 */
+	private TotalQoS mTotalQoS;
+
+	/**
+	 * The version of the total QoS last seen by this instance.
 	 */
-	private double[][] mTotalQoS;
+	private int mTotalQoSVersion;
 
 	/**
 	 * The amount of pheromone associated with each concrete service.
 	 */
-	private double[][] mPheromone;
+	private double[] mPheromone;
+
+	/**
+	 * The transition weights shared by the ants. It's refreshed along with
+	 * the pheromone, once per iteration.
+	 */
+	private TransitionTable mTransitionTable;
+
+	/**
+	 * The offset of the first concrete service of each abstract service in
+	 * the flat vectors.
+	 */
+	private int[] mOffsets;
 
 	/**
 	 * The evaporation coefficient of the pheromone.
@@ -66,6 +116,78 @@ public class ACO extends Thread {
 	 */
 	private double mCurrentAggregatedQoS;
 
+	/**
+	 * The solutions found by the ants in the current iteration, packed one
+	 * after the other so that they can be evaluated in a single batch.
+	 */
+	private int[] mIterationSolutions;
+
+	/**
+	 * The pheromone to be deposited over each solution of the current
+	 * iteration.
+	 */
+	private double[] mIterationPheromone;
+
+	/**
+	 * The deadline of the execution.
+	 */
+	private Deadline mDeadline;
+
+	/**
+	 * The token through which the execution can be cancelled.
+	 */
+	private CancellationToken mCancellationToken;
+
+	/**
+	 * The listeners notified of each improving solution.
+	 */
+	private CopyOnWriteArrayList<IncumbentListener> mIncumbentListeners;
+
+	/**
+	 * The aggregated QoS of the best solution reported to the listeners in the
+	 * current run.
+	 */
+	private double mBestReportedQoS;
+
+	/**
+	 * The value of System.nanoTime() when the current run started.
+	 */
+	private long mStartNanos;
+
+	/**
+	 * The number of solutions over which pheromone was deposited in the
+	 * current run.
+	 */
+	private long mNoDeposits;
+
+	/**
+	 * The number of solutions deposited in the current iteration.
+	 */
+	private int mIterationNoSolutions;
+
+	/**
+	 * The pool on which the ants walk, or null if they walk on the calling
+	 * thread.
+	 */
+	private ForkJoinPool mForkJoinPool;
+
+	/**
+	 * The aggregated QoS of the solution found by each ant in the current
+	 * iteration, computed by the ants' tasks when there's a pool.
+	 */
+	private double[] mAntScores;
+
+	/**
+	 * The seed from which the random streams of the ants are split.
+	 */
+	private long mSeed;
+
+	/**
+	 * Whether setSeed() was called. Otherwise, each run is seeded
+	 * differently.
+	 */
+	private boolean mIsSeeded;
+
 	/**
 	 * Creates an ACO instance.
 	 * 
@@ -91,25 +213,134 @@ public class ACO extends Thread {
 	public ACO(int noAnts, QoSAttribute[] qosAttributes, double alpha,
 			double beta, double rho, double initialPheromone,
 			int maxIterations, double minQoS) {
+		this(noAnts, new TotalQoS(qosAttributes), alpha, beta, rho,
+				initialPheromone, maxIterations, minQoS);
+	}
+
+	/**
+	 * Creates an ACO instance over a cached total QoS. When the weights are
+	 * changed through the cache, the ants pick up the new heuristic at the
+	 * next iteration.
+	 * 
+	 * @param noAnts
+	 *            The number of ants.
+	 * @param totalQoS
+	 *            The cached total QoS of the attributes that will be used.
+	 * @param alpha
+	 *            The relative importance of the amount of pheromone.
+	 * @param beta
+	 *            The relative importance of the heuristic information (the
+	 *            total QoS).
+	 * @param rho
+	 *            The evaporation coefficient of the pheromone.
+	 * @param initialPheromone
+	 *            The initial amount of pheromone that will be deposited in each
+	 *            concrete service before the ants start to walk.
+	 * @param maxIterations
+	 *            The maximum number of iterations.
+	 * @param minQoS
+	 *            The minimum acceptable QoS.
+	 */
+	public ACO(int noAnts, TotalQoS totalQoS, double alpha, double beta,
+			double rho, double initialPheromone, int maxIterations,
+			double minQoS) {
+		QoSAttribute[] qosAttributes = totalQoS.getAttributes();
 		mQoSAttributes = qosAttributes;
+		mScorer = new CompositionScorer(qosAttributes);
 
-		mPheromone = new double[qosAttributes[0].getValues().length][];
-		for (int i = 0; i < mPheromone.length; i++) {
-			mPheromone[i] = new double[qosAttributes[0].getValues()[i].length];
-			Arrays.fill(mPheromone[i], initialPheromone);
-		}
+		mOffsets = qosAttributes[0].getOffsets();
+		mPheromone = new double[mOffsets[mOffsets.length - 1]];
+		Arrays.fill(mPheromone, initialPheromone);
 
-		mTotalQoS = QoSAttribute.calculateTotalQoS(qosAttributes);
+		mTotalQoS = totalQoS;
+		mTotalQoSVersion = totalQoS.getVersion();
+		mTransitionTable = new TransitionTable(mOffsets, totalQoS.getValues(),
+				mPheromone, alpha, beta);
 		mAnts = new Ant[noAnts];
 		for (int i = 0; i < noAnts; i++) {
-			mAnts[i] = new Ant(mQoSAttributes, mTotalQoS, mPheromone, alpha,
-					beta);
+			mAnts[i] = new Ant(mScorer, mTransitionTable);
 		}
 
-		mCurrentSolution = new int[mPheromone.length];
+		mCurrentSolution = new int[mOffsets.length - 1];
+		mIterationSolutions = new int[noAnts * mCurrentSolution.length];
+		mIterationPheromone = new double[noAnts];
+		mAntScores = new double[noAnts];
 		mMaxIterations = maxIterations;
 		mMinAggregatedQoS = minQoS;
 		mRho = rho;
+		mDeadline = Deadline.NONE;
+		mCancellationToken = CancellationToken.NONE;
+		mIncumbentListeners = new CopyOnWriteArrayList<IncumbentListener>();
+	}
+
+	/**
+	 * Sets the deadline of the execution. It's checked once per iteration,
+	 * along with the other stop conditions.
+	 * 
+	 * @param deadline
+	 *            The deadline.
+	 */
+	public void setDeadline(Deadline deadline) {
+		mDeadline = deadline;
+	}
+
+	/**
+	 * Sets the token through which the execution can be cancelled. It's
+	 * checked once per iteration, along with the other stop conditions.
+	 * 
+	 * @param token
+	 *            The cancellation token.
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		mCancellationToken = token;
+	}
+
+	/**
+	 * Sets the seed of the runs. Each run splits a random stream for each ant
+	 * from it, so runs with the same seed produce the same results.
+	 * 
+	 * @param seed
+	 *            The seed.
+	 */
+	public void setSeed(long seed) {
+		mSeed = seed;
+		mIsSeeded = true;
+	}
+
+	/**
+	 * Makes the ants walk concurrently, on the given pool. The results don't
+	 * depend on the pool.
+	 * 
+	 * @param pool
+	 *            The pool, such as solver.SolverExecutors.getComputePool(), or
+	 *            null to walk on the calling thread.
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		mForkJoinPool = pool;
+	}
+
+	/**
+	 * Adds a listener to be notified whenever the current solution is better
+	 * than all the previous ones of the run. When there are listeners, the
+	 * current solution is computed after each iteration, even when running for
+	 * a given amount of time. ACO can't bound the optimum, so the bound of the
+	 * incumbents is NaN.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by addIncumbentListener().
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.remove(listener);
 	}
 
 	@Override
@@ -117,15 +348,45 @@ public class ACO extends Thread {
 		mIterations = 0;
 		mCurrentAggregatedQoS = 0f;
 		Arrays.fill(mCurrentSolution, 0);
+		mBestReportedQoS = Double.NEGATIVE_INFINITY;
+		mStartNanos = System.nanoTime();
+		mNoDeposits = 0;
+		SplittableRandom random = mIsSeeded ? new SplittableRandom(mSeed)
+				: new SplittableRandom();
+		for (Ant ant : mAnts) {
+			ant.resetStatistics();
+			ant.setRandom(random.split());
+		}
 
 		while (!shouldStop()) {
-			for (int i = 0; i < mAnts.length; i++) {
-				mAnts[i].walk();
+			if (mTotalQoS.getVersion() != mTotalQoSVersion) {
+				/* The weights were changed. */
+				mTotalQoSVersion = mTotalQoS.getVersion();
+				mScorer.updateWeights();
+				mTransitionTable.updateHeuristic(mTotalQoS.getValues());
+			}
+
+			AcoIterationEvent event = new AcoIterationEvent();
+			event.begin();
+
+			if (mForkJoinPool == null) {
+				for (int i = 0; i < mAnts.length; i++) {
+					mAnts[i].walk();
+				}
+			} else {
+				mForkJoinPool.invoke(new WalkTask(0, mAnts.length,
+						getTaskSize(mAnts.length)));
 			}
 			updatePheromone();
 
-			if (!(mMaxIterations < 0 && DoubleComparator.compare(
-					mMinAggregatedQoS, 0d) < 0)) {
+			event.end();
+			if (event.shouldCommit()) {
+				commitIterationEvent(event);
+			}
+
+			if (!mIncumbentListeners.isEmpty()
+					|| !(mMaxIterations < 0 && DoubleComparator.compare(
+							mMinAggregatedQoS, 0d) < 0)) {
 				updateCurrentSolution();
 			}
 			mIterations++;
@@ -135,10 +396,31 @@ public class ACO extends Thread {
 				&& DoubleComparator.compare(mMinAggregatedQoS, 0d) < 0) {
 			updateCurrentSolution();
 		}
+
+		flushMetrics();
+	}
+
+	/**
+	 * Adds the statistics of the last run to the metrics registry.
+	 */
+	private void flushMetrics() {
+		long noSteps = 0;
+		long noWalks = 0;
+		for (Ant ant : mAnts) {
+			noSteps += ant.getNoSteps();
+			noWalks += ant.getNoWalks();
+		}
+
+		MetricsRegistry registry = Metrics.getRegistry();
+		registry.counter("ant.steps").add(noSteps);
+		registry.counter("ant.walks").add(noWalks);
+		registry.counter("aco.iterations").add(mIterations);
+		registry.counter("aco.pheromoneUpdates").add(mNoDeposits);
+		registry.timer("aco.run").recordSince(mStartNanos);
 	}
 
 	/**
-	 * Runs ACO for a given amount of time.
+	 * Runs ACO for a given amount of time, in a new thread.
 	 * 
 	 * @param millisTimeOut
 	 *            The execution timeout, in milliseconds.
@@ -146,17 +428,8 @@ public class ACO extends Thread {
 	public void startWithTimeOut(long millisTimeOut) {
 		mMaxIterations = -1;
 		mMinAggregatedQoS = -1;
+		mDeadline = Deadline.after(millisTimeOut);
 
-		Timer timer = new Timer();
-		TimerTask task = new TimerTask() {
-
-			@Override
-			public void run() {
-				ACO.this.interrupt();
-			}
-		};
-
-		timer.schedule(task, millisTimeOut);
 		start();
 	}
 
@@ -165,7 +438,8 @@ public class ACO extends Thread {
 	 * @return True if the stop condition is satisfied; false otherwise.
 	 */
 	private boolean shouldStop() {
-		if (isInterrupted()) {
+		if (isInterrupted() || mDeadline.isExpired()
+				|| mCancellationToken.isCancelled()) {
 			return true;
 		} else if (mMaxIterations < 0
 				&& DoubleComparator.compare(mMinAggregatedQoS, 0d) < 0) {
@@ -192,47 +466,244 @@ public class ACO extends Thread {
 
 	/**
 	 * After each iteration, evaporates and deposits proper amounts of
-	 * pheromone.
+	 * pheromone. The solutions are gathered in the order of the ants, and
+	 * each pheromone value receives their deposits in that order, so the
+	 * result is the same with or without a pool.
 	 */
 	private void updatePheromone() {
-		for (int i = 0; i < mPheromone.length; i++) {
-			for (int j = 0; j < mPheromone[i].length; j++) {
-				mPheromone[i][j] = (1 - mRho) * mPheromone[i][j];
+		int n = mCurrentSolution.length;
+		int noSolutions = 0;
+		for (int a = 0; a < mAnts.length; a++) {
+			int[] solution = mAnts[a].getSolution();
+
+			if (solution == null) {
+				continue;
 			}
+
+			System.arraycopy(solution, 0, mIterationSolutions, noSolutions * n,
+					n);
+			mIterationPheromone[noSolutions] = mAntScores[a];
+			noSolutions++;
 		}
 
-		for (Ant a : mAnts) {
-			double newPheromone = a.getNewPheromone();
-			int[] solution = a.getSolution();
+		mNoDeposits += noSolutions;
+		mIterationNoSolutions = noSolutions;
 
-			if (solution == null) {
-				continue;
+		if (mForkJoinPool == null) {
+			mScorer.scoreBatch(mIterationSolutions, noSolutions,
+					mIterationPheromone);
+			depositPheromone(0, n, noSolutions);
+		} else {
+			mForkJoinPool.invoke(new PheromoneTask(0, n, getTaskSize(n),
+					noSolutions));
+		}
+	}
+
+	/**
+	 * Evaporates the pheromone of a range of abstract services, deposits the
+	 * pheromone of the solutions of the current iteration over them and
+	 * refreshes their transition weights.
+	 * 
+	 * @param from
+	 *            The first abstract service of the range.
+	 * @param to
+	 *            The abstract service after the last one of the range.
+	 * @param noSolutions
+	 *            The number of solutions of the current iteration.
+	 */
+	private void depositPheromone(int from, int to, int noSolutions) {
+		for (int k = mOffsets[from]; k < mOffsets[to]; k++) {
+			mPheromone[k] = (1 - mRho) * mPheromone[k];
+		}
+
+		int n = mCurrentSolution.length;
+		for (int k = 0; k < noSolutions; k++) {
+			for (int i = from; i < to; i++) {
+				mPheromone[mOffsets[i] + mIterationSolutions[k * n + i]] += mIterationPheromone[k];
 			}
+		}
 
-			for (int i = 0; i < solution.length; i++) {
-				mPheromone[i][solution[i]] += newPheromone;
+		mTransitionTable.refresh(from, to);
+	}
+
+	/**
+	 * Returns the size below which a parallel phase over the given number of
+	 * elements isn't split any further.
+	 * 
+	 * @param noElements
+	 *            The number of elements, i.e. ants or abstract services.
+	 * @return The maximum number of elements of a task.
+	 */
+	private int getTaskSize(int noElements) {
+		return Math.max(1, noElements
+				/ (mForkJoinPool.getParallelism() * TASKS_PER_THREAD));
+	}
+
+	/**
+	 * Moves a range of ants one step each, and evaluates the solutions they
+	 * find.
+	 */
+	private class WalkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The first ant of the range.
+		 */
+		private int mFrom;
+
+		/**
+		 * The ant after the last one of the range.
+		 */
+		private int mTo;
+
+		/**
+		 * The maximum number of ants walked without splitting.
+		 */
+		private int mTaskSize;
+
+		WalkTask(int from, int to, int taskSize) {
+			mFrom = from;
+			mTo = to;
+			mTaskSize = taskSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (mTo - mFrom > mTaskSize) {
+				int middle = (mFrom + mTo) >>> 1;
+				invokeAll(new WalkTask(mFrom, middle, mTaskSize), new WalkTask(
+						middle, mTo, mTaskSize));
+				return;
+			}
+
+			for (int a = mFrom; a < mTo; a++) {
+				mAnts[a].walk();
+				int[] solution = mAnts[a].getSolution();
+				if (solution != null) {
+					mAntScores[a] = mScorer.score(solution);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Evaporates and deposits the pheromone of a range of abstract services,
+	 * and refreshes their transition weights. The ranges of different tasks
+	 * are disjoint, so they don't contend for the pheromone values.
+	 */
+	private class PheromoneTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The first abstract service of the range.
+		 */
+		private int mFrom;
+
+		/**
+		 * The abstract service after the last one of the range.
+		 */
+		private int mTo;
+
+		/**
+		 * The maximum number of abstract services updated without splitting.
+		 */
+		private int mTaskSize;
+
+		/**
+		 * The number of solutions of the current iteration.
+		 */
+		private int mNoSolutions;
+
+		PheromoneTask(int from, int to, int taskSize, int noSolutions) {
+			mFrom = from;
+			mTo = to;
+			mTaskSize = taskSize;
+			mNoSolutions = noSolutions;
+		}
+
+		@Override
+		protected void compute() {
+			if (mTo - mFrom > mTaskSize) {
+				int middle = (mFrom + mTo) >>> 1;
+				invokeAll(new PheromoneTask(mFrom, middle, mTaskSize,
+						mNoSolutions), new PheromoneTask(middle, mTo,
+						mTaskSize, mNoSolutions));
+				return;
+			}
+
+			depositPheromone(mFrom, mTo, mNoSolutions);
+		}
+	}
+
+	/**
+	 * Fills and commits the flight recorder event of the current iteration.
+	 * The statistics are only computed here, so they cost nothing while the
+	 * event is disabled.
+	 * 
+	 * @param event
+	 *            The event, which has already ended.
+	 */
+	private void commitIterationEvent(AcoIterationEvent event) {
+		double bestScore = Double.NaN;
+		for (int k = 0; k < mIterationNoSolutions; k++) {
+			if (k == 0 || mIterationPheromone[k] > bestScore) {
+				bestScore = mIterationPheromone[k];
+			}
+		}
+
+		double entropy = 0;
+		int noAbstractServices = mOffsets.length - 1;
+		for (int i = 0; i < noAbstractServices; i++) {
+			double sum = 0;
+			for (int k = mOffsets[i]; k < mOffsets[i + 1]; k++) {
+				sum += mPheromone[k];
+			}
+			for (int k = mOffsets[i]; k < mOffsets[i + 1]; k++) {
+				if (mPheromone[k] > 0) {
+					double p = mPheromone[k] / sum;
+					entropy -= p * Math.log(p);
+				}
+			}
+		}
+
+		event.iteration = mIterations;
+		event.noSolutions = mIterationNoSolutions;
+		event.bestScore = bestScore;
+		event.pheromoneEntropy = entropy / noAbstractServices;
+		event.commit();
+	}
+
 	/**
 	 * Computes and stores the current solution.
 	 */
 	private void updateCurrentSolution() {
-		for (int i = 0; i < mPheromone.length; i++) {
+		for (int i = 0; i < mCurrentSolution.length; i++) {
 			int indexOfMaxPheromone = 0;
 			double maxPheromone = 0;
-			for (int j = 0; j < mPheromone[i].length; j++) {
-				if (mPheromone[i][j] > maxPheromone) {
-					maxPheromone = mPheromone[i][j];
+			for (int j = 0; j < mOffsets[i + 1] - mOffsets[i]; j++) {
+				if (mPheromone[mOffsets[i] + j] > maxPheromone) {
+					maxPheromone = mPheromone[mOffsets[i] + j];
 					indexOfMaxPheromone = j;
 				}
 			}
 
 			mCurrentSolution[i] = indexOfMaxPheromone;
 		}
-		mCurrentAggregatedQoS = QoSAttribute.calculateAggregatedQoS(
-				mQoSAttributes, mCurrentSolution);
+		mCurrentAggregatedQoS = mScorer.score(mCurrentSolution);
+
+		if (mCurrentAggregatedQoS > mBestReportedQoS
+				&& !mIncumbentListeners.isEmpty()) {
+			mBestReportedQoS = mCurrentAggregatedQoS;
+
+			Incumbent incumbent = new Incumbent(mCurrentSolution.clone(),
+					mCurrentAggregatedQoS, mCurrentAggregatedQoS, Double.NaN,
+					System.nanoTime() - mStartNanos);
+			for (IncumbentListener listener : mIncumbentListeners) {
+				listener.onIncumbent(incumbent);
+			}
+		}
 	}
 
 	/**
@@ -243,6 +714,14 @@ public class ACO extends Thread {
 		return mCurrentSolution;
 	}
 
+	/**
+	 * 
+	 * @return The aggregated QoS of the solution found.
+	 */
+	public double getSolutionQoS() {
+		return mCurrentAggregatedQoS;
+	}
+
 	/**
 	 * 
 	 * @return The number of iterations performed.
@@ -0,0 +1,109 @@
+package aco;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import general.CompositionScorer;
+import general.Incumbent;
+import general.IncumbentListener;
+import general.QoSAttribute;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import instance.InstanceGenerator;
+
+public class ACOTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(12, 5, 30,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.3, 0.3, 0.4 },
+				InstanceGenerator.CORRELATION_INDEPENDENT);
+	}
+
+	private static ACO createAco(long seed) {
+		ACO aco = new ACO(17, createAttributes(seed), 1, 1, 0.1, 1, 200, -1);
+		aco.setSeed(seed);
+		return aco;
+	}
+
+	/* A seeded run gives the same result on any number of threads. */
+
+	@Test
+	public void test0() {
+		for (long seed = 0; seed < 5; seed++) {
+			ACO sequential = createAco(seed);
+			sequential.run();
+
+			ACO again = createAco(seed);
+			again.run();
+			assertArrayEquals(sequential.getSolution(), again.getSolution());
+			assertEquals(sequential.getSolutionQoS(), again.getSolutionQoS(),
+					0);
+
+			for (int noThreads = 1; noThreads <= 4; noThreads++) {
+				ForkJoinPool pool = new ForkJoinPool(noThreads);
+				try {
+					ACO parallel = createAco(seed);
+					parallel.setForkJoinPool(pool);
+					parallel.run();
+
+					assertArrayEquals(sequential.getSolution(),
+							parallel.getSolution());
+					assertEquals(sequential.getSolutionQoS(),
+							parallel.getSolutionQoS(), 0);
+					assertEquals(sequential.getNoIterations(),
+							parallel.getNoIterations());
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}
+	}
+
+	/*
+	 * The incumbents of a run improve in order, have no bound, and none of
+	 * them is worse than the solution of the run.
+	 */
+
+	@Test
+	public void test1() {
+		for (long seed = 0; seed < 5; seed++) {
+			QoSAttribute[] attributes = createAttributes(seed);
+			ACO aco = new ACO(17, attributes, 1, 1, 0.1, 1, 200, -1);
+			aco.setSeed(seed);
+			final ArrayList<Incumbent> incumbents = new ArrayList<Incumbent>();
+			aco.addIncumbentListener(new IncumbentListener() {
+
+				@Override
+				public void onIncumbent(Incumbent incumbent) {
+					incumbents.add(incumbent);
+				}
+			});
+			aco.run();
+			assertFalse(incumbents.isEmpty());
+
+			CompositionScorer scorer = new CompositionScorer(attributes);
+			Incumbent previous = null;
+			for (Incumbent incumbent : incumbents) {
+				assertEquals(scorer.score(incumbent.getComposition()),
+						incumbent.getScore(), 1e-12);
+				assertEquals(incumbent.getScore(), incumbent.getObjective(), 0);
+				assertTrue(Double.isNaN(incumbent.getBound()));
+				if (previous != null) {
+					assertTrue(incumbent.getScore() > previous.getScore());
+					assertTrue(incumbent.getElapsedNanos() >= previous
+							.getElapsedNanos());
+				}
+				previous = incumbent;
+			}
+			assertTrue(previous.getScore() >= aco.getSolutionQoS());
+		}
+	}
+}
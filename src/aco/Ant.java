@@ -1,7 +1,8 @@
 package aco;
 
-import general.QoSAttribute;
+import general.CompositionScorer;
 
+import java.util.SplittableRandom;
 
 /**
  * Represents an ant, the basic computational entity in ACO.
@@ -16,14 +17,14 @@ public class Ant {
 	public static final int BACKWARD = 0x01;
 
 	/**
-	 * A vector containing all the QoS attributes to be considered.
+	 * The scorer used to evaluate the solutions found.
 	 */
-	private QoSAttribute[] mQoSValues;
+	private CompositionScorer mScorer;
 
 	/**
-	 * The total QoS of each service, used by the ant as a heuristic.
+	 * The transition weights, from which the concrete services are selected.
 	 */
-	private double[][] mTotalQoSValues;
+	private TransitionTable mTransitionTable;
 
 	/**
 	 * The index of the last virtual service to which a concrete service has
@@ -48,68 +49,99 @@ public class Ant {
 	private boolean mAlreadyFoundACompleteSolution;
 
 	/**
-	 * The pheromone value associated with each concrete service.
+	 * Represents that the ant is in the nest. It's value is -1.
 	 */
-	private double[][] mPheromone;
+	private int nestPosition;
 
 	/**
-	 * The relative importance of the amount of pheromone.
+	 * Represents that the ant is in the food source. It's value is the number
+	 * of abstract services.
 	 */
-	private double mAlpha;
+	private int sourcePosition;
 
 	/**
-	 * The relative importance of the heuristic information (the total QoS).
+	 * The random number generator used to select the concrete services.
 	 */
-	private double mBeta;
+	private SplittableRandom mRandom;
 
 	/**
-	 * Represents that the ant is in the nest. It's value is -1.
+	 * The number of steps taken since the statistics were last reset.
 	 */
-	private int nestPosition;
+	private long mNoSteps;
 
 	/**
-	 * Represents that the ant is in the food source. It's value is the number
-	 * of abstract services.
+	 * The number of complete walks, from the nest to the food source or back,
+	 * since the statistics were last reset.
 	 */
-	private int sourcePosition;
+	private long mNoWalks;
 
 	/**
-	 * Creates an ant.
+	 * Creates an ant with its own transition table. The weights are computed
+	 * from the pheromone at this point; ants that must follow the changes of
+	 * the pheromone share a table that's refreshed by the colony instead.
 	 * 
-	 * @param qosValues
-	 *            A vector containing the QoS attributes.
+	 * @param scorer
+	 *            The scorer of the QoS attributes.
 	 * @param totalQoSValues
-	 *            The total QoS value associated with each concrete service.
+	 *            The total QoS value associated with each concrete service,
+	 *            laid out according to the offsets of the attributes.
 	 * @param pheromone
-	 *            The pheromone associated with each concrete service.
+	 *            The pheromone associated with each concrete service, laid out
+	 *            according to the offsets of the attributes.
 	 * @param alpha
 	 *            The relative importance of the amount of pheromone.
 	 * @param beta
 	 *            The relative importance of the heuristic information (the
 	 *            total QoS).
 	 */
-	public Ant(QoSAttribute[] qosValues, double[][] totalQoSValues,
-			double[][] pheromone, double alpha, double beta) {
-		int numberOfAbstractServices = qosValues[0].getValues().length;
+	public Ant(CompositionScorer scorer, double[] totalQoSValues,
+			double[] pheromone, double alpha, double beta) {
+		this(scorer, new TransitionTable(scorer.getOffsets(), totalQoSValues,
+				pheromone, alpha, beta));
+	}
+
+	/**
+	 * Creates an ant over a transition table, which can be shared with other
+	 * ants.
+	 * 
+	 * @param scorer
+	 *            The scorer of the QoS attributes.
+	 * @param transitionTable
+	 *            The transition weights of the concrete services.
+	 */
+	public Ant(CompositionScorer scorer, TransitionTable transitionTable) {
+		int numberOfAbstractServices = scorer.getNoAbstractServices();
 
 		nestPosition = -1;
 		sourcePosition = numberOfAbstractServices;
 
-		mQoSValues = qosValues;
+		mScorer = scorer;
 		mCurrentPosition = -1;
 		mDirection = FORWARD;
 		mPartialSolution = new int[numberOfAbstractServices];
 		mAlreadyFoundACompleteSolution = false;
-		mTotalQoSValues = totalQoSValues;
-		mPheromone = pheromone;
-		mAlpha = alpha;
-		mBeta = beta;
+		mTransitionTable = transitionTable;
+		mRandom = new SplittableRandom();
+	}
+
+	/**
+	 * Sets the random number generator used to select the concrete services.
+	 * Each ant must have its own generator, such as a split of a seeded one,
+	 * so that ants can walk concurrently and reproducibly.
+	 * 
+	 * @param random
+	 *            The random number generator.
+	 */
+	public void setRandom(SplittableRandom random) {
+		mRandom = random;
 	}
 
 	/**
 	 * Moves this ant to the next step in it's walk through the search space.
 	 */
 	public void walk() {
+		mNoSteps++;
+
 		if (mCurrentPosition == nestPosition) {
 			mDirection = FORWARD;
 		} else if (mCurrentPosition == sourcePosition) {
@@ -125,24 +157,12 @@ public class Ant {
 		if (mCurrentPosition == nestPosition
 				|| mCurrentPosition == sourcePosition) {
 			mAlreadyFoundACompleteSolution = true;
+			mNoWalks++;
 			return;
 		}
 
-		double[] probabilities = new double[mTotalQoSValues[mCurrentPosition].length];
-		double sum = 0f;
-		for (int j = 0; j < probabilities.length; j++) {
-			probabilities[j] = ((double) Math.pow(
-					mPheromone[mCurrentPosition][j], mAlpha))
-					* ((double) Math.pow(mTotalQoSValues[mCurrentPosition][j],
-							mBeta));
-			sum += probabilities[j];
-		}
-
-		for (int j = 0; j < probabilities.length; j++) {
-			probabilities[j] = (probabilities[j] / sum);
-		}
-
-		mPartialSolution[mCurrentPosition] = selectWithProbabilities(probabilities);
+		mPartialSolution[mCurrentPosition] = mTransitionTable.sample(
+				mCurrentPosition, mRandom.nextDouble());
 	}
 
 	/**
@@ -153,8 +173,7 @@ public class Ant {
 	public double getNewPheromone() {
 		if (mCurrentPosition == sourcePosition
 				|| (mCurrentPosition == nestPosition && mAlreadyFoundACompleteSolution)) {
-			return QoSAttribute.calculateAggregatedQoS(mQoSValues,
-					mPartialSolution);
+			return mScorer.score(mPartialSolution);
 		}
 		return 0d;
 	}
@@ -173,22 +192,27 @@ public class Ant {
 	}
 
 	/**
-	 * Selects an element from an array, given the respective probabilities of
-	 * each element.
 	 * 
-	 * @param probabilities
-	 *            The probabilities of each element
-	 * @return The index of the selected element.
+	 * @return The number of steps taken since the statistics were last reset.
 	 */
-	private static final int selectWithProbabilities(double[] probabilities) {
-		int elem = 0;
+	public long getNoSteps() {
+		return mNoSteps;
+	}
 
-		double number = (double) Math.random();
-		double sum = probabilities[elem];
-		while (number > sum) {
-			sum += probabilities[++elem];
-		}
+	/**
+	 * 
+	 * @return The number of complete walks since the statistics were last
+	 *         reset.
+	 */
+	public long getNoWalks() {
+		return mNoWalks;
+	}
 
-		return elem;
+	/**
+	 * Sets the number of steps and walks back to zero.
+	 */
+	public void resetStatistics() {
+		mNoSteps = 0;
+		mNoWalks = 0;
 	}
 }
@@ -0,0 +1,169 @@
+package aco;
+
+/**
+ * The transition weights of the ants, i.e. pheromone^alpha * totalQoS^beta for
+ * each concrete service, kept as a cumulative table for each abstract service,
+ * so that an ant selects a concrete service by binary search, in O(log m)
+ * time and without allocating.
+ * 
+ * The heuristic term, totalQoS^beta, is computed once, and again only when the
+ * total QoS changes. The pheromone term changes once per iteration, so the
+ * cumulative tables are refreshed then, by the colony. The table is only read
+ * while the ants walk, so they can share it, even concurrently.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class TransitionTable {
+
+	/**
+	 * The offset of the first concrete service of each abstract service in
+	 * the flat vectors.
+	 */
+	private int[] mOffsets;
+
+	/**
+	 * The pheromone associated with each concrete service.
+	 */
+	private double[] mPheromone;
+
+	/**
+	 * The relative importance of the amount of pheromone.
+	 */
+	private double mAlpha;
+
+	/**
+	 * The relative importance of the heuristic information (the total QoS).
+	 */
+	private double mBeta;
+
+	/**
+	 * The heuristic term of each concrete service, i.e. its total QoS raised
+	 * to beta.
+	 */
+	private double[] mHeuristic;
+
+	/**
+	 * The sum of the weights of each concrete service and of the ones before
+	 * it in the same abstract service.
+	 */
+	private double[] mCumulativeWeights;
+
+	/**
+	 * Creates a table over the given values. The pheromone vector is read
+	 * again whenever the table is refreshed.
+	 * 
+	 * @param offsets
+	 *            The offset of the first concrete service of each abstract
+	 *            service, followed by the total number of concrete services.
+	 * @param totalQoSValues
+	 *            The total QoS value associated with each concrete service.
+	 * @param pheromone
+	 *            The pheromone associated with each concrete service.
+	 * @param alpha
+	 *            The relative importance of the amount of pheromone.
+	 * @param beta
+	 *            The relative importance of the heuristic information (the
+	 *            total QoS).
+	 */
+	public TransitionTable(int[] offsets, double[] totalQoSValues,
+			double[] pheromone, double alpha, double beta) {
+		mOffsets = offsets;
+		mPheromone = pheromone;
+		mAlpha = alpha;
+		mBeta = beta;
+		mHeuristic = new double[offsets[offsets.length - 1]];
+		mCumulativeWeights = new double[offsets[offsets.length - 1]];
+
+		updateHeuristic(totalQoSValues);
+	}
+
+	/**
+	 * Recomputes the heuristic term from new total QoS values, which must be
+	 * called when they change, and refreshes the whole table.
+	 * 
+	 * @param totalQoSValues
+	 *            The total QoS value associated with each concrete service.
+	 */
+	public void updateHeuristic(double[] totalQoSValues) {
+		for (int k = 0; k < mHeuristic.length; k++) {
+			mHeuristic[k] = power(totalQoSValues[k], mBeta);
+		}
+		refresh();
+	}
+
+	/**
+	 * Recomputes the pheromone term and the cumulative tables of all the
+	 * abstract services.
+	 */
+	public void refresh() {
+		refresh(0, mOffsets.length - 1);
+	}
+
+	/**
+	 * Recomputes the pheromone term and the cumulative tables of a range of
+	 * abstract services. Ranges that don't overlap can be refreshed
+	 * concurrently.
+	 * 
+	 * @param from
+	 *            The first abstract service of the range.
+	 * @param to
+	 *            The abstract service after the last one of the range.
+	 */
+	public void refresh(int from, int to) {
+		for (int i = from; i < to; i++) {
+			double sum = 0;
+			for (int k = mOffsets[i]; k < mOffsets[i + 1]; k++) {
+				sum += power(mPheromone[k], mAlpha) * mHeuristic[k];
+				mCumulativeWeights[k] = sum;
+			}
+		}
+	}
+
+	/**
+	 * Selects a concrete service of an abstract service, with probability
+	 * proportional to its weight.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param random
+	 *            A uniformly distributed number in [0, 1).
+	 * @return The index of the selected concrete service. If all the weights
+	 *         are zero, it's 0.
+	 */
+	public int sample(int abstractService, double random) {
+		int low = mOffsets[abstractService];
+		int high = mOffsets[abstractService + 1] - 1;
+		double total = mCumulativeWeights[high];
+		if (total <= 0) {
+			return 0;
+		}
+
+		/* The first concrete service whose cumulative weight exceeds it. */
+		double target = random * total;
+		int first = low;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (mCumulativeWeights[middle] > target) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low - first;
+	}
+
+	/**
+	 * Raises a value to an exponent, skipping Math.pow() for the common
+	 * exponent 1, which gives the same result.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @param exponent
+	 *            The exponent.
+	 * @return The value raised to the exponent.
+	 */
+	private static double power(double value, double exponent) {
+		return exponent == 1 ? value : Math.pow(value, exponent);
+	}
+}
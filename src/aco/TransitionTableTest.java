@@ -0,0 +1,47 @@
+package aco;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TransitionTableTest {
+
+	/* Sampling by cumulative weight, skipping concrete services of weight 0. */
+
+	@Test
+	public void test0() {
+		int[] offsets = { 0, 3, 5, 7 };
+		double[] totalQoS = { 1, 0, 3, 2, 2, 0, 0 };
+		double[] pheromone = { 1, 1, 1, 1, 1, 1, 1 };
+		TransitionTable table = new TransitionTable(offsets, totalQoS,
+				pheromone, 1, 1);
+
+		assertEquals(0, table.sample(0, 0));
+		assertEquals(0, table.sample(0, 0.24));
+		assertEquals(2, table.sample(0, 0.25));
+		assertEquals(2, table.sample(0, 0.999));
+		assertEquals(0, table.sample(1, 0.49));
+		assertEquals(1, table.sample(1, 0.5));
+		assertEquals(0, table.sample(2, 0.5));
+	}
+
+	/* The pheromone term is only picked up when the table is refreshed. */
+
+	@Test
+	public void test1() {
+		int[] offsets = { 0, 2 };
+		double[] totalQoS = { 1, 1 };
+		double[] pheromone = { 1, 1 };
+		TransitionTable table = new TransitionTable(offsets, totalQoS,
+				pheromone, 2, 1);
+
+		assertEquals(0, table.sample(0, 0.4));
+		pheromone[0] = 0.5;
+		assertEquals(0, table.sample(0, 0.4));
+		table.refresh();
+		assertEquals(1, table.sample(0, 0.4));
+
+		table.updateHeuristic(new double[] { 1, 0 });
+		assertEquals(0, table.sample(0, 0.9));
+	}
+}
@@ -1,10 +1,17 @@
 package bb;
 
+import general.CancellationToken;
+import general.Deadline;
 import general.DoubleComparator;
 
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import metrics.BranchAndBoundNodeEvent;
+import metrics.Metrics;
+import metrics.MetricsRegistry;
 
 /**
  * This class implements the Branch and Bound algorithm.
@@ -14,6 +21,30 @@ import java.util.PriorityQueue;
  */
 public class BranchAndBound {
 
+	/**
+	 * Receives the improving integer solutions of a search while it's running.
+	 */
+	public interface SolutionListener {
+
+		/**
+		 * Called whenever a new best integer solution is found, on the thread
+		 * of the search, so it must return quickly.
+		 * 
+		 * @param solution
+		 *            The values of the variables. It must not be modified.
+		 * @param objective
+		 *            The objective value of the solution.
+		 * @param bound
+		 *            An upper bound on the optimal objective value, given by
+		 *            the relaxations still in the queue.
+		 * @param elapsedNanos
+		 *            The time elapsed since the search started, in
+		 *            nanoseconds.
+		 */
+		public void onNewBestSolution(double[] solution, double objective,
+				double bound, long elapsedNanos);
+	}
+
 	/**
 	 * The queue containing the active nodes.
 	 */
@@ -55,6 +86,54 @@ public class BranchAndBound {
 	 */
 	private boolean mVerbose;
 
+	/**
+	 * The deadline of the search.
+	 */
+	private Deadline mDeadline;
+
+	/**
+	 * The token through which the search can be cancelled.
+	 */
+	private CancellationToken mCancellationToken;
+
+	/**
+	 * Whether the search was stopped before the queue was emptied.
+	 */
+	private boolean mIsStopped;
+
+	/**
+	 * The number of nodes taken from the queue.
+	 */
+	private long mNoNodes;
+
+	/**
+	 * The number of nodes added to the queue.
+	 */
+	private long mNoNodesCreated;
+
+	/**
+	 * The number of nodes discarded without branching, either because they
+	 * can't beat a known solution or because their relaxation is infeasible.
+	 */
+	private long mNoNodesPruned;
+
+	/**
+	 * The largest size the queue reached.
+	 */
+	private int mMaxQueueSize;
+
+	/**
+	 * The objective value of a feasible integer solution known outside this
+	 * instance, such as one found by another engine. Nodes that can't beat it
+	 * are pruned.
+	 */
+	private volatile double mExternalLowerBound = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * The listeners notified of each new best integer solution.
+	 */
+	private CopyOnWriteArrayList<SolutionListener> mSolutionListeners = new CopyOnWriteArrayList<SolutionListener>();
+
 	/**
 	 * Creates a BB instance.
 	 * 
@@ -69,6 +148,97 @@ public class BranchAndBound {
 		mNodesQueue = new PriorityQueue<Simplex>(10, mReverseSimplexComparator);
 		mRelaxedBaseProblem = baseRelaxedProblem;
 		mIntegerVariables = integerVariables;
+		mDeadline = Deadline.NONE;
+		mCancellationToken = CancellationToken.NONE;
+	}
+
+	/**
+	 * Sets the deadline of the search. It's checked before each node is
+	 * analyzed. When it expires, the search stops and the best integer
+	 * solution found so far is kept.
+	 * 
+	 * @param deadline
+	 *            The deadline.
+	 */
+	public void setDeadline(Deadline deadline) {
+		mDeadline = deadline;
+	}
+
+	/**
+	 * Sets the token through which the search can be cancelled. It's checked
+	 * before each node is analyzed. When it's cancelled, the search stops and
+	 * the best integer solution found so far is kept.
+	 * 
+	 * @param token
+	 *            The cancellation token.
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		mCancellationToken = token;
+	}
+
+	/**
+	 * Adds a listener to be notified of each new best integer solution.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addSolutionListener(SolutionListener listener) {
+		mSolutionListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by addSolutionListener().
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeSolutionListener(SolutionListener listener) {
+		mSolutionListeners.remove(listener);
+	}
+
+	/**
+	 * Notifies the listeners of the current best solution.
+	 * 
+	 * @param startNanos
+	 *            The value of System.nanoTime() when the search started.
+	 */
+	private void notifyNewBestSolution(long startNanos) {
+		double objective = mBestSolution.getObjectiveValueOfOptimalSolution();
+		double bound = objective;
+		if (!mNodesQueue.isEmpty()) {
+			bound = Math.max(bound, mNodesQueue.peek()
+					.getObjectiveValueOfOptimalSolution());
+		}
+
+		for (SolutionListener listener : mSolutionListeners) {
+			listener.onNewBestSolution(mBestSolution.getSolution(), objective,
+					bound, System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * Raises the objective value of the best feasible integer solution known
+	 * outside this instance. From then on, nodes whose relaxation can't beat it
+	 * are pruned, so the search may end without a solution of its own. It may
+	 * be called from another thread while the problem is being solved.
+	 * 
+	 * @param value
+	 *            The objective value of a feasible integer solution. It's
+	 *            ignored if it's not greater than the current one.
+	 */
+	public synchronized void raiseExternalLowerBound(double value) {
+		if (value > mExternalLowerBound) {
+			mExternalLowerBound = value;
+		}
+	}
+
+	/**
+	 * 
+	 * @return The objective value of the best feasible integer solution known
+	 *         outside this instance, or negative infinity if there's none.
+	 */
+	public double getExternalLowerBound() {
+		return mExternalLowerBound;
 	}
 
 	/**
@@ -107,6 +277,7 @@ public class BranchAndBound {
 			System.out.println("### B&B ### Starting Branch and Bound.");
 		}
 		mIsSolved = true;
+		long startNanos = System.nanoTime();
 
 		if (!mRelaxedBaseProblem.solve()) {
 			/* Relaxed base problem is infeasible. */
@@ -114,6 +285,7 @@ public class BranchAndBound {
 				System.out
 						.println("### B&B ### Relaxed base problem is infeasible; returning.");
 			}
+			flushMetrics(startNanos);
 			return false;
 		}
 
@@ -121,10 +293,22 @@ public class BranchAndBound {
 			System.out
 					.println("### B&B ### Adding initial problem to the queue.");
 		}
-		mNodesQueue.add(mRelaxedBaseProblem);
+		addNode(mRelaxedBaseProblem);
 
 		while (!mNodesQueue.isEmpty()) {
+			if (mDeadline.isExpired() || mCancellationToken.isCancelled()) {
+				if (mVerbose) {
+					System.out
+							.println("### B&B ### Stopped before the queue was emptied.");
+				}
+				mIsStopped = true;
+				break;
+			}
+
 			Simplex currentProblem = mNodesQueue.remove();
+			mNoNodes++;
+			BranchAndBoundNodeEvent event = new BranchAndBoundNodeEvent();
+			event.begin();
 
 			if (mVerbose) {
 				System.out.println("### B&B ### Analyzing next problem:\n"
@@ -142,6 +326,27 @@ public class BranchAndBound {
 					System.out
 							.println("### B&B ### Problem is feasible, but we already have a better or equal solution. Prune by quality.");
 				}
+				mNoNodesPruned++;
+				commitNodeEvent(event, currentProblem,
+						BranchAndBoundNodeEvent.OUTCOME_PRUNED, -1);
+
+				continue;
+			}
+
+			if (DoubleComparator.compare(
+					currentProblem.getObjectiveValueOfOptimalSolution(),
+					mExternalLowerBound) <= 0) {
+				/*
+				 * A solution known outside this instance is better or equal.
+				 * Prune by quality.
+				 */
+				if (mVerbose) {
+					System.out
+							.println("### B&B ### An external solution is better or equal. Prune by quality.");
+				}
+				mNoNodesPruned++;
+				commitNodeEvent(event, currentProblem,
+						BranchAndBoundNodeEvent.OUTCOME_PRUNED, -1);
 
 				continue;
 			}
@@ -159,6 +364,7 @@ public class BranchAndBound {
 						System.out
 								.println("### B&B ### First integer solution found.");
 					}
+					notifyNewBestSolution(startNanos);
 				} else if (mSimplexComparator.compare(currentProblem,
 						mBestSolution) > 0) {
 					/*
@@ -171,7 +377,10 @@ public class BranchAndBound {
 						System.out
 								.println("### B&B ### Found a new best integer solution.");
 					}
+					notifyNewBestSolution(startNanos);
 				}
+				commitNodeEvent(event, currentProblem,
+						BranchAndBoundNodeEvent.OUTCOME_INTEGER, -1);
 			} else {
 				/* Solution has non-integer variables. We need to branch. */
 				if (mVerbose) {
@@ -197,7 +406,9 @@ public class BranchAndBound {
 										.getObjectiveValueOfOptimalSolution()
 								+ ") is feasible. Adding to the queue.");
 					}
-					mNodesQueue.add(leftChild);
+					addNode(leftChild);
+				} else {
+					mNoNodesPruned++;
 				}
 
 				if (rightChild.solve()) {
@@ -207,8 +418,12 @@ public class BranchAndBound {
 										.getObjectiveValueOfOptimalSolution()
 								+ ") is feasible. Adding to the queue.");
 					}
-					mNodesQueue.add(rightChild);
+					addNode(rightChild);
+				} else {
+					mNoNodesPruned++;
 				}
+				commitNodeEvent(event, currentProblem,
+						BranchAndBoundNodeEvent.OUTCOME_BRANCHED, var);
 			}
 		}
 
@@ -216,9 +431,62 @@ public class BranchAndBound {
 			System.out.println("### B&B ### Finished Branch and Bound.");
 		}
 
+		flushMetrics(startNanos);
 		return (mBestSolution != null);
 	}
 
+	/**
+	 * Adds a node to the queue.
+	 * 
+	 * @param node
+	 *            The node, whose relaxation is already solved.
+	 */
+	private void addNode(Simplex node) {
+		mNodesQueue.add(node);
+		mNoNodesCreated++;
+		mMaxQueueSize = Math.max(mMaxQueueSize, mNodesQueue.size());
+	}
+
+	/**
+	 * Ends and commits the flight recorder event of a node expansion, if it's
+	 * enabled.
+	 * 
+	 * @param event
+	 *            The event.
+	 * @param node
+	 *            The node.
+	 * @param outcome
+	 *            One of the outcomes defined in BranchAndBoundNodeEvent.
+	 * @param branchingVariable
+	 *            The variable branched on, or -1.
+	 */
+	private void commitNodeEvent(BranchAndBoundNodeEvent event, Simplex node,
+			String outcome, int branchingVariable) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.bound = node.getObjectiveValueOfOptimalSolution();
+			event.outcome = outcome;
+			event.branchingVariable = branchingVariable;
+			event.queueSize = mNodesQueue.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Adds the statistics of the search to the metrics registry.
+	 * 
+	 * @param startNanos
+	 *            When the search started.
+	 */
+	private void flushMetrics(long startNanos) {
+		MetricsRegistry registry = Metrics.getRegistry();
+		registry.counter("bb.nodesCreated").add(mNoNodesCreated);
+		registry.counter("bb.nodesExplored").add(mNoNodes);
+		registry.counter("bb.nodesPruned").add(mNoNodesPruned);
+		registry.histogram("bb.queueHighWaterMark").record(mMaxQueueSize);
+		registry.timer("bb.solve").recordSince(startNanos);
+	}
+
 	/**
 	 * Returns the solution found, or null if the problem is infeasible or
 	 * unbounded, raising an exception if it was not solved yet.
@@ -256,6 +524,56 @@ public class BranchAndBound {
 		return mBestSolution.getObjectiveValueOfOptimalSolution();
 	}
 
+	/**
+	 * Returns an upper bound on the objective value of the optimal solution.
+	 * If the search was completed, it's the objective value of the solution
+	 * found; otherwise, it's the best objective value among the solution found
+	 * and the relaxations still in the queue.
+	 * 
+	 * @return An upper bound on the optimal objective value, or negative
+	 *         infinity if the problem is infeasible.
+	 */
+	public double getBound() {
+		if (!mIsSolved) {
+			throw new IllegalStateException("Problem not solved.");
+		}
+
+		double bound = Double.NEGATIVE_INFINITY;
+		if (mBestSolution != null) {
+			bound = mBestSolution.getObjectiveValueOfOptimalSolution();
+		}
+		if (mIsStopped && !mNodesQueue.isEmpty()) {
+			bound = Math.max(bound, mNodesQueue.peek()
+					.getObjectiveValueOfOptimalSolution());
+		}
+		return bound;
+	}
+
+	/**
+	 * 
+	 * @return True if the search was stopped by the deadline or the
+	 *         cancellation token; false otherwise.
+	 */
+	public boolean isStopped() {
+		return mIsStopped;
+	}
+
+	/**
+	 * 
+	 * @return The number of nodes analyzed.
+	 */
+	public long getNoNodes() {
+		return mNoNodes;
+	}
+
+	/**
+	 * 
+	 * @return The largest size the queue of nodes reached.
+	 */
+	public int getMaxQueueSize() {
+		return mMaxQueueSize;
+	}
+
 	/**
 	 * Returns the relaxed base problem.
 	 * 
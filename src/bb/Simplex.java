@@ -6,6 +6,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 
+import metrics.Metrics;
+import metrics.MetricsRegistry;
+import metrics.SimplexSolveEvent;
+
 /**
  * This class implements the Simplex algorithm, based on the book "Introduction
  * to Algorithms", 2nd Edition, by T. Cormen, C. Leiserson, R. Rivest and C.
@@ -96,6 +100,18 @@ public class Simplex {
 	 */
 	private boolean mIsSolved;
 
+	/**
+	 * The number of pivots performed, including those of the auxiliary
+	 * problem.
+	 */
+	private long mNoPivots;
+
+	/**
+	 * Whether the auxiliary problem had to be solved to find a feasible
+	 * initial basic solution.
+	 */
+	private boolean mUsedPhaseOne;
+
 	public Simplex() {
 		mConstraints = new ArrayList<Constraint>();
 	}
@@ -308,6 +324,8 @@ public class Simplex {
 	 *            The entering variable.
 	 */
 	private void pivot(int leaving, int entering) {
+		mNoPivots++;
+
 		/* Compute the coefficients of the equation for new variable xe. */
 		mb[entering - 1] = mb[leaving - 1] / mA[leaving - 1][entering - 1];
 
@@ -408,6 +426,7 @@ public class Simplex {
 		 * If the initial basic solution is infeasible, we must create and solve
 		 * the auxiliary linear program.
 		 */
+		mUsedPhaseOne = true;
 		Simplex lAux = new Simplex(this);
 		int n = lAux.getOriginalNoVariables(); // DOESN'T INCLUDE "x0".
 
@@ -430,6 +449,7 @@ public class Simplex {
 
 		/* The basic solution of lAux is now feasible. */
 		lAux.doMainSimplexLoop();
+		mNoPivots += lAux.mNoPivots;
 
 		double[] solution = lAux.getSolution();
 
@@ -463,6 +483,7 @@ public class Simplex {
 				}
 
 				lAux.pivot(n + 1, y);
+				mNoPivots++;
 			}
 
 			/* Computing the coefficients of the new objective function. */
@@ -620,19 +641,99 @@ public class Simplex {
 	 * @return True if problem is feasible and bounded; false otherwise.
 	 */
 	public boolean solve() {
+		SimplexSolveEvent event = new SimplexSolveEvent();
+		event.begin();
+		int noConstraints = mConstraints.size();
+
+		long startNanos = System.nanoTime();
 		toStandardForm();
 
+		long standardFormNanos = System.nanoTime();
 		initializeSimplex();
+		long initializedNanos = System.nanoTime();
 		if (!mIsFeasible || !mIsBounded) {
 			mIsSolved = true;
+			flushMetrics(startNanos, standardFormNanos, initializedNanos, -1);
+			commitEvent(event, noConstraints, false);
 			return false;
 		}
 
 		doMainSimplexLoop();
+		flushMetrics(startNanos, standardFormNanos, initializedNanos,
+				System.nanoTime());
+		commitEvent(event, noConstraints, mIsBounded);
 
 		return mIsBounded;
 	}
 
+	/**
+	 * Ends and commits the flight recorder event of a call to solve(), if
+	 * it's enabled.
+	 * 
+	 * @param event
+	 *            The event.
+	 * @param noConstraints
+	 *            The number of constraints before the conversion to the
+	 *            standard form.
+	 * @param feasible
+	 *            Whether the problem is feasible and bounded.
+	 */
+	private void commitEvent(SimplexSolveEvent event, int noConstraints,
+			boolean feasible) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.noVariables = getOriginalNoVariables();
+			event.noConstraints = noConstraints;
+			event.pivots = mNoPivots;
+			event.phaseOne = mUsedPhaseOne;
+			event.feasible = feasible;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Adds the statistics of the last call to solve() to the metrics
+	 * registry.
+	 * 
+	 * @param startNanos
+	 *            When the conversion to the standard form started.
+	 * @param standardFormNanos
+	 *            When the initialization started.
+	 * @param initializedNanos
+	 *            When the main loop started.
+	 * @param endNanos
+	 *            When the main loop ended, or -1 if it didn't run.
+	 */
+	private void flushMetrics(long startNanos, long standardFormNanos,
+			long initializedNanos, long endNanos) {
+		MetricsRegistry registry = Metrics.getRegistry();
+		registry.counter("simplex.solves").increment();
+		registry.counter("simplex.pivots").add(mNoPivots);
+		registry.timer("simplex.standardForm").record(
+				standardFormNanos - startNanos);
+		if (mUsedPhaseOne) {
+			registry.counter("simplex.phaseOneInvocations").increment();
+			registry.timer("simplex.phaseOne").record(
+					initializedNanos - standardFormNanos);
+		} else {
+			registry.timer("simplex.slackForm").record(
+					initializedNanos - standardFormNanos);
+		}
+		if (endNanos >= 0) {
+			registry.timer("simplex.mainLoop").record(
+					endNanos - initializedNanos);
+		}
+	}
+
+	/**
+	 * 
+	 * @return The number of pivots performed by solve(), including those of
+	 *         the auxiliary problem.
+	 */
+	public long getNoPivots() {
+		return mNoPivots;
+	}
+
 	/**
 	 * Returns the solution found, or null if it is infeasible or unbounded,
 	 * raising an exception if "solve" wasn't called before.
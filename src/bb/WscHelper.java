@@ -1,10 +1,15 @@
 package bb;
 
+import general.CompositionScorer;
 import general.DoubleComparator;
+import general.Incumbent;
+import general.IncumbentListener;
 import general.QoSAttribute;
+import general.TotalQoS;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class adapts a given Web Service composition problem, possibly with
@@ -21,6 +26,18 @@ public class WscHelper {
 	 */
 	private QoSAttribute[] mQoSAttributes;
 
+	/**
+	 * The cached total QoS of each concrete service, used as the objective
+	 * function when some attribute isn't aggregated by sum or by average.
+	 */
+	private TotalQoS mTotalQoS;
+
+	/**
+	 * The coefficients of the objective function of the last problem
+	 * generated by getProblem(), or null if none was generated.
+	 */
+	private volatile double[] mObjectiveCoefficients;
+
 	/**
 	 * The constraints over the aggregated QoS values.
 	 */
@@ -46,14 +63,33 @@ public class WscHelper {
 	 */
 	private double[] mLastSolution;
 
+	/**
+	 * The listeners notified of each improving composition found by the
+	 * problems generated by this helper.
+	 */
+	private CopyOnWriteArrayList<IncumbentListener> mIncumbentListeners;
+
 	public WscHelper(QoSAttribute[] attributes) {
+		this(new TotalQoS(attributes));
+	}
+
+	/**
+	 * Creates a helper over a cached total QoS. When the weights are changed
+	 * through the cache, the next problem generated uses the new objective
+	 * function.
+	 * 
+	 * @param totalQoS
+	 *            The cached total QoS of the attributes.
+	 */
+	public WscHelper(TotalQoS totalQoS) {
+		QoSAttribute[] attributes = totalQoS.getAttributes();
+		mTotalQoS = totalQoS;
 		mQoSAttributes = attributes;
 		mConstraints = new ArrayList<Constraint>();
+		mIncumbentListeners = new CopyOnWriteArrayList<IncumbentListener>();
 
-		mNoAbstractServices = attributes[0].getValues().length;
-		for (int i = 0; i < mNoAbstractServices; i++) {
-			mNoConcreteServices += attributes[0].getValues()[i].length;
-		}
+		mNoAbstractServices = attributes[0].getNoAbstractServices();
+		mNoConcreteServices = attributes[0].getOffsets()[mNoAbstractServices];
 	}
 
 	/**
@@ -69,16 +105,16 @@ public class WscHelper {
 	public void addConstraintOnAttribute(int attributeIndex, int rel, double b) {
 		double[] a = new double[mNoConcreteServices];
 
+		QoSAttribute attribute = mQoSAttributes[attributeIndex];
 		int accum = 0;
-		switch (mQoSAttributes[attributeIndex].getAggregationMethod()) {
+		switch (attribute.getAggregationMethod()) {
 		case QoSAttribute.AGGREGATE_BY_PRODUCT:
 			throw new IllegalArgumentException(
 					"Non-linear aggregation function.");
 		case QoSAttribute.AGGREGATE_BY_AVERAGE:
 			for (int i = 0; i < mNoAbstractServices; i++) {
-				for (int j = 0; j < mQoSAttributes[attributeIndex].getValues()[i].length; j++) {
-					a[accum] = mQoSAttributes[attributeIndex].getValues()[i][j]
-							/ mNoAbstractServices;
+				for (int j = 0; j < attribute.getNoConcreteServices(i); j++) {
+					a[accum] = attribute.getValue(i, j) / mNoAbstractServices;
 					accum++;
 				}
 			}
@@ -86,8 +122,8 @@ public class WscHelper {
 			break;
 		case QoSAttribute.AGGREGATE_BY_SUM:
 			for (int i = 0; i < mNoAbstractServices; i++) {
-				for (int j = 0; j < mQoSAttributes[attributeIndex].getValues()[i].length; j++) {
-					a[accum] = mQoSAttributes[attributeIndex].getValues()[i][j];
+				for (int j = 0; j < attribute.getNoConcreteServices(i); j++) {
+					a[accum] = attribute.getValue(i, j);
 					accum++;
 				}
 			}
@@ -100,6 +136,28 @@ public class WscHelper {
 		mIsSolved = false;
 	}
 
+	/**
+	 * Adds a listener to be notified of each improving composition found by
+	 * the problems generated from then on. The objective value and the bound
+	 * of the incumbents are those of the MIP problem.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by addIncumbentListener().
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.remove(listener);
+	}
+
 	/**
 	 * Manually adds a constraint.
 	 * 
@@ -136,24 +194,20 @@ public class WscHelper {
 	public BranchAndBound getProblem() {
 		Simplex s = new Simplex();
 
-		double[][] totalQoS = QoSAttribute.calculateTotalQoS(mQoSAttributes);
+		double[] coefficients = getObjectiveCoefficients();
+		mObjectiveCoefficients = coefficients;
 
 		double[] objectiveFunction = new double[mNoConcreteServices + 1];
-		int accum = 0;
-		for (int i = 0; i < mNoAbstractServices; i++) {
-			for (int j = 0; j < totalQoS[i].length; j++) {
-				objectiveFunction[accum + 1] = totalQoS[i][j];
-				accum++;
-			}
-		}
+		System.arraycopy(coefficients, 0, objectiveFunction, 1,
+				mNoConcreteServices);
 
 		s.setObjectiveFuntion(objectiveFunction, Simplex.MAXIMIZE);
 
 		/* Adding the common constraints. */
-		accum = 0;
+		int accum = 0;
 		for (int i = 0; i < mNoAbstractServices; i++) {
 			double[] a = new double[mNoConcreteServices];
-			for (int j = 0; j < totalQoS[i].length; j++) {
+			for (int j = 0; j < mQoSAttributes[0].getNoConcreteServices(i); j++) {
 				s.addBinaryVariableConstraint(accum + 1);
 				a[accum] = 1;
 				accum++;
@@ -172,6 +226,25 @@ public class WscHelper {
 
 		BranchAndBound bb = new BranchAndBound(s, integerVariables);
 
+		if (!mIncumbentListeners.isEmpty()) {
+			final CompositionScorer scorer = new CompositionScorer(
+					mQoSAttributes);
+			bb.addSolutionListener(new BranchAndBound.SolutionListener() {
+
+				@Override
+				public void onNewBestSolution(double[] solution,
+						double objective, double bound, long elapsedNanos) {
+					int[] composition = toComposition(solution);
+					Incumbent incumbent = new Incumbent(composition,
+							scorer.score(composition), objective, bound,
+							elapsedNanos);
+					for (IncumbentListener listener : mIncumbentListeners) {
+						listener.onIncumbent(incumbent);
+					}
+				}
+			});
+		}
+
 		return bb;
 	}
 
@@ -203,22 +276,37 @@ public class WscHelper {
 			throw new IllegalStateException("Problem not solved.");
 		}
 
-		if (mLastSolution == null) {
+		return toComposition(mLastSolution);
+	}
+
+	/**
+	 * Converts a solution of the problem generated by getProblem() into the
+	 * concrete service that must be chosen for each abstract service.
+	 * 
+	 * @param mipSolution
+	 *            The values of the binary variables, as returned by
+	 *            BranchAndBound.getSolution().
+	 * @return A vector containing which concrete service should be selected for
+	 *         each abstract service, or null if mipSolution is null.
+	 */
+	public int[] toComposition(double[] mipSolution) {
+		if (mipSolution == null) {
 			return null;
 		}
 
 		int[] solution = new int[mNoAbstractServices];
 
-		double[][] values = mQoSAttributes[0].getValues();
+		QoSAttribute shape = mQoSAttributes[0];
 
 		int next = 0;
-		for (int i = 0; i < values.length; i++) {
-			for (int j = 0; j < values[i].length; j++) {
-				if (DoubleComparator.compare(mLastSolution[next], 0d) == 0) {
+		for (int i = 0; i < mNoAbstractServices; i++) {
+			int noConcreteServices = shape.getNoConcreteServices(i);
+			for (int j = 0; j < noConcreteServices; j++) {
+				if (DoubleComparator.compare(mipSolution[next], 0d) == 0) {
 					next++;
-				} else if (DoubleComparator.compare(mLastSolution[next], 1d) == 0) {
+				} else if (DoubleComparator.compare(mipSolution[next], 1d) == 0) {
 					solution[i] = j;
-					next += (values[i].length - j);
+					next += (noConcreteServices - j);
 					break;
 				}
 			}
@@ -227,6 +315,107 @@ public class WscHelper {
 		return solution;
 	}
 
+	/**
+	 * Checks whether a composition satisfies all the constraints added to this
+	 * helper. The composition itself isn't checked.
+	 * 
+	 * @param composition
+	 *            A vector containing the index of the concrete service
+	 *            corresponding to each abstract service.
+	 * @return True if the composition satisfies all the constraints; false
+	 *         otherwise.
+	 */
+	public boolean isFeasible(int[] composition) {
+		int[] offsets = mQoSAttributes[0].getOffsets();
+
+		for (Constraint c : mConstraints) {
+			double lhs = 0;
+			for (int i = 0; i < mNoAbstractServices; i++) {
+				lhs += c.a[offsets[i] + composition[i]];
+			}
+
+			int comparison = DoubleComparator.compare(lhs, c.b);
+			if ((c.rel == Simplex.LTE && comparison > 0)
+					|| (c.rel == Simplex.GTE && comparison < 0)
+					|| (c.rel == Simplex.EQUALS && comparison != 0)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the coefficient of each concrete service in the objective
+	 * function. When all the attributes are aggregated by sum or by average,
+	 * it's the contribution of the service to the aggregated QoS, as given by
+	 * QoSAttribute.calculateFlatContributions(), so that the objective agrees
+	 * with the score. Otherwise, it's the cached total QoS, a linear surrogate
+	 * of the score.
+	 * 
+	 * @return The coefficient of each concrete service.
+	 */
+	private double[] getObjectiveCoefficients() {
+		if (isObjectiveExact()) {
+			return QoSAttribute.calculateFlatContributions(mQoSAttributes);
+		}
+		return mTotalQoS.getValues();
+	}
+
+	/**
+	 * Returns the value of the objective function of the problem generated by
+	 * getProblem() at a composition, i.e. the sum of the coefficients of the
+	 * selected concrete services. The coefficients of the last problem
+	 * generated are used, or the current ones if no problem was generated yet.
+	 * The composition isn't checked.
+	 * 
+	 * @param composition
+	 *            A vector containing the index of the concrete service
+	 *            corresponding to each abstract service.
+	 * @return The objective value of the composition.
+	 */
+	public double getObjectiveValue(int[] composition) {
+		int[] offsets = mQoSAttributes[0].getOffsets();
+		double[] coefficients = mObjectiveCoefficients;
+		if (coefficients == null) {
+			coefficients = getObjectiveCoefficients();
+		}
+
+		double value = 0;
+		for (int i = 0; i < mNoAbstractServices; i++) {
+			value += coefficients[offsets[i] + composition[i]];
+		}
+		return value;
+	}
+
+	/**
+	 * Checks whether the objective function of the problem generated by
+	 * getProblem() is an increasing function of the score of
+	 * CompositionScorer, so that an optimal solution of the problem is also a
+	 * composition with the best score. This holds when all the attributes are
+	 * aggregated by sum or by average.
+	 * 
+	 * @return True if the objective function agrees with the score; false
+	 *         otherwise.
+	 */
+	public boolean isObjectiveExact() {
+		for (QoSAttribute attribute : mQoSAttributes) {
+			if (attribute.getAggregationMethod() != QoSAttribute.AGGREGATE_BY_SUM
+					&& attribute.getAggregationMethod() != QoSAttribute.AGGREGATE_BY_AVERAGE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @return The QoS attributes considered by this helper.
+	 */
+	public QoSAttribute[] getAttributes() {
+		return mQoSAttributes;
+	}
+
 	/**
 	 * @param args
 	 */
@@ -0,0 +1,92 @@
+package bb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import general.CompositionScorer;
+import general.Incumbent;
+import general.IncumbentListener;
+import general.QoSAttribute;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import instance.InstanceGenerator;
+
+public class WscHelperTest {
+
+	/*
+	 * The incumbents of a search improve in order, are bounded from above,
+	 * and end with the solution of the search.
+	 */
+
+	@Test
+	public void test0() {
+		for (long seed = 0; seed < 5; seed++) {
+			QoSAttribute[] attributes = new InstanceGenerator(seed)
+					.generateAttributes(6, 3, 6, new int[] {
+							QoSAttribute.AGGREGATE_BY_SUM,
+							QoSAttribute.AGGREGATE_BY_AVERAGE }, new double[] {
+							0.6, 0.4 },
+							InstanceGenerator.CORRELATION_ANTI_CORRELATED);
+			WscHelper helper = new WscHelper(attributes);
+			final ArrayList<Incumbent> incumbents = new ArrayList<Incumbent>();
+			helper.addIncumbentListener(new IncumbentListener() {
+
+				@Override
+				public void onIncumbent(Incumbent incumbent) {
+					incumbents.add(incumbent);
+				}
+			});
+
+			assertTrue(helper.solveProblem());
+			assertFalse(incumbents.isEmpty());
+
+			CompositionScorer scorer = new CompositionScorer(attributes);
+			Incumbent previous = null;
+			for (Incumbent incumbent : incumbents) {
+				assertEquals(scorer.score(incumbent.getComposition()),
+						incumbent.getScore(), 1e-12);
+				assertEquals(helper.getObjectiveValue(incumbent
+						.getComposition()), incumbent.getObjective(), 1e-9);
+				assertTrue(incumbent.getBound() >= incumbent.getObjective()
+						- 1e-9);
+				if (previous != null) {
+					assertTrue(incumbent.getObjective() > previous
+							.getObjective());
+					assertTrue(incumbent.getElapsedNanos() >= previous
+							.getElapsedNanos());
+				}
+				previous = incumbent;
+			}
+			assertArrayEquals(helper.getSolution(), previous.getComposition());
+		}
+	}
+
+	/* No incumbent is reported after the listener is removed. */
+
+	@Test
+	public void test1() {
+		QoSAttribute[] attributes = new InstanceGenerator(0)
+				.generateAttributes(4, 2, 4,
+						new int[] { QoSAttribute.AGGREGATE_BY_SUM },
+						new double[] { 1 },
+						InstanceGenerator.CORRELATION_INDEPENDENT);
+		WscHelper helper = new WscHelper(attributes);
+		final ArrayList<Incumbent> incumbents = new ArrayList<Incumbent>();
+		IncumbentListener listener = new IncumbentListener() {
+
+			@Override
+			public void onIncumbent(Incumbent incumbent) {
+				incumbents.add(incumbent);
+			}
+		};
+
+		helper.addIncumbentListener(listener);
+		helper.removeIncumbentListener(listener);
+		assertTrue(helper.solveProblem());
+		assertTrue(incumbents.isEmpty());
+	}
+}
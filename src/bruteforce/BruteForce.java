@@ -1,23 +1,57 @@
 package bruteforce;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
 import general.DoubleComparator;
+import general.Incumbent;
+import general.IncumbentListener;
+import general.IncrementalEvaluator;
 import general.QoSAttribute;
+import metrics.Metrics;
+import metrics.MetricsRegistry;
 
 /**
  * This class implements the Brute Force algorithm.
  * 
+ * By default, it enumerates every composition in Gray code order, so that
+ * consecutive compositions differ in a single abstract service and each one is
+ * scored incrementally. With setPruning(), it runs an exact depth-first search
+ * instead, which tries the most promising concrete services first and skips
+ * the subtrees whose optimistic bound can't beat the best composition found so
+ * far. Constraints over the aggregated values of the attributes, of any
+ * aggregation method, are supported in both modes, and the search also skips
+ * the prefixes that can't satisfy them.
+ * 
  * @author Andre Luiz Verucci da Cunha
  * 
  */
 public class BruteForce {
 
+	/**
+	 * The number of compositions evaluated between two checks of the deadline
+	 * and the cancellation token, minus one. It must be a power of two minus
+	 * one.
+	 */
+	private static final long STOP_CHECK_MASK = 0xFFF;
+
 	/**
 	 * The QoS attributes.
 	 */
 	private QoSAttribute[] mQoSAttributes;
 
+	/**
+	 * The scorer used to evaluate each composition.
+	 */
+	private CompositionScorer mScorer;
+
 	/**
 	 * The best composition.
 	 */
@@ -29,14 +63,118 @@ public class BruteForce {
 	private double mBestQoS;
 
 	/**
-	 * The composition currently being evaluated by backtrack().
+	 * The composition currently being evaluated by the pruned search.
 	 */
 	private int[] mCurrComposition;
 
 	/**
-	 * The values of any QoS attribute, just for code shortness.
+	 * The number of concrete services of each abstract service.
+	 */
+	private int[] mNoConcreteServices;
+
+	/**
+	 * The deadline of the search.
+	 */
+	private Deadline mDeadline;
+
+	/**
+	 * The token through which the search can be cancelled.
+	 */
+	private CancellationToken mCancellationToken;
+
+	/**
+	 * The number of compositions evaluated by the last search.
+	 */
+	private long mNoEvaluations;
+
+	/**
+	 * Whether the last search was stopped before enumerating all the
+	 * compositions.
+	 */
+	private boolean mIsStopped;
+
+	/**
+	 * The listeners notified of each improving composition.
+	 */
+	private CopyOnWriteArrayList<IncumbentListener> mIncumbentListeners;
+
+	/**
+	 * The value of System.nanoTime() when the last search started.
+	 */
+	private long mStartNanos;
+
+	/**
+	 * Whether the search skips the subtrees that can't improve the best
+	 * composition.
+	 */
+	private boolean mIsPruning;
+
+	/**
+	 * The bounds and constraints of the search, or null if they weren't
+	 * needed yet.
+	 */
+	private CompositionBounds mBounds;
+
+	/**
+	 * The partial aggregates of each prefix of the current composition, used
+	 * by the pruned search.
+	 */
+	private double[][] mPartials;
+
+	/**
+	 * Whether the last search found a composition that satisfies all the
+	 * constraints.
+	 */
+	private boolean mHasSolution;
+
+	/**
+	 * The rank of the first composition to be enumerated.
+	 */
+	private long mRangeStart;
+
+	/**
+	 * The rank after the last composition to be enumerated.
+	 */
+	private long mRangeEnd;
+
+	/**
+	 * The file where the enumeration writes its checkpoints, or null if it
+	 * doesn't.
+	 */
+	private Path mCheckpointPath;
+
+	/**
+	 * The minimum time between two checkpoints, in nanoseconds.
+	 */
+	private long mCheckpointIntervalNanos;
+
+	/**
+	 * The fingerprint of the attributes written to the checkpoints of the
+	 * current search. It's computed once per search, since it hashes every
+	 * value of the instance.
+	 */
+	private long mFingerprint;
+
+	/**
+	 * The checkpoint from which the next search resumes, or null if it starts
+	 * over.
+	 */
+	private Checkpoint mResumedCheckpoint;
+
+	/**
+	 * The rank from which the last search resumed, or 0 if it didn't.
+	 */
+	private long mResumedCursor;
+
+	/**
+	 * The number of nodes visited by the last pruned search.
 	 */
-	private double[][] mAuxValues;
+	private long mNoNodes;
+
+	/**
+	 * The number of subtrees skipped by the last pruned search.
+	 */
+	private long mNoPrunedNodes;
 
 	/**
 	 * Default constructor.
@@ -46,48 +184,475 @@ public class BruteForce {
 	 */
 	public BruteForce(QoSAttribute[] qosAttributes) {
 		mQoSAttributes = qosAttributes;
-		mAuxValues = qosAttributes[0].getValues();
-		mBestComposition = new int[mAuxValues.length];
-		mCurrComposition = new int[mAuxValues.length];
+		mScorer = new CompositionScorer(qosAttributes);
+		mNoConcreteServices = new int[qosAttributes[0].getNoAbstractServices()];
+		for (int i = 0; i < mNoConcreteServices.length; i++) {
+			mNoConcreteServices[i] = qosAttributes[0].getNoConcreteServices(i);
+		}
+		mBestComposition = new int[mNoConcreteServices.length];
+		mRangeEnd = Long.MAX_VALUE;
+		mCurrComposition = new int[mNoConcreteServices.length];
+		mDeadline = Deadline.NONE;
+		mCancellationToken = CancellationToken.NONE;
+		mIncumbentListeners = new CopyOnWriteArrayList<IncumbentListener>();
 	}
 
 	/**
-	 * Enumerates all possible compositions and chooses the one with the best
-	 * aggregated QoS.
+	 * Adds a listener to be notified of each improving composition found by
+	 * the search. Brute Force can't bound the optimum before the search ends,
+	 * so the bound of the incumbents is NaN.
 	 * 
-	 * @param from
-	 *            The abstract service from which to start the search.
+	 * @param listener
+	 *            The listener.
 	 */
-	private void backtrack(int from) {
-		for (int i = 0; i < mAuxValues[from].length; i++) {
-			mCurrComposition[from] = i;
+	public void addIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.add(listener);
+	}
 
-			if (from != mAuxValues.length - 1) {
-				backtrack(from + 1);
-			} else {
-				double newQoS = QoSAttribute.calculateAggregatedQoS(
-						mQoSAttributes, mCurrComposition);
-				if (DoubleComparator.compare(newQoS, mBestQoS) > 0) {
-					mBestQoS = newQoS;
-					System.arraycopy(mCurrComposition, 0, mBestComposition, 0,
-							mCurrComposition.length);
+	/**
+	 * Removes a listener added by addIncumbentListener().
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.remove(listener);
+	}
+
+	/**
+	 * Sets the deadline of the search. When it expires, the search stops and
+	 * the best composition found so far is returned.
+	 * 
+	 * @param deadline
+	 *            The deadline.
+	 */
+	public void setDeadline(Deadline deadline) {
+		mDeadline = deadline;
+	}
+
+	/**
+	 * Sets the token through which the search can be cancelled. When it's
+	 * cancelled, the search stops and the best composition found so far is
+	 * returned.
+	 * 
+	 * @param token
+	 *            The cancellation token.
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		mCancellationToken = token;
+	}
+
+	/**
+	 * Sets whether the search skips the subtrees that can't improve the best
+	 * composition found so far. The pruned search is still exact, but among
+	 * compositions whose scores are within the tolerance of DoubleComparator,
+	 * it may return a different one than the full enumeration.
+	 * 
+	 * @param pruning
+	 *            True to prune; false to enumerate every composition.
+	 */
+	public void setPruning(boolean pruning) {
+		mIsPruning = pruning;
+	}
+
+	/**
+	 * Restricts the search to the compositions whose ranks, i.e. their indices
+	 * in the Gray code order of MixedRadixGrayCode, are in [start, end). The
+	 * ranges of several searches can then split the compositions among them.
+	 * A restricted search always enumerates its compositions, even if
+	 * setPruning() was called, since the pruned search doesn't follow the
+	 * Gray code order.
+	 * 
+	 * @param start
+	 *            The rank of the first composition.
+	 * @param end
+	 *            The rank after the last composition. Ranks past
+	 *            getNoCompositions() are ignored.
+	 */
+	public void setRange(long start, long end) {
+		if (start < 0 || end < start) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid range: [%d, %d)", start, end));
+		}
+		mRangeStart = start;
+		mRangeEnd = end;
+	}
+
+	/**
+	 * 
+	 * @return The number of compositions, or Long.MAX_VALUE if it doesn't fit
+	 *         in a long.
+	 */
+	public long getNoCompositions() {
+		return new MixedRadixGrayCode(mNoConcreteServices).getSize();
+	}
+
+	/**
+	 * Makes the enumeration write a checkpoint to the given file periodically,
+	 * when it's stopped and when it ends, so that it can be resumed after a
+	 * restart with resume(). Each checkpoint atomically replaces the previous
+	 * one. The pruned search doesn't write checkpoints.
+	 * 
+	 * @param path
+	 *            The checkpoint file, or null to stop writing checkpoints.
+	 * @param intervalMillis
+	 *            The minimum time between two checkpoints, in milliseconds.
+	 */
+	public void setCheckpoint(Path path, long intervalMillis) {
+		if (intervalMillis < 0) {
+			throw new IllegalArgumentException("Invalid interval: "
+					+ intervalMillis);
+		}
+		mCheckpointPath = path;
+		mCheckpointIntervalNanos = intervalMillis * 1000000L;
+	}
+
+	/**
+	 * Makes the next search resume from a checkpoint, if the given file
+	 * exists: the enumeration continues from the composition after the last
+	 * one evaluated, starting with the best composition found before it. The
+	 * checkpoint must have been written for the same attributes and range, so
+	 * setRange() must be called before.
+	 * 
+	 * @param path
+	 *            The checkpoint file.
+	 * @return True if the search will resume; false if the file doesn't
+	 *         exist, in which case the search starts over.
+	 * @throws IOException
+	 *             If the file can't be read, or if it belongs to another
+	 *             instance or range.
+	 */
+	public boolean resume(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			mResumedCheckpoint = null;
+			return false;
+		}
+
+		Checkpoint checkpoint = Checkpoint.read(path);
+		if (checkpoint.fingerprint != Checkpoint.fingerprint(mQoSAttributes)) {
+			throw new IOException(path + " belongs to another instance.");
+		}
+		if (checkpoint.start != mRangeStart || checkpoint.end != mRangeEnd) {
+			throw new IOException(path + " belongs to another range.");
+		}
+		if (checkpoint.cursor < checkpoint.start
+				|| checkpoint.cursor > checkpoint.end) {
+			throw new IOException(path + " is inconsistent.");
+		}
+		if (checkpoint.composition != null) {
+			try {
+				mScorer.checkComposition(checkpoint.composition);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(path + " is inconsistent.", e);
+			}
+		}
+
+		mResumedCheckpoint = checkpoint;
+		return true;
+	}
+
+	/**
+	 * Writes a checkpoint of the enumeration.
+	 * 
+	 * @param cursor
+	 *            The rank of the next composition to be evaluated.
+	 */
+	private void writeCheckpoint(long cursor) {
+		Checkpoint checkpoint = new Checkpoint();
+		checkpoint.fingerprint = mFingerprint;
+		checkpoint.start = mRangeStart;
+		checkpoint.end = mRangeEnd;
+		checkpoint.cursor = cursor;
+		checkpoint.noEvaluations = mNoEvaluations;
+		if (mHasSolution) {
+			checkpoint.composition = mBestComposition;
+			checkpoint.qos = mScorer.score(mBestComposition);
+		}
+
+		try {
+			checkpoint.write(mCheckpointPath);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Adds a constraint over the aggregated value of an attribute, as in
+	 * WscHelper, except that attributes aggregated by product are also
+	 * supported.
+	 * 
+	 * @param attributeIndex
+	 *            The index of the attribute.
+	 * @param rel
+	 *            One of Simplex.GTE, Simplex.EQUALS and Simplex.LTE.
+	 * @param b
+	 *            The right-hand term of the constraint.
+	 */
+	public void addConstraintOnAttribute(int attributeIndex, int rel, double b) {
+		getBounds().addConstraint(attributeIndex, rel, b);
+	}
+
+	/**
+	 * 
+	 * @return The bounds of the search, which are created on demand.
+	 */
+	private CompositionBounds getBounds() {
+		if (mBounds == null) {
+			mBounds = new CompositionBounds(mQoSAttributes);
+		}
+		return mBounds;
+	}
+
+	/**
+	 * Enumerates the compositions of the range in Gray code order and chooses
+	 * the one with the best aggregated QoS. Consecutive compositions differ in
+	 * a single abstract service, so each one is scored, and checked against
+	 * the constraints, incrementally in O(attributes). The best composition
+	 * is rescored exactly at the end.
+	 */
+	private void enumerate() {
+		MixedRadixGrayCode code = new MixedRadixGrayCode(mNoConcreteServices);
+		long end = Math.min(mRangeEnd, code.getSize());
+		long start = Math.max(mRangeStart, mResumedCursor);
+		if (start >= end) {
+			return;
+		}
+		code.seek(start);
+		int[] composition = code.getDigits();
+		IncrementalEvaluator evaluator = new IncrementalEvaluator(
+				mQoSAttributes, composition);
+		boolean hasConstraints = mBounds != null && mBounds.hasConstraints();
+		double[] aggregates = hasConstraints ? mPartials[0] : null;
+		long nextCheckpointNanos = System.nanoTime() + mCheckpointIntervalNanos;
+
+		int position;
+		do {
+			if (hasConstraints) {
+				evaluator.getAggregates(aggregates);
+			}
+			if (!hasConstraints || mBounds.isFeasible(aggregates)) {
+				offer(composition, evaluator.getScore());
+			}
+
+			if ((++mNoEvaluations & STOP_CHECK_MASK) == 0) {
+				if (mDeadline.isExpired() || mCancellationToken.isCancelled()) {
+					mIsStopped = true;
+					break;
+				}
+				if (mCheckpointPath != null
+						&& System.nanoTime() - nextCheckpointNanos >= 0) {
+					writeCheckpoint(code.getRank() + 1);
+					nextCheckpointNanos = System.nanoTime()
+							+ mCheckpointIntervalNanos;
 				}
 			}
+
+			position = code.next();
+			if (position >= 0 && code.getRank() < end) {
+				evaluator.set(position, composition[position]);
+			} else {
+				position = -1;
+			}
+		} while (position >= 0);
+
+		if (mHasSolution) {
+			mBestQoS = mScorer.score(mBestComposition);
+		}
+		if (mCheckpointPath != null) {
+			writeCheckpoint(mIsStopped ? code.getRank() + 1 : end);
+		}
+	}
+
+	/**
+	 * Searches the subtree of the current prefix, skipping the subtrees that
+	 * can't contain a feasible composition better than the best one found so
+	 * far.
+	 * 
+	 * @param depth
+	 *            The number of abstract services in the prefix.
+	 */
+	private void search(int depth) {
+		int[] order = mBounds.getOrder(depth);
+		double[] partial = mPartials[depth];
+		double[] extended = mPartials[depth + 1];
+		boolean isLast = depth == mNoConcreteServices.length - 1;
+		boolean hasConstraints = mBounds.hasConstraints();
+
+		for (int k = 0; k < order.length && !mIsStopped; k++) {
+			mCurrComposition[depth] = order[k];
+			mBounds.extend(partial, extended, depth, order[k]);
+
+			if ((++mNoNodes & STOP_CHECK_MASK) == 0
+					&& (mDeadline.isExpired() || mCancellationToken
+							.isCancelled())) {
+				mIsStopped = true;
+			}
+
+			if (hasConstraints && !mBounds.mayBeFeasible(extended, depth + 1)) {
+				mNoPrunedNodes++;
+			} else if (isLast) {
+				mNoEvaluations++;
+				offer(mCurrComposition, mScorer.score(mCurrComposition));
+			} else if (DoubleComparator.compare(
+					mBounds.getUpperBound(extended, depth + 1), mBestQoS) > 0) {
+				search(depth + 1);
+			} else {
+				mNoPrunedNodes++;
+			}
+		}
+	}
+
+	/**
+	 * Keeps a complete and feasible composition if it's the best one so far.
+	 * 
+	 * @param composition
+	 *            The composition.
+	 * @param newQoS
+	 *            Its aggregated QoS.
+	 */
+	private void offer(int[] composition, double newQoS) {
+		if (DoubleComparator.compare(newQoS, mBestQoS) > 0) {
+			mBestQoS = newQoS;
+			mHasSolution = true;
+			System.arraycopy(composition, 0, mBestComposition, 0,
+					composition.length);
+
+			if (!mIncumbentListeners.isEmpty()) {
+				notifyIncumbent();
+			}
 		}
 	}
 
 	/**
-	 * Calculates and returns the best composition.
+	 * Notifies the listeners of the current best composition.
+	 */
+	private void notifyIncumbent() {
+		double score = mScorer.score(mBestComposition);
+		Incumbent incumbent = new Incumbent(mBestComposition.clone(), score,
+				score, Double.NaN, System.nanoTime() - mStartNanos);
+		for (IncumbentListener listener : mIncumbentListeners) {
+			listener.onIncumbent(incumbent);
+		}
+	}
+
+	/**
+	 * Calculates and returns the best composition. If the search is stopped by
+	 * the deadline or the cancellation token, returns the best composition
+	 * found so far. If there are constraints, hasSolution() tells whether the
+	 * composition returned satisfies them.
+	 * 
 	 * @return The best composition.
+	 * @throws UncheckedIOException
+	 *             If a checkpoint can't be written.
 	 */
 	public int[] getBestComposition() {
 		mBestQoS = Double.NEGATIVE_INFINITY;
+		mNoEvaluations = 0;
+		mNoNodes = 0;
+		mNoPrunedNodes = 0;
+		mIsStopped = false;
+		mHasSolution = false;
+		mResumedCursor = 0;
+		mStartNanos = System.nanoTime();
 
-		backtrack(0);
+		/* The weights may have been changed through TotalQoS. */
+		mScorer.updateWeights();
+		if (mBounds != null) {
+			mBounds.updateWeights();
+		}
+
+		if (mResumedCheckpoint != null) {
+			/* It was checked against the attributes by resume(). */
+			mFingerprint = mResumedCheckpoint.fingerprint;
+		} else if (mCheckpointPath != null) {
+			mFingerprint = Checkpoint.fingerprint(mQoSAttributes);
+		}
+
+		if (mResumedCheckpoint != null) {
+			mResumedCursor = mResumedCheckpoint.cursor;
+			mNoEvaluations = mResumedCheckpoint.noEvaluations;
+			if (mResumedCheckpoint.composition != null) {
+				System.arraycopy(mResumedCheckpoint.composition, 0,
+						mBestComposition, 0, mBestComposition.length);
+				mBestQoS = mResumedCheckpoint.qos;
+				mHasSolution = true;
+			}
+			mResumedCheckpoint = null;
+		}
+
+		if (mIsPruning || mBounds != null) {
+			CompositionBounds bounds = getBounds();
+			mPartials = new double[mNoConcreteServices.length + 1][mQoSAttributes.length];
+			bounds.reset(mPartials[0]);
+		}
+
+		if (mIsPruning && !isRestricted()) {
+			search(0);
+		} else {
+			enumerate();
+		}
+
+		MetricsRegistry registry = Metrics.getRegistry();
+		registry.counter("bruteforce.evaluations").add(mNoEvaluations);
+		registry.counter("bruteforce.prunedNodes").add(mNoPrunedNodes);
+		registry.timer("bruteforce.search").recordSince(mStartNanos);
 
 		return mBestComposition;
 	}
 
+	/**
+	 * 
+	 * @return True if setRange() restricted the search to a part of the
+	 *         compositions; false otherwise.
+	 */
+	private boolean isRestricted() {
+		return mRangeStart > 0 || mRangeEnd != Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the aggregated QoS of the composition returned by the last call
+	 * to getBestComposition().
+	 * 
+	 * @return The aggregated QoS of the best composition.
+	 */
+	public double getBestQoS() {
+		return mBestQoS;
+	}
+
+	/**
+	 * 
+	 * @return The number of compositions evaluated by the last search.
+	 */
+	public long getNoEvaluations() {
+		return mNoEvaluations;
+	}
+
+	/**
+	 * 
+	 * @return The number of subtrees skipped by the last search.
+	 */
+	public long getNoPrunedNodes() {
+		return mNoPrunedNodes;
+	}
+
+	/**
+	 * 
+	 * @return True if the last search found a composition that satisfies all
+	 *         the constraints; false otherwise.
+	 */
+	public boolean hasSolution() {
+		return mHasSolution;
+	}
+
+	/**
+	 * 
+	 * @return True if the last search was stopped before enumerating all the
+	 *         compositions; false otherwise.
+	 */
+	public boolean isStopped() {
+		return mIsStopped;
+	}
+
 	/**
 	 * @param args
 	 */
@@ -0,0 +1,238 @@
+package bruteforce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.DoubleComparator;
+import general.Incumbent;
+import general.IncumbentListener;
+import general.QoSAttribute;
+import general.TotalQoS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import bb.Simplex;
+import instance.InstanceGenerator;
+
+public class BruteForceTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(6, 2, 6,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.3, 0.3, 0.4 },
+				InstanceGenerator.CORRELATION_ANTI_CORRELATED);
+	}
+
+	/* The pruned search finds the optimum and evaluates fewer compositions. */
+
+	@Test
+	public void test0() {
+		for (long seed = 0; seed < 20; seed++) {
+			QoSAttribute[] attributes = createAttributes(seed);
+			BruteForce enumeration = new BruteForce(attributes);
+			enumeration.getBestComposition();
+
+			BruteForce pruned = new BruteForce(attributes);
+			pruned.setPruning(true);
+			pruned.getBestComposition();
+
+			assertEquals(pruned.getBestQoS(), enumeration.getBestQoS(), 1e-6);
+			assertTrue(pruned.getNoEvaluations() < enumeration
+					.getNoEvaluations());
+		}
+	}
+
+	/* Constraints of every aggregation method, with and without pruning. */
+
+	@Test
+	public void test1() {
+		for (long seed = 0; seed < 20; seed++) {
+			QoSAttribute[] attributes = createAttributes(seed);
+			double sumBound = InstanceGenerator.getConstraintBound(
+					attributes[0], 0.6);
+			double averageBound = InstanceGenerator.getConstraintBound(
+					attributes[1], 0.4);
+
+			double best = Double.NEGATIVE_INFINITY;
+			for (boolean pruning : new boolean[] { false, true }) {
+				BruteForce bruteForce = new BruteForce(attributes);
+				bruteForce.setPruning(pruning);
+				bruteForce.addConstraintOnAttribute(0, Simplex.GTE, sumBound);
+				bruteForce.addConstraintOnAttribute(1, Simplex.LTE,
+						averageBound);
+				bruteForce.addConstraintOnAttribute(2, Simplex.GTE, 1e-4);
+				int[] composition = bruteForce.getBestComposition();
+
+				if (!bruteForce.hasSolution()) {
+					assertFalse(best > Double.NEGATIVE_INFINITY);
+					continue;
+				}
+				assertTrue(DoubleComparator.compare(
+						attributes[0].getAggregatedQoS(composition), sumBound) >= 0);
+				assertTrue(DoubleComparator.compare(
+						attributes[1].getAggregatedQoS(composition),
+						averageBound) <= 0);
+				assertTrue(DoubleComparator.compare(
+						attributes[2].getAggregatedQoS(composition), 1e-4) >= 0);
+				if (pruning) {
+					assertEquals(bruteForce.getBestQoS(), best, 1e-6);
+				}
+				best = bruteForce.getBestQoS();
+			}
+		}
+	}
+
+	/* Infeasible constraints. */
+
+	@Test
+	public void test2() {
+		BruteForce bruteForce = new BruteForce(createAttributes(3));
+		bruteForce.setPruning(true);
+		bruteForce.addConstraintOnAttribute(2, Simplex.GTE, 1.5);
+		bruteForce.getBestComposition();
+		assertFalse(bruteForce.hasSolution());
+		assertEquals(bruteForce.getNoEvaluations(), 0);
+	}
+
+	/* A stopped enumeration resumes from its checkpoint. */
+
+	@Test
+	public void test3() throws IOException {
+		QoSAttribute[] attributes = new InstanceGenerator(5)
+				.generateAttributes(7, 4, 4, new int[] {
+						QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.5, 0.5 },
+						InstanceGenerator.CORRELATION_INDEPENDENT);
+		BruteForce full = new BruteForce(attributes);
+		int[] expected = full.getBestComposition();
+
+		Path path = Files.createTempFile("bruteforce", ".checkpoint");
+		Files.delete(path);
+		try {
+			final CancellationToken token = new CancellationToken();
+			BruteForce stopped = new BruteForce(attributes);
+			stopped.setCheckpoint(path, 0);
+			stopped.setCancellationToken(token);
+			stopped.addIncumbentListener(new IncumbentListener() {
+				@Override
+				public void onIncumbent(Incumbent incumbent) {
+					token.cancel();
+				}
+			});
+			stopped.getBestComposition();
+			assertTrue(stopped.isStopped());
+
+			BruteForce resumed = new BruteForce(attributes);
+			resumed.setCheckpoint(path, 0);
+			assertTrue(resumed.resume(path));
+			assertArrayEquals(expected, resumed.getBestComposition());
+			assertEquals(full.getBestQoS(), resumed.getBestQoS(), 0);
+			assertEquals(full.getNoEvaluations(), resumed.getNoEvaluations());
+
+			BruteForce other = new BruteForce(attributes);
+			other.setRange(1, 2);
+			try {
+				other.resume(path);
+				assertTrue(false);
+			} catch (IOException e) {
+				/* It belongs to another range. */
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/* Weights changed through TotalQoS are used by the next search. */
+
+	@Test
+	public void test4() {
+		for (long seed = 0; seed < 10; seed++) {
+			QoSAttribute[] attributes = createAttributes(seed);
+			TotalQoS totalQoS = new TotalQoS(attributes);
+			BruteForce enumeration = new BruteForce(attributes);
+			BruteForce pruned = new BruteForce(attributes);
+			pruned.setPruning(true);
+			enumeration.getBestComposition();
+			pruned.getBestComposition();
+
+			totalQoS.setWeights(new double[] { 0.1, 0.1, 0.8 });
+			BruteForce fresh = new BruteForce(attributes);
+			int[] expected = fresh.getBestComposition().clone();
+
+			assertArrayEquals(expected, enumeration.getBestComposition());
+			assertEquals(fresh.getBestQoS(), enumeration.getBestQoS(), 0);
+			pruned.getBestComposition();
+			assertEquals(fresh.getBestQoS(), pruned.getBestQoS(), 1e-9);
+		}
+	}
+
+	/*
+	 * A search resumed from any cursor gives the result of an uninterrupted
+	 * one, including when even numbers of concrete services precede the last
+	 * abstract service. Stops are only checked every few thousand
+	 * evaluations, so the state of a search stopped at each cursor is the one
+	 * of a search of the ranks before it. Each composition is made the only
+	 * optimum in turn, so that a skipped one is noticed.
+	 */
+
+	@Test
+	public void test5() throws IOException {
+		int[] radices = { 2, 2, 2, 2 };
+		Path path = Files.createTempFile("bruteforce", ".checkpoint");
+		try {
+			MixedRadixGrayCode code = new MixedRadixGrayCode(radices);
+			do {
+				int[] target = code.getDigits().clone();
+				double[][] values = new double[radices.length][];
+				for (int i = 0; i < radices.length; i++) {
+					values[i] = new double[radices[i]];
+					values[i][target[i]] = 1;
+				}
+				QoSAttribute[] attributes = { new QoSAttribute(values,
+						QoSAttribute.AGGREGATE_BY_SUM, 1) };
+				BruteForce full = new BruteForce(attributes);
+				full.getBestComposition();
+
+				for (long cursor = 0; cursor <= code.getSize(); cursor++) {
+					BruteForce stopped = new BruteForce(attributes);
+					stopped.setRange(0, cursor);
+					stopped.getBestComposition();
+
+					Checkpoint checkpoint = new Checkpoint();
+					checkpoint.fingerprint = Checkpoint
+							.fingerprint(attributes);
+					checkpoint.start = 0;
+					checkpoint.end = Long.MAX_VALUE;
+					checkpoint.cursor = cursor;
+					checkpoint.noEvaluations = stopped.getNoEvaluations();
+					if (stopped.hasSolution()) {
+						checkpoint.composition = stopped.getBestComposition()
+								.clone();
+						checkpoint.qos = stopped.getBestQoS();
+					}
+					checkpoint.write(path);
+
+					BruteForce resumed = new BruteForce(attributes);
+					assertTrue(resumed.resume(path));
+					assertArrayEquals("Resumed at " + cursor, target,
+							resumed.getBestComposition());
+					assertEquals(full.getBestQoS(), resumed.getBestQoS(), 0);
+					assertEquals(full.getNoEvaluations(),
+							resumed.getNoEvaluations());
+					assertFalse(resumed.isStopped());
+				}
+			} while (code.next() >= 0);
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package bruteforce;
+
+import general.QoSAttribute;
+import general.QoSColumn;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The state of an exhaustive search at some point of the enumeration: the
+ * rank of the next composition to be evaluated and the best composition found
+ * before it, together with a fingerprint of the instance, so that a search is
+ * never resumed over a different one.
+ * 
+ * A checkpoint is a small text file of "name value" lines. It's first written
+ * to a temporary file next to it, which is then renamed over the old one, so
+ * a crash while writing leaves the previous checkpoint intact. The directory
+ * is forced after the rename, so that the new checkpoint survives a crash.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+class Checkpoint {
+
+	/**
+	 * The current version of the format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The fingerprint of the instance.
+	 */
+	long fingerprint;
+
+	/**
+	 * The rank of the first composition of the searched range.
+	 */
+	long start;
+
+	/**
+	 * The rank after the last composition of the searched range.
+	 */
+	long end;
+
+	/**
+	 * The rank of the next composition to be evaluated.
+	 */
+	long cursor;
+
+	/**
+	 * The number of compositions evaluated before the cursor.
+	 */
+	long noEvaluations;
+
+	/**
+	 * The best composition found before the cursor, or null if there was
+	 * none.
+	 */
+	int[] composition;
+
+	/**
+	 * The aggregated QoS of the best composition.
+	 */
+	double qos = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of the shape, the aggregation methods, the
+	 * weights and the values of the attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes.
+	 * @return The fingerprint of the attributes.
+	 */
+	static long fingerprint(QoSAttribute[] attributes) {
+		int[] offsets = attributes[0].getOffsets();
+		long hash = 0xCBF29CE484222325L;
+
+		for (int offset : offsets) {
+			hash = mix(hash, offset);
+		}
+		for (QoSAttribute attribute : attributes) {
+			hash = mix(hash, attribute.getAggregationMethod());
+			hash = mix(hash, Double.doubleToLongBits(attribute.getWeight()));
+			QoSColumn column = attribute.getColumn();
+			for (int k = 0; k < offsets[offsets.length - 1]; k++) {
+				hash = mix(hash, Double.doubleToLongBits(column.get(k)));
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Mixes the bytes of a value into an FNV-1a hash.
+	 * 
+	 * @param hash
+	 *            The hash so far.
+	 * @param value
+	 *            The value.
+	 * @return The new hash.
+	 */
+	private static long mix(long hash, long value) {
+		for (int b = 0; b < 8; b++) {
+			hash ^= (value >>> (8 * b)) & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes this checkpoint, replacing the given file atomically.
+	 * 
+	 * @param path
+	 *            The file to be written.
+	 * @throws IOException
+	 *             If the file can't be written.
+	 */
+	void write(Path path) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		builder.append("checkpoint ").append(VERSION).append('\n');
+		builder.append("fingerprint ").append(Long.toHexString(fingerprint))
+				.append('\n');
+		builder.append("start ").append(start).append('\n');
+		builder.append("end ").append(end).append('\n');
+		builder.append("cursor ").append(cursor).append('\n');
+		builder.append("evaluations ").append(noEvaluations).append('\n');
+		builder.append("qos ").append(qos).append('\n');
+		builder.append("composition ");
+		appendComposition(builder, composition);
+		builder.append('\n');
+
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(temporary,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer bytes = ByteBuffer.wrap(builder.toString().getBytes(
+					StandardCharsets.UTF_8));
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(path.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * Forces the entries of a directory to the storage device, so that a
+	 * rename in it survives a crash. Platforms where directories can't be
+	 * opened, such as Windows, are ignored.
+	 * 
+	 * @param directory
+	 *            The directory, or null if there's none.
+	 */
+	private static void forceDirectory(Path directory) {
+		if (directory == null) {
+			return;
+		}
+		try {
+			FileChannel channel = FileChannel.open(directory,
+					StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			/* Not supported on this platform. */
+		}
+	}
+
+	/**
+	 * Reads a checkpoint written by write().
+	 * 
+	 * @param path
+	 *            The file to be read.
+	 * @return The checkpoint.
+	 * @throws IOException
+	 *             If the file can't be read or is malformed.
+	 */
+	static Checkpoint read(Path path) throws IOException {
+		Checkpoint checkpoint = new Checkpoint();
+		int noFields = 0;
+
+		BufferedReader reader = Files.newBufferedReader(path,
+				StandardCharsets.UTF_8);
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int space = line.indexOf(' ');
+				if (space < 0) {
+					throw new IOException("Malformed checkpoint line: " + line);
+				}
+				String name = line.substring(0, space);
+				String value = line.substring(space + 1).trim();
+
+				try {
+					if (name.equals("checkpoint")) {
+						if (Integer.parseInt(value) != VERSION) {
+							throw new IOException(String.format(
+									"Unsupported checkpoint version %s.",
+									value));
+						}
+					} else if (name.equals("fingerprint")) {
+						checkpoint.fingerprint = Long.parseUnsignedLong(value,
+								16);
+					} else if (name.equals("start")) {
+						checkpoint.start = Long.parseLong(value);
+					} else if (name.equals("end")) {
+						checkpoint.end = Long.parseLong(value);
+					} else if (name.equals("cursor")) {
+						checkpoint.cursor = Long.parseLong(value);
+					} else if (name.equals("evaluations")) {
+						checkpoint.noEvaluations = Long.parseLong(value);
+					} else if (name.equals("qos")) {
+						checkpoint.qos = Double.parseDouble(value);
+					} else if (name.equals("composition")) {
+						checkpoint.composition = parseComposition(value);
+					} else {
+						throw new IOException("Unknown checkpoint field: "
+								+ name);
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed checkpoint line: " + line,
+							e);
+				}
+				noFields++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		if (noFields != 8) {
+			throw new IOException(path + " is truncated.");
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * Appends a composition to a builder, separating its indices with commas.
+	 * 
+	 * @param builder
+	 *            The builder.
+	 * @param composition
+	 *            The composition, or null if there's none, which is written as
+	 *            "-".
+	 */
+	static void appendComposition(StringBuilder builder, int[] composition) {
+		if (composition == null) {
+			builder.append('-');
+			return;
+		}
+		for (int i = 0; i < composition.length; i++) {
+			builder.append(i == 0 ? "" : ",").append(composition[i]);
+		}
+	}
+
+	/**
+	 * Parses a composition written by appendComposition().
+	 * 
+	 * @param value
+	 *            The composition, or "-" if there's none.
+	 * @return The composition, or null if there's none.
+	 */
+	static int[] parseComposition(String value) {
+		if (value.equals("-")) {
+			return null;
+		}
+		String[] indices = value.split(",");
+		int[] composition = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			composition[i] = Integer.parseInt(indices[i]);
+		}
+		return composition;
+	}
+}
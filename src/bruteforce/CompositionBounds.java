@@ -0,0 +1,467 @@
+package bruteforce;
+
+import general.DoubleComparator;
+import general.QoSAttribute;
+import general.QoSColumn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import bb.Simplex;
+
+/**
+ * Optimistic bounds on the compositions that extend a prefix, used by the
+ * bound-pruned search of BruteForce. The partial aggregate of each attribute
+ * is kept for each depth of the search: a sum for attributes aggregated by sum
+ * or by average, and a product for those aggregated by product. Since all the
+ * values lie between 0 and 1, the best (or worst) completion of a prefix is
+ * bounded by combining its partial aggregate with the sum (or product) of the
+ * largest (or smallest) values of the remaining abstract services.
+ * 
+ * It also keeps the constraints over the aggregated values of the attributes,
+ * which are checked on complete compositions and, with the same bounds, on
+ * prefixes.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+class CompositionBounds {
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mAttributes;
+
+	/**
+	 * The offset of the first concrete service of each abstract service.
+	 */
+	private int[] mOffsets;
+
+	/**
+	 * The values of each attribute.
+	 */
+	private QoSColumn[] mColumns;
+
+	/**
+	 * The aggregation method of each attribute.
+	 */
+	private int[] mAggregationMethods;
+
+	/**
+	 * The coefficient of each attribute in the score, as in
+	 * CompositionScorer, or 0 if its aggregation method is unknown.
+	 */
+	private double[] mCoefficients;
+
+	/**
+	 * The contribution of the attributes with an unknown aggregation method,
+	 * which is constant.
+	 */
+	private double mConstantTerm;
+
+	/**
+	 * The inverse of the maximum possible weighted QoS.
+	 */
+	private double mInverseMaximumQoS;
+
+	/**
+	 * The sum (or product) of the largest values of the abstract services from
+	 * each one to the last, indexed by attribute and then by abstract service.
+	 * The last element is the neutral element of the aggregation.
+	 */
+	private double[][] mSuffixMax;
+
+	/**
+	 * As mSuffixMax, but with the smallest values.
+	 */
+	private double[][] mSuffixMin;
+
+	/**
+	 * The concrete services of each abstract service, from the most promising
+	 * one to the least promising one.
+	 */
+	private int[][] mOrder;
+
+	/**
+	 * The attribute of each constraint.
+	 */
+	private ArrayList<Integer> mConstraintAttributes = new ArrayList<Integer>();
+
+	/**
+	 * The relation of each constraint (Simplex.GTE, Simplex.EQUALS or
+	 * Simplex.LTE).
+	 */
+	private ArrayList<Integer> mConstraintRelations = new ArrayList<Integer>();
+
+	/**
+	 * The right-hand term of each constraint.
+	 */
+	private ArrayList<Double> mConstraintBounds = new ArrayList<Double>();
+
+	/**
+	 * Creates the bounds of the given attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes. All of them must have the same shape.
+	 */
+	CompositionBounds(QoSAttribute[] attributes) {
+		mAttributes = attributes;
+		mOffsets = attributes[0].getOffsets();
+		int noAbstractServices = mOffsets.length - 1;
+		int noAttributes = attributes.length;
+
+		mColumns = new QoSColumn[noAttributes];
+		mAggregationMethods = new int[noAttributes];
+		mCoefficients = new double[noAttributes];
+		mSuffixMax = new double[noAttributes][noAbstractServices + 1];
+		mSuffixMin = new double[noAttributes][noAbstractServices + 1];
+
+		for (int attr = 0; attr < noAttributes; attr++) {
+			mColumns[attr] = attributes[attr].getColumn();
+			mAggregationMethods[attr] = attributes[attr].getAggregationMethod();
+
+			boolean isProduct = isProduct(attr);
+			mSuffixMax[attr][noAbstractServices] = isProduct ? 1 : 0;
+			mSuffixMin[attr][noAbstractServices] = isProduct ? 1 : 0;
+			for (int i = noAbstractServices - 1; i >= 0; i--) {
+				double max = Double.NEGATIVE_INFINITY;
+				double min = Double.POSITIVE_INFINITY;
+				for (int k = mOffsets[i]; k < mOffsets[i + 1]; k++) {
+					max = Math.max(max, mColumns[attr].get(k));
+					min = Math.min(min, mColumns[attr].get(k));
+				}
+				mSuffixMax[attr][i] = combine(attr,
+						mSuffixMax[attr][i + 1], max);
+				mSuffixMin[attr][i] = combine(attr,
+						mSuffixMin[attr][i + 1], min);
+			}
+		}
+
+		updateWeights();
+	}
+
+	/**
+	 * Recomputes the coefficients, the normalization constant and the order of
+	 * the concrete services from the current weights of the attributes.
+	 */
+	void updateWeights() {
+		int noAbstractServices = mOffsets.length - 1;
+		int noAttributes = mAttributes.length;
+
+		double constantTerm = 0;
+		double maximumQoS = 0;
+		for (int attr = 0; attr < noAttributes; attr++) {
+			QoSAttribute attribute = mAttributes[attr];
+			double weight = attribute.getWeight();
+			switch (mAggregationMethods[attr]) {
+			case QoSAttribute.AGGREGATE_BY_SUM:
+			case QoSAttribute.AGGREGATE_BY_PRODUCT:
+				mCoefficients[attr] = weight;
+				break;
+			case QoSAttribute.AGGREGATE_BY_AVERAGE:
+				mCoefficients[attr] = weight / noAbstractServices;
+				break;
+			default:
+				mCoefficients[attr] = 0;
+				constantTerm -= weight;
+				break;
+			}
+			maximumQoS += attribute.getMaximumQoS() * weight;
+		}
+		mConstantTerm = constantTerm;
+		mInverseMaximumQoS = 1.0 / maximumQoS;
+
+		/* The aggregate of the largest values of the preceding services. */
+		double[] prefixMax = new double[noAttributes];
+		reset(prefixMax);
+		mOrder = new int[noAbstractServices][];
+		for (int i = 0; i < noAbstractServices; i++) {
+			mOrder[i] = sortByPromise(i, prefixMax);
+			for (int attr = 0; attr < noAttributes; attr++) {
+				prefixMax[attr] = combine(attr, prefixMax[attr],
+						getMax(attr, i));
+			}
+		}
+	}
+
+	/**
+	 * Sorts the concrete services of an abstract service by their promise,
+	 * i.e. by the bound of the composition that contains them and the largest
+	 * values of every other abstract service, from the largest to the
+	 * smallest. Ties are broken by index.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param prefixMax
+	 *            The aggregate of the largest values of the preceding
+	 *            abstract services.
+	 * @return The indices of its concrete services, in order.
+	 */
+	private int[] sortByPromise(int abstractService, double[] prefixMax) {
+		int noConcreteServices = mOffsets[abstractService + 1]
+				- mOffsets[abstractService];
+		double[] extended = new double[mColumns.length];
+
+		double[] promises = new double[noConcreteServices];
+		Integer[] order = new Integer[noConcreteServices];
+		for (int j = 0; j < noConcreteServices; j++) {
+			extend(prefixMax, extended, abstractService, j);
+			for (int attr = 0; attr < mColumns.length; attr++) {
+				extended[attr] = combine(attr, extended[attr],
+						mSuffixMax[attr][abstractService + 1]);
+			}
+			promises[j] = evaluate(extended);
+			order[j] = j;
+		}
+
+		Arrays.sort(order, (a, b) -> {
+			int comparison = Double.compare(promises[b], promises[a]);
+			return comparison != 0 ? comparison : Integer.compare(a, b);
+		});
+
+		int[] result = new int[noConcreteServices];
+		for (int j = 0; j < noConcreteServices; j++) {
+			result[j] = order[j];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the largest value of an attribute among the concrete services of
+	 * an abstract service.
+	 * 
+	 * @param attr
+	 *            The index of the attribute.
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @return The largest value.
+	 */
+	private double getMax(int attr, int abstractService) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int k = mOffsets[abstractService]; k < mOffsets[abstractService + 1]; k++) {
+			max = Math.max(max, mColumns[attr].get(k));
+		}
+		return max;
+	}
+
+	/**
+	 * 
+	 * @param attr
+	 *            The index of an attribute.
+	 * @return Whether the attribute is aggregated by product.
+	 */
+	private boolean isProduct(int attr) {
+		return mAggregationMethods[attr] == QoSAttribute.AGGREGATE_BY_PRODUCT;
+	}
+
+	/**
+	 * Combines a partial aggregate with a value.
+	 * 
+	 * @param attr
+	 *            The index of the attribute.
+	 * @param aggregate
+	 *            The partial aggregate.
+	 * @param value
+	 *            The value.
+	 * @return The product of both, if the attribute is aggregated by product,
+	 *         or their sum.
+	 */
+	private double combine(int attr, double aggregate, double value) {
+		return isProduct(attr) ? aggregate * value : aggregate + value;
+	}
+
+	/**
+	 * Sets the partial aggregates of an empty prefix.
+	 * 
+	 * @param partial
+	 *            The vector where the partial aggregate of each attribute is
+	 *            stored.
+	 */
+	void reset(double[] partial) {
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			partial[attr] = isProduct(attr) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Computes the partial aggregates of a prefix extended by one concrete
+	 * service.
+	 * 
+	 * @param partial
+	 *            The partial aggregates of the prefix.
+	 * @param extended
+	 *            The vector where the partial aggregates of the extended
+	 *            prefix are stored.
+	 * @param abstractService
+	 *            The abstract service that follows the prefix.
+	 * @param concreteService
+	 *            The concrete service chosen for it.
+	 */
+	void extend(double[] partial, double[] extended, int abstractService,
+			int concreteService) {
+		int index = mOffsets[abstractService] + concreteService;
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			extended[attr] = combine(attr, partial[attr],
+					mColumns[attr].get(index));
+		}
+	}
+
+	/**
+	 * Evaluates the score corresponding to the given aggregates, as
+	 * CompositionScorer does.
+	 * 
+	 * @param aggregates
+	 *            The aggregate of each attribute.
+	 * @return The score.
+	 */
+	private double evaluate(double[] aggregates) {
+		double qos = mConstantTerm;
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			qos += aggregates[attr] * mCoefficients[attr];
+		}
+		return qos * mInverseMaximumQoS;
+	}
+
+	/**
+	 * Returns an upper bound of the score of every composition that extends a
+	 * prefix.
+	 * 
+	 * @param partial
+	 *            The partial aggregates of the prefix.
+	 * @param depth
+	 *            The number of abstract services in the prefix.
+	 * @return The upper bound.
+	 */
+	double getUpperBound(double[] partial, int depth) {
+		double qos = mConstantTerm;
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			double coefficient = mCoefficients[attr];
+			double[] suffix = coefficient >= 0 ? mSuffixMax[attr]
+					: mSuffixMin[attr];
+			qos += combine(attr, partial[attr], suffix[depth]) * coefficient;
+		}
+		return qos * mInverseMaximumQoS;
+	}
+
+	/**
+	 * Returns the concrete services of an abstract service, from the most
+	 * promising one to the least promising one. It must not be modified.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @return The order in which its concrete services should be tried.
+	 */
+	int[] getOrder(int abstractService) {
+		return mOrder[abstractService];
+	}
+
+	/**
+	 * Adds a constraint over the aggregated value of an attribute.
+	 * 
+	 * @param attributeIndex
+	 *            The index of the attribute.
+	 * @param rel
+	 *            One of Simplex.GTE, Simplex.EQUALS and Simplex.LTE.
+	 * @param b
+	 *            The right-hand term of the constraint.
+	 */
+	void addConstraint(int attributeIndex, int rel, double b) {
+		if (rel != Simplex.GTE && rel != Simplex.EQUALS && rel != Simplex.LTE) {
+			throw new IllegalArgumentException("Unknown relation: " + rel);
+		}
+
+		switch (mAggregationMethods[attributeIndex]) {
+		case QoSAttribute.AGGREGATE_BY_AVERAGE:
+		case QoSAttribute.AGGREGATE_BY_SUM:
+		case QoSAttribute.AGGREGATE_BY_PRODUCT:
+			break;
+		default:
+			/* As in WscHelper, the constraint is ignored. */
+			return;
+		}
+
+		mConstraintAttributes.add(attributeIndex);
+		mConstraintRelations.add(rel);
+		mConstraintBounds.add(b);
+	}
+
+	/**
+	 * 
+	 * @return Whether there are constraints.
+	 */
+	boolean hasConstraints() {
+		return !mConstraintAttributes.isEmpty();
+	}
+
+	/**
+	 * Checks whether some composition that extends a prefix may satisfy all
+	 * the constraints. For a complete composition, it checks whether the
+	 * composition itself satisfies them, with the tolerance of
+	 * DoubleComparator.
+	 * 
+	 * @param partial
+	 *            The partial aggregates of the prefix.
+	 * @param depth
+	 *            The number of abstract services in the prefix.
+	 * @return False if no extension of the prefix satisfies all the
+	 *         constraints; true otherwise.
+	 */
+	boolean mayBeFeasible(double[] partial, int depth) {
+		for (int c = 0; c < mConstraintAttributes.size(); c++) {
+			int attr = mConstraintAttributes.get(c);
+			int rel = mConstraintRelations.get(c);
+			double b = mConstraintBounds.get(c);
+
+			if (rel != Simplex.GTE
+					&& DoubleComparator.compare(
+							toAggregatedValue(attr, combine(attr,
+									partial[attr], mSuffixMin[attr][depth])),
+							b) > 0) {
+				/* Even the smallest extension is too large. */
+				return false;
+			}
+			if (rel != Simplex.LTE
+					&& DoubleComparator.compare(
+							toAggregatedValue(attr, combine(attr,
+									partial[attr], mSuffixMax[attr][depth])),
+							b) < 0) {
+				/* Even the largest extension is too small. */
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Converts an aggregate into the aggregated value of an attribute, which
+	 * is the average for attributes aggregated by average.
+	 * 
+	 * @param attr
+	 *            The index of the attribute.
+	 * @param aggregate
+	 *            The aggregate.
+	 * @return The aggregated value.
+	 */
+	private double toAggregatedValue(int attr, double aggregate) {
+		if (mAggregationMethods[attr] == QoSAttribute.AGGREGATE_BY_AVERAGE) {
+			return aggregate / (mOffsets.length - 1);
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Checks whether a complete composition satisfies all the constraints,
+	 * given its aggregates, as IncrementalEvaluator.getAggregates() keeps
+	 * them.
+	 * 
+	 * @param aggregates
+	 *            The aggregate of each attribute: the product of the values
+	 *            for attributes aggregated by product, and their sum for the
+	 *            others.
+	 * @return True if the composition satisfies all the constraints; false
+	 *         otherwise.
+	 */
+	boolean isFeasible(double[] aggregates) {
+		return mayBeFeasible(aggregates, mOffsets.length - 1);
+	}
+}
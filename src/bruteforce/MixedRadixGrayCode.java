@@ -0,0 +1,169 @@
+package bruteforce;
+
+/**
+ * Enumerates the tuples of a mixed-radix space, such as the compositions of a
+ * problem, in reflected Gray code order: consecutive tuples differ in a single
+ * position, by one. The last position changes fastest, as the innermost loop
+ * of a nested enumeration would.
+ * 
+ * Each tuple has a rank, which is its index in the enumeration, so any range
+ * of ranks can be enumerated on its own. Every position moves in a direction;
+ * a step moves the last position that can still move in its direction, and
+ * reverses the direction of every position after it, which are all at one of
+ * their ends. No position is ever reset, and a step takes constant amortized
+ * time, since the positions after the one that moves are rarely more than a
+ * couple.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class MixedRadixGrayCode {
+
+	/**
+	 * The number of values of each position.
+	 */
+	private int[] mRadices;
+
+	/**
+	 * The current tuple.
+	 */
+	private int[] mDigits;
+
+	/**
+	 * The direction in which each position moves: +1 or -1.
+	 */
+	private int[] mDirections;
+
+	/**
+	 * The number of tuples.
+	 */
+	private long mSize;
+
+	/**
+	 * The rank of the current tuple.
+	 */
+	private long mRank;
+
+	/**
+	 * Creates an enumeration positioned at the first tuple, which is all
+	 * zeros.
+	 * 
+	 * @param radices
+	 *            The number of values of each position. All of them must be
+	 *            positive. If their product doesn't fit in a long, the size
+	 *            saturates at Long.MAX_VALUE, and so do the ranks.
+	 */
+	public MixedRadixGrayCode(int[] radices) {
+		long size = 1;
+		for (int i = 0; i < radices.length; i++) {
+			if (radices[i] < 1) {
+				throw new IllegalArgumentException(String.format(
+						"radices[%d] is invalid: %d", i, radices[i]));
+			}
+			size = size > Long.MAX_VALUE / radices[i] ? Long.MAX_VALUE : size
+					* radices[i];
+		}
+
+		mRadices = radices.clone();
+		mDigits = new int[radices.length];
+		mDirections = new int[radices.length];
+		mSize = size;
+		seek(0);
+	}
+
+	/**
+	 * Moves to the tuple with the given rank.
+	 * 
+	 * @param rank
+	 *            The rank, between 0 and getSize().
+	 */
+	public void seek(long rank) {
+		if (rank < 0 || rank > mSize) {
+			throw new IllegalArgumentException("Invalid rank: " + rank);
+		}
+		mRank = rank;
+		if (rank == mSize) {
+			/* Past the end; the tuple is meaningless. */
+			return;
+		}
+
+		/* First, the plain mixed-radix digits of the rank. */
+		long quotient = rank;
+		for (int i = mRadices.length - 1; i >= 0; i--) {
+			mDigits[i] = (int) (quotient % mRadices[i]);
+			quotient /= mRadices[i];
+		}
+
+		/*
+		 * Then, a position moves forward when the mixed-radix value of the
+		 * plain digits before it is even, and backwards otherwise. Only the
+		 * parity of that value is kept: when a radix is even, it's the parity
+		 * of the last digit alone.
+		 */
+		int parity = 0;
+		for (int i = 0; i < mRadices.length; i++) {
+			int digit = mDigits[i];
+			if (parity == 0) {
+				mDirections[i] = 1;
+			} else {
+				mDirections[i] = -1;
+				mDigits[i] = mRadices[i] - 1 - digit;
+			}
+			parity = (parity * mRadices[i] + digit) & 1;
+		}
+	}
+
+	/**
+	 * Moves to the next tuple.
+	 * 
+	 * @return The position that changed, or -1 if the current tuple was the
+	 *         last one.
+	 */
+	public int next() {
+		if (mRank >= mSize - 1) {
+			mRank = mSize;
+			return -1;
+		}
+		mRank++;
+
+		for (int i = mDigits.length - 1; i >= 0; i--) {
+			int digit = mDigits[i] + mDirections[i];
+			if (digit >= 0 && digit < mRadices[i]) {
+				mDigits[i] = digit;
+				return i;
+			}
+			mDirections[i] = -mDirections[i];
+		}
+
+		/* Only reachable when the size was saturated. */
+		mRank = mSize;
+		return -1;
+	}
+
+	/**
+	 * Returns the current tuple. It must not be modified.
+	 * 
+	 * @return The current tuple.
+	 */
+	public int[] getDigits() {
+		return mDigits;
+	}
+
+	/**
+	 * 
+	 * @return The rank of the current tuple, or getSize() if the enumeration
+	 *         is past the end.
+	 */
+	public long getRank() {
+		return mRank;
+	}
+
+	/**
+	 * 
+	 * @return The number of tuples, or Long.MAX_VALUE if it doesn't fit in a
+	 *         long.
+	 */
+	public long getSize() {
+		return mSize;
+	}
+}
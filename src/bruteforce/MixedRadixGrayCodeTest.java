@@ -0,0 +1,70 @@
+package bruteforce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class MixedRadixGrayCodeTest {
+
+	/* Every tuple is visited once, changing one position by one. */
+
+	@Test
+	public void test0() {
+		int[] radices = { 3, 1, 4, 2, 5 };
+		MixedRadixGrayCode code = new MixedRadixGrayCode(radices);
+		assertEquals(code.getSize(), 120);
+
+		HashSet<String> seen = new HashSet<String>();
+		int[] previous = code.getDigits().clone();
+		seen.add(Arrays.toString(previous));
+		int position;
+		while ((position = code.next()) >= 0) {
+			int[] digits = code.getDigits();
+			for (int i = 0; i < radices.length; i++) {
+				assertEquals(Math.abs(digits[i] - previous[i]),
+						i == position ? 1 : 0);
+			}
+			assertEquals(seen.add(Arrays.toString(digits)), true);
+			previous = digits.clone();
+		}
+		assertEquals(seen.size(), 120);
+		assertEquals(code.getRank(), 120);
+	}
+
+	/*
+	 * Seeking yields the same tuples and directions as stepping, including
+	 * when even radices precede the last position.
+	 */
+
+	@Test
+	public void test1() {
+		int[][] radicesList = { { 2, 3, 3, 4 }, { 2, 2, 2 }, { 2, 2, 2, 2 },
+				{ 3, 2, 3, 2 }, { 2, 4, 3 }, { 4, 1, 2, 3, 2 } };
+		for (int[] radices : radicesList) {
+			MixedRadixGrayCode stepped = new MixedRadixGrayCode(radices);
+			MixedRadixGrayCode sought = new MixedRadixGrayCode(radices);
+			for (long rank = 0; rank < stepped.getSize(); rank++) {
+				sought.seek(rank);
+				assertArrayEquals(sought.getDigits(), stepped.getDigits());
+				assertEquals(sought.next(), stepped.next());
+				assertArrayEquals(sought.getDigits(), stepped.getDigits());
+			}
+		}
+	}
+
+	/* Saturated sizes. */
+
+	@Test
+	public void test2() {
+		int[] radices = new int[70];
+		Arrays.fill(radices, 2);
+		MixedRadixGrayCode code = new MixedRadixGrayCode(radices);
+		assertEquals(code.getSize(), Long.MAX_VALUE);
+		assertEquals(code.next(), 69);
+		assertEquals(code.next(), 68);
+	}
+}
@@ -0,0 +1,433 @@
+package bruteforce;
+
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.DoubleComparator;
+import general.Incumbent;
+import general.IncumbentListener;
+import general.QoSAttribute;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import metrics.Metrics;
+import metrics.MetricsRegistry;
+
+/**
+ * A parallel version of BruteForce. The search tree is split on the concrete
+ * services of the first abstract services into fork-join tasks, each one with
+ * its own composition buffer and best composition, and the pool balances the
+ * uneven subtrees by work stealing.
+ * 
+ * The results of sibling tasks are reduced from left to right, and a
+ * composition on the right only replaces one on the left if it's strictly
+ * better according to DoubleComparator, just like in the sequential search.
+ * Therefore, for a given split depth, a complete search returns the same
+ * composition regardless of the number of threads and of the order in which
+ * the tasks ran. It's also the one returned by BruteForce, unless several
+ * scores lie within the tolerance of DoubleComparator of each other.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class ParallelBruteForce {
+
+	/**
+	 * The number of compositions evaluated by a task between two checks of
+	 * the deadline and the cancellation token, minus one. It must be a power
+	 * of two minus one.
+	 */
+	private static final long STOP_CHECK_MASK = 0xFFF;
+
+	/**
+	 * The minimum number of tasks per thread of the pool when the split depth
+	 * is chosen automatically, so that work stealing can balance them.
+	 */
+	private static final int TASKS_PER_THREAD = 16;
+
+	/**
+	 * The scorer used to evaluate each composition. It's shared by the tasks.
+	 */
+	private CompositionScorer mScorer;
+
+	/**
+	 * The number of concrete services of each abstract service.
+	 */
+	private int[] mNoConcreteServices;
+
+	/**
+	 * The pool on which the tasks run.
+	 */
+	private ForkJoinPool mPool;
+
+	/**
+	 * The number of abstract services on which the tree is split, or -1 to
+	 * choose it from the parallelism of the pool.
+	 */
+	private int mSplitDepth = -1;
+
+	/**
+	 * The deadline of the search.
+	 */
+	private Deadline mDeadline = Deadline.NONE;
+
+	/**
+	 * The token through which the search can be cancelled.
+	 */
+	private CancellationToken mCancellationToken = CancellationToken.NONE;
+
+	/**
+	 * Whether the current search was stopped. It's set by any task that sees
+	 * the deadline expire or the token cancelled, and read by all of them.
+	 */
+	private volatile boolean mIsStopped;
+
+	/**
+	 * The listeners notified of each improving composition.
+	 */
+	private CopyOnWriteArrayList<IncumbentListener> mIncumbentListeners = new CopyOnWriteArrayList<IncumbentListener>();
+
+	/**
+	 * The aggregated QoS of the best composition reported to the listeners in
+	 * the current search.
+	 */
+	private volatile double mBestReportedQoS;
+
+	/**
+	 * The value of System.nanoTime() when the current search started.
+	 */
+	private long mStartNanos;
+
+	/**
+	 * The result of the last search.
+	 */
+	private Result mResult;
+
+	/**
+	 * Creates a parallel search.
+	 * 
+	 * @param qosAttributes
+	 *            The QoS attributes of the services.
+	 * @param pool
+	 *            The pool on which the tasks run.
+	 */
+	public ParallelBruteForce(QoSAttribute[] qosAttributes, ForkJoinPool pool) {
+		mScorer = new CompositionScorer(qosAttributes);
+		mNoConcreteServices = new int[qosAttributes[0].getNoAbstractServices()];
+		for (int i = 0; i < mNoConcreteServices.length; i++) {
+			mNoConcreteServices[i] = qosAttributes[0].getNoConcreteServices(i);
+		}
+		mPool = pool;
+	}
+
+	/**
+	 * Sets the number of abstract services on which the tree is split. Each
+	 * combination of their concrete services is searched by a separate task.
+	 * 
+	 * @param splitDepth
+	 *            The split depth, between 0 (a single task) and the number of
+	 *            abstract services minus one, or -1 to choose it so that
+	 *            there are at least TASKS_PER_THREAD tasks per thread.
+	 */
+	public void setSplitDepth(int splitDepth) {
+		if (splitDepth < -1 || splitDepth >= mNoConcreteServices.length) {
+			throw new IllegalArgumentException("Invalid split depth: "
+					+ splitDepth);
+		}
+		mSplitDepth = splitDepth;
+	}
+
+	/**
+	 * Sets the deadline of the search. It's checked every few thousand
+	 * compositions by each task. If it expires, the best composition found so
+	 * far is returned.
+	 * 
+	 * @param deadline
+	 *            The deadline.
+	 */
+	public void setDeadline(Deadline deadline) {
+		mDeadline = deadline;
+	}
+
+	/**
+	 * Sets the token through which the search can be cancelled. It's checked
+	 * as often as the deadline.
+	 * 
+	 * @param token
+	 *            The cancellation token.
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		mCancellationToken = token;
+	}
+
+	/**
+	 * Adds a listener to be notified of each improving composition found by
+	 * the search. It's called on the threads of the pool, one call at a time.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by addIncumbentListener().
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.remove(listener);
+	}
+
+	/**
+	 * Calculates and returns the best composition. If the search is stopped by
+	 * the deadline or the cancellation token, returns the best composition
+	 * found so far.
+	 * 
+	 * @return The best composition, or null if the search was stopped before
+	 *         evaluating any composition.
+	 */
+	public int[] getBestComposition() {
+		mIsStopped = false;
+		mBestReportedQoS = Double.NEGATIVE_INFINITY;
+		mStartNanos = System.nanoTime();
+
+		/* The weights may have been changed through TotalQoS. */
+		mScorer.updateWeights();
+
+		int splitDepth = mSplitDepth >= 0 ? mSplitDepth
+				: chooseSplitDepth(mPool.getParallelism());
+		mResult = mPool.invoke(new SearchTask(new int[mNoConcreteServices.length],
+				0, splitDepth));
+		MetricsRegistry registry = Metrics.getRegistry();
+		registry.counter("bruteforce.evaluations").add(mResult.noEvaluations);
+		registry.timer("bruteforce.search").recordSince(mStartNanos);
+
+		return mResult.composition;
+	}
+
+	/**
+	 * Chooses the smallest split depth that yields at least TASKS_PER_THREAD
+	 * tasks per thread.
+	 * 
+	 * @param parallelism
+	 *            The number of threads.
+	 * @return The split depth.
+	 */
+	private int chooseSplitDepth(int parallelism) {
+		long noTasks = 1;
+		int depth = 0;
+		while (depth < mNoConcreteServices.length - 1
+				&& noTasks < (long) parallelism * TASKS_PER_THREAD) {
+			noTasks *= mNoConcreteServices[depth++];
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns the aggregated QoS of the composition returned by the last call
+	 * to getBestComposition().
+	 * 
+	 * @return The aggregated QoS of the best composition.
+	 */
+	public double getBestQoS() {
+		return mResult.qos;
+	}
+
+	/**
+	 * 
+	 * @return True if the last search evaluated at least one composition;
+	 *         false if it was stopped before.
+	 */
+	public boolean hasSolution() {
+		return mResult.composition != null;
+	}
+
+	/**
+	 * 
+	 * @return The number of compositions evaluated by the last search.
+	 */
+	public long getNoEvaluations() {
+		return mResult.noEvaluations;
+	}
+
+	/**
+	 * 
+	 * @return True if the last search was stopped before enumerating all the
+	 *         compositions; false otherwise.
+	 */
+	public boolean isStopped() {
+		return mIsStopped;
+	}
+
+	/**
+	 * Notifies the listeners of a composition found by a task, if it's better
+	 * than every composition reported before.
+	 * 
+	 * @param composition
+	 *            The composition. It's copied.
+	 * @param qos
+	 *            Its aggregated QoS.
+	 */
+	private synchronized void offerIncumbent(int[] composition, double qos) {
+		if (DoubleComparator.compare(qos, mBestReportedQoS) <= 0) {
+			return;
+		}
+		mBestReportedQoS = qos;
+
+		Incumbent incumbent = new Incumbent(composition.clone(), qos, qos,
+				Double.NaN, System.nanoTime() - mStartNanos);
+		for (IncumbentListener listener : mIncumbentListeners) {
+			listener.onIncumbent(incumbent);
+		}
+	}
+
+	/**
+	 * The best composition of a subtree.
+	 */
+	private static class Result {
+
+		/**
+		 * The best composition, or null if the subtree wasn't searched.
+		 */
+		int[] composition;
+
+		/**
+		 * The aggregated QoS of the best composition.
+		 */
+		double qos = Double.NEGATIVE_INFINITY;
+
+		/**
+		 * The number of compositions evaluated in the subtree.
+		 */
+		long noEvaluations;
+
+		/**
+		 * Merges the result of the subtree to the right of this one.
+		 * 
+		 * @param right
+		 *            The result of the subtree to the right.
+		 */
+		void merge(Result right) {
+			if (right.composition != null
+					&& (composition == null || DoubleComparator.compare(
+							right.qos, qos) > 0)) {
+				composition = right.composition;
+				qos = right.qos;
+			}
+			noEvaluations += right.noEvaluations;
+		}
+	}
+
+	/**
+	 * Searches the subtree of a prefix of the composition.
+	 */
+	private class SearchTask extends RecursiveTask<Result> {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The prefix, followed by unused positions. It's owned by this task.
+		 */
+		private int[] mComposition;
+
+		/**
+		 * The number of abstract services in the prefix.
+		 */
+		private int mDepth;
+
+		/**
+		 * The depth down to which the tree is split.
+		 */
+		private int mSplitDepth;
+
+		/**
+		 * The best composition found by this task.
+		 */
+		private Result mResult;
+
+		SearchTask(int[] composition, int depth, int splitDepth) {
+			mComposition = composition;
+			mDepth = depth;
+			mSplitDepth = splitDepth;
+		}
+
+		@Override
+		protected Result compute() {
+			if (mDepth < mSplitDepth) {
+				SearchTask[] children = new SearchTask[mNoConcreteServices[mDepth]];
+				for (int j = 0; j < children.length; j++) {
+					int[] prefix = mComposition.clone();
+					prefix[mDepth] = j;
+					children[j] = new SearchTask(prefix, mDepth + 1,
+							mSplitDepth);
+				}
+				invokeAll(children);
+
+				Result result = children[0].join();
+				for (int j = 1; j < children.length; j++) {
+					result.merge(children[j].join());
+				}
+				return result;
+			}
+
+			mResult = new Result();
+			if (!mIsStopped
+					&& (mDeadline.isExpired() || mCancellationToken
+							.isCancelled())) {
+				/*
+				 * Also checked once per task, since small tasks may end before
+				 * the periodic check.
+				 */
+				mIsStopped = true;
+			}
+			if (!mIsStopped) {
+				backtrack(mDepth);
+			}
+			return mResult;
+		}
+
+		/**
+		 * Enumerates the compositions of the subtree recursively, in
+		 * lexicographic order.
+		 * 
+		 * @param from
+		 *            The abstract service from which to start the search.
+		 */
+		private void backtrack(int from) {
+			for (int i = 0; i < mNoConcreteServices[from] && !mIsStopped; i++) {
+				mComposition[from] = i;
+
+				if (from != mNoConcreteServices.length - 1) {
+					backtrack(from + 1);
+				} else {
+					if ((++mResult.noEvaluations & STOP_CHECK_MASK) == 0
+							&& (mDeadline.isExpired() || mCancellationToken
+									.isCancelled())) {
+						mIsStopped = true;
+					}
+
+					double newQoS = mScorer.score(mComposition);
+					if (mResult.composition == null
+							|| DoubleComparator.compare(newQoS, mResult.qos) > 0) {
+						if (mResult.composition == null) {
+							mResult.composition = new int[mComposition.length];
+						}
+						mResult.qos = newQoS;
+						System.arraycopy(mComposition, 0, mResult.composition,
+								0, mComposition.length);
+
+						if (!mIncumbentListeners.isEmpty()
+								&& newQoS > mBestReportedQoS) {
+							offerIncumbent(mComposition, newQoS);
+						}
+					}
+				}
+			}
+		}
+	}
+}
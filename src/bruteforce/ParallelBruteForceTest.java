@@ -0,0 +1,73 @@
+package bruteforce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.QoSAttribute;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import instance.InstanceGenerator;
+
+public class ParallelBruteForceTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(6, 2, 5,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.3, 0.3, 0.4 },
+				InstanceGenerator.CORRELATION_ANTI_CORRELATED);
+	}
+
+	/* Same result as the sequential search, for any split depth. */
+
+	@Test
+	public void test0() {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			for (long seed = 0; seed < 10; seed++) {
+				QoSAttribute[] attributes = createAttributes(seed);
+				BruteForce sequential = new BruteForce(attributes);
+				int[] expected = sequential.getBestComposition();
+
+				for (int depth = -1; depth < 6; depth++) {
+					ParallelBruteForce parallel = new ParallelBruteForce(
+							attributes, pool);
+					parallel.setSplitDepth(depth);
+					assertArrayEquals(parallel.getBestComposition(), expected);
+					assertEquals(parallel.getBestQoS(),
+							sequential.getBestQoS(), 0);
+					assertEquals(parallel.getNoEvaluations(),
+							sequential.getNoEvaluations());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/* Searches cancelled before the first composition have no solution. */
+
+	@Test
+	public void test1() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			CancellationToken token = new CancellationToken();
+			token.cancel();
+			ParallelBruteForce parallel = new ParallelBruteForce(
+					createAttributes(1), pool);
+			parallel.setCancellationToken(token);
+			assertNull(parallel.getBestComposition());
+			assertFalse(parallel.hasSolution());
+			assertTrue(parallel.isStopped());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,517 @@
+package bruteforce;
+
+import general.DoubleComparator;
+import general.QoSAttribute;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import instance.BinaryInstance;
+
+/**
+ * Splits the exhaustive search of BruteForce among several processes. The
+ * compositions are ranked in the Gray code order of MixedRadixGrayCode, and
+ * the ranks are split into contiguous shards of nearly equal sizes, each one
+ * searched by BruteForce.setRange() in its own worker process.
+ * 
+ * A worker writes its result to the standard output as a single line, which
+ * the coordinator reads. The results are merged in the order of the shards,
+ * and a composition only replaces the one of a lower shard if it's strictly
+ * better according to DoubleComparator, so the merged result doesn't depend on
+ * which worker finished first.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class ShardedBruteForce {
+
+	/**
+	 * The first token of every result line.
+	 */
+	private static final String RESULT_PREFIX = "shard";
+
+	/**
+	 * Returns the rank of the first composition of a shard. The first
+	 * noCompositions % noShards shards have one composition more than the
+	 * others.
+	 * 
+	 * @param noCompositions
+	 *            The number of compositions.
+	 * @param shard
+	 *            The index of the shard, between 0 and noShards. The start of
+	 *            shard noShards is the end of the last shard.
+	 * @param noShards
+	 *            The number of shards.
+	 * @return The rank of the first composition of the shard.
+	 */
+	public static long getShardStart(long noCompositions, int shard,
+			int noShards) {
+		if (noShards < 1 || shard < 0 || shard > noShards) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid shard %d of %d.", shard, noShards));
+		}
+		long quotient = noCompositions / noShards;
+		long remainder = noCompositions % noShards;
+		return shard * quotient + Math.min(shard, remainder);
+	}
+
+	/**
+	 * Searches a shard of the compositions. If a checkpoint file is given, the
+	 * search writes checkpoints to it, and resumes from it if it exists.
+	 * 
+	 * @param qosAttributes
+	 *            The QoS attributes of the services.
+	 * @param shard
+	 *            The index of the shard.
+	 * @param noShards
+	 *            The number of shards.
+	 * @param checkpoint
+	 *            The checkpoint file, or null to run without checkpoints.
+	 * @param intervalMillis
+	 *            The minimum time between two checkpoints, in milliseconds.
+	 * @return The result of the shard.
+	 * @throws IOException
+	 *             If the checkpoint can't be read or belongs to another
+	 *             search.
+	 */
+	static ShardResult searchShard(QoSAttribute[] qosAttributes,
+			int shard, int noShards, Path checkpoint, long intervalMillis)
+			throws IOException {
+		BruteForce bf = new BruteForce(qosAttributes);
+		long noCompositions = bf.getNoCompositions();
+		long start = getShardStart(noCompositions, shard, noShards);
+		long end = getShardStart(noCompositions, shard + 1, noShards);
+
+		bf.setRange(start, end);
+		if (checkpoint != null) {
+			bf.setCheckpoint(checkpoint, intervalMillis);
+			bf.resume(checkpoint);
+		}
+		int[] composition = bf.getBestComposition();
+
+		ShardResult result = new ShardResult();
+		result.shard = shard;
+		result.start = start;
+		result.end = end;
+		result.noEvaluations = bf.getNoEvaluations();
+		result.isStopped = bf.isStopped();
+		if (bf.hasSolution()) {
+			result.composition = composition.clone();
+			result.qos = bf.getBestQoS();
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the results of all the shards of a search. The range of every
+	 * shard must be the one given by getShardStart(), so that results of
+	 * searches with a different number of shards or over a different instance
+	 * can't be mixed.
+	 * 
+	 * @param results
+	 *            The result of each shard, in any order.
+	 * @param noShards
+	 *            The number of shards.
+	 * @param noCompositions
+	 *            The number of compositions of the instance, or -1 if it's
+	 *            unknown, in which case it's taken from the end of the last
+	 *            shard.
+	 * @return The merged result. Its shard is the one where the best
+	 *         composition was found, or -1 if none was, and its range covers
+	 *         all the shards.
+	 * @throws IOException
+	 *             If a shard is missing or repeated, or doesn't have the
+	 *             expected range.
+	 */
+	static ShardResult merge(List<ShardResult> results, int noShards,
+			long noCompositions) throws IOException {
+		ShardResult[] byShard = new ShardResult[noShards];
+		for (ShardResult result : results) {
+			if (result.shard < 0 || result.shard >= noShards) {
+				throw new IOException(String.format(
+						"Invalid shard %d of %d.", result.shard, noShards));
+			}
+			if (byShard[result.shard] != null) {
+				throw new IOException("Repeated shard: " + result.shard);
+			}
+			byShard[result.shard] = result;
+		}
+
+		for (int shard = 0; shard < noShards; shard++) {
+			if (byShard[shard] == null) {
+				throw new IOException("Missing shard: " + shard);
+			}
+		}
+		if (noCompositions < 0) {
+			noCompositions = byShard[noShards - 1].end;
+		}
+
+		ShardResult merged = new ShardResult();
+		merged.shard = -1;
+		for (int shard = 0; shard < noShards; shard++) {
+			ShardResult result = byShard[shard];
+			long start = getShardStart(noCompositions, shard, noShards);
+			long end = getShardStart(noCompositions, shard + 1, noShards);
+			if (result.start != start || result.end != end) {
+				throw new IOException(String.format(
+						"Shard %d covers [%d, %d); expected [%d, %d).", shard,
+						result.start, result.end, start, end));
+			}
+			if (result.composition != null
+					&& (merged.composition == null || DoubleComparator
+							.compare(result.qos, merged.qos) > 0)) {
+				merged.shard = shard;
+				merged.composition = result.composition;
+				merged.qos = result.qos;
+			}
+			merged.noEvaluations += result.noEvaluations;
+			merged.isStopped |= result.isStopped;
+		}
+		merged.start = byShard[0].start;
+		merged.end = byShard[noShards - 1].end;
+		return merged;
+	}
+
+	/**
+	 * Reads the result lines of a stream, ignoring any other line.
+	 * 
+	 * @param reader
+	 *            The stream.
+	 * @param results
+	 *            The list to which the results are added.
+	 * @throws IOException
+	 *             If the stream can't be read or a result line is malformed.
+	 */
+	static void readResults(BufferedReader reader,
+			List<ShardResult> results) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(RESULT_PREFIX + " ")) {
+				results.add(ShardResult.parse(line));
+			}
+		}
+	}
+
+	/**
+	 * Runs the shards in local worker processes, at most noJobs at a time,
+	 * and collects their results. Each worker runs this class on the same
+	 * Java runtime and class path as the current process. If a worker fails,
+	 * the workers still running are destroyed.
+	 * 
+	 * @param instance
+	 *            The path of the binary instance file.
+	 * @param noShards
+	 *            The number of shards.
+	 * @param noJobs
+	 *            The maximum number of workers running at the same time.
+	 * @param workerOptions
+	 *            Other options to be passed to each worker.
+	 * @return The result of each shard.
+	 * @throws IOException
+	 *             If a worker can't be started or fails.
+	 * @throws InterruptedException
+	 *             If the current thread is interrupted while waiting for a
+	 *             worker.
+	 */
+	static List<ShardResult> runWorkers(String instance, int noShards,
+			int noJobs, List<String> workerOptions) throws IOException,
+			InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java";
+		String classPath = System.getProperty("java.class.path");
+		List<ShardResult> results = new ArrayList<ShardResult>();
+		List<Process> running = new ArrayList<Process>();
+
+		try {
+			for (int shard = 0; shard < noShards; shard++) {
+				if (running.size() == noJobs) {
+					collect(running.get(0), results);
+					running.remove(0);
+				}
+				List<String> command = new ArrayList<String>(Arrays.asList(
+						java, "-cp", classPath,
+						ShardedBruteForce.class.getName(), "--instance",
+						instance, "--shards", Integer.toString(noShards),
+						"--shard", Integer.toString(shard)));
+				command.addAll(workerOptions);
+				ProcessBuilder builder = new ProcessBuilder(command);
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				running.add(builder.start());
+			}
+			while (!running.isEmpty()) {
+				collect(running.get(0), results);
+				running.remove(0);
+			}
+		} finally {
+			/* After a failure, the other workers are of no use. */
+			for (Process worker : running) {
+				worker.destroy();
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Reads the result of a worker process and waits for it to exit.
+	 * 
+	 * @param worker
+	 *            The worker process.
+	 * @param results
+	 *            The list to which its result is added.
+	 * @throws IOException
+	 *             If the worker fails.
+	 * @throws InterruptedException
+	 *             If the current thread is interrupted while waiting.
+	 */
+	private static void collect(Process worker, List<ShardResult> results)
+			throws IOException, InterruptedException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				worker.getInputStream(), StandardCharsets.UTF_8));
+		try {
+			readResults(reader, results);
+		} finally {
+			reader.close();
+		}
+		int exitCode = worker.waitFor();
+		if (exitCode != 0) {
+			throw new IOException("A worker failed with exit code "
+					+ exitCode);
+		}
+	}
+
+	/**
+	 * Runs a sharded search. The options, given as "--name value" pairs, are:
+	 * 
+	 * --instance PATH: the binary instance file, required unless --results is
+	 * given;
+	 * 
+	 * --shards N (required): the number of shards;
+	 * 
+	 * --shard K: runs only shard K in this process, as a worker, and writes
+	 * its result line to the standard output. Workers can be started this way
+	 * on other nodes. It requires --instance, and can't be combined with
+	 * --results;
+	 * 
+	 * --results FILE: merges the result lines of FILE, e.g. the concatenated
+	 * outputs of workers started with --shard, instead of running the
+	 * shards. --instance isn't required; if it's given, the ranges of the
+	 * shards are checked against it;
+	 * 
+	 * --jobs N (default: the number of processors): the maximum number of
+	 * local worker processes running at the same time;
+	 * 
+	 * --checkpoint PREFIX: each shard K writes checkpoints to
+	 * PREFIX.K.checkpoint, and resumes from it if it already exists, e.g.
+	 * after the job was preempted;
+	 * 
+	 * --interval SECONDS (default 60): the minimum time between two
+	 * checkpoints.
+	 * 
+	 * Without --shard and --results, all the shards are run in local worker
+	 * processes. In both cases, the merged result line is written to the
+	 * standard output.
+	 * 
+	 * @param args
+	 *            The options.
+	 * @throws IOException
+	 *             If the files can't be read or a worker fails.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for a worker.
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		String instance = null;
+		int noShards = 0;
+		int shard = -1;
+		String resultsFile = null;
+		int noJobs = Runtime.getRuntime().availableProcessors();
+		String checkpointPrefix = null;
+		long intervalSeconds = 60;
+		List<String> workerOptions = new ArrayList<String>();
+
+		for (int a = 0; a < args.length; a += 2) {
+			if (a + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value of "
+						+ args[a]);
+			}
+			String value = args[a + 1];
+
+			if (args[a].equals("--instance")) {
+				instance = value;
+			} else if (args[a].equals("--shards")) {
+				noShards = Integer.parseInt(value);
+			} else if (args[a].equals("--shard")) {
+				shard = Integer.parseInt(value);
+			} else if (args[a].equals("--results")) {
+				resultsFile = value;
+			} else if (args[a].equals("--jobs")) {
+				noJobs = Integer.parseInt(value);
+			} else if (args[a].equals("--checkpoint")) {
+				checkpointPrefix = value;
+				workerOptions.add(args[a]);
+				workerOptions.add(value);
+			} else if (args[a].equals("--interval")) {
+				intervalSeconds = Long.parseLong(value);
+				workerOptions.add(args[a]);
+				workerOptions.add(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option: "
+						+ args[a]);
+			}
+		}
+
+		if ((instance == null && resultsFile == null) || noShards < 1
+				|| noJobs < 1
+				|| (shard >= 0 && (instance == null || resultsFile != null))) {
+			System.err
+					.println("Usage: ShardedBruteForce --instance PATH --shards N [--shard K | --results FILE | --jobs N] [--checkpoint PREFIX] [--interval SECONDS]");
+			System.exit(2);
+		}
+
+		if (shard >= 0) {
+			QoSAttribute[] attributes = BinaryInstance.map(Paths.get(instance));
+			Path checkpoint = checkpointPrefix == null ? null : Paths
+					.get(checkpointPrefix + "." + shard + ".checkpoint");
+			System.out.println(searchShard(attributes, shard, noShards,
+					checkpoint, intervalSeconds * 1000));
+			return;
+		}
+
+		long noCompositions = -1;
+		if (instance != null) {
+			noCompositions = new BruteForce(BinaryInstance.map(Paths
+					.get(instance))).getNoCompositions();
+		}
+
+		List<ShardResult> results;
+		if (resultsFile != null) {
+			results = new ArrayList<ShardResult>();
+			BufferedReader reader = Files.newBufferedReader(
+					Paths.get(resultsFile), StandardCharsets.UTF_8);
+			try {
+				readResults(reader, results);
+			} finally {
+				reader.close();
+			}
+		} else {
+			results = runWorkers(instance, noShards, noJobs, workerOptions);
+		}
+
+		ShardResult merged = merge(results, noShards, noCompositions);
+		System.out.println(merged);
+		if (merged.isStopped) {
+			System.err.println("Some shards were stopped before the end.");
+		}
+	}
+
+	/**
+	 * The result of a shard, which is written as a single line of
+	 * space-separated "name value" pairs.
+	 */
+	static class ShardResult {
+
+		/**
+		 * The index of the shard.
+		 */
+		int shard;
+
+		/**
+		 * The rank of the first composition of the shard.
+		 */
+		long start;
+
+		/**
+		 * The rank after the last composition of the shard.
+		 */
+		long end;
+
+		/**
+		 * The number of compositions evaluated.
+		 */
+		long noEvaluations;
+
+		/**
+		 * Whether the search was stopped before the end of the shard.
+		 */
+		boolean isStopped;
+
+		/**
+		 * The best composition, or null if there was none.
+		 */
+		int[] composition;
+
+		/**
+		 * The aggregated QoS of the best composition.
+		 */
+		double qos = Double.NEGATIVE_INFINITY;
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append(RESULT_PREFIX).append(' ').append(shard);
+			builder.append(" start ").append(start);
+			builder.append(" end ").append(end);
+			builder.append(" evaluations ").append(noEvaluations);
+			builder.append(" stopped ").append(isStopped);
+			builder.append(" qos ").append(qos);
+			builder.append(" composition ");
+			Checkpoint.appendComposition(builder, composition);
+			return builder.toString();
+		}
+
+		/**
+		 * Parses a line written by toString().
+		 * 
+		 * @param line
+		 *            The line.
+		 * @return The result.
+		 * @throws IOException
+		 *             If the line is malformed.
+		 */
+		static ShardResult parse(String line) throws IOException {
+			String[] tokens = line.trim().split(" +");
+			if (tokens.length != 14) {
+				throw new IOException("Malformed result: " + line);
+			}
+
+			ShardResult result = new ShardResult();
+			try {
+				for (int t = 0; t < tokens.length; t += 2) {
+					String name = tokens[t];
+					String value = tokens[t + 1];
+
+					if (name.equals(RESULT_PREFIX)) {
+						result.shard = Integer.parseInt(value);
+					} else if (name.equals("start")) {
+						result.start = Long.parseLong(value);
+					} else if (name.equals("end")) {
+						result.end = Long.parseLong(value);
+					} else if (name.equals("evaluations")) {
+						result.noEvaluations = Long.parseLong(value);
+					} else if (name.equals("stopped")) {
+						result.isStopped = Boolean.parseBoolean(value);
+					} else if (name.equals("qos")) {
+						result.qos = Double.parseDouble(value);
+					} else if (name.equals("composition")) {
+						result.composition = Checkpoint.parseComposition(value);
+					} else {
+						throw new IOException("Malformed result: " + line);
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed result: " + line, e);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package bruteforce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import general.QoSAttribute;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import bruteforce.ShardedBruteForce.ShardResult;
+import instance.InstanceGenerator;
+
+public class ShardedBruteForceTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(6, 2, 5,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.3, 0.3, 0.4 },
+				InstanceGenerator.CORRELATION_ANTI_CORRELATED);
+	}
+
+	private static void assertRejected(List<ShardResult> results,
+			int noShards, long noCompositions) {
+		try {
+			ShardedBruteForce.merge(results, noShards, noCompositions);
+			fail("Merged inconsistent shards.");
+		} catch (IOException e) {
+			/* Expected. */
+		}
+	}
+
+	/* The shards cover all the ranks, and their sizes differ by at most one. */
+
+	@Test
+	public void test0() {
+		for (int noShards = 1; noShards <= 7; noShards++) {
+			assertEquals(0, ShardedBruteForce.getShardStart(20, 0, noShards));
+			assertEquals(20,
+					ShardedBruteForce.getShardStart(20, noShards, noShards));
+			for (int shard = 0; shard < noShards; shard++) {
+				long size = ShardedBruteForce.getShardStart(20, shard + 1,
+						noShards)
+						- ShardedBruteForce.getShardStart(20, shard, noShards);
+				assertEquals(20 / noShards, size, 1);
+			}
+		}
+	}
+
+	/* The merged shards give the result of the full search. */
+
+	@Test
+	public void test1() throws IOException {
+		for (long seed = 0; seed < 5; seed++) {
+			QoSAttribute[] attributes = createAttributes(seed);
+			BruteForce full = new BruteForce(attributes);
+			int[] expected = full.getBestComposition();
+
+			for (int noShards = 1; noShards <= 8; noShards++) {
+				List<ShardResult> results = new ArrayList<ShardResult>();
+				for (int shard = noShards - 1; shard >= 0; shard--) {
+					results.add(ShardedBruteForce.searchShard(attributes,
+							shard, noShards, null, 0));
+				}
+				ShardResult merged = ShardedBruteForce.merge(results,
+						noShards, full.getNoCompositions());
+				assertEquals(merged.toString(), ShardedBruteForce.merge(
+						results, noShards, -1).toString());
+
+				assertArrayEquals(expected, merged.composition);
+				assertEquals(full.getBestQoS(), merged.qos, 0);
+				assertEquals(full.getNoEvaluations(), merged.noEvaluations);
+			}
+		}
+	}
+
+	/* Results survive being written and read back. */
+
+	@Test
+	public void test2() throws IOException {
+		ShardResult result = ShardedBruteForce.searchShard(
+				createAttributes(1), 2, 3, null, 0);
+		ShardResult empty = new ShardResult();
+		empty.shard = 1;
+
+		List<ShardResult> results = new ArrayList<ShardResult>();
+		ShardedBruteForce.readResults(new BufferedReader(new StringReader(
+				"log line\n" + result + "\n" + empty + "\n")), results);
+
+		assertEquals(2, results.size());
+		assertEquals(result.toString(), results.get(0).toString());
+		assertEquals(result.qos, results.get(0).qos, 0);
+		assertEquals(null, results.get(1).composition);
+	}
+
+	/* Results whose ranges don't match the shards are rejected. */
+
+	@Test
+	public void test3() throws IOException {
+		QoSAttribute[] attributes = createAttributes(2);
+		long noCompositions = new BruteForce(attributes).getNoCompositions();
+		List<ShardResult> results = new ArrayList<ShardResult>();
+		for (int shard = 0; shard < 3; shard++) {
+			results.add(ShardedBruteForce.searchShard(attributes, shard, 3,
+					null, 0));
+		}
+		ShardedBruteForce.merge(results, 3, noCompositions);
+
+		assertRejected(results, 3, noCompositions + 1);
+		results.get(1).start++;
+		assertRejected(results, 3, -1);
+		results.get(1).start--;
+		results.set(2, ShardedBruteForce.searchShard(attributes, 2, 4, null,
+				0));
+		assertRejected(results, 3, -1);
+	}
+
+	/*
+	 * Every composition is evaluated by exactly one shard, including when
+	 * even numbers of concrete services precede the last abstract service.
+	 * A composition is told apart by an attribute that is 1 only at its
+	 * services, so a shard finds it as its best one if and only if it visits
+	 * it.
+	 */
+
+	@Test
+	public void test4() throws IOException {
+		int[][] radicesList = { { 2, 2, 2 }, { 2, 2, 2, 2 }, { 2, 4, 3 },
+				{ 3, 2, 3, 2 } };
+		for (int[] radices : radicesList) {
+			MixedRadixGrayCode code = new MixedRadixGrayCode(radices);
+			do {
+				int[] target = code.getDigits().clone();
+				double[][] values = new double[radices.length][];
+				for (int i = 0; i < radices.length; i++) {
+					values[i] = new double[radices[i]];
+					values[i][target[i]] = 1;
+				}
+				QoSAttribute[] attributes = { new QoSAttribute(values,
+						QoSAttribute.AGGREGATE_BY_SUM, 1) };
+
+				for (int noShards = 1; noShards <= 5; noShards++) {
+					int noVisits = 0;
+					long noEvaluations = 0;
+					for (int shard = 0; shard < noShards; shard++) {
+						ShardResult result = ShardedBruteForce.searchShard(
+								attributes, shard, noShards, null, 0);
+						noEvaluations += result.noEvaluations;
+						if (result.composition != null
+								&& Arrays.equals(target, result.composition)) {
+							noVisits++;
+						}
+					}
+					assertEquals(Arrays.toString(target), 1, noVisits);
+					assertEquals(code.getSize(), noEvaluations);
+				}
+			} while (code.next() >= 0);
+		}
+	}
+}
@@ -1,13 +1,21 @@
 package dynprog;
 
+import general.CancellationToken;
+import general.Deadline;
 import general.DoubleComparator;
 import general.QoSAttribute;
 
 import java.util.Arrays;
 
+import metrics.DynamicProgrammingLevelEvent;
+
 /**
  * This class implements the Dynamic Programming algorithm.
  * 
+ * It can run on its own thread, with start(), or on an executor, through
+ * solver.DynamicProgrammingSolver and solver.AsyncSolver, which doesn't
+ * create a thread for each run.
+ * 
  * @author Andre Luiz Verucci da Cunha
  * 
  */
@@ -33,6 +41,26 @@ public class DynamicProgramming extends Thread {
 	 */
 	private double[][][] mEdgesWeights;
 
+	/**
+	 * The deadline of the execution.
+	 */
+	private Deadline mDeadline = Deadline.NONE;
+
+	/**
+	 * The token through which the execution can be cancelled.
+	 */
+	private CancellationToken mCancellationToken = CancellationToken.NONE;
+
+	/**
+	 * Whether the last execution was stopped before reaching the first level.
+	 */
+	private boolean mIsStopped;
+
+	/**
+	 * The number of levels added to the solution by the last execution.
+	 */
+	private int mNoLevels;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -83,15 +111,56 @@ public class DynamicProgramming extends Thread {
 		mEdgesWeights[originAbstract][originConcrete][destinationConcrete] = weight;
 	}
 
+	/**
+	 * Sets the deadline of the execution. It's checked once per level. If it
+	 * expires, no solution is returned.
+	 * 
+	 * @param deadline
+	 *            The deadline.
+	 */
+	public void setDeadline(Deadline deadline) {
+		mDeadline = deadline;
+	}
+
+	/**
+	 * Sets the token through which the execution can be cancelled. It's
+	 * checked once per level. If it's cancelled, no solution is returned.
+	 * 
+	 * @param token
+	 *            The cancellation token.
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		mCancellationToken = token;
+	}
+
 	/**
 	 * Returns the solution found.
 	 * 
-	 * @return The solution found.
+	 * @return The solution found, or null if there's no solution or the
+	 *         execution was stopped.
 	 */
 	public int[] getSolution() {
 		return mSolution;
 	}
 
+	/**
+	 * 
+	 * @return True if the last execution was stopped by the deadline or the
+	 *         cancellation token; false otherwise.
+	 */
+	public boolean isStopped() {
+		return mIsStopped;
+	}
+
+	/**
+	 * 
+	 * @return The number of levels added to the solution by the last
+	 *         execution.
+	 */
+	public int getNoLevels() {
+		return mNoLevels;
+	}
+
 	/**
 	 * Adds the given level to the partial solution, considering that all of the
 	 * posterior levels have already been added.
@@ -135,6 +204,13 @@ public class DynamicProgramming extends Thread {
 	@Override
 	public void run() {
 		int noAbstractServices = mQoSValues.length;
+		mIsStopped = false;
+		mNoLevels = 0;
+		if (mSolution == null) {
+			/* A previous execution found no solution. */
+			mSolution = new int[noAbstractServices];
+			Arrays.fill(mSolution, -1);
+		}
 
 		/* First, we add the last level to the partial solution. */
 		int indexOfOptimalService = -1;
@@ -148,13 +224,33 @@ public class DynamicProgramming extends Thread {
 		}
 		mAccumQoS[noAbstractServices - 1] = maxTotalQoS;
 		mSolution[noAbstractServices - 1] = indexOfOptimalService;
+		mNoLevels = 1;
 
 		/* Then, we add the other levels, in a backward fashion. */
 		for (int i = noAbstractServices - 2; i >= 0; i--) {
-			if (!addLevelToSolution(i)) {
+			if (mDeadline.isExpired() || mCancellationToken.isCancelled()) {
+				mIsStopped = true;
+				mSolution = null;
+				break;
+			}
+
+			DynamicProgrammingLevelEvent event = new DynamicProgrammingLevelEvent();
+			event.begin();
+			boolean reachable = addLevelToSolution(i);
+			event.end();
+			if (event.shouldCommit()) {
+				event.level = i;
+				event.noConcreteServices = mQoSValues[i].length;
+				event.reachable = reachable;
+				event.accumulatedQoS = reachable ? mAccumQoS[i] : Double.NaN;
+				event.commit();
+			}
+
+			if (!reachable) {
 				mSolution = null;
 				break;
 			}
+			mNoLevels++;
 		}
 	}
 
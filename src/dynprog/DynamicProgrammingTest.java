@@ -0,0 +1,36 @@
+package dynprog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+
+import org.junit.Test;
+
+public class DynamicProgrammingTest {
+
+	public static final double[][] values = { { 1, 0.5f, 1 }, { 1, 0.5f },
+			{ 0.5f, 0.5f, 1 } };
+
+	/* A reused instance reports the state of its last execution only. */
+
+	@Test
+	public void test0() {
+		DynamicProgramming dynProg = new DynamicProgramming(values);
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		dynProg.setCancellationToken(token);
+		dynProg.run();
+		assertTrue(dynProg.isStopped());
+		assertNull(dynProg.getSolution());
+		assertEquals(1, dynProg.getNoLevels());
+
+		dynProg.setCancellationToken(CancellationToken.NONE);
+		dynProg.run();
+		assertFalse(dynProg.isStopped());
+		assertArrayEquals(new int[] { 0, 0, 2 }, dynProg.getSolution());
+		assertEquals(3, dynProg.getNoLevels());
+	}
+}
@@ -0,0 +1,67 @@
+package general;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A QoS column backed by a DoubleBuffer, typically a view over a memory-mapped
+ * file, so that the values don't have to be copied into the heap.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class BufferColumn extends QoSColumn {
+
+	/**
+	 * The values of this column.
+	 */
+	private final DoubleBuffer mValues;
+
+	/**
+	 * Creates a column over the given buffer. Values are read with absolute
+	 * gets, so the position of the buffer is irrelevant.
+	 * 
+	 * @param values
+	 *            The values of this column.
+	 */
+	public BufferColumn(DoubleBuffer values) {
+		mValues = values;
+	}
+
+	@Override
+	public double get(int index) {
+		return mValues.get(index);
+	}
+
+	@Override
+	public int size() {
+		return mValues.limit();
+	}
+
+	@Override
+	public void gather(int[] indices, int from, double[] values, int size) {
+		DoubleBuffer buffer = mValues;
+		for (int k = 0; k < size; k++) {
+			values[k] = buffer.get(indices[from + k]);
+		}
+	}
+
+	@Override
+	public double sum(int[] offsets, int[] composition) {
+		DoubleBuffer buffer = mValues;
+		double sum = 0;
+		for (int i = 0; i < composition.length; i++) {
+			sum += buffer.get(offsets[i] + composition[i]);
+		}
+		return sum;
+	}
+
+	@Override
+	public double product(int[] offsets, int[] composition) {
+		DoubleBuffer buffer = mValues;
+		double product = 1;
+		for (int i = 0; i < composition.length; i++) {
+			product *= buffer.get(offsets[i] + composition[i]);
+		}
+		return product;
+	}
+}
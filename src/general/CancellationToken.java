@@ -0,0 +1,44 @@
+package general;
+
+/**
+ * A flag through which a caller asks a running solver to stop and return the
+ * best solution it has found so far. Solvers poll it cooperatively, so it may
+ * take them a little while to notice it.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class CancellationToken {
+
+	/**
+	 * A token that is never cancelled.
+	 */
+	public static final CancellationToken NONE = new CancellationToken() {
+
+		@Override
+		public void cancel() {
+			throw new UnsupportedOperationException(
+					"This token can't be cancelled.");
+		}
+	};
+
+	/**
+	 * Whether this token was cancelled.
+	 */
+	private volatile boolean mIsCancelled;
+
+	/**
+	 * Cancels this token.
+	 */
+	public void cancel() {
+		mIsCancelled = true;
+	}
+
+	/**
+	 * 
+	 * @return True if this token was cancelled; false otherwise.
+	 */
+	public boolean isCancelled() {
+		return mIsCancelled;
+	}
+}
@@ -0,0 +1,24 @@
+package general;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CancellationTokenTest {
+
+	@Test
+	public void test0() {
+		CancellationToken token = new CancellationToken();
+		assertFalse(token.isCancelled());
+		token.cancel();
+		assertTrue(token.isCancelled());
+	}
+
+	/* NONE can't be cancelled. */
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void test1() {
+		CancellationToken.NONE.cancel();
+	}
+}
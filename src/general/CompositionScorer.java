@@ -0,0 +1,387 @@
+package general;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates the aggregated QoS of complete compositions over a fixed set of
+ * attributes. It's the trusted counterpart of
+ * QoSAttribute.calculateAggregatedQoS(): the attributes are checked once, when
+ * the scorer is created, and the normalization constants are computed only
+ * once, so that score() neither validates nor allocates.
+ * 
+ * Many compositions can also be evaluated at once by scoreBatch(), which keeps
+ * some scratch buffers and therefore must not be called concurrently on the
+ * same scorer. score() has no such restriction, even while updateWeights()
+ * runs: the coefficients are published together, so each evaluation uses the
+ * coefficients of a single set of weights.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class CompositionScorer {
+
+	/**
+	 * The number of compositions evaluated together by scoreBatch(). It's
+	 * small enough for the scratch buffers to stay in cache.
+	 */
+	private static final int BATCH_BLOCK_SIZE = 256;
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mAttributes;
+
+	/**
+	 * The offset of the first concrete service of each abstract service.
+	 */
+	private int[] mOffsets;
+
+	/**
+	 * The coefficients derived from the current weights. They're replaced as
+	 * a whole by updateWeights().
+	 */
+	private volatile Coefficients mCoefficients;
+
+	/**
+	 * The flat index of each selected concrete service in a block of the
+	 * batch, stored by abstract service and then by composition.
+	 */
+	private int[] mBatchIndices;
+
+	/**
+	 * The partial aggregate of each composition in a block of the batch.
+	 */
+	private double[] mBatchAggregates;
+
+	/**
+	 * The values of one abstract service, for each composition in a block of
+	 * the batch.
+	 */
+	private double[] mBatchValues;
+
+	/**
+	 * Creates a scorer for the given attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes. All of them must have the same shape.
+	 */
+	public CompositionScorer(QoSAttribute[] attributes) {
+		int[] offsets = attributes[0].getOffsets();
+		for (int attr = 1; attr < attributes.length; attr++) {
+			int[] other = attributes[attr].getOffsets();
+			if (other != offsets && !Arrays.equals(other, offsets)) {
+				throw new IllegalArgumentException(String.format(
+						"Attribute %d has a different shape.", attr));
+			}
+		}
+
+		mAttributes = attributes;
+		mOffsets = offsets;
+		updateWeights();
+	}
+
+	/**
+	 * Recomputes the coefficients and the normalization constant from the
+	 * current weights of the attributes.
+	 */
+	public void updateWeights() {
+		int noAbstractServices = mOffsets.length - 1;
+		int noAdditive = 0;
+		int noProduct = 0;
+
+		for (QoSAttribute attribute : mAttributes) {
+			switch (attribute.getAggregationMethod()) {
+			case QoSAttribute.AGGREGATE_BY_SUM:
+			case QoSAttribute.AGGREGATE_BY_AVERAGE:
+				noAdditive++;
+				break;
+			case QoSAttribute.AGGREGATE_BY_PRODUCT:
+				noProduct++;
+				break;
+			default:
+				break;
+			}
+		}
+
+		QoSColumn[] additiveColumns = new QoSColumn[noAdditive];
+		double[] additiveCoefficients = new double[noAdditive];
+		QoSColumn[] productColumns = new QoSColumn[noProduct];
+		double[] productCoefficients = new double[noProduct];
+		double constantTerm = 0;
+		double maximumQoS = 0;
+
+		noAdditive = 0;
+		noProduct = 0;
+		for (QoSAttribute attribute : mAttributes) {
+			double weight = attribute.getWeight();
+
+			switch (attribute.getAggregationMethod()) {
+			case QoSAttribute.AGGREGATE_BY_SUM:
+				additiveColumns[noAdditive] = attribute.getColumn();
+				additiveCoefficients[noAdditive++] = weight;
+				break;
+			case QoSAttribute.AGGREGATE_BY_AVERAGE:
+				additiveColumns[noAdditive] = attribute.getColumn();
+				additiveCoefficients[noAdditive++] = weight
+						/ noAbstractServices;
+				break;
+			case QoSAttribute.AGGREGATE_BY_PRODUCT:
+				productColumns[noProduct] = attribute.getColumn();
+				productCoefficients[noProduct++] = weight;
+				break;
+			default:
+				constantTerm -= weight;
+				break;
+			}
+			maximumQoS += attribute.getMaximumQoS() * weight;
+		}
+
+		mCoefficients = new Coefficients(additiveColumns,
+				additiveCoefficients, productColumns, productCoefficients,
+				constantTerm, 1.0 / maximumQoS);
+	}
+
+	/**
+	 * Checks whether a composition is complete and valid for the attributes of
+	 * this scorer, raising an exception if it isn't.
+	 * 
+	 * @param composition
+	 *            A vector containing the index of the concrete service
+	 *            corresponding to each abstract service.
+	 */
+	public void checkComposition(int[] composition) {
+		if (composition.length != mOffsets.length - 1) {
+			throw new IllegalArgumentException(String.format(
+					"Dimensions mismatch. Expected %d, got %d.",
+					mOffsets.length - 1, composition.length));
+		}
+		for (int i = 0; i < composition.length; i++) {
+			if (composition[i] < 0
+					|| composition[i] >= mOffsets[i + 1] - mOffsets[i]) {
+				throw new IllegalArgumentException(String.format(
+						"Composition[%d] is invalid: %d", i, composition[i]));
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the aggregated QoS of a complete composition, as
+	 * QoSAttribute.calculateAggregatedQoS() does, but without checking it. The
+	 * composition must have been built by a solver, or checked with
+	 * checkComposition().
+	 * 
+	 * @param composition
+	 *            A vector containing the index of the concrete service
+	 *            corresponding to each abstract service.
+	 * @return The aggregated QoS corresponding to the given composition.
+	 */
+	public double score(int[] composition) {
+		int[] offsets = mOffsets;
+		Coefficients c = mCoefficients;
+		double qos = c.constantTerm;
+
+		for (int attr = 0; attr < c.additiveColumns.length; attr++) {
+			qos += c.additiveColumns[attr].sum(offsets, composition)
+					* c.additiveCoefficients[attr];
+		}
+
+		for (int attr = 0; attr < c.productColumns.length; attr++) {
+			qos += c.productColumns[attr].product(offsets, composition)
+					* c.productCoefficients[attr];
+		}
+
+		return qos * c.inverseMaximumQoS;
+	}
+
+	/**
+	 * Evaluates the aggregated QoS of many complete compositions, packed one
+	 * after the other in a single vector. As in score(), the compositions
+	 * aren't checked.
+	 * 
+	 * @param compositions
+	 *            A vector containing noCompositions compositions, each one
+	 *            with one concrete service for each abstract service.
+	 * @param noCompositions
+	 *            The number of compositions to be evaluated.
+	 * @param results
+	 *            The vector where the aggregated QoS of each composition is
+	 *            stored.
+	 */
+	public void scoreBatch(int[] compositions, int noCompositions,
+			double[] results) {
+		int noAbstractServices = mOffsets.length - 1;
+		if (compositions.length < (long) noCompositions * noAbstractServices
+				|| results.length < noCompositions) {
+			throw new IllegalArgumentException(String.format(
+					"Expected room for %d compositions.", noCompositions));
+		}
+
+		if (mBatchIndices == null) {
+			mBatchIndices = new int[BATCH_BLOCK_SIZE * noAbstractServices];
+			mBatchAggregates = new double[BATCH_BLOCK_SIZE];
+			mBatchValues = new double[BATCH_BLOCK_SIZE];
+		}
+
+		for (int first = 0; first < noCompositions; first += BATCH_BLOCK_SIZE) {
+			scoreBlock(compositions, first,
+					Math.min(BATCH_BLOCK_SIZE, noCompositions - first),
+					results);
+		}
+	}
+
+	/**
+	 * Evaluates a block of at most BATCH_BLOCK_SIZE compositions. The indices
+	 * of the block are transposed first, so that the values of each abstract
+	 * service are read by a single bulk read of the column, and the
+	 * aggregates of the block are then updated with a plain loop over arrays.
+	 * The reads themselves are an indexed gather, so their cost depends on
+	 * the storage of the column and on where the selected values lie.
+	 * 
+	 * @param compositions
+	 *            The packed compositions.
+	 * @param first
+	 *            The index of the first composition of the block.
+	 * @param size
+	 *            The number of compositions in the block.
+	 * @param results
+	 *            The vector where the results are stored.
+	 */
+	private void scoreBlock(int[] compositions, int first, int size,
+			double[] results) {
+		int noAbstractServices = mOffsets.length - 1;
+		int[] indices = mBatchIndices;
+		double[] aggregates = mBatchAggregates;
+		double[] values = mBatchValues;
+		Coefficients c = mCoefficients;
+
+		for (int i = 0; i < noAbstractServices; i++) {
+			int offset = mOffsets[i];
+			int base = first * noAbstractServices + i;
+			for (int k = 0; k < size; k++) {
+				indices[i * size + k] = offset
+						+ compositions[base + k * noAbstractServices];
+			}
+		}
+
+		for (int k = 0; k < size; k++) {
+			results[first + k] = c.constantTerm;
+		}
+
+		for (int attr = 0; attr < c.additiveColumns.length; attr++) {
+			QoSColumn column = c.additiveColumns[attr];
+			double coefficient = c.additiveCoefficients[attr];
+
+			for (int k = 0; k < size; k++) {
+				aggregates[k] = 0;
+			}
+			for (int i = 0; i < noAbstractServices; i++) {
+				column.gather(indices, i * size, values, size);
+				for (int k = 0; k < size; k++) {
+					aggregates[k] += values[k];
+				}
+			}
+			for (int k = 0; k < size; k++) {
+				results[first + k] += aggregates[k] * coefficient;
+			}
+		}
+
+		for (int attr = 0; attr < c.productColumns.length; attr++) {
+			QoSColumn column = c.productColumns[attr];
+			double coefficient = c.productCoefficients[attr];
+
+			for (int k = 0; k < size; k++) {
+				aggregates[k] = 1;
+			}
+			for (int i = 0; i < noAbstractServices; i++) {
+				column.gather(indices, i * size, values, size);
+				for (int k = 0; k < size; k++) {
+					aggregates[k] *= values[k];
+				}
+			}
+			for (int k = 0; k < size; k++) {
+				results[first + k] += aggregates[k] * coefficient;
+			}
+		}
+
+		for (int k = 0; k < size; k++) {
+			results[first + k] *= c.inverseMaximumQoS;
+		}
+	}
+
+	/**
+	 * 
+	 * @return The QoS attributes of this scorer.
+	 */
+	public QoSAttribute[] getAttributes() {
+		return mAttributes;
+	}
+
+	/**
+	 * Returns the offsets table shared by the attributes. It must not be
+	 * modified.
+	 * 
+	 * @return The offsets table.
+	 */
+	public int[] getOffsets() {
+		return mOffsets;
+	}
+
+	/**
+	 * 
+	 * @return The number of abstract services.
+	 */
+	public int getNoAbstractServices() {
+		return mOffsets.length - 1;
+	}
+
+	/**
+	 * The coefficients derived from one set of weights. They're never
+	 * modified after being created.
+	 */
+	private static final class Coefficients {
+
+		/**
+		 * The columns of the attributes aggregated by sum or by average.
+		 */
+		final QoSColumn[] additiveColumns;
+
+		/**
+		 * The coefficient of each additive attribute, i.e. its weight, divided
+		 * by the number of abstract services if it's aggregated by average.
+		 */
+		final double[] additiveCoefficients;
+
+		/**
+		 * The columns of the attributes aggregated by product.
+		 */
+		final QoSColumn[] productColumns;
+
+		/**
+		 * The weight of each attribute aggregated by product.
+		 */
+		final double[] productCoefficients;
+
+		/**
+		 * The contribution of the attributes with an unknown aggregation
+		 * method, which is constant.
+		 */
+		final double constantTerm;
+
+		/**
+		 * The inverse of the maximum possible weighted QoS.
+		 */
+		final double inverseMaximumQoS;
+
+		Coefficients(QoSColumn[] additiveColumns,
+				double[] additiveCoefficients, QoSColumn[] productColumns,
+				double[] productCoefficients, double constantTerm,
+				double inverseMaximumQoS) {
+			this.additiveColumns = additiveColumns;
+			this.additiveCoefficients = additiveCoefficients;
+			this.productColumns = productColumns;
+			this.productCoefficients = productCoefficients;
+			this.constantTerm = constantTerm;
+			this.inverseMaximumQoS = inverseMaximumQoS;
+		}
+	}
+}
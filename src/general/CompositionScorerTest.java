@@ -0,0 +1,91 @@
+package general;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CompositionScorerTest {
+
+	public static final double[][] values = { { 1, 0.5f, 1 }, { 1, 0.5f },
+			{ 0.5f, 0.5f, 1 } };
+
+	public static QoSAttribute[] attrs;
+	public static CompositionScorer scorer;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		attrs = new QoSAttribute[] {
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_SUM, 0.2f),
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_PRODUCT,
+						0.3f),
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_AVERAGE,
+						0.5f) };
+		scorer = new CompositionScorer(attrs);
+	}
+
+	/* score() agrees with calculateAggregatedQoS() on every composition. */
+
+	@Test
+	public void test0() {
+		int[] composition = new int[3];
+		for (composition[0] = 0; composition[0] < 3; composition[0]++) {
+			for (composition[1] = 0; composition[1] < 2; composition[1]++) {
+				for (composition[2] = 0; composition[2] < 3; composition[2]++) {
+					assertEquals(QoSAttribute.calculateAggregatedQoS(attrs,
+							composition), scorer.score(composition), 1e-12);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test1() {
+		assertEquals(scorer.score(new int[] { 0, 0, 0 }), 0.7619, 0.0001);
+	}
+
+	/* Ilegal compositions in checkComposition. */
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test2() {
+		scorer.checkComposition(new int[] { 0, 2, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test3() {
+		scorer.checkComposition(new int[] { -1, 0, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test4() {
+		new CompositionScorer(new QoSAttribute[] { attrs[0],
+				new QoSAttribute(new double[][] { { 1 } },
+						QoSAttribute.AGGREGATE_BY_SUM, 1) });
+	}
+
+	/* scoreBatch() agrees with score(), across more than one block. */
+
+	@Test
+	public void test5() {
+		int noCompositions = 1000;
+		int[] compositions = new int[noCompositions * 3];
+		double[] results = new double[noCompositions];
+		Random random = new Random(7);
+
+		for (int k = 0; k < noCompositions; k++) {
+			for (int i = 0; i < 3; i++) {
+				compositions[k * 3 + i] = random.nextInt(values[i].length);
+			}
+		}
+
+		scorer.scoreBatch(compositions, noCompositions, results);
+		for (int k = 0; k < noCompositions; k++) {
+			int[] composition = Arrays.copyOfRange(compositions,
+					k * 3, k * 3 + 3);
+			assertEquals(scorer.score(composition), results[k], 1e-12);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package general;
+
+/**
+ * A point in time after which a solver should stop and return the best
+ * solution it has found so far. It's based on System.nanoTime(), so it isn't
+ * affected by changes to the wall clock.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class Deadline {
+
+	/**
+	 * A deadline that never expires.
+	 */
+	public static final Deadline NONE = new Deadline(Long.MAX_VALUE, false);
+
+	/**
+	 * The value of System.nanoTime() at which this deadline expires.
+	 */
+	private final long mNanoTime;
+
+	/**
+	 * Whether this deadline can expire at all.
+	 */
+	private final boolean mIsFinite;
+
+	/**
+	 * Creates a deadline.
+	 * 
+	 * @param nanoTime
+	 *            The value of System.nanoTime() at which it expires.
+	 * @param isFinite
+	 *            Whether it can expire at all.
+	 */
+	private Deadline(long nanoTime, boolean isFinite) {
+		mNanoTime = nanoTime;
+		mIsFinite = isFinite;
+	}
+
+	/**
+	 * Creates a deadline that expires after the given amount of time.
+	 * 
+	 * @param millisTimeOut
+	 *            The time out, in milliseconds.
+	 * @return The deadline.
+	 */
+	public static Deadline after(long millisTimeOut) {
+		return new Deadline(System.nanoTime() + millisTimeOut * 1000000L, true);
+	}
+
+	/**
+	 * 
+	 * @return True if this deadline has expired; false otherwise.
+	 */
+	public boolean isExpired() {
+		return mIsFinite && System.nanoTime() - mNanoTime >= 0;
+	}
+
+	/**
+	 * 
+	 * @return The time left until this deadline expires, in nanoseconds, or
+	 *         Long.MAX_VALUE if it never expires.
+	 */
+	public long getRemainingNanos() {
+		if (!mIsFinite) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, mNanoTime - System.nanoTime());
+	}
+}
@@ -0,0 +1,37 @@
+package general;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DeadlineTest {
+
+	/* NONE never expires. */
+
+	@Test
+	public void test0() {
+		assertFalse(Deadline.NONE.isExpired());
+		assertEquals(Long.MAX_VALUE, Deadline.NONE.getRemainingNanos());
+	}
+
+	/* A deadline in the past is expired and has no time left. */
+
+	@Test
+	public void test1() {
+		Deadline deadline = Deadline.after(0);
+		assertTrue(deadline.isExpired());
+		assertEquals(0, deadline.getRemainingNanos());
+	}
+
+	/* A deadline in the future isn't expired yet. */
+
+	@Test
+	public void test2() {
+		Deadline deadline = Deadline.after(60000);
+		assertFalse(deadline.isExpired());
+		assertTrue(deadline.getRemainingNanos() > 0);
+		assertTrue(deadline.getRemainingNanos() <= 60000 * 1000000L);
+	}
+}
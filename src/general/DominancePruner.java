@@ -0,0 +1,275 @@
+package general;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Removes the concrete services that can never be part of an optimal
+ * composition. With non-negative weights, the aggregated QoS is non-decreasing
+ * in each value of an attribute with a positive weight, and doesn't depend on
+ * the attributes with a zero weight or an unknown aggregation method. So a
+ * concrete service that is dominated by another service of the same abstract
+ * service, i.e. that isn't better than it in any attribute that counts, can be
+ * replaced by it without decreasing the aggregated QoS. Only the skyline of
+ * each abstract service is kept, and of several services that are equal in
+ * every attribute that counts, only the first one.
+ * 
+ * Negative weights, which could also flip the sign of the normalization, are
+ * rejected, and so are negative values of attributes aggregated by product,
+ * since a product is only monotone in each factor if the other factors are
+ * non-negative.
+ * 
+ * This holds for unconstrained problems, and for problems whose constraints
+ * only impose lower bounds on the aggregated QoS of attributes with a positive
+ * weight. It doesn't hold for upper bounds, nor for the edge weights of
+ * DynamicProgramming, which depend on more than the QoS values of each
+ * service.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class DominancePruner {
+
+	/**
+	 * Prunes the given attributes, computing the skyline of each abstract
+	 * service in parallel in the common fork-join pool.
+	 * 
+	 * @param attributes
+	 *            The attributes to be pruned. All of them must have the same
+	 *            shape.
+	 * @return The pruned attributes and the map back to the original indices.
+	 */
+	public static PrunedInstance prune(QoSAttribute[] attributes) {
+		return prune(attributes, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Prunes the given attributes, computing the skyline of each abstract
+	 * service in parallel in the given executor.
+	 * 
+	 * @param attributes
+	 *            The attributes to be pruned. All of them must have the same
+	 *            shape.
+	 * @param executor
+	 *            The executor that runs one task per abstract service.
+	 * @return The pruned attributes and the map back to the original indices.
+	 * @throws IllegalArgumentException
+	 *             If the attributes have different shapes, if a weight is
+	 *             negative or NaN, or if an attribute aggregated by product has
+	 *             a negative value.
+	 */
+	public static PrunedInstance prune(final QoSAttribute[] attributes,
+			ExecutorService executor) {
+		final int[] offsets = attributes[0].getOffsets();
+		final double[] relevances = new double[attributes.length];
+		for (int attr = 0; attr < attributes.length; attr++) {
+			if (!Arrays.equals(attributes[attr].getOffsets(), offsets)) {
+				throw new IllegalArgumentException(String.format(
+						"Attribute %d has a different shape.", attr));
+			}
+			relevances[attr] = getRelevance(attributes[attr], attr);
+		}
+
+		int noAbstractServices = offsets.length - 1;
+		List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>(
+				noAbstractServices);
+		for (int i = 0; i < noAbstractServices; i++) {
+			final int abstractService = i;
+			tasks.add(new Callable<int[]>() {
+
+				@Override
+				public int[] call() {
+					return calculateSkyline(attributes, relevances,
+							abstractService);
+				}
+			});
+		}
+
+		int[][] kept = new int[noAbstractServices][];
+		try {
+			List<Future<int[]>> results = executor.invokeAll(tasks);
+			for (int i = 0; i < noAbstractServices; i++) {
+				kept[i] = results.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while pruning.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Pruning failed.", e.getCause());
+		}
+
+		int[] prunedOffsets = new int[noAbstractServices + 1];
+		for (int i = 0; i < noAbstractServices; i++) {
+			prunedOffsets[i + 1] = prunedOffsets[i] + kept[i].length;
+		}
+
+		QoSColumn[] columns = new QoSColumn[attributes.length];
+		int[] aggregationMethods = new int[attributes.length];
+		double[] weights = new double[attributes.length];
+		for (int attr = 0; attr < attributes.length; attr++) {
+			double[] values = new double[prunedOffsets[noAbstractServices]];
+			for (int i = 0; i < noAbstractServices; i++) {
+				for (int j = 0; j < kept[i].length; j++) {
+					values[prunedOffsets[i] + j] = attributes[attr].getValue(
+							i, kept[i][j]);
+				}
+			}
+
+			QoSColumn column = new DoubleColumn(values);
+			int storageMode = QoSStore.getStorageMode(attributes[attr]
+					.getColumn());
+			if (storageMode != QoSStore.STORAGE_DOUBLE) {
+				column = QoSStore.convertColumn(column, values.length,
+						storageMode);
+			}
+
+			columns[attr] = column;
+			aggregationMethods[attr] = attributes[attr].getAggregationMethod();
+			weights[attr] = attributes[attr].getWeight();
+		}
+
+		return new PrunedInstance(QoSAttribute.fromStore(new QoSStore(
+				prunedOffsets, columns), aggregationMethods, weights), kept,
+				offsets[noAbstractServices]);
+	}
+
+	/**
+	 * Checks whether the values of an attribute matter for the aggregated QoS,
+	 * and that it's non-decreasing in them.
+	 * 
+	 * @param attribute
+	 *            The attribute.
+	 * @param attr
+	 *            Its index, for error messages.
+	 * @return 1 if larger values are better, or 0 if the values don't matter.
+	 * @throws IllegalArgumentException
+	 *             If the weight is negative or NaN, or if the attribute is
+	 *             aggregated by product and has a negative value.
+	 */
+	private static double getRelevance(QoSAttribute attribute, int attr) {
+		double weight = attribute.getWeight();
+		if (!(weight >= 0)) {
+			throw new IllegalArgumentException(String.format(
+					"The weight of attribute %d is invalid: %g", attr, weight));
+		}
+
+		switch (attribute.getAggregationMethod()) {
+		case QoSAttribute.AGGREGATE_BY_PRODUCT:
+			QoSColumn column = attribute.getColumn();
+			int size = attribute.getOffsets()[attribute.getNoAbstractServices()];
+			for (int k = 0; k < size; k++) {
+				if (column.get(k) < 0) {
+					throw new IllegalArgumentException(String.format(
+							"Attribute %d is aggregated by product and has a negative value.",
+							attr));
+				}
+			}
+			break;
+		case QoSAttribute.AGGREGATE_BY_SUM:
+		case QoSAttribute.AGGREGATE_BY_AVERAGE:
+			break;
+		default:
+			/* Its contribution doesn't depend on the values. */
+			return 0;
+		}
+		return weight > 0 ? 1 : 0;
+	}
+
+	/**
+	 * Computes the skyline of an abstract service, sorting its concrete
+	 * services by the sum of the QoS values that matter first. A service can
+	 * only be dominated by services whose sum is at least as large, so each
+	 * one has to be compared only with the services already kept.
+	 * 
+	 * @param attributes
+	 *            The attributes.
+	 * @param relevances
+	 *            1 for the attributes whose values matter and 0 for the
+	 *            others, as returned by getRelevance().
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @return The indices of the concrete services that were kept, in
+	 *         increasing order.
+	 */
+	private static int[] calculateSkyline(QoSAttribute[] attributes,
+			double[] relevances, int abstractService) {
+		int noConcreteServices = attributes[0]
+				.getNoConcreteServices(abstractService);
+		int noAttributes = attributes.length;
+
+		/*
+		 * The values of each service that matter, stored by service and then
+		 * by attribute.
+		 */
+		final double[] values = new double[noConcreteServices * noAttributes];
+		final double[] sums = new double[noConcreteServices];
+		Integer[] order = new Integer[noConcreteServices];
+		for (int j = 0; j < noConcreteServices; j++) {
+			for (int attr = 0; attr < noAttributes; attr++) {
+				values[j * noAttributes + attr] = relevances[attr]
+						* attributes[attr].getValue(abstractService, j);
+				sums[j] += values[j * noAttributes + attr];
+			}
+			order[j] = j;
+		}
+
+		/* Sorting is stable, so equal services keep their original order. */
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(sums[o2], sums[o1]);
+			}
+		});
+
+		int[] kept = new int[noConcreteServices];
+		int noKept = 0;
+		for (int candidate : order) {
+			boolean dominated = false;
+			for (int k = 0; k < noKept && !dominated; k++) {
+				dominated = dominates(values, kept[k], candidate, noAttributes);
+			}
+			if (!dominated) {
+				kept[noKept++] = candidate;
+			}
+		}
+
+		kept = Arrays.copyOf(kept, noKept);
+		Arrays.sort(kept);
+		return kept;
+	}
+
+	/**
+	 * Checks whether a service is at least as good as another one in every
+	 * attribute.
+	 * 
+	 * @param values
+	 *            The values of each service, stored by service and then by
+	 *            attribute.
+	 * @param dominating
+	 *            The index of the first service.
+	 * @param dominated
+	 *            The index of the second service.
+	 * @param noAttributes
+	 *            The number of attributes.
+	 * @return True if the first service dominates the second one or is equal
+	 *         to it; false otherwise.
+	 */
+	private static boolean dominates(double[] values, int dominating,
+			int dominated, int noAttributes) {
+		for (int attr = 0; attr < noAttributes; attr++) {
+			if (values[dominating * noAttributes + attr] < values[dominated
+					* noAttributes + attr]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
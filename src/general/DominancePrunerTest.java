@@ -0,0 +1,97 @@
+package general;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import bruteforce.BruteForce;
+import instance.InstanceGenerator;
+
+public class DominancePrunerTest {
+
+	/* Services 1 and 3 of the first abstract service are dominated. */
+
+	@Test
+	public void test0() {
+		QoSAttribute[] attributes = {
+				new QoSAttribute(new double[][] { { 0.5, 0.4, 0.9, 0.5 },
+						{ 1 } }, QoSAttribute.AGGREGATE_BY_SUM, 0.5),
+				new QoSAttribute(new double[][] { { 0.5, 0.5, 0.1, 0.5 },
+						{ 1 } }, QoSAttribute.AGGREGATE_BY_PRODUCT, 0.5) };
+		PrunedInstance pruned = DominancePruner.prune(attributes);
+
+		assertArrayEquals(new int[] { 0, 2, 3 }, pruned.getAttributes()[0]
+				.getOffsets());
+		assertEquals(2, pruned.getNoPrunedServices());
+		assertEquals(0, pruned.getOriginalIndex(0, 0));
+		assertEquals(2, pruned.getOriginalIndex(0, 1));
+		assertEquals(0.9, pruned.getAttributes()[0].getValue(0, 1), 0);
+		assertArrayEquals(new int[] { 2, 0 },
+				pruned.toOriginal(new int[] { 1, 0 }));
+		assertNull(pruned.toOriginal(null));
+	}
+
+	/* The optimum of the pruned instance is the optimum of the original one. */
+
+	@Test
+	public void test1() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (long seed = 0; seed < 20; seed++) {
+				QoSAttribute[] attributes = new InstanceGenerator(seed)
+						.generateAttributes(5, 4, 9, new int[] {
+								QoSAttribute.AGGREGATE_BY_SUM,
+								QoSAttribute.AGGREGATE_BY_AVERAGE,
+								QoSAttribute.AGGREGATE_BY_PRODUCT },
+								new double[] { 0.3, seed % 2 == 0 ? 0 : 0.3,
+										0.4 },
+								InstanceGenerator.CORRELATION_CORRELATED);
+				PrunedInstance pruned = DominancePruner.prune(attributes,
+						executor);
+				assertTrue(pruned.getNoPrunedServices() > 0);
+
+				BruteForce original = new BruteForce(attributes);
+				original.getBestComposition();
+				int[] composition = pruned.toOriginal(new BruteForce(pruned
+						.getAttributes()).getBestComposition());
+
+				assertEquals(original.getBestQoS(), QoSAttribute
+						.calculateAggregatedQoS(attributes, composition), 1e-12);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/* Negative weights and negative product values are rejected. */
+
+	@Test
+	public void test2() {
+		double[][] values = { { 0.5, 0.4 }, { 1 } };
+		QoSAttribute sum = new QoSAttribute(values,
+				QoSAttribute.AGGREGATE_BY_SUM, 0.5);
+		QoSAttribute negativeWeight = new QoSAttribute(values,
+				QoSAttribute.AGGREGATE_BY_SUM, -0.5);
+		QoSStore store = new QoSStore(new int[] { 0, 2, 3 },
+				new QoSColumn[] { new DoubleColumn(new double[] { -0.5, 0.4,
+						1 }) });
+		QoSAttribute negativeProduct = new QoSAttribute(store, 0,
+				QoSAttribute.AGGREGATE_BY_PRODUCT, 0.5);
+
+		for (QoSAttribute invalid : new QoSAttribute[] { negativeWeight,
+				negativeProduct }) {
+			try {
+				DominancePruner.prune(new QoSAttribute[] { sum, invalid });
+				throw new AssertionError("Accepted an invalid attribute.");
+			} catch (IllegalArgumentException e) {
+				/* Expected. */
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package general;
+
+/**
+ * A QoS column backed by a primitive double array.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class DoubleColumn extends QoSColumn {
+
+	/**
+	 * The values of this column.
+	 */
+	private final double[] mValues;
+
+	/**
+	 * Creates a column over the given array. The array is not copied.
+	 * 
+	 * @param values
+	 *            The values of this column.
+	 */
+	public DoubleColumn(double[] values) {
+		mValues = values;
+	}
+
+	@Override
+	public double get(int index) {
+		return mValues[index];
+	}
+
+	@Override
+	public int size() {
+		return mValues.length;
+	}
+
+	@Override
+	public void gather(int[] indices, int from, double[] values, int size) {
+		double[] array = mValues;
+		for (int k = 0; k < size; k++) {
+			values[k] = array[indices[from + k]];
+		}
+	}
+
+	@Override
+	public double sum(int[] offsets, int[] composition) {
+		double[] array = mValues;
+		double sum = 0;
+		for (int i = 0; i < composition.length; i++) {
+			sum += array[offsets[i] + composition[i]];
+		}
+		return sum;
+	}
+
+	@Override
+	public double product(int[] offsets, int[] composition) {
+		double[] array = mValues;
+		double product = 1;
+		for (int i = 0; i < composition.length; i++) {
+			product *= array[offsets[i] + composition[i]];
+		}
+		return product;
+	}
+
+	/**
+	 * Returns the array backing this column. It must not be modified.
+	 * 
+	 * @return The array backing this column.
+	 */
+	public double[] getArray() {
+		return mValues;
+	}
+}
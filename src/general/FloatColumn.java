@@ -0,0 +1,119 @@
+package general;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A QoS column that stores its values as 32-bit floats, which halves the
+ * memory needed by a DoubleColumn. The relative error of each value is at
+ * most 2^-24.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class FloatColumn extends QoSColumn {
+
+	/**
+	 * The values of this column, if they're kept in an array, which is read
+	 * directly rather than through a wrapping buffer.
+	 */
+	private final float[] mArray;
+
+	/**
+	 * The values of this column, if they're kept in a buffer.
+	 */
+	private final FloatBuffer mBuffer;
+
+	/**
+	 * Creates a column over the given array. The array is not copied.
+	 * 
+	 * @param values
+	 *            The values of this column.
+	 */
+	public FloatColumn(float[] values) {
+		mArray = values;
+		mBuffer = null;
+	}
+
+	/**
+	 * Creates a column over the given buffer, typically a view over a
+	 * memory-mapped file.
+	 * 
+	 * @param values
+	 *            The values of this column.
+	 */
+	public FloatColumn(FloatBuffer values) {
+		mArray = null;
+		mBuffer = values;
+	}
+
+	@Override
+	public double get(int index) {
+		return getRaw(index);
+	}
+
+	@Override
+	public int size() {
+		return mArray != null ? mArray.length : mBuffer.limit();
+	}
+
+	@Override
+	public void gather(int[] indices, int from, double[] values, int size) {
+		float[] array = mArray;
+		if (array != null) {
+			for (int k = 0; k < size; k++) {
+				values[k] = array[indices[from + k]];
+			}
+		} else {
+			FloatBuffer buffer = mBuffer;
+			for (int k = 0; k < size; k++) {
+				values[k] = buffer.get(indices[from + k]);
+			}
+		}
+	}
+
+	@Override
+	public double sum(int[] offsets, int[] composition) {
+		double sum = 0;
+		float[] array = mArray;
+		if (array != null) {
+			for (int i = 0; i < composition.length; i++) {
+				sum += array[offsets[i] + composition[i]];
+			}
+		} else {
+			FloatBuffer buffer = mBuffer;
+			for (int i = 0; i < composition.length; i++) {
+				sum += buffer.get(offsets[i] + composition[i]);
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public double product(int[] offsets, int[] composition) {
+		double product = 1;
+		float[] array = mArray;
+		if (array != null) {
+			for (int i = 0; i < composition.length; i++) {
+				product *= array[offsets[i] + composition[i]];
+			}
+		} else {
+			FloatBuffer buffer = mBuffer;
+			for (int i = 0; i < composition.length; i++) {
+				product *= buffer.get(offsets[i] + composition[i]);
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Returns the stored value at the given index, without converting it.
+	 * 
+	 * @param index
+	 *            The flat index of the value.
+	 * @return The stored value.
+	 */
+	public float getRaw(int index) {
+		float[] array = mArray;
+		return array != null ? array[index] : mBuffer.get(index);
+	}
+}
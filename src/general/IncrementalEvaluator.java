@@ -0,0 +1,363 @@
+package general;
+
+/**
+ * Keeps the aggregated QoS of a composition up to date while the concrete
+ * service of single abstract services is changed, as local search moves do.
+ * Each attribute has a running aggregate, so a change costs O(attributes)
+ * instead of a full evaluation.
+ * 
+ * Sums and averages are kept as plain running sums. Products are kept in log
+ * space, together with the number of factors that are zero, so that a factor
+ * can be divided out even when it's zero; the logarithms of the values are
+ * computed once, when the evaluator is created. The aggregates are recomputed from
+ * scratch from time to time, so that rounding errors don't accumulate.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class IncrementalEvaluator {
+
+	/**
+	 * The number of changes after which the aggregates are recomputed from
+	 * scratch.
+	 */
+	private static final int RESYNCHRONIZATION_PERIOD = 1 << 20;
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mAttributes;
+
+	/**
+	 * The offset of the first concrete service of each abstract service.
+	 */
+	private int[] mOffsets;
+
+	/**
+	 * The values of each attribute.
+	 */
+	private QoSColumn[] mColumns;
+
+	/**
+	 * Whether each attribute is aggregated by product.
+	 */
+	private boolean[] mIsProduct;
+
+	/**
+	 * The logarithm of each value of the attributes aggregated by product, or
+	 * null for the other attributes. Zero values are kept as zero, since
+	 * they're counted apart.
+	 */
+	private double[][] mLogarithms;
+
+	/**
+	 * The coefficient of each attribute, i.e. its weight, divided by the number
+	 * of abstract services if it's aggregated by average.
+	 */
+	private double[] mCoefficients;
+
+	/**
+	 * The contribution of the attributes with an unknown aggregation method,
+	 * which is constant.
+	 */
+	private double mConstantTerm;
+
+	/**
+	 * The inverse of the maximum possible weighted QoS.
+	 */
+	private double mInverseMaximumQoS;
+
+	/**
+	 * The running aggregate of each attribute: the sum of the values for
+	 * additive attributes, and the sum of the logarithms of the non-zero values
+	 * for product attributes.
+	 */
+	private double[] mAggregates;
+
+	/**
+	 * The number of zero values in the composition, for each product
+	 * attribute.
+	 */
+	private int[] mZeroCounts;
+
+	/**
+	 * The composition currently being evaluated.
+	 */
+	private int[] mComposition;
+
+	/**
+	 * The number of changes since the aggregates were last recomputed.
+	 */
+	private int mChangesSinceResynchronization;
+
+	/**
+	 * Creates an evaluator for the given attributes, starting at the given
+	 * composition.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes. All of them must have the same shape.
+	 * @param composition
+	 *            The initial composition. It's copied.
+	 */
+	public IncrementalEvaluator(QoSAttribute[] attributes, int[] composition) {
+		mAttributes = attributes;
+		mOffsets = attributes[0].getOffsets();
+		mColumns = new QoSColumn[attributes.length];
+		mIsProduct = new boolean[attributes.length];
+		mLogarithms = new double[attributes.length][];
+		mCoefficients = new double[attributes.length];
+		mAggregates = new double[attributes.length];
+		mZeroCounts = new int[attributes.length];
+		mComposition = new int[mOffsets.length - 1];
+
+		for (int attr = 0; attr < attributes.length; attr++) {
+			mColumns[attr] = attributes[attr].getColumn();
+			mIsProduct[attr] = attributes[attr].getAggregationMethod() == QoSAttribute.AGGREGATE_BY_PRODUCT;
+			if (mIsProduct[attr]) {
+				mLogarithms[attr] = calculateLogarithms(mColumns[attr],
+						mOffsets[mOffsets.length - 1]);
+			}
+		}
+
+		updateWeights();
+		reset(composition);
+	}
+
+	/**
+	 * Computes the logarithm of each value of a column, so that changes don't
+	 * need to call Math.log().
+	 * 
+	 * @param column
+	 *            The column.
+	 * @param size
+	 *            The number of values in the column.
+	 * @return The logarithm of each value, or zero for zero values.
+	 */
+	private static double[] calculateLogarithms(QoSColumn column, int size) {
+		double[] logarithms = new double[size];
+		for (int k = 0; k < size; k++) {
+			double value = column.get(k);
+			logarithms[k] = value == 0 ? 0 : Math.log(value);
+		}
+		return logarithms;
+	}
+
+	/**
+	 * Recomputes the coefficients and the normalization constant from the
+	 * current weights of the attributes.
+	 */
+	public void updateWeights() {
+		int noAbstractServices = mOffsets.length - 1;
+		double constantTerm = 0;
+		double maximumQoS = 0;
+
+		for (int attr = 0; attr < mAttributes.length; attr++) {
+			double weight = mAttributes[attr].getWeight();
+
+			switch (mAttributes[attr].getAggregationMethod()) {
+			case QoSAttribute.AGGREGATE_BY_SUM:
+			case QoSAttribute.AGGREGATE_BY_PRODUCT:
+				mCoefficients[attr] = weight;
+				break;
+			case QoSAttribute.AGGREGATE_BY_AVERAGE:
+				mCoefficients[attr] = weight / noAbstractServices;
+				break;
+			default:
+				mCoefficients[attr] = 0;
+				constantTerm -= weight;
+				break;
+			}
+			maximumQoS += mAttributes[attr].getMaximumQoS() * weight;
+		}
+
+		mConstantTerm = constantTerm;
+		mInverseMaximumQoS = 1.0 / maximumQoS;
+	}
+
+	/**
+	 * Starts evaluating a new composition, recomputing all the aggregates.
+	 * 
+	 * @param composition
+	 *            The new composition. It's copied.
+	 */
+	public void reset(int[] composition) {
+		if (composition.length != mComposition.length) {
+			throw new IllegalArgumentException(String.format(
+					"Dimensions mismatch. Expected %d, got %d.",
+					mComposition.length, composition.length));
+		}
+		for (int i = 0; i < composition.length; i++) {
+			if (composition[i] < 0
+					|| composition[i] >= mOffsets[i + 1] - mOffsets[i]) {
+				throw new IllegalArgumentException(String.format(
+						"Composition[%d] is invalid: %d", i, composition[i]));
+			}
+		}
+
+		System.arraycopy(composition, 0, mComposition, 0, composition.length);
+		resynchronize();
+	}
+
+	/**
+	 * Recomputes all the aggregates from scratch.
+	 */
+	public void resynchronize() {
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			QoSColumn column = mColumns[attr];
+			double aggregate = 0;
+			int zeroCount = 0;
+
+			for (int i = 0; i < mComposition.length; i++) {
+				double value = column.get(mOffsets[i] + mComposition[i]);
+				if (!mIsProduct[attr]) {
+					aggregate += value;
+				} else if (value == 0) {
+					zeroCount++;
+				} else {
+					aggregate += mLogarithms[attr][mOffsets[i]
+							+ mComposition[i]];
+				}
+			}
+
+			mAggregates[attr] = aggregate;
+			mZeroCounts[attr] = zeroCount;
+		}
+
+		mChangesSinceResynchronization = 0;
+	}
+
+	/**
+	 * Replaces the concrete service of an abstract service. The indices aren't
+	 * checked.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param concreteService
+	 *            The index of the new concrete service.
+	 */
+	public void set(int abstractService, int concreteService) {
+		int oldIndex = mOffsets[abstractService]
+				+ mComposition[abstractService];
+		int newIndex = mOffsets[abstractService] + concreteService;
+
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			double oldValue = mColumns[attr].get(oldIndex);
+			double newValue = mColumns[attr].get(newIndex);
+
+			if (!mIsProduct[attr]) {
+				mAggregates[attr] += newValue - oldValue;
+				continue;
+			}
+
+			if (oldValue == 0) {
+				mZeroCounts[attr]--;
+			}
+			if (newValue == 0) {
+				mZeroCounts[attr]++;
+			}
+			mAggregates[attr] += mLogarithms[attr][newIndex]
+					- mLogarithms[attr][oldIndex];
+		}
+
+		mComposition[abstractService] = concreteService;
+
+		if (++mChangesSinceResynchronization >= RESYNCHRONIZATION_PERIOD) {
+			resynchronize();
+		}
+	}
+
+	/**
+	 * Returns the aggregated QoS of the current composition, normalized as in
+	 * QoSAttribute.calculateAggregatedQoS().
+	 * 
+	 * @return The aggregated QoS of the current composition.
+	 */
+	public double getScore() {
+		double qos = mConstantTerm;
+
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			if (!mIsProduct[attr]) {
+				qos += mAggregates[attr] * mCoefficients[attr];
+			} else if (mZeroCounts[attr] == 0) {
+				qos += Math.exp(mAggregates[attr]) * mCoefficients[attr];
+			}
+		}
+
+		return qos * mInverseMaximumQoS;
+	}
+
+	/**
+	 * Stores the aggregate of each attribute for the current composition: the
+	 * product of the values for attributes aggregated by product, and their
+	 * sum for the others. It costs O(attributes), as a change does.
+	 * 
+	 * @param aggregates
+	 *            The vector where the aggregates are stored.
+	 */
+	public void getAggregates(double[] aggregates) {
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			if (!mIsProduct[attr]) {
+				aggregates[attr] = mAggregates[attr];
+			} else if (mZeroCounts[attr] == 0) {
+				aggregates[attr] = Math.exp(mAggregates[attr]);
+			} else {
+				aggregates[attr] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the aggregated QoS the current composition would have if the
+	 * concrete service of an abstract service were replaced, without changing
+	 * it. The indices aren't checked.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param concreteService
+	 *            The index of the new concrete service.
+	 * @return The aggregated QoS of the resulting composition.
+	 */
+	public double evaluateMove(int abstractService, int concreteService) {
+		int oldIndex = mOffsets[abstractService]
+				+ mComposition[abstractService];
+		int newIndex = mOffsets[abstractService] + concreteService;
+		double qos = mConstantTerm;
+
+		for (int attr = 0; attr < mColumns.length; attr++) {
+			double oldValue = mColumns[attr].get(oldIndex);
+			double newValue = mColumns[attr].get(newIndex);
+
+			if (!mIsProduct[attr]) {
+				qos += (mAggregates[attr] + newValue - oldValue)
+						* mCoefficients[attr];
+				continue;
+			}
+
+			int zeroCount = mZeroCounts[attr];
+			double logProduct = mAggregates[attr];
+			if (oldValue == 0) {
+				zeroCount--;
+			}
+			if (newValue == 0) {
+				zeroCount++;
+			}
+			logProduct += mLogarithms[attr][newIndex]
+					- mLogarithms[attr][oldIndex];
+			if (zeroCount == 0) {
+				qos += Math.exp(logProduct) * mCoefficients[attr];
+			}
+		}
+
+		return qos * mInverseMaximumQoS;
+	}
+
+	/**
+	 * Returns the composition currently being evaluated. It must not be
+	 * modified; use set() instead.
+	 * 
+	 * @return The current composition.
+	 */
+	public int[] getComposition() {
+		return mComposition;
+	}
+}
@@ -0,0 +1,81 @@
+package general;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class IncrementalEvaluatorTest {
+
+	public static final double[][] values = { { 1, 0.5f, 0 }, { 1, 0.5f },
+			{ 0.5f, 0, 1 }, { 0.25f, 0.75f } };
+
+	public static QoSAttribute[] attrs;
+	public static CompositionScorer scorer;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		attrs = new QoSAttribute[] {
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_SUM, 0.2f),
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_PRODUCT,
+						0.3f),
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_AVERAGE,
+						0.5f) };
+		scorer = new CompositionScorer(attrs);
+	}
+
+	/* The initial score matches a full evaluation. */
+
+	@Test
+	public void test0() {
+		int[] composition = { 0, 0, 2, 1 };
+		IncrementalEvaluator e = new IncrementalEvaluator(attrs, composition);
+		assertEquals(scorer.score(composition), e.getScore(), 1e-12);
+	}
+
+	/* Random moves, including zeros in products, keep score and aggregates. */
+
+	@Test
+	public void test1() {
+		int[] composition = { 0, 0, 0, 0 };
+		IncrementalEvaluator e = new IncrementalEvaluator(attrs, composition);
+		Random random = new Random(42);
+		double[] aggregates = new double[attrs.length];
+
+		for (int step = 0; step < 1000; step++) {
+			int i = random.nextInt(values.length);
+			int j = random.nextInt(values[i].length);
+
+			composition[i] = j;
+			double expected = scorer.score(composition);
+			assertEquals(expected, e.evaluateMove(i, j), 1e-12);
+
+			e.set(i, j);
+			assertEquals(expected, e.getScore(), 1e-12);
+			assertArrayEquals(composition, e.getComposition());
+
+			e.getAggregates(aggregates);
+			assertEquals(attrs[0].getAggregatedQoS(composition),
+					aggregates[0], 1e-12);
+			assertEquals(attrs[1].getAggregatedQoS(composition),
+					aggregates[1], 1e-12);
+			assertEquals(attrs[2].getAggregatedQoS(composition)
+					* values.length, aggregates[2], 1e-12);
+		}
+	}
+
+	/* Ilegal initial compositions. */
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test2() {
+		new IncrementalEvaluator(attrs, new int[] { 0, 2, 0, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test3() {
+		new IncrementalEvaluator(attrs, new int[] { 0, 0, 0 });
+	}
+}
@@ -0,0 +1,115 @@
+package general;
+
+import java.util.Arrays;
+
+/**
+ * An improving solution reported by an engine while it's still running, so
+ * that callers can use a good enough composition before the search ends.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class Incumbent {
+
+	/**
+	 * The composition.
+	 */
+	private final int[] mComposition;
+
+	/**
+	 * The normalized aggregated QoS of the composition.
+	 */
+	private final double mScore;
+
+	/**
+	 * The objective value of the composition, in the engine's units.
+	 */
+	private final double mObjective;
+
+	/**
+	 * An upper bound on the optimal objective value, in the engine's units.
+	 */
+	private final double mBound;
+
+	/**
+	 * The time elapsed since the engine started, in nanoseconds.
+	 */
+	private final long mElapsedNanos;
+
+	/**
+	 * Creates an incumbent.
+	 * 
+	 * @param composition
+	 *            The composition. It's not copied, so it must not be modified
+	 *            afterwards.
+	 * @param score
+	 *            The normalized aggregated QoS of the composition.
+	 * @param objective
+	 *            The objective value of the composition, in the engine's
+	 *            units.
+	 * @param bound
+	 *            An upper bound on the optimal objective value, in the
+	 *            engine's units, or NaN if the engine can't provide one.
+	 * @param elapsedNanos
+	 *            The time elapsed since the engine started, in nanoseconds.
+	 */
+	public Incumbent(int[] composition, double score, double objective,
+			double bound, long elapsedNanos) {
+		mComposition = composition;
+		mScore = score;
+		mObjective = objective;
+		mBound = bound;
+		mElapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the composition. It must not be modified.
+	 * 
+	 * @return A vector containing which concrete service should be selected for
+	 *         each abstract service.
+	 */
+	public int[] getComposition() {
+		return mComposition;
+	}
+
+	/**
+	 * 
+	 * @return The normalized aggregated QoS of the composition.
+	 */
+	public double getScore() {
+		return mScore;
+	}
+
+	/**
+	 * 
+	 * @return The objective value of the composition, in the engine's units.
+	 */
+	public double getObjective() {
+		return mObjective;
+	}
+
+	/**
+	 * 
+	 * @return An upper bound on the optimal objective value, in the engine's
+	 *         units, or NaN if the engine can't provide one.
+	 */
+	public double getBound() {
+		return mBound;
+	}
+
+	/**
+	 * 
+	 * @return The time elapsed since the engine started, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return mElapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"composition=%s score=%g objective=%g bound=%g elapsed=%dns",
+				Arrays.toString(mComposition), mScore, mObjective, mBound,
+				mElapsedNanos);
+	}
+}
@@ -0,0 +1,20 @@
+package general;
+
+/**
+ * Receives the improving solutions of an engine while it's running.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public interface IncumbentListener {
+
+	/**
+	 * Called whenever the engine finds a solution better than all the previous
+	 * ones of the same run. It's called on the engine's thread, so it must
+	 * return quickly.
+	 * 
+	 * @param incumbent
+	 *            The new solution.
+	 */
+	public void onIncumbent(Incumbent incumbent);
+}
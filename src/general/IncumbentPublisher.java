@@ -0,0 +1,56 @@
+package general;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes the incumbents reported by one or more engines as a
+ * java.util.concurrent.Flow.Publisher, so that a caller can serve a good
+ * enough composition early and replace it as the search improves it.
+ * 
+ * Engines must never wait for slow subscribers, so an incumbent that doesn't
+ * fit in the buffer of a subscriber is dropped for that subscriber. A later
+ * incumbent is always better anyway, as long as it comes from the same engine.
+ * The publisher must be closed by the caller when the engines are done;
+ * incumbents reported after that are ignored.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class IncumbentPublisher extends SubmissionPublisher<Incumbent>
+		implements IncumbentListener {
+
+	/**
+	 * Creates a publisher that delivers the incumbents on the common pool.
+	 */
+	public IncumbentPublisher() {
+		this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+	}
+
+	/**
+	 * Creates a publisher that delivers the incumbents on the given executor.
+	 * 
+	 * @param executor
+	 *            The executor on which the subscribers are called.
+	 * @param maxBufferCapacity
+	 *            The maximum number of incumbents buffered for each
+	 *            subscriber.
+	 */
+	public IncumbentPublisher(Executor executor, int maxBufferCapacity) {
+		super(executor, maxBufferCapacity);
+	}
+
+	@Override
+	public void onIncumbent(Incumbent incumbent) {
+		if (isClosed()) {
+			return;
+		}
+		try {
+			offer(incumbent, null);
+		} catch (IllegalStateException e) {
+			/* Closed concurrently; the engine must not fail because of it. */
+		}
+	}
+}
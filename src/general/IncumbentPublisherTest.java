@@ -0,0 +1,103 @@
+package general;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import bruteforce.BruteForce;
+
+public class IncumbentPublisherTest {
+
+	/* Collects the incumbents it receives, requesting all of them. */
+	private static class Collector implements Flow.Subscriber<Incumbent> {
+
+		final List<Incumbent> incumbents = new ArrayList<Incumbent>();
+		final CountDownLatch completed = new CountDownLatch(1);
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(Incumbent incumbent) {
+			incumbents.add(incumbent);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+		}
+
+		@Override
+		public void onComplete() {
+			completed.countDown();
+		}
+	}
+
+	private static Incumbent createIncumbent(int k) {
+		return new Incumbent(new int[] { k, 0 }, 0.1 * k, k, Double.NaN,
+				k * 1000L);
+	}
+
+	/*
+	 * A subscriber receives the incumbents in the order they were reported,
+	 * and incumbents reported after closing are ignored.
+	 */
+
+	@Test
+	public void test0() throws Exception {
+		IncumbentPublisher publisher = new IncumbentPublisher(Runnable::run,
+				16);
+		Collector collector = new Collector();
+		publisher.subscribe(collector);
+
+		for (int k = 0; k < 10; k++) {
+			publisher.onIncumbent(createIncumbent(k));
+		}
+		publisher.close();
+		publisher.onIncumbent(createIncumbent(10));
+
+		assertTrue(collector.completed.await(30, TimeUnit.SECONDS));
+		assertEquals(10, collector.incumbents.size());
+		for (int k = 0; k < 10; k++) {
+			Incumbent incumbent = collector.incumbents.get(k);
+			assertArrayEquals(new int[] { k, 0 }, incumbent.getComposition());
+			assertEquals(k * 1000L, incumbent.getElapsedNanos());
+		}
+	}
+
+	/* The publisher can be attached to an engine as a listener. */
+
+	@Test
+	public void test1() throws Exception {
+		QoSAttribute[] attributes = { new QoSAttribute(new double[][] {
+				{ 0.2, 0.9 }, { 0.4, 0.1, 0.8 } },
+				QoSAttribute.AGGREGATE_BY_SUM, 1) };
+		IncumbentPublisher publisher = new IncumbentPublisher(Runnable::run,
+				16);
+		Collector collector = new Collector();
+		publisher.subscribe(collector);
+
+		BruteForce bruteForce = new BruteForce(attributes);
+		bruteForce.addIncumbentListener(publisher);
+		bruteForce.getBestComposition();
+		publisher.close();
+
+		assertTrue(collector.completed.await(30, TimeUnit.SECONDS));
+		Incumbent last = collector.incumbents
+				.get(collector.incumbents.size() - 1);
+		assertArrayEquals(new int[] { 1, 2 }, last.getComposition());
+		for (int k = 1; k < collector.incumbents.size(); k++) {
+			assertTrue(collector.incumbents.get(k).getScore() > collector.incumbents
+					.get(k - 1).getScore());
+		}
+	}
+}
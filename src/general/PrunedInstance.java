@@ -0,0 +1,98 @@
+package general;
+
+/**
+ * The result of pruning a set of QoS attributes: the attributes restricted to
+ * the concrete services that were kept, and the map from the indices of the
+ * kept services back to their original indices.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class PrunedInstance {
+
+	/**
+	 * The pruned attributes.
+	 */
+	private QoSAttribute[] mAttributes;
+
+	/**
+	 * The original index of each kept concrete service, for each abstract
+	 * service.
+	 */
+	private int[][] mOriginalIndices;
+
+	/**
+	 * The number of concrete services in the original attributes.
+	 */
+	private int mOriginalNoConcreteServices;
+
+	/**
+	 * Creates a PrunedInstance.
+	 * 
+	 * @param attributes
+	 *            The pruned attributes.
+	 * @param originalIndices
+	 *            The original index of each kept concrete service, for each
+	 *            abstract service.
+	 * @param originalNoConcreteServices
+	 *            The number of concrete services in the original attributes.
+	 */
+	public PrunedInstance(QoSAttribute[] attributes, int[][] originalIndices,
+			int originalNoConcreteServices) {
+		mAttributes = attributes;
+		mOriginalIndices = originalIndices;
+		mOriginalNoConcreteServices = originalNoConcreteServices;
+	}
+
+	/**
+	 * 
+	 * @return The pruned attributes, to be given to the solvers.
+	 */
+	public QoSAttribute[] getAttributes() {
+		return mAttributes;
+	}
+
+	/**
+	 * Returns the original index of a kept concrete service.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param concreteService
+	 *            The index of the concrete service in the pruned attributes.
+	 * @return The index of the concrete service in the original attributes.
+	 */
+	public int getOriginalIndex(int abstractService, int concreteService) {
+		return mOriginalIndices[abstractService][concreteService];
+	}
+
+	/**
+	 * Translates a composition of the pruned attributes into the corresponding
+	 * composition of the original ones.
+	 * 
+	 * @param composition
+	 *            A composition of the pruned attributes, or null.
+	 * @return The corresponding composition of the original attributes, or
+	 *         null if the given composition is null.
+	 */
+	public int[] toOriginal(int[] composition) {
+		if (composition == null) {
+			return null;
+		}
+
+		int[] original = new int[composition.length];
+		for (int i = 0; i < composition.length; i++) {
+			original[i] = (composition[i] < 0) ? composition[i]
+					: mOriginalIndices[i][composition[i]];
+		}
+		return original;
+	}
+
+	/**
+	 * 
+	 * @return The number of concrete services that were pruned.
+	 */
+	public int getNoPrunedServices() {
+		int[] offsets = mAttributes[0].getOffsets();
+		return mOriginalNoConcreteServices - offsets[offsets.length - 1];
+	}
+}
@@ -23,9 +23,19 @@ public class QoSAttribute {
 	public static final int AGGREGATE_BY_AVERAGE = 0x02;
 
 	/**
-	 * The QoS values.
+	 * The store containing the QoS values.
 	 */
-	private double[][] mValues;
+	private QoSStore mStore;
+
+	/**
+	 * The column of the store containing the values of this attribute.
+	 */
+	private QoSColumn mColumn;
+
+	/**
+	 * The offset of the first concrete service of each abstract service.
+	 */
+	private int[] mOffsets;
 
 	/**
 	 * The function to be used to compute the aggregated QoS. It must be one of
@@ -35,9 +45,10 @@ public class QoSAttribute {
 	private int mAggregationMethod;
 
 	/**
-	 * The weight of this attribute.
+	 * The weight of this attribute. It's changed by TotalQoS, possibly while
+	 * other threads read it.
 	 */
-	private double mWeight;
+	private volatile double mWeight;
 
 	/**
 	 * The maximum possible QoS for the current the aggregation function and the
@@ -56,26 +67,32 @@ public class QoSAttribute {
 	 *            The weight of this attribute.
 	 */
 	public QoSAttribute(double[][] values, int aggregationMethod, double weight) {
+		this(QoSStore.fromMatrices(values), 0, aggregationMethod, weight);
+	}
 
-		/* Check for the validity of the given values. */
-		for (int i = 0; i < values.length; i++) {
-			for (int j = 0; j < values[i].length; j++) {
-				if (DoubleComparator.compare(values[i][j], 1d) > 0
-						|| DoubleComparator.compare(values[i][j], 0d) < 0) {
-					throw new IllegalArgumentException(
-							String.format("values[%d][%d] is invalid: %g", i,
-									j, values[i][j]));
-				}
-			}
-		}
-
-		mValues = values;
+	/**
+	 * Creates a QoSAttribute instance as a view over a column of a store.
+	 * 
+	 * @param store
+	 *            The store containing the QoS values.
+	 * @param attributeIndex
+	 *            The column of the store to be used.
+	 * @param aggregationMethod
+	 *            The aggregation method to be used.
+	 * @param weight
+	 *            The weight of this attribute.
+	 */
+	public QoSAttribute(QoSStore store, int attributeIndex,
+			int aggregationMethod, double weight) {
+		mStore = store;
+		mColumn = store.getColumn(attributeIndex);
+		mOffsets = store.getOffsets();
 		mAggregationMethod = aggregationMethod;
 		mWeight = weight;
 
 		switch (aggregationMethod) {
 		case AGGREGATE_BY_SUM:
-			mMaximumQoS = values.length;
+			mMaximumQoS = store.getNoAbstractServices();
 			break;
 		case AGGREGATE_BY_PRODUCT:
 			mMaximumQoS = 1f;
@@ -89,6 +106,70 @@ public class QoSAttribute {
 		}
 	}
 
+	/**
+	 * Creates one attribute for each column of a store.
+	 * 
+	 * @param store
+	 *            The store containing the QoS values.
+	 * @param aggregationMethods
+	 *            The aggregation method of each attribute.
+	 * @param weights
+	 *            The weight of each attribute.
+	 * @return The attributes, in the same order as the columns of the store.
+	 */
+	public static QoSAttribute[] fromStore(QoSStore store,
+			int[] aggregationMethods, double[] weights) {
+		if (aggregationMethods.length != store.getNoAttributes()
+				|| weights.length != store.getNoAttributes()) {
+			throw new IllegalArgumentException(String.format(
+					"Dimensions mismatch. Expected %d attributes.",
+					store.getNoAttributes()));
+		}
+
+		QoSAttribute[] attributes = new QoSAttribute[store.getNoAttributes()];
+		for (int attr = 0; attr < attributes.length; attr++) {
+			attributes[attr] = new QoSAttribute(store, attr,
+					aggregationMethods[attr], weights[attr]);
+		}
+		return attributes;
+	}
+
+	/**
+	 * Copies a set of attributes into a single store with the given storage
+	 * mode. The copies have the same aggregation methods and weights, and can
+	 * be given to any solver in place of the originals.
+	 * 
+	 * @param attributes
+	 *            The attributes to be copied. All of them must have the same
+	 *            shape.
+	 * @param storageMode
+	 *            One of QoSStore.STORAGE_DOUBLE, QoSStore.STORAGE_FLOAT and
+	 *            QoSStore.STORAGE_FIXED_POINT.
+	 * @return The copies of the attributes.
+	 */
+	public static QoSAttribute[] toStorageMode(QoSAttribute[] attributes,
+			int storageMode) {
+		int[] offsets = attributes[0].getOffsets();
+		QoSColumn[] columns = new QoSColumn[attributes.length];
+		int[] aggregationMethods = new int[attributes.length];
+		double[] weights = new double[attributes.length];
+
+		for (int attr = 0; attr < attributes.length; attr++) {
+			if (!Arrays.equals(attributes[attr].getOffsets(), offsets)) {
+				throw new IllegalArgumentException(String.format(
+						"Attribute %d has a different shape.", attr));
+			}
+			columns[attr] = QoSStore.convertColumn(
+					attributes[attr].getColumn(), offsets[offsets.length - 1],
+					storageMode);
+			aggregationMethods[attr] = attributes[attr].getAggregationMethod();
+			weights[attr] = attributes[attr].getWeight();
+		}
+
+		return fromStore(new QoSStore(offsets, columns), aggregationMethods,
+				weights);
+	}
+
 	/**
 	 * Evaluates the aggregated QoS of a composition.
 	 * 
@@ -100,13 +181,14 @@ public class QoSAttribute {
 	public double getAggregatedQoS(int[] composition) {
 		double aggregatedQoS;
 
-		if (composition.length != mValues.length) {
+		int noAbstractServices = mOffsets.length - 1;
+		if (composition.length != noAbstractServices) {
 			throw new IllegalArgumentException(String.format(
 					"Dimensions mismatch. Expected %d, got %d.",
-					mValues.length, composition.length));
+					noAbstractServices, composition.length));
 		}
 		for (int i = 0; i < composition.length; i++) {
-			if (composition[i] >= mValues[i].length) {
+			if (composition[i] >= mOffsets[i + 1] - mOffsets[i]) {
 				throw new IllegalArgumentException(String.format(
 						"Composition[%d] is invalid: ", i, composition[i]));
 			}
@@ -118,7 +200,7 @@ public class QoSAttribute {
 			aggregatedQoS = 0f;
 			for (int i = 0; i < composition.length; i++) {
 				if (composition[i] >= 0) {
-					aggregatedQoS += mValues[i][composition[i]];
+					aggregatedQoS += mColumn.get(mOffsets[i] + composition[i]);
 				}
 			}
 			break;
@@ -126,7 +208,7 @@ public class QoSAttribute {
 			aggregatedQoS = 1f;
 			for (int i = 0; i < composition.length; i++) {
 				if (composition[i] >= 0) {
-					aggregatedQoS *= mValues[i][composition[i]];
+					aggregatedQoS *= mColumn.get(mOffsets[i] + composition[i]);
 					count++;
 				}
 			}
@@ -138,7 +220,7 @@ public class QoSAttribute {
 			aggregatedQoS = 0f;
 			for (int i = 0; i < composition.length; i++) {
 				if (composition[i] >= 0) {
-					aggregatedQoS += mValues[i][composition[i]];
+					aggregatedQoS += mColumn.get(mOffsets[i] + composition[i]);
 					count++;
 				}
 			}
@@ -169,11 +251,90 @@ public class QoSAttribute {
 	}
 
 	/**
+	 * Changes the weight of this attribute. Weights are changed through
+	 * TotalQoS, which keeps the cached totals consistent.
+	 * 
+	 * @param weight
+	 *            The new weight.
+	 */
+	void setWeight(double weight) {
+		mWeight = weight;
+	}
+
+	/**
+	 * Returns a copy of the QoS values as a jagged matrix. Solvers should
+	 * prefer getValue() or the underlying column, which don't allocate.
 	 * 
 	 * @return The QoS values.
 	 */
 	public double[][] getValues() {
-		return mValues;
+		double[][] values = new double[mOffsets.length - 1][];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = new double[mOffsets[i + 1] - mOffsets[i]];
+			for (int j = 0; j < values[i].length; j++) {
+				values[i][j] = mColumn.get(mOffsets[i] + j);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the QoS value of a concrete service.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param concreteService
+	 *            The index of the concrete service.
+	 * @return The QoS value of the given concrete service.
+	 */
+	public double getValue(int abstractService, int concreteService) {
+		return mColumn.get(mOffsets[abstractService] + concreteService);
+	}
+
+	/**
+	 * 
+	 * @return The store containing the QoS values.
+	 */
+	public QoSStore getStore() {
+		return mStore;
+	}
+
+	/**
+	 * 
+	 * @return The column containing the values of this attribute.
+	 */
+	public QoSColumn getColumn() {
+		return mColumn;
+	}
+
+	/**
+	 * Returns the offset of the first concrete service of each abstract
+	 * service, followed by the total number of concrete services. It must not
+	 * be modified.
+	 * 
+	 * @return The offsets table.
+	 */
+	public int[] getOffsets() {
+		return mOffsets;
+	}
+
+	/**
+	 * 
+	 * @return The number of abstract services.
+	 */
+	public int getNoAbstractServices() {
+		return mOffsets.length - 1;
+	}
+
+	/**
+	 * Returns the number of concrete services of an abstract service.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @return The number of concrete services of the given abstract service.
+	 */
+	public int getNoConcreteServices(int abstractService) {
+		return mOffsets[abstractService + 1] - mOffsets[abstractService];
 	}
 
 	/**
@@ -193,29 +354,104 @@ public class QoSAttribute {
 	 * @return A matrix containing the total QoS of each service.
 	 */
 	public static double[][] calculateTotalQoS(QoSAttribute[] qosValues) {
-		double[][] totalQoSValues;
-		totalQoSValues = new double[qosValues[0].getValues().length][];
+		int[] offsets = qosValues[0].getOffsets();
+		double[] flatTotalQoS = calculateFlatTotalQoS(qosValues);
 
+		double[][] totalQoSValues = new double[offsets.length - 1][];
 		for (int i = 0; i < totalQoSValues.length; i++) {
-			totalQoSValues[i] = new double[qosValues[0].getValues()[i].length];
-			Arrays.fill(totalQoSValues[i], 0f);
+			totalQoSValues[i] = Arrays.copyOfRange(flatTotalQoS, offsets[i],
+					offsets[i + 1]);
 		}
 
+		return totalQoSValues;
+	}
+
+	/**
+	 * Calculates the total QoS of each concrete service, laid out in a flat
+	 * vector indexed by the offsets of the attributes.
+	 * 
+	 * @param qosValues
+	 *            A vector containing all the attributes.
+	 * @return A vector containing the total QoS of each service.
+	 */
+	public static double[] calculateFlatTotalQoS(QoSAttribute[] qosValues) {
+		double[] weights = new double[qosValues.length];
 		for (int attr = 0; attr < qosValues.length; attr++) {
-			QoSAttribute currentAttribute = qosValues[attr];
-			double[][] currentValues = currentAttribute.getValues();
+			weights[attr] = qosValues[attr].getWeight();
+		}
+		return calculateFlatTotalQoS(qosValues, weights);
+	}
 
-			for (int i = 0; i < currentValues.length; i++) {
-				for (int j = 0; j < currentValues[i].length; j++) {
-					totalQoSValues[i][j] += currentValues[i][j]
-							* currentAttribute.getWeight();
-				}
+	/**
+	 * Calculates the total QoS of each concrete service for the given weights
+	 * instead of the weights of the attributes, laid out in a flat vector
+	 * indexed by the offsets of the attributes.
+	 * 
+	 * @param qosValues
+	 *            A vector containing all the attributes.
+	 * @param weights
+	 *            The weight of each attribute.
+	 * @return A vector containing the total QoS of each service.
+	 */
+	public static double[] calculateFlatTotalQoS(QoSAttribute[] qosValues,
+			double[] weights) {
+		int[] offsets = qosValues[0].getOffsets();
+		double[] totalQoSValues = new double[offsets[offsets.length - 1]];
+
+		for (int attr = 0; attr < qosValues.length; attr++) {
+			QoSColumn currentValues = qosValues[attr].getColumn();
+			double weight = weights[attr];
+
+			for (int k = 0; k < totalQoSValues.length; k++) {
+				totalQoSValues[k] += currentValues.get(k) * weight;
 			}
 		}
 
 		return totalQoSValues;
 	}
 
+	/**
+	 * Calculates the contribution of each concrete service to the aggregated
+	 * QoS of the compositions that select it, laid out in a flat vector indexed
+	 * by the offsets of the attributes. It's the total QoS, except that the
+	 * weight of an attribute aggregated by average is divided by the number of
+	 * abstract services, as in calculateAggregatedQoS(). The aggregated QoS of
+	 * a composition is then an increasing linear function of the sum of the
+	 * contributions of its concrete services.
+	 * 
+	 * @param qosValues
+	 *            A vector containing all the attributes. All of them must be
+	 *            aggregated by sum or by average.
+	 * @return A vector containing the contribution of each service.
+	 */
+	public static double[] calculateFlatContributions(QoSAttribute[] qosValues) {
+		int[] offsets = qosValues[0].getOffsets();
+		int noAbstractServices = offsets.length - 1;
+		double[] contributions = new double[offsets[noAbstractServices]];
+
+		for (int attr = 0; attr < qosValues.length; attr++) {
+			QoSColumn currentValues = qosValues[attr].getColumn();
+			double coefficient = qosValues[attr].getWeight();
+
+			switch (qosValues[attr].getAggregationMethod()) {
+			case AGGREGATE_BY_AVERAGE:
+				coefficient /= noAbstractServices;
+				break;
+			case AGGREGATE_BY_SUM:
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Non-linear aggregation function.");
+			}
+
+			for (int k = 0; k < contributions.length; k++) {
+				contributions[k] += currentValues.get(k) * coefficient;
+			}
+		}
+
+		return contributions;
+	}
+
 	/**
 	 * Calculates the aggregated QoS of a composition where there are more then
 	 * one QoS attributes.
@@ -0,0 +1,91 @@
+package general;
+
+/**
+ * A flat column of QoS values, holding one value for each concrete service of
+ * every abstract service. The values of abstract service i start at the
+ * offset given by the QoSStore that owns this column.
+ * 
+ * Besides get(), columns offer bulk reads, which every subclass overrides
+ * with a loop over its own storage. Hot loops should use them: a solver may
+ * hold columns of several classes, and calling get() for each value from a
+ * single call site would then dispatch on the class of the column every
+ * time.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public abstract class QoSColumn {
+
+	/**
+	 * Returns the value stored at the given flat index.
+	 * 
+	 * @param index
+	 *            The flat index of the value.
+	 * @return The value stored at the given index.
+	 */
+	public abstract double get(int index);
+
+	/**
+	 * Returns the number of values in this column.
+	 * 
+	 * @return The number of values in this column.
+	 */
+	public abstract int size();
+
+	/**
+	 * Reads the values at the given flat indices.
+	 * 
+	 * @param indices
+	 *            A vector containing flat indices.
+	 * @param from
+	 *            The position, in indices, of the first index to be read.
+	 * @param values
+	 *            The vector where the value at indices[from + k] is stored,
+	 *            at position k.
+	 * @param size
+	 *            The number of values to be read.
+	 */
+	public void gather(int[] indices, int from, double[] values, int size) {
+		for (int k = 0; k < size; k++) {
+			values[k] = get(indices[from + k]);
+		}
+	}
+
+	/**
+	 * Sums the values selected by a composition.
+	 * 
+	 * @param offsets
+	 *            The offset of the first concrete service of each abstract
+	 *            service.
+	 * @param composition
+	 *            A vector containing the index of the concrete service
+	 *            corresponding to each abstract service.
+	 * @return The sum of the selected values.
+	 */
+	public double sum(int[] offsets, int[] composition) {
+		double sum = 0;
+		for (int i = 0; i < composition.length; i++) {
+			sum += get(offsets[i] + composition[i]);
+		}
+		return sum;
+	}
+
+	/**
+	 * Multiplies the values selected by a composition.
+	 * 
+	 * @param offsets
+	 *            The offset of the first concrete service of each abstract
+	 *            service.
+	 * @param composition
+	 *            A vector containing the index of the concrete service
+	 *            corresponding to each abstract service.
+	 * @return The product of the selected values.
+	 */
+	public double product(int[] offsets, int[] composition) {
+		double product = 1;
+		for (int i = 0; i < composition.length; i++) {
+			product *= get(offsets[i] + composition[i]);
+		}
+		return product;
+	}
+}
@@ -0,0 +1,153 @@
+package general;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QoSColumnTest {
+
+	private static double[] createValues(long seed, int size) {
+		Random random = new Random(seed);
+		double[] values = new double[size];
+		for (int k = 0; k < size; k++) {
+			values[k] = random.nextDouble();
+		}
+		values[0] = 0;
+		values[1] = 1;
+		return values;
+	}
+
+	/* Every storage mode, over an array and over a buffer. */
+	private static QoSColumn[] createColumns(double[] values) {
+		float[] floats = new float[values.length];
+		char[] chars = new char[values.length];
+		for (int k = 0; k < values.length; k++) {
+			floats[k] = (float) values[k];
+			chars[k] = FixedPointColumn.quantize(values[k]);
+		}
+		return new QoSColumn[] { new DoubleColumn(values),
+				new BufferColumn(DoubleBuffer.wrap(values)),
+				new FloatColumn(floats),
+				new FloatColumn(FloatBuffer.wrap(floats.clone())),
+				new FixedPointColumn(chars),
+				new FixedPointColumn(CharBuffer.wrap(chars.clone())) };
+	}
+
+	/* Fixed point keeps 0 and 1 exact and any other value within the bound. */
+
+	@Test
+	public void test0() {
+		double maximumError = 0;
+		for (int k = 0; k <= 1000000; k++) {
+			double value = k / 1000000.0;
+			double stored = new FixedPointColumn(
+					new char[] { FixedPointColumn.quantize(value) }).get(0);
+			maximumError = Math.max(maximumError, Math.abs(stored - value));
+		}
+		assertTrue(maximumError <= FixedPointColumn.MAXIMUM_ERROR + 1e-15);
+		assertTrue(maximumError > FixedPointColumn.MAXIMUM_ERROR * 0.99);
+
+		assertEquals(0, FixedPointColumn.quantize(0));
+		assertEquals(FixedPointColumn.ONE, FixedPointColumn.quantize(1));
+		assertEquals(0, FixedPointColumn.quantize(-0.5));
+		assertEquals(FixedPointColumn.ONE, FixedPointColumn.quantize(1.5));
+	}
+
+	/* Floats are within their relative error, over arrays and buffers alike. */
+
+	@Test
+	public void test1() {
+		double[] values = createValues(0, 1000);
+		QoSColumn[] columns = createColumns(values);
+		for (QoSColumn column : columns) {
+			assertEquals(values.length, column.size());
+		}
+
+		for (int k = 0; k < values.length; k++) {
+			assertEquals(values[k], columns[2].get(k), values[k] * 0x1p-24);
+			assertEquals(columns[2].get(k), columns[3].get(k), 0);
+			assertEquals(values[k], columns[4].get(k),
+					FixedPointColumn.MAXIMUM_ERROR);
+			assertEquals(columns[4].get(k), columns[5].get(k), 0);
+		}
+		assertEquals(0, columns[4].get(0), 0);
+		assertEquals(1, columns[4].get(1), 0);
+	}
+
+	/* The bulk reads agree with get(). */
+
+	@Test
+	public void test2() {
+		double[] values = createValues(1, 100);
+		int[] offsets = { 0, 10, 40, 41, 100 };
+		int[] composition = { 3, 29, 0, 58 };
+		int[] indices = new int[50];
+		Random random = new Random(2);
+		for (int k = 0; k < indices.length; k++) {
+			indices[k] = random.nextInt(values.length);
+		}
+
+		for (QoSColumn column : createColumns(values)) {
+			double sum = 0;
+			double product = 1;
+			for (int i = 0; i < composition.length; i++) {
+				sum += column.get(offsets[i] + composition[i]);
+				product *= column.get(offsets[i] + composition[i]);
+			}
+			assertEquals(sum, column.sum(offsets, composition), 0);
+			assertEquals(product, column.product(offsets, composition), 0);
+
+			double[] gathered = new double[30];
+			column.gather(indices, 20, gathered, 30);
+			for (int k = 0; k < 30; k++) {
+				assertEquals(column.get(indices[20 + k]), gathered[k], 0);
+			}
+		}
+	}
+
+	/* A scorer over columns of every class agrees with the reference. */
+
+	@Test
+	public void test3() {
+		int[] offsets = { 0, 5, 8, 16 };
+		QoSColumn[] columns = createColumns(createValues(3, 16));
+		int[] methods = { QoSAttribute.AGGREGATE_BY_SUM,
+				QoSAttribute.AGGREGATE_BY_PRODUCT,
+				QoSAttribute.AGGREGATE_BY_AVERAGE };
+		double[] weights = new double[columns.length];
+		int[] aggregationMethods = new int[columns.length];
+		for (int attr = 0; attr < columns.length; attr++) {
+			weights[attr] = 1.0 / columns.length;
+			aggregationMethods[attr] = methods[attr % methods.length];
+		}
+		QoSAttribute[] attributes = QoSAttribute.fromStore(new QoSStore(
+				offsets, columns), aggregationMethods, weights);
+		CompositionScorer scorer = new CompositionScorer(attributes);
+
+		int noCompositions = 5 * 3 * 8;
+		int[] compositions = new int[noCompositions * 3];
+		for (int k = 0; k < noCompositions; k++) {
+			compositions[k * 3] = k % 5;
+			compositions[k * 3 + 1] = k / 5 % 3;
+			compositions[k * 3 + 2] = k / 15;
+		}
+		double[] results = new double[noCompositions];
+		scorer.scoreBatch(compositions, noCompositions, results);
+
+		for (int k = 0; k < noCompositions; k++) {
+			int[] composition = Arrays.copyOfRange(compositions, k * 3,
+					k * 3 + 3);
+			double expected = QoSAttribute.calculateAggregatedQoS(attributes,
+					composition);
+			assertEquals(expected, scorer.score(composition), 1e-12);
+			assertEquals(expected, results[k], 1e-12);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package general;
+
+/**
+ * A columnar store for the QoS values of a set of attributes. The values of
+ * each attribute are kept in a single flat column, and an offsets table tells
+ * where the concrete services of each abstract service start. All the
+ * attributes of a store share the same offsets table, so a QoSAttribute is
+ * just a lightweight view over one of its columns.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class QoSStore {
+
+	/* The possible storage modes of the values. */
+	public static final int STORAGE_DOUBLE = 0x00;
+	public static final int STORAGE_FLOAT = 0x01;
+	public static final int STORAGE_FIXED_POINT = 0x02;
+
+	/**
+	 * The offset of the first concrete service of each abstract service. It has
+	 * one extra element at the end, which is the total number of concrete
+	 * services.
+	 */
+	private final int[] mOffsets;
+
+	/**
+	 * The values of each attribute.
+	 */
+	private final QoSColumn[] mColumns;
+
+	/**
+	 * Creates a store over the given columns. The values are neither copied nor
+	 * checked, so the caller must guarantee that they are normalized between 0
+	 * and 1.
+	 * 
+	 * @param offsets
+	 *            The offset of the first concrete service of each abstract
+	 *            service, followed by the total number of concrete services.
+	 * @param columns
+	 *            The values of each attribute.
+	 */
+	public QoSStore(int[] offsets, QoSColumn[] columns) {
+		int total = offsets[offsets.length - 1];
+		for (int attr = 0; attr < columns.length; attr++) {
+			if (columns[attr].size() < total) {
+				throw new IllegalArgumentException(String.format(
+						"Column %d has %d values; expected %d.", attr,
+						columns[attr].size(), total));
+			}
+		}
+
+		mOffsets = offsets;
+		mColumns = columns;
+	}
+
+	/**
+	 * Creates a store from one jagged matrix per attribute, checking that the
+	 * values are normalized between 0 and 1 and that all the matrices have the
+	 * same shape.
+	 * 
+	 * @param values
+	 *            The QoS values of each attribute.
+	 * @return The store containing the given values.
+	 */
+	public static QoSStore fromMatrices(double[][]... values) {
+		int[] offsets = calculateOffsets(values[0]);
+		QoSColumn[] columns = new QoSColumn[values.length];
+
+		for (int attr = 0; attr < values.length; attr++) {
+			if (values[attr].length != values[0].length) {
+				throw new IllegalArgumentException(String.format(
+						"Dimensions mismatch. Expected %d, got %d.",
+						values[0].length, values[attr].length));
+			}
+
+			double[] column = new double[offsets[offsets.length - 1]];
+			for (int i = 0; i < values[attr].length; i++) {
+				if (values[attr][i].length != offsets[i + 1] - offsets[i]) {
+					throw new IllegalArgumentException(String.format(
+							"Dimensions mismatch at values[%d]. Expected %d, got %d.",
+							i, offsets[i + 1] - offsets[i],
+							values[attr][i].length));
+				}
+				for (int j = 0; j < values[attr][i].length; j++) {
+					if (DoubleComparator.compare(values[attr][i][j], 1d) > 0
+							|| DoubleComparator.compare(values[attr][i][j], 0d) < 0) {
+						throw new IllegalArgumentException(String.format(
+								"values[%d][%d] is invalid: %g", i, j,
+								values[attr][i][j]));
+					}
+					column[offsets[i] + j] = values[attr][i][j];
+				}
+			}
+			columns[attr] = new DoubleColumn(column);
+		}
+
+		return new QoSStore(offsets, columns);
+	}
+
+	/**
+	 * Returns a copy of this store with all its values in the given storage
+	 * mode. STORAGE_FLOAT keeps the values as 32-bit floats, and
+	 * STORAGE_FIXED_POINT as 16-bit fixed-point numbers, whose error is
+	 * documented in FixedPointColumn.
+	 * 
+	 * @param storageMode
+	 *            One of STORAGE_DOUBLE, STORAGE_FLOAT and STORAGE_FIXED_POINT.
+	 * @return The converted store.
+	 */
+	public QoSStore toStorageMode(int storageMode) {
+		QoSColumn[] columns = new QoSColumn[mColumns.length];
+		for (int attr = 0; attr < columns.length; attr++) {
+			columns[attr] = convertColumn(mColumns[attr],
+					getTotalNoConcreteServices(), storageMode);
+		}
+		return new QoSStore(mOffsets, columns);
+	}
+
+	/**
+	 * Copies the first values of a column into a new column with the given
+	 * storage mode.
+	 * 
+	 * @param column
+	 *            The column to be converted.
+	 * @param size
+	 *            The number of values to be copied.
+	 * @param storageMode
+	 *            One of STORAGE_DOUBLE, STORAGE_FLOAT and STORAGE_FIXED_POINT.
+	 * @return The converted column.
+	 */
+	public static QoSColumn convertColumn(QoSColumn column, int size,
+			int storageMode) {
+		switch (storageMode) {
+		case STORAGE_DOUBLE:
+			double[] doubles = new double[size];
+			for (int k = 0; k < size; k++) {
+				doubles[k] = column.get(k);
+			}
+			return new DoubleColumn(doubles);
+		case STORAGE_FLOAT:
+			float[] floats = new float[size];
+			for (int k = 0; k < size; k++) {
+				floats[k] = (float) column.get(k);
+			}
+			return new FloatColumn(floats);
+		case STORAGE_FIXED_POINT:
+			char[] fixedPoints = new char[size];
+			for (int k = 0; k < size; k++) {
+				fixedPoints[k] = FixedPointColumn.quantize(column.get(k));
+			}
+			return new FixedPointColumn(fixedPoints);
+		default:
+			throw new IllegalArgumentException("Unknown storage mode: "
+					+ storageMode);
+		}
+	}
+
+	/**
+	 * Returns the storage mode of a column.
+	 * 
+	 * @param column
+	 *            The column.
+	 * @return One of STORAGE_DOUBLE, STORAGE_FLOAT and STORAGE_FIXED_POINT.
+	 */
+	public static int getStorageMode(QoSColumn column) {
+		if (column instanceof FloatColumn) {
+			return STORAGE_FLOAT;
+		} else if (column instanceof FixedPointColumn) {
+			return STORAGE_FIXED_POINT;
+		}
+		return STORAGE_DOUBLE;
+	}
+
+	/**
+	 * Calculates the offsets table corresponding to the shape of a jagged
+	 * matrix.
+	 * 
+	 * @param values
+	 *            A matrix with one row for each abstract service.
+	 * @return The offsets table.
+	 */
+	public static int[] calculateOffsets(double[][] values) {
+		int[] offsets = new int[values.length + 1];
+		for (int i = 0; i < values.length; i++) {
+			offsets[i + 1] = offsets[i] + values[i].length;
+		}
+		return offsets;
+	}
+
+	/**
+	 * 
+	 * @return The number of abstract services.
+	 */
+	public int getNoAbstractServices() {
+		return mOffsets.length - 1;
+	}
+
+	/**
+	 * Returns the number of concrete services of an abstract service.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @return The number of concrete services of the given abstract service.
+	 */
+	public int getNoConcreteServices(int abstractService) {
+		return mOffsets[abstractService + 1] - mOffsets[abstractService];
+	}
+
+	/**
+	 * 
+	 * @return The total number of concrete services.
+	 */
+	public int getTotalNoConcreteServices() {
+		return mOffsets[mOffsets.length - 1];
+	}
+
+	/**
+	 * Returns the offsets table. It must not be modified.
+	 * 
+	 * @return The offsets table.
+	 */
+	public int[] getOffsets() {
+		return mOffsets;
+	}
+
+	/**
+	 * 
+	 * @return The number of attributes in this store.
+	 */
+	public int getNoAttributes() {
+		return mColumns.length;
+	}
+
+	/**
+	 * Returns the values of an attribute.
+	 * 
+	 * @param attribute
+	 *            The index of the attribute.
+	 * @return The column containing the values of the given attribute.
+	 */
+	public QoSColumn getColumn(int attribute) {
+		return mColumns[attribute];
+	}
+
+	/**
+	 * Returns a single QoS value.
+	 * 
+	 * @param attribute
+	 *            The index of the attribute.
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param concreteService
+	 *            The index of the concrete service.
+	 * @return The corresponding QoS value.
+	 */
+	public double getValue(int attribute, int abstractService,
+			int concreteService) {
+		return mColumns[attribute].get(mOffsets[abstractService]
+				+ concreteService);
+	}
+}
@@ -0,0 +1,62 @@
+package general;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class QoSStoreTest {
+
+	public static final double[][] values1 = { { 1, 0.5f, 1 }, { 1, 0.5f },
+			{ 0.5f, 0.5f, 1 } };
+	public static final double[][] values2 = { { 0.5f, 0.75f, 1 }, { 1, 0.5f },
+			{ 0.25f, 0.5f, 1 } };
+
+	/* Shape of the store. */
+
+	@Test
+	public void test0() {
+		QoSStore store = QoSStore.fromMatrices(values1, values2);
+		assertEquals(store.getNoAbstractServices(), 3);
+		assertEquals(store.getNoAttributes(), 2);
+		assertEquals(store.getTotalNoConcreteServices(), 8);
+		assertEquals(store.getNoConcreteServices(1), 2);
+		assertArrayEquals(store.getOffsets(), new int[] { 0, 3, 5, 8 });
+	}
+
+	/* Values are laid out by offsets. */
+
+	@Test
+	public void test1() {
+		QoSStore store = QoSStore.fromMatrices(values1, values2);
+		assertEquals(store.getValue(1, 2, 0), 0.25f, 0);
+		assertEquals(store.getColumn(1).get(5), 0.25f, 0);
+		assertEquals(store.getValue(0, 1, 1), 0.5f, 0);
+	}
+
+	/* Views over a shared store. */
+
+	@Test
+	public void test2() {
+		QoSStore store = QoSStore.fromMatrices(values1, values2);
+		QoSAttribute attr = new QoSAttribute(store, 1,
+				QoSAttribute.AGGREGATE_BY_SUM, 1);
+		assertEquals(attr.getAggregatedQoS(new int[] { 1, 0, 2 }), 2.75f, 0);
+		assertArrayEquals(attr.getValues()[2], values2[2], 0);
+		assertEquals(attr.getMaximumQoS(), 3, 0);
+	}
+
+	/* Ilegal shapes and values. */
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test3() {
+		QoSStore.fromMatrices(values1, new double[][] { { 1, 1, 1 }, { 1 },
+				{ 1, 1, 1 } });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test4() {
+		QoSStore.fromMatrices(values1, new double[][] { { 1, 1, 1 }, { 1, 2 },
+				{ 1, 1, 1 } });
+	}
+}
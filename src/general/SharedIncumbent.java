@@ -0,0 +1,142 @@
+package general;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The best composition found so far by a group of engines running
+ * concurrently on the same request. Engines offer their solutions as they find
+ * them, and the ones that can prune their search with an incumbent are
+ * notified whenever it improves.
+ * 
+ * It's also an IncumbentListener, so it can be attached to any engine that
+ * reports its improving solutions.
+ * 
+ * Compositions are compared by their normalized aggregated QoS, as returned by
+ * CompositionScorer.score(), so that the solutions of different engines can
+ * be compared.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class SharedIncumbent implements IncumbentListener {
+
+	/**
+	 * Receives the improvements of a SharedIncumbent.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called whenever the incumbent improves, on the thread of the engine
+		 * that offered it, so it must return quickly.
+		 * 
+		 * @param composition
+		 *            The new incumbent. It must not be modified.
+		 * @param score
+		 *            Its normalized aggregated QoS.
+		 */
+		public void onImprovement(int[] composition, double score);
+	}
+
+	/**
+	 * The best composition offered so far, or null if none was offered.
+	 */
+	private int[] mComposition;
+
+	/**
+	 * The normalized aggregated QoS of the best composition.
+	 */
+	private volatile double mScore;
+
+	/**
+	 * The listeners to be notified of improvements.
+	 */
+	private CopyOnWriteArrayList<Listener> mListeners;
+
+	/**
+	 * Creates an empty incumbent.
+	 */
+	public SharedIncumbent() {
+		mScore = Double.NEGATIVE_INFINITY;
+		mListeners = new CopyOnWriteArrayList<Listener>();
+	}
+
+	/**
+	 * Offers a composition. It replaces the incumbent only if its score is
+	 * strictly greater.
+	 * 
+	 * @param composition
+	 *            The composition. It's copied.
+	 * @param score
+	 *            Its normalized aggregated QoS.
+	 * @return True if the composition became the new incumbent; false
+	 *         otherwise.
+	 */
+	public boolean offer(int[] composition, double score) {
+		if (!(score > mScore)) {
+			/* Cheap check, without locking. */
+			return false;
+		}
+
+		int[] copy;
+		synchronized (this) {
+			if (!(score > mScore)) {
+				return false;
+			}
+			copy = composition.clone();
+			mComposition = copy;
+			mScore = score;
+
+			for (Listener listener : mListeners) {
+				listener.onImprovement(copy, score);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void onIncumbent(Incumbent incumbent) {
+		offer(incumbent.getComposition(), incumbent.getScore());
+	}
+
+	/**
+	 * Adds a listener. If there's already an incumbent, the listener is
+	 * notified of it immediately.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public synchronized void addListener(Listener listener) {
+		mListeners.add(listener);
+		if (mComposition != null) {
+			listener.onImprovement(mComposition, mScore);
+		}
+	}
+
+	/**
+	 * Removes a listener.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeListener(Listener listener) {
+		mListeners.remove(listener);
+	}
+
+	/**
+	 * Returns the best composition offered so far. It must not be modified.
+	 * 
+	 * @return The incumbent, or null if no composition was offered.
+	 */
+	public synchronized int[] getComposition() {
+		return mComposition;
+	}
+
+	/**
+	 * 
+	 * @return The normalized aggregated QoS of the incumbent, or negative
+	 *         infinity if no composition was offered.
+	 */
+	public double getScore() {
+		return mScore;
+	}
+}
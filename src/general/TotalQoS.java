@@ -0,0 +1,259 @@
+package general;
+
+/**
+ * A cached total QoS of each concrete service, i.e. the weighted sum of its QoS
+ * values, which solvers use as a heuristic or as a linear objective. The
+ * weights of the attributes can be changed through this class, and the totals
+ * are then updated with a rank-1 update per changed attribute, instead of
+ * being recomputed.
+ * 
+ * The totals are never modified in place: each change publishes a new vector,
+ * so a vector returned by getValues() can be read without locking and always
+ * holds the totals of a single set of weights. Solvers compare getVersion()
+ * with the version they last saw to fetch the new vector and to refresh
+ * anything else they derived from the weights. Solvers that derive their
+ * state from the weights when a search starts, such as BruteForce, pick up the
+ * new weights on their next search.
+ * 
+ * Several caches may be built over the same attributes, e.g. one by ACO and
+ * one by WscHelper. Each one keeps the weights its totals were computed with,
+ * and brings its totals up to date, publishing a new version, when it finds
+ * that the weights of the attributes were changed through another cache.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class TotalQoS {
+
+	/**
+	 * The number of updates after which the totals are recomputed from scratch,
+	 * so that rounding errors don't accumulate.
+	 */
+	private static final int RECOMPUTATION_PERIOD = 1024;
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mAttributes;
+
+	/**
+	 * The offset of the first concrete service of each abstract service.
+	 */
+	private int[] mOffsets;
+
+	/**
+	 * The total QoS of each concrete service, laid out according to the
+	 * offsets. It's replaced, never modified, when the weights change.
+	 */
+	private volatile double[] mValues;
+
+	/**
+	 * The weights the totals were computed with. It's replaced, never
+	 * modified, after the totals it corresponds to are published.
+	 */
+	private volatile double[] mWeights;
+
+	/**
+	 * The number of times the totals were changed. It's incremented after
+	 * the new totals are published.
+	 */
+	private volatile int mVersion;
+
+	/**
+	 * The number of updates since the totals were last recomputed.
+	 */
+	private int mUpdatesSinceRecomputation;
+
+	/**
+	 * Creates the cache for the given attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes. All of them must have the same shape.
+	 */
+	public TotalQoS(QoSAttribute[] attributes) {
+		mAttributes = attributes;
+		mOffsets = attributes[0].getOffsets();
+		mWeights = currentWeights();
+		mValues = QoSAttribute.calculateFlatTotalQoS(attributes, mWeights);
+	}
+
+	/**
+	 * Changes the weight of an attribute, updating the totals.
+	 * 
+	 * @param attributeIndex
+	 *            The index of the attribute.
+	 * @param weight
+	 *            The new weight.
+	 */
+	public synchronized void setWeight(int attributeIndex, double weight) {
+		mAttributes[attributeIndex].setWeight(weight);
+		synchronize();
+	}
+
+	/**
+	 * Changes the weights of all the attributes, updating the totals.
+	 * 
+	 * @param weights
+	 *            The new weight of each attribute.
+	 */
+	public synchronized void setWeights(double[] weights) {
+		if (weights.length != mAttributes.length) {
+			throw new IllegalArgumentException(String.format(
+					"Dimensions mismatch. Expected %d, got %d.",
+					mAttributes.length, weights.length));
+		}
+
+		for (int attr = 0; attr < weights.length; attr++) {
+			mAttributes[attr].setWeight(weights[attr]);
+		}
+		synchronize();
+	}
+
+	/**
+	 * Brings the totals up to date if the weights of the attributes differ
+	 * from the ones they were computed with. The check doesn't lock, so that
+	 * readers pay only for a comparison of the weights while they're
+	 * unchanged.
+	 */
+	private void refresh() {
+		double[] weights = mWeights;
+		for (int attr = 0; attr < weights.length; attr++) {
+			if (mAttributes[attr].getWeight() != weights[attr]) {
+				synchronize();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Applies the rank-1 update of each attribute whose weight differs from
+	 * the one the totals were computed with to a copy of the totals, and
+	 * publishes it.
+	 */
+	private synchronized void synchronize() {
+		double[] weights = currentWeights();
+		double[] oldWeights = mWeights;
+
+		double[] values = null;
+		for (int attr = 0; attr < weights.length; attr++) {
+			double delta = weights[attr] - oldWeights[attr];
+			if (delta == 0) {
+				continue;
+			}
+			if (values == null) {
+				values = mValues.clone();
+			}
+
+			QoSColumn column = mAttributes[attr].getColumn();
+			for (int k = 0; k < values.length; k++) {
+				values[k] += delta * column.get(k);
+			}
+		}
+		if (values != null) {
+			publish(values, weights);
+		}
+	}
+
+	/**
+	 * Publishes updated totals, recomputing them from scratch instead every
+	 * RECOMPUTATION_PERIOD updates.
+	 * 
+	 * @param values
+	 *            The updated totals.
+	 * @param weights
+	 *            The weights the totals were computed with.
+	 */
+	private void publish(double[] values, double[] weights) {
+		if (++mUpdatesSinceRecomputation >= RECOMPUTATION_PERIOD) {
+			recompute();
+			return;
+		}
+		mValues = values;
+		mWeights = weights;
+		mVersion++;
+	}
+
+	/**
+	 * Recomputes all the totals from scratch, publishing them as a new
+	 * version.
+	 */
+	public synchronized void recompute() {
+		double[] weights = currentWeights();
+		mValues = QoSAttribute.calculateFlatTotalQoS(mAttributes, weights);
+		mWeights = weights;
+		mUpdatesSinceRecomputation = 0;
+		mVersion++;
+	}
+
+	/**
+	 * 
+	 * @return A copy of the current weight of each attribute.
+	 */
+	private double[] currentWeights() {
+		double[] weights = new double[mAttributes.length];
+		for (int attr = 0; attr < weights.length; attr++) {
+			weights[attr] = mAttributes[attr].getWeight();
+		}
+		return weights;
+	}
+
+	/**
+	 * Returns the total QoS of each concrete service, laid out according to
+	 * the offsets of the attributes. The vector is replaced by a new one when
+	 * the weights change, and it must not be modified.
+	 * 
+	 * @return The total QoS of each concrete service.
+	 */
+	public double[] getValues() {
+		refresh();
+		return mValues;
+	}
+
+	/**
+	 * Returns the total QoS of a concrete service.
+	 * 
+	 * @param abstractService
+	 *            The index of the abstract service.
+	 * @param concreteService
+	 *            The index of the concrete service.
+	 * @return The total QoS of the given concrete service.
+	 */
+	public double getValue(int abstractService, int concreteService) {
+		refresh();
+		return mValues[mOffsets[abstractService] + concreteService];
+	}
+
+	/**
+	 * Returns a copy of the totals as a matrix, as returned by
+	 * QoSAttribute.calculateTotalQoS().
+	 * 
+	 * @return A matrix containing the total QoS of each service.
+	 */
+	public double[][] toMatrix() {
+		double[] values = getValues();
+		double[][] matrix = new double[mOffsets.length - 1][];
+		for (int i = 0; i < matrix.length; i++) {
+			matrix[i] = new double[mOffsets[i + 1] - mOffsets[i]];
+			System.arraycopy(values, mOffsets[i], matrix[i], 0,
+					matrix[i].length);
+		}
+		return matrix;
+	}
+
+	/**
+	 * 
+	 * @return The QoS attributes.
+	 */
+	public QoSAttribute[] getAttributes() {
+		return mAttributes;
+	}
+
+	/**
+	 * 
+	 * @return The number of times the totals were changed.
+	 */
+	public int getVersion() {
+		refresh();
+		return mVersion;
+	}
+}
@@ -0,0 +1,116 @@
+package general;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import bb.WscHelper;
+import instance.InstanceGenerator;
+
+public class TotalQoSTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(5, 3, 7,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.3, 0.3, 0.4 },
+				InstanceGenerator.CORRELATION_INDEPENDENT);
+	}
+
+	/* The rank-1 updates agree with recompute(). */
+
+	@Test
+	public void test0() {
+		QoSAttribute[] attributes = createAttributes(0);
+		TotalQoS totalQoS = new TotalQoS(attributes);
+
+		double[][] weights = { { 0.5, 0.2, 0.3 }, { 0.1, 0.1, 0.8 },
+				{ 0.3, 0.3, 0.4 } };
+		for (double[] w : weights) {
+			totalQoS.setWeight(0, w[0]);
+			totalQoS.setWeights(w);
+
+			double[] updated = totalQoS.getValues().clone();
+			totalQoS.recompute();
+			assertArrayEquals(totalQoS.getValues(), updated, 1e-12);
+			assertArrayEquals(
+					QoSAttribute.calculateFlatTotalQoS(attributes),
+					updated, 1e-12);
+		}
+	}
+
+	/* A change publishes a new vector and leaves the old one intact. */
+
+	@Test
+	public void test1() {
+		QoSAttribute[] attributes = createAttributes(1);
+		TotalQoS totalQoS = new TotalQoS(attributes);
+		double[] before = totalQoS.getValues();
+		double[] copy = before.clone();
+		int version = totalQoS.getVersion();
+
+		totalQoS.setWeight(2, 0.9);
+		assertNotSame(before, totalQoS.getValues());
+		assertArrayEquals(copy, before, 0);
+		assertTrue(totalQoS.getVersion() > version);
+
+		version = totalQoS.getVersion();
+		totalQoS.setWeights(new double[] { 0.3, 0.3, 0.9 });
+		assertEquals(version, totalQoS.getVersion());
+	}
+
+	/*
+	 * Caches built over the same attributes, e.g. by ACO and WscHelper, follow
+	 * the changes made through each other.
+	 */
+
+	@Test
+	public void test2() {
+		QoSAttribute[] attributes = createAttributes(2);
+		TotalQoS forAco = new TotalQoS(attributes);
+		TotalQoS forHelper = new TotalQoS(attributes);
+		int acoVersion = forAco.getVersion();
+		int helperVersion = forHelper.getVersion();
+
+		forAco.setWeight(0, 0.9);
+		assertTrue(forHelper.getVersion() > helperVersion);
+		assertArrayEquals(QoSAttribute.calculateFlatTotalQoS(attributes),
+				forHelper.getValues(), 1e-12);
+
+		forHelper.setWeight(0, 0.1);
+		assertTrue(forAco.getVersion() > acoVersion + 1);
+		assertArrayEquals(QoSAttribute.calculateFlatTotalQoS(attributes),
+				forAco.getValues(), 1e-12);
+		assertArrayEquals(QoSAttribute.calculateFlatTotalQoS(attributes),
+				forHelper.getValues(), 1e-12);
+
+		forHelper.setWeights(new double[] { 0.2, 0.5, 0.3 });
+		forAco.setWeight(2, 0.6);
+		double[] expected = QoSAttribute.calculateFlatTotalQoS(attributes);
+		assertArrayEquals(expected, forAco.getValues(), 1e-12);
+		assertArrayEquals(expected, forHelper.getValues(), 1e-12);
+	}
+
+	/* A helper follows the changes made through another cache. */
+
+	@Test
+	public void test3() {
+		QoSAttribute[] attributes = createAttributes(3);
+		WscHelper helper = new WscHelper(attributes);
+		TotalQoS forAco = new TotalQoS(attributes);
+
+		forAco.setWeights(new double[] { 0.1, 0.2, 0.7 });
+		int[] composition = new int[attributes[0].getNoAbstractServices()];
+		double[] expected = QoSAttribute.calculateFlatTotalQoS(attributes);
+		int[] offsets = attributes[0].getOffsets();
+		double value = 0;
+		for (int i = 0; i < composition.length; i++) {
+			value += expected[offsets[i] + composition[i]];
+		}
+		assertEquals(value, helper.getObjectiveValue(composition), 1e-12);
+	}
+}
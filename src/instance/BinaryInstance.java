@@ -0,0 +1,364 @@
+package instance;
+
+import general.BufferColumn;
+import general.FixedPointColumn;
+import general.FloatColumn;
+import general.QoSAttribute;
+import general.QoSColumn;
+import general.QoSStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes QoS attributes in a versioned binary format, which can be
+ * memory-mapped instead of parsed. All the numbers are little-endian, and the
+ * file is laid out as follows:
+ * 
+ * - The header: the magic number "WSQS", the format version, the number of
+ * abstract services, the number of attributes, the storage mode of the values
+ * (see QoSStore) and a reserved zero, as 32-bit integers;
+ * 
+ * - The aggregation method of each attribute, as 32-bit integers, padded to a
+ * multiple of 8 bytes;
+ * 
+ * - The weight of each attribute, as doubles;
+ * 
+ * - The offsets table, i.e. the offset of the first concrete service of each
+ * abstract service followed by the total number of concrete services, as
+ * 32-bit integers, padded to a multiple of 8 bytes;
+ * 
+ * - One block of values for each attribute, laid out according to the offsets
+ * table, as doubles, floats or 16-bit unsigned fixed-point numbers, depending
+ * on the storage mode. Each block is padded to a multiple of 8 bytes.
+ * 
+ * Version 1 files, which have no storage mode in the header and always store
+ * doubles, can still be read.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class BinaryInstance {
+
+	/**
+	 * The magic number at the beginning of every file ("WSQS").
+	 */
+	public static final int MAGIC = 0x53515357;
+
+	/**
+	 * The current version of the format.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The size of the fixed part of the header, in bytes.
+	 */
+	private static final int HEADER_SIZE = 24;
+
+	/**
+	 * The size of the fixed part of the header of version 1 files, in bytes.
+	 */
+	private static final int VERSION_1_HEADER_SIZE = 16;
+
+	/**
+	 * Writes the given attributes to a file, storing their values as doubles.
+	 * All of them must have the same shape.
+	 * 
+	 * @param path
+	 *            The file to be written.
+	 * @param attributes
+	 *            The attributes to be written.
+	 * @throws IOException
+	 *             If the file can't be written.
+	 */
+	public static void write(Path path, QoSAttribute[] attributes)
+			throws IOException {
+		write(path, attributes, QoSStore.STORAGE_DOUBLE);
+	}
+
+	/**
+	 * Writes the given attributes to a file. All of them must have the same
+	 * shape.
+	 * 
+	 * @param path
+	 *            The file to be written.
+	 * @param attributes
+	 *            The attributes to be written.
+	 * @param storageMode
+	 *            How the values are stored: one of QoSStore.STORAGE_DOUBLE,
+	 *            QoSStore.STORAGE_FLOAT and QoSStore.STORAGE_FIXED_POINT.
+	 * @throws IOException
+	 *             If the file can't be written.
+	 */
+	public static void write(Path path, QoSAttribute[] attributes,
+			int storageMode) throws IOException {
+		int[] offsets = attributes[0].getOffsets();
+		int noAbstractServices = offsets.length - 1;
+		int total = offsets[noAbstractServices];
+		int elementSize = getElementSize(storageMode);
+
+		ByteBuffer header = ByteBuffer.allocate(
+				(int) getValuesPosition(HEADER_SIZE, noAbstractServices,
+						attributes.length)).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(noAbstractServices)
+				.putInt(attributes.length).putInt(storageMode).putInt(0);
+		for (QoSAttribute attribute : attributes) {
+			header.putInt(attribute.getAggregationMethod());
+		}
+		header.position(align(header.position()));
+		for (QoSAttribute attribute : attributes) {
+			header.putDouble(attribute.getWeight());
+		}
+		for (int offset : offsets) {
+			header.putInt(offset);
+		}
+		header.position(header.capacity());
+		header.flip();
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			writeFully(channel, header);
+
+			ByteBuffer block = ByteBuffer.allocate(8 * 8192).order(
+					ByteOrder.LITTLE_ENDIAN);
+			long padding = getBlockSize(total, elementSize) - (long) total
+					* elementSize;
+			for (QoSAttribute attribute : attributes) {
+				QoSColumn column = attribute.getColumn();
+				for (int k = 0; k < total + padding; k++) {
+					if (!block.hasRemaining()) {
+						block.flip();
+						writeFully(channel, block);
+						block.clear();
+					}
+					if (k >= total) {
+						block.put((byte) 0);
+					} else if (storageMode == QoSStore.STORAGE_DOUBLE) {
+						block.putDouble(column.get(k));
+					} else if (storageMode == QoSStore.STORAGE_FLOAT) {
+						block.putFloat((float) column.get(k));
+					} else {
+						block.putChar(FixedPointColumn.quantize(column.get(k)));
+					}
+				}
+			}
+			block.flip();
+			writeFully(channel, block);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Maps a file into memory and returns its attributes, as views over the
+	 * mapped values. Nothing is copied into the heap, and the values aren't
+	 * checked, since they were already checked when the file was written. The
+	 * header is checked, though: the offsets must start at 0, grow strictly,
+	 * and end at a total that fits in the file.
+	 * 
+	 * @param path
+	 *            The file to be mapped.
+	 * @return The attributes stored in the file.
+	 * @throws IOException
+	 *             If the file can't be read or isn't in this format.
+	 */
+	public static QoSAttribute[] map(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if (channel.size() < VERSION_1_HEADER_SIZE) {
+				throw new IOException(path + " isn't a QoS instance file.");
+			}
+			ByteBuffer fixedHeader = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, VERSION_1_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (fixedHeader.getInt(0) != MAGIC) {
+				throw new IOException(path + " isn't a QoS instance file.");
+			}
+			int version = fixedHeader.getInt(4);
+			if (version != 1 && version != VERSION) {
+				throw new IOException(String.format(
+						"Unsupported format version %d.", version));
+			}
+			int noAbstractServices = fixedHeader.getInt(8);
+			int noAttributes = fixedHeader.getInt(12);
+			if (noAbstractServices < 1 || noAttributes < 1) {
+				throw new IOException(path + " has an invalid header.");
+			}
+			int headerSize = (version == 1) ? VERSION_1_HEADER_SIZE
+					: HEADER_SIZE;
+
+			long valuesPosition = getValuesPosition(headerSize,
+					noAbstractServices, noAttributes);
+			if (channel.size() < valuesPosition) {
+				throw new IOException(path + " is truncated.");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					valuesPosition).order(ByteOrder.LITTLE_ENDIAN);
+
+			int storageMode = (version == 1) ? QoSStore.STORAGE_DOUBLE
+					: header.getInt(16);
+			if (storageMode != QoSStore.STORAGE_DOUBLE
+					&& storageMode != QoSStore.STORAGE_FLOAT
+					&& storageMode != QoSStore.STORAGE_FIXED_POINT) {
+				throw new IOException(String.format(
+						"Unsupported storage mode %d.", storageMode));
+			}
+			int elementSize = getElementSize(storageMode);
+
+			int[] aggregationMethods = new int[noAttributes];
+			header.position(headerSize);
+			for (int attr = 0; attr < noAttributes; attr++) {
+				aggregationMethods[attr] = header.getInt();
+			}
+			header.position(align(header.position()));
+			double[] weights = new double[noAttributes];
+			for (int attr = 0; attr < noAttributes; attr++) {
+				weights[attr] = header.getDouble();
+			}
+			int[] offsets = new int[noAbstractServices + 1];
+			for (int i = 0; i <= noAbstractServices; i++) {
+				offsets[i] = header.getInt();
+			}
+			if (offsets[0] != 0) {
+				throw new IOException(path
+						+ " has an invalid offsets table: it doesn't start at 0.");
+			}
+			for (int i = 0; i < noAbstractServices; i++) {
+				if (offsets[i + 1] <= offsets[i]) {
+					throw new IOException(String.format(
+							"%s has an invalid offsets table: abstract service %d"
+									+ " has no concrete services.", path, i));
+				}
+			}
+
+			long blockSize = getBlockSize(offsets[noAbstractServices],
+					elementSize);
+			if (blockSize > Integer.MAX_VALUE) {
+				throw new IOException(
+						"Attribute blocks larger than 2 GB can't be mapped.");
+			}
+			if (channel.size() < valuesPosition + noAttributes * blockSize) {
+				throw new IOException(String.format(
+						"%s is truncated: the offsets table has %d concrete"
+								+ " services.", path, offsets[noAbstractServices]));
+			}
+
+			QoSColumn[] columns = new QoSColumn[noAttributes];
+			for (int attr = 0; attr < noAttributes; attr++) {
+				ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY,
+						valuesPosition + attr * blockSize, blockSize).order(
+						ByteOrder.LITTLE_ENDIAN);
+				if (storageMode == QoSStore.STORAGE_DOUBLE) {
+					columns[attr] = new BufferColumn(block.asDoubleBuffer());
+				} else if (storageMode == QoSStore.STORAGE_FLOAT) {
+					columns[attr] = new FloatColumn(block.asFloatBuffer());
+				} else {
+					columns[attr] = new FixedPointColumn(block.asCharBuffer());
+				}
+			}
+
+			return QoSAttribute.fromStore(new QoSStore(offsets, columns),
+					aggregationMethods, weights);
+		} finally {
+			/* Mappings remain valid after the channel is closed. */
+			channel.close();
+		}
+	}
+
+	/**
+	 * Computes where the value blocks start.
+	 * 
+	 * @param headerSize
+	 *            The size of the fixed part of the header.
+	 * @param noAbstractServices
+	 *            The number of abstract services.
+	 * @param noAttributes
+	 *            The number of attributes.
+	 * @return The position of the first value block.
+	 */
+	private static long getValuesPosition(int headerSize,
+			int noAbstractServices, int noAttributes) {
+		long position = align(headerSize + 4L * noAttributes);
+		position += 8L * noAttributes;
+		return align(position + 4L * (noAbstractServices + 1));
+	}
+
+	/**
+	 * Computes the size of a value block, including its padding.
+	 * 
+	 * @param noValues
+	 *            The number of values in the block.
+	 * @param elementSize
+	 *            The size of each value, in bytes.
+	 * @return The size of the block, in bytes.
+	 */
+	private static long getBlockSize(int noValues, int elementSize) {
+		return align((long) noValues * elementSize);
+	}
+
+	/**
+	 * Returns the size of each stored value.
+	 * 
+	 * @param storageMode
+	 *            The storage mode of the values.
+	 * @return The size of each value, in bytes.
+	 * @throws IllegalArgumentException
+	 *             If the storage mode is unknown.
+	 */
+	private static int getElementSize(int storageMode) {
+		switch (storageMode) {
+		case QoSStore.STORAGE_DOUBLE:
+			return 8;
+		case QoSStore.STORAGE_FLOAT:
+			return 4;
+		case QoSStore.STORAGE_FIXED_POINT:
+			return 2;
+		default:
+			throw new IllegalArgumentException("Unknown storage mode: "
+					+ storageMode);
+		}
+	}
+
+	/**
+	 * Rounds a position up to a multiple of 8 bytes.
+	 * 
+	 * @param position
+	 *            The position to be aligned.
+	 * @return The aligned position.
+	 */
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	/**
+	 * Rounds a position up to a multiple of 8 bytes.
+	 * 
+	 * @param position
+	 *            The position to be aligned.
+	 * @return The aligned position.
+	 */
+	private static int align(int position) {
+		return (position + 7) & ~7;
+	}
+
+	/**
+	 * Writes the whole content of a buffer to a channel.
+	 * 
+	 * @param channel
+	 *            The channel to be written.
+	 * @param buffer
+	 *            The buffer to be written.
+	 * @throws IOException
+	 *             If the channel can't be written.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package instance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import general.FixedPointColumn;
+import general.QoSAttribute;
+import general.QoSStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class BinaryInstanceTest {
+
+	/*
+	 * Where the offsets table of a version 2 file with three attributes
+	 * starts: the fixed header and the aggregation methods, aligned, then the
+	 * weights.
+	 */
+	private static final int OFFSETS_POSITION = 64;
+
+	private static QoSAttribute[] createAttributes() {
+		return new InstanceGenerator(5).generateAttributes(6, 1, 9, new int[] {
+				QoSAttribute.AGGREGATE_BY_SUM,
+				QoSAttribute.AGGREGATE_BY_AVERAGE,
+				QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] { 0.2, 0.3,
+				0.5 }, InstanceGenerator.CORRELATION_INDEPENDENT);
+	}
+
+	private static void putInt(Path path, long position, int value)
+			throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(4).order(
+					ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(value).flip();
+			channel.write(buffer, position);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static void assertRejected(Path path) {
+		try {
+			BinaryInstance.map(path);
+			fail("Mapped an invalid file.");
+		} catch (IOException e) {
+			/* Expected. */
+		}
+	}
+
+	/* Writing and mapping a file keeps the instance, in every storage mode. */
+
+	@Test
+	public void test0() throws IOException {
+		QoSAttribute[] expected = createAttributes();
+		Path path = Files.createTempFile("instance", ".qos");
+		try {
+			for (int storageMode : new int[] { QoSStore.STORAGE_DOUBLE,
+					QoSStore.STORAGE_FLOAT, QoSStore.STORAGE_FIXED_POINT }) {
+				BinaryInstance.write(path, expected, storageMode);
+				QoSAttribute[] attributes = BinaryInstance.map(path);
+
+				assertEquals(expected.length, attributes.length);
+				double tolerance = storageMode == QoSStore.STORAGE_DOUBLE ? 0
+						: FixedPointColumn.MAXIMUM_ERROR;
+				for (int attr = 0; attr < expected.length; attr++) {
+					assertArrayEquals(expected[attr].getOffsets(),
+							attributes[attr].getOffsets());
+					assertEquals(expected[attr].getAggregationMethod(),
+							attributes[attr].getAggregationMethod());
+					assertEquals(expected[attr].getWeight(),
+							attributes[attr].getWeight(), 0);
+					assertEquals(storageMode, QoSStore
+							.getStorageMode(attributes[attr].getColumn()));
+					for (int k = 0; k < expected[attr].getColumn().size(); k++) {
+						assertEquals(expected[attr].getColumn().get(k),
+								attributes[attr].getColumn().get(k), tolerance);
+					}
+				}
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	/* Corrupted headers and offsets tables are rejected when mapping. */
+
+	@Test
+	public void test1() throws IOException {
+		QoSAttribute[] attributes = createAttributes();
+		int[] offsets = attributes[0].getOffsets();
+		int last = offsets.length - 1;
+		int[][] corruptions = { { 8, 0 }, { OFFSETS_POSITION, 1 },
+				{ OFFSETS_POSITION + 4, 0 },
+				{ OFFSETS_POSITION + 8, offsets[1] },
+				{ OFFSETS_POSITION + 4 * last, offsets[last] + 1000 } };
+
+		Path path = Files.createTempFile("instance", ".qos");
+		try {
+			BinaryInstance.write(path, attributes);
+			BinaryInstance.map(path);
+
+			for (int[] corruption : corruptions) {
+				BinaryInstance.write(path, attributes);
+				putInt(path, corruption[0], corruption[1]);
+				assertRejected(path);
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,548 @@
+package instance;
+
+import general.DoubleColumn;
+import general.QoSAttribute;
+import general.QoSColumn;
+import general.QoSStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import bb.Simplex;
+
+/**
+ * Generates synthetic composition problems, deterministically from a seed, so
+ * that stress inputs can be reproduced. The QoS values of a concrete service
+ * follow the usual distributions of skyline benchmarks:
+ * 
+ * - CORRELATION_INDEPENDENT: every value is uniform between 0 and 1;
+ * 
+ * - CORRELATION_CORRELATED: the values of a service are spread around a common
+ * quality level, so a service that is good in one attribute tends to be good
+ * in the others;
+ * 
+ * - CORRELATION_ANTI_CORRELATED: the values of a service lie close to a plane
+ * where their sum is constant, so a service that is good in one attribute
+ * tends to be bad in the others. These are the hardest instances, since few
+ * services dominate each other.
+ * 
+ * It can also generate edge weights for Dynamic Programming, with some of the
+ * edges missing, and constraints for WscHelper with a chosen tightness. The
+ * main() method is a command line interface that writes the generated
+ * instance to files.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class InstanceGenerator {
+
+	/* The possible correlations between the attributes. */
+	public static final int CORRELATION_INDEPENDENT = 0x00;
+	public static final int CORRELATION_CORRELATED = 0x01;
+	public static final int CORRELATION_ANTI_CORRELATED = 0x02;
+
+	/**
+	 * The standard deviation of the quality level of correlated services.
+	 */
+	private static final double LEVEL_DEVIATION = 0.25;
+
+	/**
+	 * The standard deviation of the quality level of anti-correlated
+	 * services.
+	 */
+	private static final double PLANE_DEVIATION = 0.05;
+
+	/**
+	 * The standard deviation of each value around the quality level of a
+	 * correlated service.
+	 */
+	private static final double NOISE_DEVIATION = 0.05;
+
+	/**
+	 * The source of randomness.
+	 */
+	private Random mRandom;
+
+	/**
+	 * Creates a generator.
+	 * 
+	 * @param seed
+	 *            The seed. The same seed always generates the same instances.
+	 */
+	public InstanceGenerator(long seed) {
+		mRandom = new Random(seed);
+	}
+
+	/**
+	 * Generates the QoS values of an instance.
+	 * 
+	 * @param noAbstractServices
+	 *            The number of abstract services.
+	 * @param minConcreteServices
+	 *            The minimum number of concrete services of each abstract
+	 *            service.
+	 * @param maxConcreteServices
+	 *            The maximum number of concrete services of each abstract
+	 *            service.
+	 * @param noAttributes
+	 *            The number of attributes.
+	 * @param correlation
+	 *            One of CORRELATION_INDEPENDENT, CORRELATION_CORRELATED and
+	 *            CORRELATION_ANTI_CORRELATED.
+	 * @return A store containing the values.
+	 */
+	public QoSStore generateStore(int noAbstractServices,
+			int minConcreteServices, int maxConcreteServices,
+			int noAttributes, int correlation) {
+		if (minConcreteServices < 1
+				|| maxConcreteServices < minConcreteServices) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid number of concrete services: %d to %d.",
+					minConcreteServices, maxConcreteServices));
+		}
+		if (correlation != CORRELATION_INDEPENDENT
+				&& correlation != CORRELATION_CORRELATED
+				&& correlation != CORRELATION_ANTI_CORRELATED) {
+			throw new IllegalArgumentException("Unknown correlation: "
+					+ correlation);
+		}
+
+		int[] offsets = new int[noAbstractServices + 1];
+		for (int i = 0; i < noAbstractServices; i++) {
+			offsets[i + 1] = offsets[i] + minConcreteServices
+					+ mRandom.nextInt(maxConcreteServices - minConcreteServices
+							+ 1);
+		}
+
+		int total = offsets[noAbstractServices];
+		double[][] values = new double[noAttributes][total];
+		double[] service = new double[noAttributes];
+		for (int k = 0; k < total; k++) {
+			generateService(service, correlation);
+			for (int attr = 0; attr < noAttributes; attr++) {
+				values[attr][k] = service[attr];
+			}
+		}
+
+		QoSColumn[] columns = new QoSColumn[noAttributes];
+		for (int attr = 0; attr < noAttributes; attr++) {
+			columns[attr] = new DoubleColumn(values[attr]);
+		}
+		return new QoSStore(offsets, columns);
+	}
+
+	/**
+	 * Generates the attributes of an instance, with the given aggregation
+	 * methods and weights.
+	 * 
+	 * @param noAbstractServices
+	 *            The number of abstract services.
+	 * @param minConcreteServices
+	 *            The minimum number of concrete services of each abstract
+	 *            service.
+	 * @param maxConcreteServices
+	 *            The maximum number of concrete services of each abstract
+	 *            service.
+	 * @param aggregationMethods
+	 *            The aggregation method of each attribute.
+	 * @param weights
+	 *            The weight of each attribute.
+	 * @param correlation
+	 *            One of CORRELATION_INDEPENDENT, CORRELATION_CORRELATED and
+	 *            CORRELATION_ANTI_CORRELATED.
+	 * @return The attributes.
+	 */
+	public QoSAttribute[] generateAttributes(int noAbstractServices,
+			int minConcreteServices, int maxConcreteServices,
+			int[] aggregationMethods, double[] weights, int correlation) {
+		return QoSAttribute.fromStore(
+				generateStore(noAbstractServices, minConcreteServices,
+						maxConcreteServices, aggregationMethods.length,
+						correlation), aggregationMethods, weights);
+	}
+
+	/**
+	 * Generates the values of a single concrete service.
+	 * 
+	 * @param service
+	 *            The vector where the values are stored.
+	 * @param correlation
+	 *            The correlation between the attributes.
+	 */
+	private void generateService(double[] service, int correlation) {
+		int noAttributes = service.length;
+
+		switch (correlation) {
+		case CORRELATION_CORRELATED:
+			double level = clamp(0.5 + LEVEL_DEVIATION * mRandom.nextGaussian());
+			for (int attr = 0; attr < noAttributes; attr++) {
+				service[attr] = clamp(level + NOISE_DEVIATION
+						* mRandom.nextGaussian());
+			}
+			break;
+		case CORRELATION_ANTI_CORRELATED:
+			double plane = clamp(0.5 + PLANE_DEVIATION * mRandom.nextGaussian());
+			double mean = 0;
+			for (int attr = 0; attr < noAttributes; attr++) {
+				service[attr] = 2 * mRandom.nextDouble() - 1;
+				mean += service[attr] / noAttributes;
+			}
+			/*
+			 * The deviations from the plane sum to zero, so a value above it
+			 * is compensated by the others.
+			 */
+			double spread = Math.min(plane, 1 - plane);
+			for (int attr = 0; attr < noAttributes; attr++) {
+				service[attr] = clamp(plane + spread * (service[attr] - mean));
+			}
+			break;
+		default:
+			for (int attr = 0; attr < noAttributes; attr++) {
+				service[attr] = mRandom.nextDouble();
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Clamps a value between 0 and 1.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @return The clamped value.
+	 */
+	private static double clamp(double value) {
+		return Math.max(0, Math.min(1, value));
+	}
+
+	/**
+	 * Generates the edge weights of an instance for Dynamic Programming. Each
+	 * weight is uniform between 0 and 1, or NaN (a missing edge) with
+	 * probability sparsity. Every concrete service keeps at least one edge to
+	 * the next abstract service, so there are no dead ends.
+	 * 
+	 * @param offsets
+	 *            The offsets table of the instance.
+	 * @param sparsity
+	 *            The probability of each edge being missing, between 0 and 1.
+	 * @return The weight of each edge, indexed by origin level, origin concrete
+	 *         service and destination concrete service.
+	 */
+	public double[][][] generateEdgesWeights(int[] offsets, double sparsity) {
+		if (!(sparsity >= 0 && sparsity <= 1)) {
+			throw new IllegalArgumentException("Invalid sparsity: " + sparsity);
+		}
+
+		int noAbstractServices = offsets.length - 1;
+		double[][][] weights = new double[Math.max(0, noAbstractServices - 1)][][];
+		for (int i = 0; i < weights.length; i++) {
+			int noOrigins = offsets[i + 1] - offsets[i];
+			int noDestinations = offsets[i + 2] - offsets[i + 1];
+			weights[i] = new double[noOrigins][noDestinations];
+
+			for (int j = 0; j < noOrigins; j++) {
+				boolean hasEdge = false;
+				for (int l = 0; l < noDestinations; l++) {
+					if (mRandom.nextDouble() < sparsity) {
+						weights[i][j][l] = Double.NaN;
+					} else {
+						weights[i][j][l] = mRandom.nextDouble();
+						hasEdge = true;
+					}
+				}
+				if (!hasEdge) {
+					weights[i][j][mRandom.nextInt(noDestinations)] = mRandom
+							.nextDouble();
+				}
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Returns the right-hand term of a Simplex.GTE constraint over the
+	 * aggregated value of an attribute, with the given tightness. The
+	 * aggregated value of a linear attribute ranges from the sum of the worst
+	 * values of each abstract service to the sum of the best ones (divided by
+	 * the number of abstract services, for averages), and the bound lies at
+	 * the given fraction of that range. A single constraint with a tightness of
+	 * at most 1 can always be satisfied, but several ones together may not.
+	 * 
+	 * @param attribute
+	 *            The attribute. It must be aggregated by sum or by average.
+	 * @param tightness
+	 *            The tightness, between 0 (always satisfied) and 1 (only the
+	 *            best concrete service of each abstract service satisfies it).
+	 * @return The right-hand term of the constraint.
+	 */
+	public static double getConstraintBound(QoSAttribute attribute,
+			double tightness) {
+		int method = attribute.getAggregationMethod();
+		if (method != QoSAttribute.AGGREGATE_BY_SUM
+				&& method != QoSAttribute.AGGREGATE_BY_AVERAGE) {
+			throw new IllegalArgumentException(
+					"Non-linear aggregation function.");
+		}
+
+		double min = 0;
+		double max = 0;
+		int noAbstractServices = attribute.getNoAbstractServices();
+		for (int i = 0; i < noAbstractServices; i++) {
+			double serviceMin = Double.POSITIVE_INFINITY;
+			double serviceMax = Double.NEGATIVE_INFINITY;
+			for (int j = 0; j < attribute.getNoConcreteServices(i); j++) {
+				serviceMin = Math.min(serviceMin, attribute.getValue(i, j));
+				serviceMax = Math.max(serviceMax, attribute.getValue(i, j));
+			}
+			min += serviceMin;
+			max += serviceMax;
+		}
+		if (method == QoSAttribute.AGGREGATE_BY_AVERAGE) {
+			min /= noAbstractServices;
+			max /= noAbstractServices;
+		}
+
+		return min + tightness * (max - min);
+	}
+
+	/**
+	 * Writes edge weights as CSV, one "level,origin,destination,weight" line
+	 * per existing edge. Missing edges are omitted.
+	 * 
+	 * @param writer
+	 *            The output. It isn't closed.
+	 * @param weights
+	 *            The edge weights.
+	 * @throws IOException
+	 *             If the output can't be written.
+	 */
+	public static void writeEdgesWeights(Writer writer, double[][][] weights)
+			throws IOException {
+		writer.write("level,origin,destination,weight\n");
+		for (int i = 0; i < weights.length; i++) {
+			for (int j = 0; j < weights[i].length; j++) {
+				for (int l = 0; l < weights[i][j].length; l++) {
+					if (!Double.isNaN(weights[i][j][l])) {
+						writer.write(i + "," + j + "," + l + ","
+								+ weights[i][j][l] + "\n");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses an aggregation method given on the command line.
+	 * 
+	 * @param name
+	 *            One of "sum", "avg" and "prod".
+	 * @return The aggregation method.
+	 */
+	private static int parseAggregationMethod(String name) {
+		if (name.equals("sum")) {
+			return QoSAttribute.AGGREGATE_BY_SUM;
+		} else if (name.equals("avg")) {
+			return QoSAttribute.AGGREGATE_BY_AVERAGE;
+		} else if (name.equals("prod")) {
+			return QoSAttribute.AGGREGATE_BY_PRODUCT;
+		}
+		throw new IllegalArgumentException("Unknown aggregation method: "
+				+ name);
+	}
+
+	/**
+	 * Parses a correlation given on the command line.
+	 * 
+	 * @param name
+	 *            One of "independent", "correlated" and "anti".
+	 * @return The correlation.
+	 */
+	private static int parseCorrelation(String name) {
+		if (name.equals("independent")) {
+			return CORRELATION_INDEPENDENT;
+		} else if (name.equals("correlated")) {
+			return CORRELATION_CORRELATED;
+		} else if (name.equals("anti")) {
+			return CORRELATION_ANTI_CORRELATED;
+		}
+		throw new IllegalArgumentException("Unknown correlation: " + name);
+	}
+
+	/**
+	 * Parses a storage mode given on the command line.
+	 * 
+	 * @param name
+	 *            One of "double", "float" and "fixed".
+	 * @return The storage mode.
+	 */
+	private static int parseStorageMode(String name) {
+		if (name.equals("double")) {
+			return QoSStore.STORAGE_DOUBLE;
+		} else if (name.equals("float")) {
+			return QoSStore.STORAGE_FLOAT;
+		} else if (name.equals("fixed")) {
+			return QoSStore.STORAGE_FIXED_POINT;
+		}
+		throw new IllegalArgumentException("Unknown storage mode: " + name);
+	}
+
+	/**
+	 * Generates an instance and writes it to files. The options, given as
+	 * "--name value" pairs, are:
+	 * 
+	 * --out PREFIX (required): the prefix of the output files;
+	 * 
+	 * --seed N (default 1);
+	 * 
+	 * --abstract N (default 10): the number of abstract services;
+	 * 
+	 * --concrete MIN[-MAX] (default 10): the number of concrete services of
+	 * each abstract service;
+	 * 
+	 * --attributes LIST (default "sum,avg,prod"): the aggregation method of
+	 * each attribute, among sum, avg and prod. All the weights are equal;
+	 * 
+	 * --correlation NAME (default independent): independent, correlated or
+	 * anti;
+	 * 
+	 * --format NAME (default binary): binary, csv or json. The values are
+	 * written to PREFIX.wsqs, PREFIX.csv or PREFIX.jsonl;
+	 * 
+	 * --storage NAME (default double): double, float or fixed, for the binary
+	 * format;
+	 * 
+	 * --edges SPARSITY: also writes edge weights to PREFIX.edges.csv;
+	 * 
+	 * --constraints TIGHTNESS: also writes a Simplex.GTE constraint over each
+	 * linear attribute to PREFIX.constraints.csv, as
+	 * "attribute,relation,bound" lines.
+	 * 
+	 * @param args
+	 *            The options.
+	 * @throws IOException
+	 *             If the files can't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		String out = null;
+		long seed = 1;
+		int noAbstractServices = 10;
+		int minConcreteServices = 10;
+		int maxConcreteServices = 10;
+		String[] methodNames = { "sum", "avg", "prod" };
+		int correlation = CORRELATION_INDEPENDENT;
+		String format = "binary";
+		int storageMode = QoSStore.STORAGE_DOUBLE;
+		double sparsity = Double.NaN;
+		double tightness = Double.NaN;
+
+		for (int a = 0; a < args.length; a += 2) {
+			if (a + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value of "
+						+ args[a]);
+			}
+			String value = args[a + 1];
+
+			if (args[a].equals("--out")) {
+				out = value;
+			} else if (args[a].equals("--seed")) {
+				seed = Long.parseLong(value);
+			} else if (args[a].equals("--abstract")) {
+				noAbstractServices = Integer.parseInt(value);
+			} else if (args[a].equals("--concrete")) {
+				int dash = value.indexOf('-');
+				minConcreteServices = Integer.parseInt(dash < 0 ? value
+						: value.substring(0, dash));
+				maxConcreteServices = dash < 0 ? minConcreteServices : Integer
+						.parseInt(value.substring(dash + 1));
+			} else if (args[a].equals("--attributes")) {
+				methodNames = value.split(",");
+			} else if (args[a].equals("--correlation")) {
+				correlation = parseCorrelation(value);
+			} else if (args[a].equals("--format")) {
+				format = value;
+			} else if (args[a].equals("--storage")) {
+				storageMode = parseStorageMode(value);
+			} else if (args[a].equals("--edges")) {
+				sparsity = Double.parseDouble(value);
+			} else if (args[a].equals("--constraints")) {
+				tightness = Double.parseDouble(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option: "
+						+ args[a]);
+			}
+		}
+
+		if (out == null) {
+			System.err
+					.println("Usage: InstanceGenerator --out PREFIX [--seed N] [--abstract N] [--concrete MIN[-MAX]] [--attributes sum,avg,prod] [--correlation independent|correlated|anti] [--format binary|csv|json] [--storage double|float|fixed] [--edges SPARSITY] [--constraints TIGHTNESS]");
+			System.exit(2);
+		}
+
+		int[] methods = new int[methodNames.length];
+		double[] weights = new double[methodNames.length];
+		for (int attr = 0; attr < methods.length; attr++) {
+			methods[attr] = parseAggregationMethod(methodNames[attr].trim());
+			weights[attr] = 1.0 / methods.length;
+		}
+
+		InstanceGenerator generator = new InstanceGenerator(seed);
+		QoSAttribute[] attributes = generator.generateAttributes(
+				noAbstractServices, minConcreteServices, maxConcreteServices,
+				methods, weights, correlation);
+
+		if (format.equals("binary")) {
+			BinaryInstance.write(Paths.get(out + ".wsqs"), attributes,
+					storageMode);
+		} else if (format.equals("csv") || format.equals("json")) {
+			boolean isCsv = format.equals("csv");
+			Path path = Paths.get(out + (isCsv ? ".csv" : ".jsonl"));
+			BufferedWriter writer = Files.newBufferedWriter(path,
+					StandardCharsets.UTF_8);
+			try {
+				TextInstanceWriter.write(writer, attributes[0].getStore(),
+						isCsv ? TextInstanceReader.FORMAT_CSV
+								: TextInstanceReader.FORMAT_JSON_LINES);
+			} finally {
+				writer.close();
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown format: " + format);
+		}
+
+		if (!Double.isNaN(sparsity)) {
+			double[][][] edges = generator.generateEdgesWeights(
+					attributes[0].getOffsets(), sparsity);
+			BufferedWriter writer = Files.newBufferedWriter(
+					Paths.get(out + ".edges.csv"), StandardCharsets.UTF_8);
+			try {
+				writeEdgesWeights(writer, edges);
+			} finally {
+				writer.close();
+			}
+		}
+
+		if (!Double.isNaN(tightness)) {
+			BufferedWriter writer = Files.newBufferedWriter(
+					Paths.get(out + ".constraints.csv"),
+					StandardCharsets.UTF_8);
+			try {
+				writer.write("attribute,relation,bound\n");
+				for (int attr = 0; attr < attributes.length; attr++) {
+					if (methods[attr] != QoSAttribute.AGGREGATE_BY_PRODUCT) {
+						writer.write(attr + "," + Simplex.GTE + ","
+								+ getConstraintBound(attributes[attr], tightness)
+								+ "\n");
+					}
+				}
+			} finally {
+				writer.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package instance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import general.QoSAttribute;
+import general.QoSStore;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class InstanceGeneratorTest {
+
+	/* The same seed generates the same instance. */
+
+	@Test
+	public void test0() {
+		QoSStore store1 = new InstanceGenerator(7).generateStore(5, 3, 8, 3,
+				InstanceGenerator.CORRELATION_ANTI_CORRELATED);
+		QoSStore store2 = new InstanceGenerator(7).generateStore(5, 3, 8, 3,
+				InstanceGenerator.CORRELATION_ANTI_CORRELATED);
+		assertArrayEquals(store1.getOffsets(), store2.getOffsets());
+		for (int attr = 0; attr < 3; attr++) {
+			for (int k = 0; k < store1.getTotalNoConcreteServices(); k++) {
+				assertEquals(store1.getColumn(attr).get(k),
+						store2.getColumn(attr).get(k), 0);
+			}
+		}
+	}
+
+	/* Correlated and anti-correlated attributes. */
+
+	@Test
+	public void test1() {
+		assertTrue(correlation(InstanceGenerator.CORRELATION_CORRELATED) > 0.5);
+		assertTrue(correlation(InstanceGenerator.CORRELATION_ANTI_CORRELATED) < -0.5);
+		assertEquals(correlation(InstanceGenerator.CORRELATION_INDEPENDENT),
+				0, 0.1);
+	}
+
+	/* Edges are missing, but there are no dead ends. */
+
+	@Test
+	public void test2() {
+		int[] offsets = { 0, 4, 9, 12 };
+		double[][][] edges = new InstanceGenerator(3).generateEdgesWeights(
+				offsets, 0.9);
+		assertEquals(edges.length, 2);
+		assertEquals(edges[1].length, 5);
+		assertEquals(edges[1][0].length, 3);
+		for (double[][] level : edges) {
+			for (double[] origin : level) {
+				boolean hasEdge = false;
+				for (double weight : origin) {
+					hasEdge |= !Double.isNaN(weight);
+				}
+				assertTrue(hasEdge);
+			}
+		}
+	}
+
+	/* Constraint bounds. */
+
+	@Test
+	public void test3() {
+		QoSAttribute[] attributes = new InstanceGenerator(5)
+				.generateAttributes(4, 2, 6, new int[] {
+						QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE }, new double[] {
+						0.5, 0.5 }, InstanceGenerator.CORRELATION_INDEPENDENT);
+		for (QoSAttribute attribute : attributes) {
+			double best = InstanceGenerator.getConstraintBound(attribute, 1);
+			double worst = InstanceGenerator.getConstraintBound(attribute, 0);
+			double middle = InstanceGenerator.getConstraintBound(attribute,
+					0.5);
+			assertTrue(worst <= middle && middle <= best);
+			assertEquals(middle, (worst + best) / 2, 1e-12);
+		}
+		assertFalse(InstanceGenerator.getConstraintBound(attributes[1], 1) > 1);
+	}
+
+	/* Text output can be read back exactly. */
+
+	@Test
+	public void test4() throws IOException {
+		QoSStore store = new InstanceGenerator(11).generateStore(3, 1, 4, 2,
+				InstanceGenerator.CORRELATION_CORRELATED);
+		for (int format : new int[] { TextInstanceReader.FORMAT_CSV,
+				TextInstanceReader.FORMAT_JSON_LINES }) {
+			StringWriter writer = new StringWriter();
+			TextInstanceWriter.write(writer, store, format);
+			QoSStore read = new TextInstanceReader(format, 2)
+					.read(new StringReader(writer.toString()));
+			assertArrayEquals(read.getOffsets(), store.getOffsets());
+			for (int k = 0; k < store.getTotalNoConcreteServices(); k++) {
+				assertEquals(read.getColumn(1).get(k),
+						store.getColumn(1).get(k), 0);
+			}
+		}
+	}
+
+	/**
+	 * Returns the sample correlation between the first two attributes of a
+	 * generated instance.
+	 */
+	private static double correlation(int correlation) {
+		QoSStore store = new InstanceGenerator(1).generateStore(1, 2000,
+				2000, 2, correlation);
+		int n = store.getTotalNoConcreteServices();
+		double sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+		for (int k = 0; k < n; k++) {
+			double x = store.getColumn(0).get(k);
+			double y = store.getColumn(1).get(k);
+			sx += x;
+			sy += y;
+			sxx += x * x;
+			syy += y * y;
+			sxy += x * y;
+		}
+		double cov = sxy / n - sx / n * sy / n;
+		return cov
+				/ Math.sqrt((sxx / n - sx / n * sx / n)
+						* (syy / n - sy / n * sy / n));
+	}
+}
@@ -0,0 +1,824 @@
+package instance;
+
+import general.DoubleColumn;
+import general.DoubleComparator;
+import general.FixedPointColumn;
+import general.FloatColumn;
+import general.QoSAttribute;
+import general.QoSColumn;
+import general.QoSStore;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Imports QoS values from text exports in a single streaming pass. Each record
+ * holds the QoS values of one concrete service, and the records of each
+ * abstract service must be contiguous, with the abstract services in
+ * increasing order, starting at 0. The concrete services are numbered in the
+ * order they appear. Two formats are accepted:
+ * 
+ * - FORMAT_CSV: one record per line, as "abstractService,value1,...,valueN".
+ * Empty lines and lines starting with '#' are skipped. The first record line
+ * is taken as a header, and skipped, if its first field isn't an index, i.e.
+ * a sequence of digits;
+ * 
+ * - FORMAT_JSON_LINES: one object per line, as {"abstract": 0, "qos": [value1,
+ * ..., valueN]}.
+ * 
+ * The values are parsed straight into fixed-size chunks of primitive arrays,
+ * one list of chunks for each attribute, and checked to be normalized between
+ * 0 and 1 as they are read, so nothing is boxed and nothing but the values
+ * themselves is kept in memory. The chunks are never copied while the input is
+ * read, and each one is released as soon as it's copied into the final column,
+ * so the peak memory stays close to the size of the values.
+ * 
+ * Malformed input, including values out of range, raises an IOException that
+ * reports the line and the column where the problem was found.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class TextInstanceReader {
+
+	/* The possible formats. */
+	public static final int FORMAT_CSV = 0x00;
+	public static final int FORMAT_JSON_LINES = 0x01;
+
+	/**
+	 * The size of the input buffer, in chars.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The base-2 logarithm of the number of values in each chunk.
+	 */
+	private static final int CHUNK_BITS = 13;
+
+	/**
+	 * The number of values in each chunk.
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/**
+	 * The initial capacity of the offsets table and of the lists of chunks.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 4;
+
+	/**
+	 * The powers of ten that can be represented exactly by a double.
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * The format of the input.
+	 */
+	private int mFormat;
+
+	/**
+	 * The number of attributes in each record.
+	 */
+	private int mNoAttributes;
+
+	/**
+	 * How the values are stored once read.
+	 */
+	private int mStorageMode;
+
+	/**
+	 * The input being read.
+	 */
+	private Reader mReader;
+
+	/**
+	 * The input buffer.
+	 */
+	private char[] mBuffer;
+
+	/**
+	 * The position of the next char in the input buffer.
+	 */
+	private int mPosition;
+
+	/**
+	 * The number of chars in the input buffer.
+	 */
+	private int mLimit;
+
+	/**
+	 * The number of chars read before the input buffer.
+	 */
+	private long mBufferStart;
+
+	/**
+	 * The current line of the input, for error messages.
+	 */
+	private int mLine;
+
+	/**
+	 * The position in the input of the first char of the current line.
+	 */
+	private long mLineStart;
+
+	/**
+	 * Whether the next record is the first one, which may be a header.
+	 */
+	private boolean mIsFirstRecord;
+
+	/**
+	 * The values of the record currently being read.
+	 */
+	private double[] mRecord;
+
+	/**
+	 * The column where each value of the current record starts.
+	 */
+	private int[] mRecordColumns;
+
+	/**
+	 * The chars of the token currently being parsed.
+	 */
+	private char[] mToken;
+
+	/**
+	 * The number of chars in mToken.
+	 */
+	private int mTokenLength;
+
+	/**
+	 * The values read so far, for each attribute, as a list of chunks of
+	 * CHUNK_SIZE values.
+	 */
+	private double[][][] mChunks;
+
+	/**
+	 * The offsets table read so far.
+	 */
+	private int[] mOffsets;
+
+	/**
+	 * The number of concrete services read so far.
+	 */
+	private int mNoConcreteServices;
+
+	/**
+	 * The abstract service of the last record.
+	 */
+	private int mCurrentAbstractService;
+
+	/**
+	 * Creates a reader.
+	 * 
+	 * @param format
+	 *            Either FORMAT_CSV or FORMAT_JSON_LINES.
+	 * @param noAttributes
+	 *            The number of attributes in each record.
+	 */
+	public TextInstanceReader(int format, int noAttributes) {
+		if (format != FORMAT_CSV && format != FORMAT_JSON_LINES) {
+			throw new IllegalArgumentException("Unknown format: " + format);
+		}
+		mFormat = format;
+		mNoAttributes = noAttributes;
+		mStorageMode = QoSStore.STORAGE_DOUBLE;
+	}
+
+	/**
+	 * Sets how the values are stored once read. The values are converted when
+	 * the whole input has been read.
+	 * 
+	 * @param storageMode
+	 *            One of QoSStore.STORAGE_DOUBLE, QoSStore.STORAGE_FLOAT and
+	 *            QoSStore.STORAGE_FIXED_POINT.
+	 */
+	public void setStorageMode(int storageMode) {
+		if (storageMode != QoSStore.STORAGE_DOUBLE
+				&& storageMode != QoSStore.STORAGE_FLOAT
+				&& storageMode != QoSStore.STORAGE_FIXED_POINT) {
+			throw new IllegalArgumentException("Unknown storage mode: "
+					+ storageMode);
+		}
+		mStorageMode = storageMode;
+	}
+
+	/**
+	 * Reads a whole input and returns the attributes it contains.
+	 * 
+	 * @param reader
+	 *            The input. It isn't closed.
+	 * @param aggregationMethods
+	 *            The aggregation method of each attribute.
+	 * @param weights
+	 *            The weight of each attribute.
+	 * @return The attributes read.
+	 * @throws IOException
+	 *             If the input can't be read or is malformed.
+	 */
+	public QoSAttribute[] readAttributes(Reader reader,
+			int[] aggregationMethods, double[] weights) throws IOException {
+		return QoSAttribute.fromStore(read(reader), aggregationMethods,
+				weights);
+	}
+
+	/**
+	 * Reads a whole input and returns a store containing its values.
+	 * 
+	 * @param reader
+	 *            The input. It isn't closed.
+	 * @return The store containing the values read.
+	 * @throws IOException
+	 *             If the input can't be read or is malformed.
+	 */
+	public QoSStore read(Reader reader) throws IOException {
+		mReader = reader;
+		mBuffer = new char[BUFFER_SIZE];
+		mPosition = 0;
+		mLimit = 0;
+		mBufferStart = 0;
+		mLine = 1;
+		mLineStart = 0;
+		mIsFirstRecord = true;
+		mToken = new char[64];
+		mRecord = new double[mNoAttributes];
+		mRecordColumns = new int[mNoAttributes];
+		mChunks = new double[mNoAttributes][INITIAL_CAPACITY][];
+		mOffsets = new int[INITIAL_CAPACITY];
+		mNoConcreteServices = 0;
+		mCurrentAbstractService = -1;
+
+		try {
+			while (skipBlankLines()) {
+				if (mFormat == FORMAT_CSV) {
+					readCsvRecord();
+				} else {
+					readJsonRecord();
+				}
+				expectEndOfLine();
+			}
+		} finally {
+			mReader = null;
+			mBuffer = null;
+		}
+
+		if (mCurrentAbstractService < 0) {
+			throw new IOException("The input has no records.");
+		}
+
+		int[] offsets = Arrays.copyOf(mOffsets, mCurrentAbstractService + 2);
+		offsets[mCurrentAbstractService + 1] = mNoConcreteServices;
+
+		QoSColumn[] columns = new QoSColumn[mNoAttributes];
+		for (int attr = 0; attr < mNoAttributes; attr++) {
+			columns[attr] = toColumn(mChunks[attr]);
+			mChunks[attr] = null;
+		}
+		mChunks = null;
+		mOffsets = null;
+
+		return new QoSStore(offsets, columns);
+	}
+
+	/**
+	 * Copies the values of an attribute into a column with the storage mode
+	 * of this reader, releasing each chunk once it's copied.
+	 * 
+	 * @param chunks
+	 *            The chunks of the attribute.
+	 * @return The column.
+	 */
+	private QoSColumn toColumn(double[][] chunks) {
+		double[] doubles = null;
+		float[] floats = null;
+		char[] fixedPoints = null;
+		switch (mStorageMode) {
+		case QoSStore.STORAGE_FLOAT:
+			floats = new float[mNoConcreteServices];
+			break;
+		case QoSStore.STORAGE_FIXED_POINT:
+			fixedPoints = new char[mNoConcreteServices];
+			break;
+		default:
+			doubles = new double[mNoConcreteServices];
+			break;
+		}
+
+		for (int c = 0; (long) c * CHUNK_SIZE < mNoConcreteServices; c++) {
+			double[] chunk = chunks[c];
+			int first = c * CHUNK_SIZE;
+			int length = Math.min(CHUNK_SIZE, mNoConcreteServices - first);
+			if (doubles != null) {
+				System.arraycopy(chunk, 0, doubles, first, length);
+			} else if (floats != null) {
+				for (int k = 0; k < length; k++) {
+					floats[first + k] = (float) chunk[k];
+				}
+			} else {
+				for (int k = 0; k < length; k++) {
+					fixedPoints[first + k] = FixedPointColumn.quantize(chunk[k]);
+				}
+			}
+			chunks[c] = null;
+		}
+
+		if (floats != null) {
+			return new FloatColumn(floats);
+		} else if (fixedPoints != null) {
+			return new FixedPointColumn(fixedPoints);
+		}
+		return new DoubleColumn(doubles);
+	}
+
+	/**
+	 * Reads a CSV record, except for the line break.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read or is malformed.
+	 */
+	private void readCsvRecord() throws IOException {
+		int abstractService;
+		if (mIsFirstRecord) {
+			mIsFirstRecord = false;
+			readField();
+			abstractService = toIndex();
+			if (abstractService < 0) {
+				/* The header. */
+				int c;
+				while ((c = peek()) != -1 && c != '\n' && c != '\r') {
+					mPosition++;
+				}
+				return;
+			}
+		} else {
+			abstractService = readInt();
+		}
+
+		for (int attr = 0; attr < mNoAttributes; attr++) {
+			skipSpaces();
+			expect(',');
+			skipSpaces();
+			mRecordColumns[attr] = getColumn();
+			mRecord[attr] = readDouble();
+		}
+		skipSpaces();
+		addRecord(abstractService);
+	}
+
+	/**
+	 * Reads a JSON record, except for the line break.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read or is malformed.
+	 */
+	private void readJsonRecord() throws IOException {
+		boolean hasAbstract = false;
+		boolean hasQoS = false;
+		int abstractService = -1;
+
+		expect('{');
+		skipSpaces();
+		while (peek() != '}') {
+			if (hasAbstract || hasQoS) {
+				expect(',');
+				skipSpaces();
+			}
+
+			int keyColumn = getColumn();
+			readString();
+			skipSpaces();
+			expect(':');
+			skipSpaces();
+
+			if (tokenEquals("abstract") && !hasAbstract) {
+				abstractService = readInt();
+				hasAbstract = true;
+			} else if (tokenEquals("qos") && !hasQoS) {
+				expect('[');
+				for (int attr = 0; attr < mNoAttributes; attr++) {
+					skipSpaces();
+					if (attr > 0) {
+						expect(',');
+						skipSpaces();
+					}
+					mRecordColumns[attr] = getColumn();
+					mRecord[attr] = readDouble();
+				}
+				skipSpaces();
+				expect(']');
+				hasQoS = true;
+			} else {
+				throw error("Unexpected key \"" + new String(mToken, 0,
+						mTokenLength) + "\"", keyColumn);
+			}
+			skipSpaces();
+		}
+		expect('}');
+		skipSpaces();
+
+		if (!hasAbstract || !hasQoS) {
+			throw error("Missing \"abstract\" or \"qos\"");
+		}
+		addRecord(abstractService);
+	}
+
+	/**
+	 * Stores the values of the record just read as a new concrete service of
+	 * the given abstract service, checking them.
+	 * 
+	 * @param abstractService
+	 *            The abstract service of the record.
+	 * @throws IOException
+	 *             If the abstract services are out of order or a value is out
+	 *             of range.
+	 */
+	private void addRecord(int abstractService) throws IOException {
+		for (int attr = 0; attr < mNoAttributes; attr++) {
+			double value = mRecord[attr];
+			if (DoubleComparator.compare(value, 1d) > 0
+					|| DoubleComparator.compare(value, 0d) < 0) {
+				throw error(String.format(
+						"Value %s of attribute %d out of [0, 1]", value, attr),
+						mRecordColumns[attr]);
+			}
+		}
+
+		if (abstractService == mCurrentAbstractService + 1) {
+			mCurrentAbstractService++;
+			if (mCurrentAbstractService + 1 >= mOffsets.length) {
+				mOffsets = Arrays.copyOf(mOffsets, 2 * mOffsets.length);
+			}
+			mOffsets[mCurrentAbstractService] = mNoConcreteServices;
+		} else if (abstractService != mCurrentAbstractService) {
+			throw error(String.format(
+					"Abstract service %d out of order; expected %d or %d",
+					abstractService, mCurrentAbstractService,
+					mCurrentAbstractService + 1));
+		}
+
+		if (mNoConcreteServices == Integer.MAX_VALUE) {
+			throw error("Too many concrete services");
+		}
+		int chunk = mNoConcreteServices >>> CHUNK_BITS;
+		int index = mNoConcreteServices & (CHUNK_SIZE - 1);
+		if (index == 0) {
+			for (int attr = 0; attr < mNoAttributes; attr++) {
+				if (chunk == mChunks[attr].length) {
+					mChunks[attr] = Arrays.copyOf(mChunks[attr],
+							2 * mChunks[attr].length);
+				}
+				mChunks[attr][chunk] = new double[CHUNK_SIZE];
+			}
+		}
+
+		for (int attr = 0; attr < mNoAttributes; attr++) {
+			mChunks[attr][chunk][index] = mRecord[attr];
+		}
+		mNoConcreteServices++;
+	}
+
+	/**
+	 * Skips empty lines and comments.
+	 * 
+	 * @return False if the end of the input was reached; true otherwise.
+	 * @throws IOException
+	 *             If the input can't be read.
+	 */
+	private boolean skipBlankLines() throws IOException {
+		while (true) {
+			skipSpaces();
+			int c = peek();
+			if (c == -1) {
+				return false;
+			} else if (c == '\n' || c == '\r') {
+				expectEndOfLine();
+			} else if (c == '#') {
+				skipLine();
+			} else {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Skips the rest of the current line, including the line break.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read.
+	 */
+	private void skipLine() throws IOException {
+		int c;
+		while ((c = peek()) != -1 && c != '\n') {
+			mPosition++;
+		}
+		if (c == '\n') {
+			mPosition++;
+			newLine();
+		}
+	}
+
+	/**
+	 * Skips spaces and tabs.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read.
+	 */
+	private void skipSpaces() throws IOException {
+		int c;
+		while ((c = peek()) == ' ' || c == '\t') {
+			mPosition++;
+		}
+	}
+
+	/**
+	 * Consumes a line break, or checks that the input has ended.
+	 * 
+	 * @throws IOException
+	 *             If there's something else.
+	 */
+	private void expectEndOfLine() throws IOException {
+		int c = peek();
+		if (c == '\r') {
+			mPosition++;
+			c = peek();
+		}
+		if (c == '\n') {
+			mPosition++;
+			newLine();
+		} else if (c != -1) {
+			throw error("Expected end of line");
+		}
+	}
+
+	/**
+	 * Consumes the given char.
+	 * 
+	 * @param expected
+	 *            The expected char.
+	 * @throws IOException
+	 *             If there's another char.
+	 */
+	private void expect(char expected) throws IOException {
+		if (peek() != expected) {
+			throw error("Expected '" + expected + "'");
+		}
+		mPosition++;
+	}
+
+	/**
+	 * Reads a JSON string without escapes into mToken.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read or is malformed.
+	 */
+	private void readString() throws IOException {
+		expect('"');
+		mTokenLength = 0;
+		int c;
+		while ((c = peek()) != '"') {
+			if (c == -1 || c == '\n' || c == '\\') {
+				throw error("Unsupported string");
+			}
+			appendToToken((char) c);
+			mPosition++;
+		}
+		mPosition++;
+	}
+
+	/**
+	 * Reads a number into mToken.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read or there's no number.
+	 */
+	private void readNumberToken() throws IOException {
+		mTokenLength = 0;
+		int c;
+		while (isNumberChar(c = peek())) {
+			appendToToken((char) c);
+			mPosition++;
+		}
+		if (mTokenLength == 0) {
+			throw error("Expected a number");
+		}
+	}
+
+	/**
+	 * Reads a CSV field, i.e. everything up to the next comma, space, tab or
+	 * line break, into mToken.
+	 * 
+	 * @throws IOException
+	 *             If the input can't be read.
+	 */
+	private void readField() throws IOException {
+		mTokenLength = 0;
+		int c;
+		while ((c = peek()) != -1 && c != ',' && c != ' ' && c != '\t'
+				&& c != '\n' && c != '\r') {
+			appendToToken((char) c);
+			mPosition++;
+		}
+	}
+
+	/**
+	 * Converts mToken into a non-negative integer.
+	 * 
+	 * @return The integer, or -1 if mToken isn't a sequence of digits that
+	 *         fits in an int.
+	 */
+	private int toIndex() {
+		if (mTokenLength == 0 || mTokenLength > 10) {
+			return -1;
+		}
+		long value = 0;
+		for (int k = 0; k < mTokenLength; k++) {
+			char c = mToken[k];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = 10 * value + (c - '0');
+		}
+		return value > Integer.MAX_VALUE ? -1 : (int) value;
+	}
+
+	/**
+	 * Reads a non-negative integer.
+	 * 
+	 * @return The integer read.
+	 * @throws IOException
+	 *             If the input can't be read or there's no integer.
+	 */
+	private int readInt() throws IOException {
+		int column = getColumn();
+		readNumberToken();
+		int value = toIndex();
+		if (value < 0) {
+			throw error("Invalid index", column);
+		}
+		return value;
+	}
+
+	/**
+	 * Reads a double. Plain decimals with up to 18 significant digits and up
+	 * to 22 decimal places are converted directly, which is exact since both
+	 * the digits and the power of ten are exact doubles; anything else goes
+	 * through Double.parseDouble().
+	 * 
+	 * @return The double read.
+	 * @throws IOException
+	 *             If the input can't be read or there's no number.
+	 */
+	private double readDouble() throws IOException {
+		int column = getColumn();
+		readNumberToken();
+
+		int k = 0;
+		boolean negative = mToken[0] == '-';
+		if (negative || mToken[0] == '+') {
+			k++;
+		}
+
+		long mantissa = 0;
+		boolean hasDigits = false;
+		int noDigits = 0;
+		int scale = 0;
+		boolean seenPoint = false;
+		boolean fastPath = k < mTokenLength;
+		for (; k < mTokenLength && fastPath; k++) {
+			char c = mToken[k];
+			if (c >= '0' && c <= '9') {
+				hasDigits = true;
+				if (mantissa != 0 || c != '0') {
+					noDigits++;
+				}
+				mantissa = 10 * mantissa + (c - '0');
+				if (seenPoint) {
+					scale++;
+				}
+				fastPath = noDigits <= 18 && scale < POWERS_OF_TEN.length;
+			} else if (c == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				fastPath = false;
+			}
+		}
+
+		if (fastPath && hasDigits && mantissa < (1L << 53)) {
+			double value = mantissa / POWERS_OF_TEN[scale];
+			return negative ? -value : value;
+		}
+
+		try {
+			return Double.parseDouble(new String(mToken, 0, mTokenLength));
+		} catch (NumberFormatException e) {
+			throw error("Invalid number", column);
+		}
+	}
+
+	/**
+	 * Appends a char to mToken, growing it if needed.
+	 * 
+	 * @param c
+	 *            The char to be appended.
+	 */
+	private void appendToToken(char c) {
+		if (mTokenLength == mToken.length) {
+			mToken = Arrays.copyOf(mToken, 2 * mToken.length);
+		}
+		mToken[mTokenLength++] = c;
+	}
+
+	/**
+	 * Compares mToken with a string.
+	 * 
+	 * @param s
+	 *            The string to compare with.
+	 * @return True if they are equal; false otherwise.
+	 */
+	private boolean tokenEquals(String s) {
+		if (s.length() != mTokenLength) {
+			return false;
+		}
+		for (int k = 0; k < mTokenLength; k++) {
+			if (s.charAt(k) != mToken[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next char without consuming it, refilling the input buffer
+	 * if needed.
+	 * 
+	 * @return The next char, or -1 if the input has ended.
+	 * @throws IOException
+	 *             If the input can't be read.
+	 */
+	private int peek() throws IOException {
+		if (mPosition == mLimit) {
+			mBufferStart += mLimit;
+			mLimit = mReader.read(mBuffer, 0, mBuffer.length);
+			mPosition = 0;
+			if (mLimit <= 0) {
+				mLimit = 0;
+				return -1;
+			}
+		}
+		return mBuffer[mPosition];
+	}
+
+	/**
+	 * 
+	 * @param c
+	 *            A char, or -1.
+	 * @return True if the char can be part of a number; false otherwise.
+	 */
+	private static boolean isNumberChar(int c) {
+		return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+'
+				|| c == 'e' || c == 'E';
+	}
+
+	/**
+	 * Starts a new line, after its line break was consumed.
+	 */
+	private void newLine() {
+		mLine++;
+		mLineStart = mBufferStart + mPosition;
+	}
+
+	/**
+	 * 
+	 * @return The column of the next char, starting at 1.
+	 */
+	private int getColumn() {
+		return (int) (mBufferStart + mPosition - mLineStart) + 1;
+	}
+
+	/**
+	 * Creates an exception for malformed input at the next char.
+	 * 
+	 * @param message
+	 *            The description of the problem.
+	 * @return The exception.
+	 */
+	private IOException error(String message) {
+		return error(message, getColumn());
+	}
+
+	/**
+	 * Creates an exception for malformed input at the given column of the
+	 * current line.
+	 * 
+	 * @param message
+	 *            The description of the problem.
+	 * @param column
+	 *            The column, starting at 1.
+	 * @return The exception.
+	 */
+	private IOException error(String message, int column) {
+		return new IOException(String.format("%s at line %d, column %d.",
+				message, mLine, column));
+	}
+}
@@ -0,0 +1,130 @@
+package instance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import general.FixedPointColumn;
+import general.QoSStore;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class TextInstanceReaderTest {
+
+	private static QoSStore read(int format, int noAttributes, String input)
+			throws IOException {
+		return new TextInstanceReader(format, noAttributes)
+				.read(new StringReader(input));
+	}
+
+	private static void assertMalformed(int format, String input,
+			String position) {
+		try {
+			read(format, 2, input);
+			fail("Accepted malformed input: " + input);
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(position));
+		}
+	}
+
+	/* CSV with comments, blank lines, spaces and CRLF line breaks. */
+
+	@Test
+	public void test0() throws IOException {
+		QoSStore store = read(TextInstanceReader.FORMAT_CSV, 2,
+				"abstract,latency,cost\r\n# comment\n0, 0.5 ,1\n\n"
+						+ "0,0.25,0\r\n1,1e-1,.75\n");
+		assertArrayEquals(new int[] { 0, 2, 3 }, store.getOffsets());
+		assertEquals(0.25, store.getValue(0, 0, 1), 0);
+		assertEquals(0.1, store.getValue(0, 1, 0), 0);
+		assertEquals(0.75, store.getValue(1, 1, 0), 0);
+	}
+
+	/* Headers whose first field starts like a number, and no header at all. */
+
+	@Test
+	public void test1() throws IOException {
+		for (String header : new String[] { "e2e,a,b\n", "E,a,b\n",
+				"-abstract,a,b\n", "+,a,b\n", "1st,a,b\n", ".,a,b\n",
+				"# comment\n12345678901,a,b\n", "" }) {
+			QoSStore store = read(TextInstanceReader.FORMAT_CSV, 2, header
+					+ "0,0.5,1\n1,0,0.5");
+			assertArrayEquals(header, new int[] { 0, 1, 2 },
+					store.getOffsets());
+			assertEquals(header, 0.5, store.getValue(1, 1, 0), 0);
+		}
+	}
+
+	/* JSON lines, with keys in any order. */
+
+	@Test
+	public void test2() throws IOException {
+		QoSStore store = read(TextInstanceReader.FORMAT_JSON_LINES, 2,
+				"{\"abstract\": 0, \"qos\": [0.5, 1]}\n"
+						+ "{ \"qos\":[0,0.25] ,\"abstract\":1 }\r\n\n");
+		assertArrayEquals(new int[] { 0, 1, 2 }, store.getOffsets());
+		assertEquals(1, store.getValue(1, 0, 0), 0);
+		assertEquals(0.25, store.getValue(1, 1, 0), 0);
+	}
+
+	/* Malformed rows are reported with their line and column. */
+
+	@Test
+	public void test3() {
+		int csv = TextInstanceReader.FORMAT_CSV;
+		int json = TextInstanceReader.FORMAT_JSON_LINES;
+		assertMalformed(csv, "a,b,c\n0,0.5,1.5\n", "line 2, column 7");
+		assertMalformed(csv, "0,0.5,-0.5\n", "line 1, column 7");
+		assertMalformed(csv, "0,0.5\n", "line 1, column 6");
+		assertMalformed(csv, "0,0.5,1,1\n", "line 1, column 8");
+		assertMalformed(csv, "0,0.5,1\nx,0.5,1\n", "line 2, column 1");
+		assertMalformed(csv, "0,0.5,1\n2,0.5,1\n", "line 2");
+		assertMalformed(csv, "0,0.5,1\n0,0.5,abc\n", "line 2, column 7");
+		assertMalformed(csv, "0,1.2.3,1\n", "line 1, column 3");
+		assertMalformed(csv, "", "no records");
+		assertMalformed(json, "{\"abstract\": 0, \"qos\": [0.5, 2]}\n",
+				"line 1, column 30");
+		assertMalformed(json, "{\"abstract\": 0}\n", "line 1");
+		assertMalformed(json, "{\"abstract\": 0, \"qos\": [0.5]}\n",
+				"line 1, column 28");
+		assertMalformed(json, "{\"abstract\": 0, \"other\": 1}\n",
+				"line 1, column 17");
+	}
+
+	/* Large inputs span several chunks, in every storage mode. */
+
+	@Test
+	public void test4() throws IOException {
+		QoSStore expected = new InstanceGenerator(3).generateStore(40, 300,
+				700, 3, InstanceGenerator.CORRELATION_INDEPENDENT);
+		for (int format : new int[] { TextInstanceReader.FORMAT_CSV,
+				TextInstanceReader.FORMAT_JSON_LINES }) {
+			StringWriter writer = new StringWriter();
+			TextInstanceWriter.write(writer, expected, format);
+
+			for (int storageMode : new int[] { QoSStore.STORAGE_DOUBLE,
+					QoSStore.STORAGE_FLOAT, QoSStore.STORAGE_FIXED_POINT }) {
+				TextInstanceReader reader = new TextInstanceReader(format, 3);
+				reader.setStorageMode(storageMode);
+				QoSStore store = reader
+						.read(new StringReader(writer.toString()));
+
+				assertArrayEquals(expected.getOffsets(), store.getOffsets());
+				assertEquals(storageMode,
+						QoSStore.getStorageMode(store.getColumn(0)));
+				double tolerance = storageMode == QoSStore.STORAGE_DOUBLE ? 0
+						: FixedPointColumn.MAXIMUM_ERROR;
+				for (int attr = 0; attr < 3; attr++) {
+					for (int k = 0; k < expected.getTotalNoConcreteServices(); k++) {
+						assertEquals(expected.getColumn(attr).get(k), store
+								.getColumn(attr).get(k), tolerance);
+					}
+				}
+			}
+		}
+	}
+}
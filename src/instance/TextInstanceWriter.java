@@ -0,0 +1,86 @@
+package instance;
+
+import general.QoSColumn;
+import general.QoSStore;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes QoS values in the text formats read by TextInstanceReader. The values
+ * are written with Double.toString(), so reading them back yields exactly the
+ * same doubles.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class TextInstanceWriter {
+
+	private TextInstanceWriter() {
+	}
+
+	/**
+	 * Writes all the values of a store, one record per concrete service.
+	 * 
+	 * @param writer
+	 *            The output. It isn't closed.
+	 * @param store
+	 *            The store to be written.
+	 * @param format
+	 *            Either TextInstanceReader.FORMAT_CSV or
+	 *            TextInstanceReader.FORMAT_JSON_LINES. CSV output starts with a
+	 *            header line.
+	 * @throws IOException
+	 *             If the output can't be written.
+	 */
+	public static void write(Writer writer, QoSStore store, int format)
+			throws IOException {
+		if (format != TextInstanceReader.FORMAT_CSV
+				&& format != TextInstanceReader.FORMAT_JSON_LINES) {
+			throw new IllegalArgumentException("Unknown format: " + format);
+		}
+
+		int noAttributes = store.getNoAttributes();
+		QoSColumn[] columns = new QoSColumn[noAttributes];
+		for (int attr = 0; attr < noAttributes; attr++) {
+			columns[attr] = store.getColumn(attr);
+		}
+
+		StringBuilder b = new StringBuilder();
+		if (format == TextInstanceReader.FORMAT_CSV) {
+			b.append("abstract");
+			for (int attr = 0; attr < noAttributes; attr++) {
+				b.append(",q").append(attr);
+			}
+			b.append('\n');
+		}
+
+		int[] offsets = store.getOffsets();
+		for (int i = 0; i < store.getNoAbstractServices(); i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				if (format == TextInstanceReader.FORMAT_CSV) {
+					b.append(i);
+					for (int attr = 0; attr < noAttributes; attr++) {
+						b.append(',').append(columns[attr].get(k));
+					}
+				} else {
+					b.append("{\"abstract\":").append(i).append(",\"qos\":[");
+					for (int attr = 0; attr < noAttributes; attr++) {
+						if (attr > 0) {
+							b.append(',');
+						}
+						b.append(columns[attr].get(k));
+					}
+					b.append("]}");
+				}
+				b.append('\n');
+
+				if (b.length() >= 1 << 16) {
+					writer.write(b.toString());
+					b.setLength(0);
+				}
+			}
+		}
+		writer.write(b.toString());
+	}
+}
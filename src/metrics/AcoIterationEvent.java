@@ -0,0 +1,36 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering an iteration of ACO, in which every
+ * ant takes a step and the pheromone is updated.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@Name("wscomposition.AcoIteration")
+@Label("ACO Iteration")
+@Category({ "WS Composition", "ACO" })
+@Description("A step of every ant, followed by the pheromone update.")
+public class AcoIterationEvent extends Event {
+
+	@Label("Iteration")
+	public int iteration;
+
+	@Label("Solutions")
+	@Description("The number of complete solutions deposited in this iteration.")
+	public int noSolutions;
+
+	@Label("Best Score")
+	@Description("The best aggregated QoS among the solutions of this iteration, or NaN.")
+	public double bestScore;
+
+	@Label("Pheromone Entropy")
+	@Description("The mean entropy, in nats, of the normalized pheromone of each abstract service.")
+	public double pheromoneEntropy;
+}
@@ -0,0 +1,42 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the expansion of a node by
+ * BranchAndBound, including the solution of the relaxations of its children.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@Name("wscomposition.BranchAndBoundNode")
+@Label("Branch and Bound Node")
+@Category({ "WS Composition", "Branch and Bound" })
+@Description("Expansion of a node taken from the queue.")
+public class BranchAndBoundNodeEvent extends Event {
+
+	/* The possible outcomes of an expansion. */
+	public static final String OUTCOME_PRUNED = "pruned";
+	public static final String OUTCOME_INTEGER = "integer";
+	public static final String OUTCOME_BRANCHED = "branched";
+
+	@Label("Relaxation Bound")
+	@Description("The objective value of the relaxation of the node.")
+	public double bound;
+
+	@Label("Outcome")
+	@Description("Either pruned, integer or branched.")
+	public String outcome;
+
+	@Label("Branching Variable")
+	@Description("The variable branched on, or -1.")
+	public int branchingVariable;
+
+	@Label("Queue Size")
+	@Description("The size of the queue after the expansion.")
+	public int queueSize;
+}
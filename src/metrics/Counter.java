@@ -0,0 +1,51 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic count, such as the number of compositions evaluated. It's backed
+ * by a LongAdder, so concurrent solvers flushing into the same counter don't
+ * contend on a single memory location.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class Counter {
+
+	/**
+	 * The count.
+	 */
+	private final LongAdder mCount = new LongAdder();
+
+	/**
+	 * Adds one to the count.
+	 */
+	public void increment() {
+		mCount.increment();
+	}
+
+	/**
+	 * Adds a value to the count.
+	 * 
+	 * @param value
+	 *            The value to be added.
+	 */
+	public void add(long value) {
+		mCount.add(value);
+	}
+
+	/**
+	 * 
+	 * @return The current count.
+	 */
+	public long getCount() {
+		return mCount.sum();
+	}
+
+	/**
+	 * Sets the count back to zero.
+	 */
+	public void reset() {
+		mCount.reset();
+	}
+}
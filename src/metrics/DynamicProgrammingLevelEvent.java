@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the sweep of a level by
+ * DynamicProgramming.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@Name("wscomposition.DynamicProgrammingLevel")
+@Label("Dynamic Programming Level")
+@Category({ "WS Composition", "Dynamic Programming" })
+@Description("Choice of the concrete service of an abstract service.")
+public class DynamicProgrammingLevelEvent extends Event {
+
+	@Label("Level")
+	public int level;
+
+	@Label("Concrete Services")
+	public int noConcreteServices;
+
+	@Label("Reachable")
+	@Description("Whether some concrete service has an edge to the next level.")
+	public boolean reachable;
+
+	@Label("Accumulated QoS")
+	@Description("The accumulated QoS from this level to the last one, or NaN.")
+	public double accumulatedQoS;
+}
@@ -0,0 +1,137 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of a non-negative quantity, such as the size of a queue.
+ * The values are counted in buckets whose bounds are powers of two, so
+ * recording a value costs a couple of LongAdder increments, and the
+ * percentiles are accurate up to a factor of two.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class Histogram {
+
+	/**
+	 * The number of buckets. The bucket b holds the values whose highest set
+	 * bit is b - 1, and the bucket 0 holds the zeros.
+	 */
+	private static final int NO_BUCKETS = 64;
+
+	/**
+	 * The number of values in each bucket.
+	 */
+	private final LongAdder[] mBuckets;
+
+	/**
+	 * The number of values recorded.
+	 */
+	private final LongAdder mCount = new LongAdder();
+
+	/**
+	 * The sum of the values recorded.
+	 */
+	private final LongAdder mSum = new LongAdder();
+
+	/**
+	 * The largest value recorded.
+	 */
+	private final LongAccumulator mMax = new LongAccumulator(Math::max, 0);
+
+	public Histogram() {
+		mBuckets = new LongAdder[NO_BUCKETS];
+		for (int b = 0; b < NO_BUCKETS; b++) {
+			mBuckets[b] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as zero.
+	 * 
+	 * @param value
+	 *            The value.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+
+		mBuckets[Math.min(NO_BUCKETS - 1,
+				64 - Long.numberOfLeadingZeros(value))].increment();
+		mCount.increment();
+		mSum.add(value);
+		mMax.accumulate(value);
+	}
+
+	/**
+	 * 
+	 * @return The number of values recorded.
+	 */
+	public long getCount() {
+		return mCount.sum();
+	}
+
+	/**
+	 * 
+	 * @return The sum of the values recorded.
+	 */
+	public long getSum() {
+		return mSum.sum();
+	}
+
+	/**
+	 * 
+	 * @return The largest value recorded, or 0 if there is none.
+	 */
+	public long getMax() {
+		return mMax.get();
+	}
+
+	/**
+	 * 
+	 * @return The mean of the values recorded, or NaN if there is none.
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? Double.NaN : (double) getSum() / count;
+	}
+
+	/**
+	 * Returns an upper bound of a percentile of the values recorded, which is
+	 * at most twice the exact percentile.
+	 * 
+	 * @param quantile
+	 *            The quantile, between 0 and 1.
+	 * @return The upper bound of the percentile, or 0 if there are no values.
+	 */
+	public long getPercentile(double quantile) {
+		long count = getCount();
+		long rank = (long) Math.ceil(quantile * count);
+		long seen = 0;
+
+		for (int b = 0; b < NO_BUCKETS; b++) {
+			seen += mBuckets[b].sum();
+			if (seen >= rank && seen > 0) {
+				long upperBound = b == 0 ? 0 : (b == NO_BUCKETS - 1 ? Long.MAX_VALUE
+						: (1L << b) - 1);
+				return Math.min(upperBound, getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Discards all the values recorded.
+	 */
+	public void reset() {
+		for (LongAdder bucket : mBuckets) {
+			bucket.reset();
+		}
+		mCount.reset();
+		mSum.reset();
+		mMax.reset();
+	}
+}
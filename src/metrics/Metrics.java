@@ -0,0 +1,87 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Holds the registry the solvers flush their metrics into, and exports it
+ * through JMX.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class Metrics {
+
+	/**
+	 * The name under which the metrics are exported through JMX.
+	 */
+	public static final String OBJECT_NAME = "wscomposition:type=Metrics";
+
+	/**
+	 * The registry used by the solvers.
+	 */
+	private static volatile MetricsRegistry sRegistry = new SimpleMetricsRegistry();
+
+	private Metrics() {
+	}
+
+	/**
+	 * 
+	 * @return The registry used by the solvers.
+	 */
+	public static MetricsRegistry getRegistry() {
+		return sRegistry;
+	}
+
+	/**
+	 * Replaces the registry used by the solvers. The metrics already flushed
+	 * into the previous one aren't copied.
+	 * 
+	 * @param registry
+	 *            The new registry.
+	 */
+	public static void setRegistry(MetricsRegistry registry) {
+		if (registry == null) {
+			throw new IllegalArgumentException("The registry can't be null.");
+		}
+		sRegistry = registry;
+	}
+
+	/**
+	 * Exports the metrics through the platform MBean server, under
+	 * OBJECT_NAME, unless they are already exported. The MBean always reads the
+	 * current registry, so it survives calls to setRegistry().
+	 */
+	public static synchronized void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new MetricsMBean(), name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Couldn't register the metrics.",
+					e);
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if they are
+	 * exported.
+	 */
+	public static synchronized void unregisterMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException(
+					"Couldn't unregister the metrics.", e);
+		}
+	}
+}
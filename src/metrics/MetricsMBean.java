@@ -0,0 +1,94 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes the current registry of Metrics as read-only JMX attributes, one per
+ * entry of its snapshot. The set of attributes grows as the solvers create new
+ * metrics, so it's a DynamicMBean rather than a standard one.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+class MetricsMBean implements DynamicMBean {
+
+	/**
+	 * The name of the operation that resets the metrics.
+	 */
+	private static final String RESET_OPERATION = "reset";
+
+	@Override
+	public Object getAttribute(String attribute)
+			throws AttributeNotFoundException {
+		Number value = Metrics.getRegistry().snapshot().get(attribute);
+		if (value == null) {
+			throw new AttributeNotFoundException(attribute);
+		}
+		return value;
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		SortedMap<String, Number> snapshot = Metrics.getRegistry().snapshot();
+		AttributeList list = new AttributeList();
+		for (String attribute : attributes) {
+			Number value = snapshot.get(attribute);
+			if (value != null) {
+				list.add(new Attribute(attribute, value));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute)
+			throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("The metrics are read-only.");
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature)
+			throws ReflectionException {
+		if (RESET_OPERATION.equals(actionName)) {
+			Metrics.getRegistry().reset();
+			return null;
+		}
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		ArrayList<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+		for (Map.Entry<String, Number> entry : Metrics.getRegistry()
+				.snapshot().entrySet()) {
+			attributes.add(new MBeanAttributeInfo(entry.getKey(), entry
+					.getValue().getClass().getName(), entry.getKey(), true,
+					false, false));
+		}
+
+		MBeanOperationInfo reset = new MBeanOperationInfo(RESET_OPERATION,
+				"Sets all the metrics back to zero.",
+				new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+		return new MBeanInfo(getClass().getName(), "Solver metrics.",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+				null, new MBeanOperationInfo[] { reset }, null);
+	}
+}
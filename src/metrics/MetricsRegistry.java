@@ -0,0 +1,57 @@
+package metrics;
+
+import java.util.SortedMap;
+
+/**
+ * Creates and keeps the metrics of the solvers by name. The solvers count in
+ * local fields while they run and flush into the registry once per solve, so
+ * a registry doesn't need to be fast, only thread safe. Implementations can
+ * forward the metrics to a monitoring system; Metrics.setRegistry() selects
+ * the one the solvers use.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public interface MetricsRegistry {
+
+	/**
+	 * Returns the counter with the given name, creating it if needed.
+	 * 
+	 * @param name
+	 *            The name of the counter.
+	 * @return The counter.
+	 */
+	public Counter counter(String name);
+
+	/**
+	 * Returns the timer with the given name, creating it if needed.
+	 * 
+	 * @param name
+	 *            The name of the timer.
+	 * @return The timer.
+	 */
+	public Timer timer(String name);
+
+	/**
+	 * Returns the histogram with the given name, creating it if needed.
+	 * 
+	 * @param name
+	 *            The name of the histogram.
+	 * @return The histogram.
+	 */
+	public Histogram histogram(String name);
+
+	/**
+	 * Returns the current value of every metric, flattened into numbers. A
+	 * counter is a single entry with its name; timers and histograms have one
+	 * entry per statistic, such as "name.count" and "name.p99".
+	 * 
+	 * @return The values, sorted by name.
+	 */
+	public SortedMap<String, Number> snapshot();
+
+	/**
+	 * Sets all the metrics back to zero.
+	 */
+	public void reset();
+}
@@ -0,0 +1,94 @@
+package metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A MetricsRegistry that keeps the metrics in memory.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+
+	/**
+	 * The counters, by name.
+	 */
+	private final ConcurrentHashMap<String, Counter> mCounters = new ConcurrentHashMap<String, Counter>();
+
+	/**
+	 * The timers, by name.
+	 */
+	private final ConcurrentHashMap<String, Timer> mTimers = new ConcurrentHashMap<String, Timer>();
+
+	/**
+	 * The histograms, by name.
+	 */
+	private final ConcurrentHashMap<String, Histogram> mHistograms = new ConcurrentHashMap<String, Histogram>();
+
+	@Override
+	public Counter counter(String name) {
+		return mCounters.computeIfAbsent(name, n -> new Counter());
+	}
+
+	@Override
+	public Timer timer(String name) {
+		return mTimers.computeIfAbsent(name, n -> new Timer());
+	}
+
+	@Override
+	public Histogram histogram(String name) {
+		return mHistograms.computeIfAbsent(name, n -> new Histogram());
+	}
+
+	@Override
+	public SortedMap<String, Number> snapshot() {
+		SortedMap<String, Number> values = new TreeMap<String, Number>();
+
+		for (Map.Entry<String, Counter> entry : mCounters.entrySet()) {
+			values.put(entry.getKey(), entry.getValue().getCount());
+		}
+		for (Map.Entry<String, Timer> entry : mTimers.entrySet()) {
+			putHistogram(values, entry.getKey() + ".nanos", entry.getValue());
+		}
+		for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+			putHistogram(values, entry.getKey(), entry.getValue());
+		}
+
+		return values;
+	}
+
+	/**
+	 * Adds the statistics of a histogram to a snapshot.
+	 * 
+	 * @param values
+	 *            The snapshot.
+	 * @param prefix
+	 *            The prefix of the entries.
+	 * @param histogram
+	 *            The histogram.
+	 */
+	private static void putHistogram(SortedMap<String, Number> values,
+			String prefix, Histogram histogram) {
+		values.put(prefix + ".count", histogram.getCount());
+		values.put(prefix + ".mean", histogram.getMean());
+		values.put(prefix + ".max", histogram.getMax());
+		values.put(prefix + ".p50", histogram.getPercentile(0.5));
+		values.put(prefix + ".p99", histogram.getPercentile(0.99));
+	}
+
+	@Override
+	public void reset() {
+		for (Counter counter : mCounters.values()) {
+			counter.reset();
+		}
+		for (Timer timer : mTimers.values()) {
+			timer.reset();
+		}
+		for (Histogram histogram : mHistograms.values()) {
+			histogram.reset();
+		}
+	}
+}
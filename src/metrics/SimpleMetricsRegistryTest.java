@@ -0,0 +1,60 @@
+package metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+public class SimpleMetricsRegistryTest {
+
+	/* Metrics are created once per name. */
+
+	@Test
+	public void test0() {
+		SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+		assertSame(registry.counter("a"), registry.counter("a"));
+		registry.counter("a").add(3);
+		registry.counter("a").increment();
+		assertEquals(registry.counter("a").getCount(), 4);
+	}
+
+	/* Percentiles are within a factor of two. */
+
+	@Test
+	public void test1() {
+		Histogram histogram = new Histogram();
+		for (int v = 1; v <= 1000; v++) {
+			histogram.record(v);
+		}
+		assertEquals(histogram.getCount(), 1000);
+		assertEquals(histogram.getMax(), 1000);
+		assertEquals(histogram.getMean(), 500.5, 0);
+		long p50 = histogram.getPercentile(0.5);
+		assertTrue(p50 >= 500 && p50 <= 1000);
+		assertEquals(histogram.getPercentile(1), 1000);
+		assertEquals(new Histogram().getPercentile(0.5), 0);
+	}
+
+	/* Snapshots and resets. */
+
+	@Test
+	public void test2() {
+		SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+		registry.counter("c").add(2);
+		registry.timer("t").record(10);
+		registry.histogram("h").record(0);
+
+		SortedMap<String, Number> snapshot = registry.snapshot();
+		assertEquals(snapshot.get("c"), 2L);
+		assertEquals(snapshot.get("t.nanos.count"), 1L);
+		assertEquals(snapshot.get("t.nanos.max"), 10L);
+		assertEquals(snapshot.get("h.p99"), 0L);
+
+		registry.reset();
+		assertEquals(registry.snapshot().get("c"), 0L);
+		assertEquals(registry.snapshot().get("t.nanos.count"), 0L);
+	}
+}
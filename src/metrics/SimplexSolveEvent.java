@@ -0,0 +1,38 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering a call to Simplex.solve().
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+@Name("wscomposition.SimplexSolve")
+@Label("Simplex Solve")
+@Category({ "WS Composition", "Branch and Bound" })
+@Description("Solution of a linear relaxation by the Simplex algorithm.")
+public class SimplexSolveEvent extends Event {
+
+	@Label("Variables")
+	public int noVariables;
+
+	@Label("Constraints")
+	public int noConstraints;
+
+	@Label("Pivots")
+	@Description("Pivots performed, including those of the auxiliary problem.")
+	public long pivots;
+
+	@Label("Phase I")
+	@Description("Whether the auxiliary problem was solved to find a feasible basis.")
+	public boolean phaseOne;
+
+	@Label("Feasible")
+	@Description("Whether the problem is feasible and bounded.")
+	public boolean feasible;
+}
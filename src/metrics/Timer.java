@@ -0,0 +1,20 @@
+package metrics;
+
+/**
+ * The distribution of the duration of a phase, in nanoseconds.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class Timer extends Histogram {
+
+	/**
+	 * Records the time elapsed since the given instant.
+	 * 
+	 * @param startNanos
+	 *            The value of System.nanoTime() when the phase started.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+}
@@ -0,0 +1,86 @@
+package solver;
+
+import general.CancellationToken;
+import general.Deadline;
+import general.IncumbentListener;
+import general.SharedIncumbent;
+import aco.ACO;
+
+/**
+ * Exposes an ACO instance as a CompositionSolver. The colony runs on the
+ * calling thread, until its own stop condition is satisfied or the deadline
+ * or the token fire. ACO can't prove optimality, so its results are at most
+ * feasible and have no bound. When an incumbent is shared, the colony offers
+ * it each improving solution.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class AcoSolver implements IncumbentSharingSolver {
+
+	/**
+	 * The colony.
+	 */
+	private ACO mAco;
+
+	/**
+	 * The incumbent shared with other engines, or null if there's none.
+	 */
+	private SharedIncumbent mSharedIncumbent;
+
+	/**
+	 * Creates a solver over the given colony. It must not have been started as
+	 * a thread.
+	 * 
+	 * @param aco
+	 *            The colony.
+	 */
+	public AcoSolver(ACO aco) {
+		mAco = aco;
+	}
+
+	/**
+	 * Adds a listener to be notified of each improving solution found by the
+	 * colony. It's added to the colony itself.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener listener) {
+		mAco.addIncumbentListener(listener);
+	}
+
+	@Override
+	public void setSharedIncumbent(SharedIncumbent incumbent) {
+		mSharedIncumbent = incumbent;
+	}
+
+	@Override
+	public SolverResult solve(Deadline deadline, CancellationToken token) {
+		long start = System.nanoTime();
+
+		mAco.setDeadline(deadline);
+		mAco.setCancellationToken(token);
+		if (mSharedIncumbent != null) {
+			mAco.addIncumbentListener(mSharedIncumbent);
+		}
+		try {
+			mAco.run();
+		} finally {
+			if (mSharedIncumbent != null) {
+				mAco.removeIncumbentListener(mSharedIncumbent);
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (mAco.getNoIterations() == 0) {
+			return new SolverResult(SolverResult.STATUS_STOPPED, null,
+					Double.NaN, Double.NaN, Double.NaN, 0, elapsed);
+		}
+
+		double score = mAco.getSolutionQoS();
+		return new SolverResult(SolverResult.STATUS_FEASIBLE,
+				mAco.getSolution().clone(), score, score, Double.NaN,
+				mAco.getNoIterations(), elapsed);
+	}
+}
@@ -0,0 +1,61 @@
+package solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.QoSAttribute;
+
+import org.junit.Test;
+
+import aco.ACO;
+import instance.InstanceGenerator;
+
+public class AcoSolverTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(6, 3, 8,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.5, 0.5 }, InstanceGenerator.CORRELATION_INDEPENDENT);
+	}
+
+	/* A finished run is feasible, without a bound, and scored exactly. */
+
+	@Test
+	public void test0() {
+		QoSAttribute[] attributes = createAttributes(0);
+		ACO aco = new ACO(5, attributes, 1, 1, 0.1, 1, 20, -1);
+		aco.setSeed(0);
+
+		SolverResult result = new AcoSolver(aco).solve(Deadline.NONE,
+				CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_FEASIBLE, result.getStatus());
+		assertTrue(Double.isNaN(result.getBound()));
+		assertTrue(Double.isNaN(result.getGap()));
+		assertEquals(20, result.getEffort());
+		assertEquals(new CompositionScorer(attributes).score(result
+				.getComposition()), result.getScore(), 1e-12);
+	}
+
+	/* A run cancelled or expired before its first iteration is stopped. */
+
+	@Test
+	public void test1() {
+		QoSAttribute[] attributes = createAttributes(1);
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+
+		SolverResult result = new AcoSolver(new ACO(5, attributes, 1, 1, 0.1,
+				1, 20, -1)).solve(Deadline.NONE, token);
+		assertEquals(SolverResult.STATUS_STOPPED, result.getStatus());
+		assertNull(result.getComposition());
+		assertEquals(0, result.getEffort());
+
+		result = new AcoSolver(new ACO(5, attributes, 1, 1, 0.1, 1, 20, -1))
+				.solve(Deadline.after(0), CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_STOPPED, result.getStatus());
+	}
+}
@@ -0,0 +1,102 @@
+package solver;
+
+import general.CancellationToken;
+import general.Deadline;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs CompositionSolvers asynchronously on an executor, instead of creating a
+ * thread for each run.
+ * 
+ * Each run gets its own CancellationToken, which is cancelled when the
+ * returned future is cancelled, so the engine stops at its next check and
+ * frees its thread. A run whose future is cancelled before it starts is
+ * skipped.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class AsyncSolver {
+
+	/**
+	 * The executor on which the engines run.
+	 */
+	private Executor mExecutor;
+
+	/**
+	 * Creates an instance that runs the engines on the shared compute pool.
+	 */
+	public AsyncSolver() {
+		this(SolverExecutors.getComputePool());
+	}
+
+	/**
+	 * Creates an instance that runs the engines on the given executor.
+	 * 
+	 * @param executor
+	 *            The executor on which the engines run.
+	 */
+	public AsyncSolver(Executor executor) {
+		mExecutor = executor;
+	}
+
+	/**
+	 * Starts solving a request without a deadline.
+	 * 
+	 * @param solver
+	 *            The solver. It must not be used by other runs at the same
+	 *            time.
+	 * @return A future that completes with the result of the solver.
+	 */
+	public CompletableFuture<SolverResult> solveAsync(CompositionSolver solver) {
+		return solveAsync(solver, Deadline.NONE);
+	}
+
+	/**
+	 * Starts solving a request.
+	 * 
+	 * @param solver
+	 *            The solver. It must not be used by other runs at the same
+	 *            time.
+	 * @param deadline
+	 *            The deadline of the run.
+	 * @return A future that completes with the result of the solver, or
+	 *         exceptionally if the solver throws an exception. Cancelling it
+	 *         stops the solver.
+	 */
+	public CompletableFuture<SolverResult> solveAsync(
+			final CompositionSolver solver, final Deadline deadline) {
+		final CancellationToken token = new CancellationToken();
+		final CompletableFuture<SolverResult> future = new CompletableFuture<SolverResult>();
+
+		future.whenComplete((result, error) -> {
+			if (error instanceof CancellationException) {
+				token.cancel();
+			}
+		});
+
+		mExecutor.execute(() -> {
+			if (future.isDone()) {
+				return;
+			}
+			try {
+				future.complete(solver.solve(deadline, token));
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * 
+	 * @return The executor on which the engines run.
+	 */
+	public Executor getExecutor() {
+		return mExecutor;
+	}
+}
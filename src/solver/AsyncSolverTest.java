@@ -0,0 +1,129 @@
+package solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.Deadline;
+import general.QoSAttribute;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import instance.InstanceGenerator;
+
+public class AsyncSolverTest {
+
+	private static SolverResult stopped() {
+		return new SolverResult(SolverResult.STATUS_STOPPED, null, Double.NaN,
+				Double.NaN, Double.NaN, 0, 0);
+	}
+
+	/* An asynchronous run gives the same result as a synchronous one. */
+
+	@Test
+	public void test0() throws Exception {
+		QoSAttribute[] attributes = new InstanceGenerator(0)
+				.generateAttributes(5, 2, 5, new int[] {
+						QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_PRODUCT }, new double[] {
+						0.5, 0.5 }, InstanceGenerator.CORRELATION_INDEPENDENT);
+
+		SolverResult expected = new BruteForceSolver(attributes).solve(
+				Deadline.NONE, CancellationToken.NONE);
+		SolverResult result = new AsyncSolver().solveAsync(
+				new BruteForceSolver(attributes)).get(30, TimeUnit.SECONDS);
+		assertEquals(SolverResult.STATUS_OPTIMAL, result.getStatus());
+		assertArrayEquals(expected.getComposition(), result.getComposition());
+		assertEquals(expected.getScore(), result.getScore(), 0);
+	}
+
+	/* Cancelling the future cancels the token of the running solver. */
+
+	@Test
+	public void test1() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+		final AtomicReference<CancellationToken> seen = new AtomicReference<CancellationToken>();
+
+		ForkJoinPool pool = SolverExecutors.newComputePool(1);
+		try {
+			CompletableFuture<SolverResult> future = new AsyncSolver(pool)
+					.solveAsync((deadline, token) -> {
+						seen.set(token);
+						started.countDown();
+						Deadline limit = Deadline.after(30000);
+						while (!token.isCancelled() && !limit.isExpired()) {
+							Thread.yield();
+						}
+						finished.countDown();
+						return stopped();
+					});
+
+			assertTrue(started.await(30, TimeUnit.SECONDS));
+			assertFalse(seen.get().isCancelled());
+			assertTrue(future.cancel(true));
+			assertTrue(finished.await(30, TimeUnit.SECONDS));
+			assertTrue(seen.get().isCancelled());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/* A run cancelled before it starts is skipped. */
+
+	@Test
+	public void test2() {
+		final ArrayList<Runnable> queue = new ArrayList<Runnable>();
+		final AtomicBoolean ran = new AtomicBoolean();
+
+		CompletableFuture<SolverResult> future = new AsyncSolver(queue::add)
+				.solveAsync((deadline, token) -> {
+					ran.set(true);
+					return stopped();
+				});
+		future.cancel(true);
+		for (Runnable task : queue) {
+			task.run();
+		}
+
+		assertEquals(1, queue.size());
+		assertFalse(ran.get());
+		assertTrue(future.isCancelled());
+	}
+
+	/* The deadline is passed on, and a failure completes the future. */
+
+	@Test
+	public void test3() throws Exception {
+		final Deadline deadline = Deadline.after(60000);
+		final AtomicReference<Deadline> seen = new AtomicReference<Deadline>();
+		final IllegalStateException error = new IllegalStateException();
+
+		CompletableFuture<SolverResult> future = new AsyncSolver(
+				Runnable::run).solveAsync((d, token) -> {
+			seen.set(d);
+			throw error;
+		}, deadline);
+
+		assertSame(deadline, seen.get());
+		assertTrue(future.isCompletedExceptionally());
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			assertSame(error, e.getCause());
+			return;
+		}
+		throw new AssertionError("The failure wasn't propagated.");
+	}
+}
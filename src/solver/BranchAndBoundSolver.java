@@ -0,0 +1,204 @@
+package solver;
+
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.IncumbentListener;
+import general.SharedIncumbent;
+import bb.BranchAndBound;
+import bb.WscHelper;
+
+/**
+ * Exposes Branch and Bound as a CompositionSolver, over the MIP problem
+ * generated by a WscHelper. The objective value and the bound are those of
+ * the MIP problem, i.e. the sum of the coefficients of the selected concrete
+ * services. Unless WscHelper.isObjectiveExact() holds, that objective is only
+ * a surrogate of the score, so the result is reported as feasible, without a
+ * bound, even if the search finished.
+ * 
+ * When an incumbent is shared, each improving composition of the search is
+ * offered to it, and every composition offered to it by other
+ * engines that satisfies the constraints of the helper becomes an external
+ * lower bound of the search, so that nodes that can't beat it are pruned. If
+ * the search proves that none of its nodes beats the best external
+ * composition, that composition is returned as the optimal one.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class BranchAndBoundSolver implements IncumbentSharingSolver {
+
+	/**
+	 * The helper that generates the MIP problem.
+	 */
+	private WscHelper mHelper;
+
+	/**
+	 * The incumbent shared with other engines, or null if there's none.
+	 */
+	private SharedIncumbent mSharedIncumbent;
+
+	/**
+	 * Creates a solver over the problem generated by the given helper. The
+	 * constraints added to the helper are honored.
+	 * 
+	 * @param helper
+	 *            The helper.
+	 */
+	public BranchAndBoundSolver(WscHelper helper) {
+		mHelper = helper;
+	}
+
+	/**
+	 * Adds a listener to be notified of each improving composition found by
+	 * the next calls to solve(). It's added to the helper.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener listener) {
+		mHelper.addIncumbentListener(listener);
+	}
+
+	@Override
+	public void setSharedIncumbent(SharedIncumbent incumbent) {
+		mSharedIncumbent = incumbent;
+	}
+
+	@Override
+	public boolean isObjectiveExact() {
+		return mHelper.isObjectiveExact();
+	}
+
+	@Override
+	public SolverResult solve(Deadline deadline, CancellationToken token) {
+		long start = System.nanoTime();
+
+		SharedIncumbent sharedIncumbent = mSharedIncumbent;
+		if (sharedIncumbent != null) {
+			mHelper.addIncumbentListener(sharedIncumbent);
+		}
+		BranchAndBound bb;
+		try {
+			bb = mHelper.getProblem();
+		} finally {
+			if (sharedIncumbent != null) {
+				mHelper.removeIncumbentListener(sharedIncumbent);
+			}
+		}
+		bb.setDeadline(deadline);
+		bb.setCancellationToken(token);
+
+		ExternalIncumbent external = null;
+		if (sharedIncumbent != null) {
+			external = new ExternalIncumbent(mHelper, bb);
+			sharedIncumbent.addListener(external);
+		}
+
+		boolean found;
+		try {
+			found = bb.solve();
+		} finally {
+			if (external != null) {
+				sharedIncumbent.removeListener(external);
+			}
+		}
+
+		int[] composition = null;
+		double objective = Double.NaN;
+		if (found) {
+			composition = mHelper.toComposition(bb.getSolution());
+			objective = bb.getObjectiveValueOfOptimalSolution();
+		}
+		if (external != null && external.getComposition() != null
+				&& !(objective >= external.getObjective())) {
+			/* The best external composition wasn't beaten. */
+			composition = external.getComposition();
+			objective = external.getObjective();
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (composition == null) {
+			int status = bb.isStopped() ? SolverResult.STATUS_STOPPED
+					: SolverResult.STATUS_INFEASIBLE;
+			return new SolverResult(status, null, Double.NaN, Double.NaN,
+					Double.NaN, bb.getNoNodes(), elapsed);
+		}
+
+		double score = new CompositionScorer(mHelper.getAttributes())
+				.score(composition);
+		if (sharedIncumbent != null) {
+			sharedIncumbent.offer(composition, score);
+		}
+
+		if (!mHelper.isObjectiveExact()) {
+			/*
+			 * The objective is only a linear surrogate of the score, so its
+			 * optimum and its bound say nothing about the best score.
+			 */
+			return new SolverResult(SolverResult.STATUS_FEASIBLE, composition,
+					score, objective, Double.NaN, bb.getNoNodes(), elapsed);
+		} else if (bb.isStopped()) {
+			return new SolverResult(SolverResult.STATUS_FEASIBLE, composition,
+					score, objective, Math.max(bb.getBound(), objective),
+					bb.getNoNodes(), elapsed);
+		}
+		return new SolverResult(SolverResult.STATUS_OPTIMAL, composition,
+				score, objective, objective, bb.getNoNodes(), elapsed);
+	}
+
+	/**
+	 * Turns the feasible compositions offered to a shared incumbent into
+	 * external lower bounds of a Branch and Bound search.
+	 */
+	private static class ExternalIncumbent implements SharedIncumbent.Listener {
+
+		/**
+		 * The helper that generated the problem.
+		 */
+		private WscHelper mHelper;
+
+		/**
+		 * The search being pruned.
+		 */
+		private BranchAndBound mBranchAndBound;
+
+		/**
+		 * The best feasible composition offered so far, or null if there's
+		 * none.
+		 */
+		private int[] mComposition;
+
+		/**
+		 * The objective value of the best feasible composition.
+		 */
+		private double mObjective = Double.NEGATIVE_INFINITY;
+
+		public ExternalIncumbent(WscHelper helper, BranchAndBound bb) {
+			mHelper = helper;
+			mBranchAndBound = bb;
+		}
+
+		@Override
+		public synchronized void onImprovement(int[] composition, double score) {
+			if (!mHelper.isFeasible(composition)) {
+				return;
+			}
+
+			double objective = mHelper.getObjectiveValue(composition);
+			if (objective > mObjective) {
+				mComposition = composition.clone();
+				mObjective = objective;
+				mBranchAndBound.raiseExternalLowerBound(objective);
+			}
+		}
+
+		public synchronized int[] getComposition() {
+			return mComposition;
+		}
+
+		public synchronized double getObjective() {
+			return mObjective;
+		}
+	}
+}
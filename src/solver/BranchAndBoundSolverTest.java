@@ -0,0 +1,77 @@
+package solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.Deadline;
+import general.QoSAttribute;
+
+import org.junit.Test;
+
+import bb.Simplex;
+import bb.WscHelper;
+import instance.InstanceGenerator;
+
+public class BranchAndBoundSolverTest {
+
+	private static QoSAttribute[] createAttributes(long seed) {
+		return new InstanceGenerator(seed).generateAttributes(5, 2, 5,
+				new int[] { QoSAttribute.AGGREGATE_BY_SUM,
+						QoSAttribute.AGGREGATE_BY_AVERAGE }, new double[] {
+						0.6, 0.4 }, InstanceGenerator.CORRELATION_INDEPENDENT);
+	}
+
+	/*
+	 * With an exact objective, a finished search is optimal, with no gap, and
+	 * agrees with Brute Force.
+	 */
+
+	@Test
+	public void test0() {
+		for (long seed = 0; seed < 5; seed++) {
+			QoSAttribute[] attributes = createAttributes(seed);
+			BranchAndBoundSolver solver = new BranchAndBoundSolver(
+					new WscHelper(attributes));
+			assertTrue(solver.isObjectiveExact());
+
+			SolverResult result = solver.solve(Deadline.NONE,
+					CancellationToken.NONE);
+			SolverResult expected = new BruteForceSolver(attributes).solve(
+					Deadline.NONE, CancellationToken.NONE);
+			assertEquals(SolverResult.STATUS_OPTIMAL, result.getStatus());
+			assertEquals(result.getObjective(), result.getBound(), 0);
+			assertEquals(0, result.getGap(), 0);
+			assertArrayEquals(expected.getComposition(),
+					result.getComposition());
+			assertEquals(expected.getScore(), result.getScore(), 1e-9);
+		}
+	}
+
+	/* A search cancelled before its first node is stopped. */
+
+	@Test
+	public void test1() {
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+
+		SolverResult result = new BranchAndBoundSolver(new WscHelper(
+				createAttributes(0))).solve(Deadline.NONE, token);
+		assertEquals(SolverResult.STATUS_STOPPED, result.getStatus());
+		assertNull(result.getComposition());
+	}
+
+	/* A search with unsatisfiable constraints is infeasible. */
+
+	@Test
+	public void test2() {
+		WscHelper helper = new WscHelper(createAttributes(0));
+		helper.addConstraintOnAttribute(0, Simplex.GTE, 6);
+
+		SolverResult result = new BranchAndBoundSolver(helper).solve(
+				Deadline.NONE, CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_INFEASIBLE, result.getStatus());
+		assertNull(result.getComposition());
+	}
+}
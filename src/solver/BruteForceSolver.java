@@ -0,0 +1,244 @@
+package solver;
+
+import general.CancellationToken;
+import general.Deadline;
+import general.IncumbentListener;
+import general.QoSAttribute;
+import general.SharedIncumbent;
+
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import bruteforce.BruteForce;
+import bruteforce.ParallelBruteForce;
+
+/**
+ * Exposes Brute Force as a CompositionSolver. Its objective function is the
+ * score itself, so a complete search yields an optimal composition with no
+ * gap, and a stopped one yields the best composition enumerated so far.
+ * 
+ * By default, the search enumerates every composition on the calling thread.
+ * With setForkJoinPool(), it's split into tasks by ParallelBruteForce, unless
+ * pruning or constraints are used, which only the sequential search supports.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class BruteForceSolver implements IncumbentSharingSolver {
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mQoSAttributes;
+
+	/**
+	 * The incumbent shared with other engines, or null if there's none.
+	 */
+	private SharedIncumbent mSharedIncumbent;
+
+	/**
+	 * The listeners notified of each improving composition.
+	 */
+	private CopyOnWriteArrayList<IncumbentListener> mIncumbentListeners;
+
+	/**
+	 * The pool on which the search runs in parallel, or null to run it on the
+	 * calling thread.
+	 */
+	private ForkJoinPool mForkJoinPool;
+
+	/**
+	 * Whether the search skips the subtrees that can't improve the best
+	 * composition.
+	 */
+	private boolean mIsPruning;
+
+	/**
+	 * The attribute of each constraint.
+	 */
+	private ArrayList<Integer> mConstraintAttributes;
+
+	/**
+	 * The relation of each constraint (Simplex.GTE, Simplex.EQUALS or
+	 * Simplex.LTE).
+	 */
+	private ArrayList<Integer> mConstraintRelations;
+
+	/**
+	 * The right-hand term of each constraint.
+	 */
+	private ArrayList<Double> mConstraintBounds;
+
+	/**
+	 * Creates a solver for the given attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes.
+	 */
+	public BruteForceSolver(QoSAttribute[] attributes) {
+		mQoSAttributes = attributes;
+		mIncumbentListeners = new CopyOnWriteArrayList<IncumbentListener>();
+		mConstraintAttributes = new ArrayList<Integer>();
+		mConstraintRelations = new ArrayList<Integer>();
+		mConstraintBounds = new ArrayList<Double>();
+	}
+
+	/**
+	 * Sets whether the search skips the subtrees that can't improve the best
+	 * composition, as in BruteForce.setPruning().
+	 * 
+	 * @param pruning
+	 *            True to prune; false to enumerate every composition.
+	 */
+	public void setPruning(boolean pruning) {
+		mIsPruning = pruning;
+	}
+
+	/**
+	 * Adds a constraint over the aggregated value of an attribute, as in
+	 * BruteForce.addConstraintOnAttribute().
+	 * 
+	 * @param attributeIndex
+	 *            The index of the attribute.
+	 * @param rel
+	 *            One of Simplex.GTE, Simplex.EQUALS and Simplex.LTE.
+	 * @param b
+	 *            The right-hand term of the constraint.
+	 */
+	public void addConstraintOnAttribute(int attributeIndex, int rel, double b) {
+		mConstraintAttributes.add(attributeIndex);
+		mConstraintRelations.add(rel);
+		mConstraintBounds.add(b);
+	}
+
+	/**
+	 * Adds a listener to be notified of each improving composition found by
+	 * the next calls to solve().
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addIncumbentListener(IncumbentListener listener) {
+		mIncumbentListeners.add(listener);
+	}
+
+	/**
+	 * Makes the next calls to solve() search in parallel, on the given pool.
+	 * 
+	 * @param pool
+	 *            The pool, such as SolverExecutors.getComputePool(), or null
+	 *            to search on the calling thread.
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		mForkJoinPool = pool;
+	}
+
+	@Override
+	public void setSharedIncumbent(SharedIncumbent incumbent) {
+		mSharedIncumbent = incumbent;
+	}
+
+	@Override
+	public boolean isObjectiveExact() {
+		return true;
+	}
+
+	@Override
+	public SolverResult solve(Deadline deadline, CancellationToken token) {
+		if (mForkJoinPool != null && !mIsPruning
+				&& mConstraintAttributes.isEmpty()) {
+			return solveInParallel(deadline, token);
+		}
+
+		long start = System.nanoTime();
+
+		BruteForce bruteForce = new BruteForce(mQoSAttributes);
+		bruteForce.setDeadline(deadline);
+		bruteForce.setCancellationToken(token);
+		bruteForce.setPruning(mIsPruning);
+		for (int c = 0; c < mConstraintAttributes.size(); c++) {
+			bruteForce.addConstraintOnAttribute(mConstraintAttributes.get(c),
+					mConstraintRelations.get(c), mConstraintBounds.get(c));
+		}
+		for (IncumbentListener listener : mIncumbentListeners) {
+			bruteForce.addIncumbentListener(listener);
+		}
+		if (mSharedIncumbent != null) {
+			bruteForce.addIncumbentListener(mSharedIncumbent);
+		}
+		int[] composition = bruteForce.getBestComposition().clone();
+
+		if (!bruteForce.hasSolution()) {
+			int status = bruteForce.isStopped() ? SolverResult.STATUS_STOPPED
+					: SolverResult.STATUS_INFEASIBLE;
+			return new SolverResult(status, null, Double.NaN, Double.NaN,
+					Double.NaN, bruteForce.getNoEvaluations(),
+					System.nanoTime() - start);
+		}
+		return createResult(composition, bruteForce.getBestQoS(),
+				bruteForce.isStopped(), bruteForce.getNoEvaluations(),
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Solves the problem with ParallelBruteForce.
+	 * 
+	 * @param deadline
+	 *            The deadline.
+	 * @param token
+	 *            The cancellation token.
+	 * @return The result.
+	 */
+	private SolverResult solveInParallel(Deadline deadline,
+			CancellationToken token) {
+		long start = System.nanoTime();
+
+		ParallelBruteForce bruteForce = new ParallelBruteForce(mQoSAttributes,
+				mForkJoinPool);
+		bruteForce.setDeadline(deadline);
+		bruteForce.setCancellationToken(token);
+		for (IncumbentListener listener : mIncumbentListeners) {
+			bruteForce.addIncumbentListener(listener);
+		}
+		if (mSharedIncumbent != null) {
+			bruteForce.addIncumbentListener(mSharedIncumbent);
+		}
+		int[] composition = bruteForce.getBestComposition();
+
+		if (!bruteForce.hasSolution()) {
+			/* Stopped before evaluating any composition. */
+			return new SolverResult(SolverResult.STATUS_STOPPED, null,
+					Double.NaN, Double.NaN, Double.NaN,
+					bruteForce.getNoEvaluations(), System.nanoTime() - start);
+		}
+		return createResult(composition, bruteForce.getBestQoS(),
+				bruteForce.isStopped(), bruteForce.getNoEvaluations(),
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Creates the result of a search.
+	 * 
+	 * @param composition
+	 *            The best composition.
+	 * @param score
+	 *            Its score.
+	 * @param isStopped
+	 *            Whether the search was stopped.
+	 * @param noEvaluations
+	 *            The number of compositions evaluated.
+	 * @param elapsed
+	 *            The duration of the search, in nanoseconds.
+	 * @return The result.
+	 */
+	private static SolverResult createResult(int[] composition, double score,
+			boolean isStopped, long noEvaluations, long elapsed) {
+		if (isStopped) {
+			return new SolverResult(SolverResult.STATUS_FEASIBLE, composition,
+					score, score, Double.NaN, noEvaluations, elapsed);
+		}
+		return new SolverResult(SolverResult.STATUS_OPTIMAL, composition,
+				score, score, score, noEvaluations, elapsed);
+	}
+}
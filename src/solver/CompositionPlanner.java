@@ -0,0 +1,267 @@
+package solver;
+
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.QoSAttribute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import bb.WscHelper;
+import bruteforce.BruteForce;
+
+/**
+ * Chooses the cheapest exact engine for a composition request and runs it.
+ * 
+ * When every attribute is aggregated by sum or by average and there are no
+ * constraints, the aggregated QoS is a weighted sum of one term per abstract
+ * service, so the optimal composition is simply the best concrete service of
+ * each abstract service, found in O(total concrete services). Otherwise, the
+ * request falls back to Branch and Bound (linear attributes with constraints)
+ * or to the bound-pruned search of Brute Force (product attributes, with or
+ * without constraints).
+ * 
+ * The planner is itself a CompositionSolver, so the fallback engines honor
+ * deadlines and cancellation tokens.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class CompositionPlanner implements CompositionSolver {
+
+	/* The possible engines. */
+	public static final int ENGINE_SEPARABLE = 0x00;
+	public static final int ENGINE_BRANCH_AND_BOUND = 0x01;
+	public static final int ENGINE_BRUTE_FORCE = 0x02;
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mQoSAttributes;
+
+	/**
+	 * The attribute of each constraint.
+	 */
+	private ArrayList<Integer> mConstraintAttributes;
+
+	/**
+	 * The relation of each constraint (Simplex.GTE, Simplex.EQUALS or
+	 * Simplex.LTE).
+	 */
+	private ArrayList<Integer> mConstraintRelations;
+
+	/**
+	 * The right-hand term of each constraint.
+	 */
+	private ArrayList<Double> mConstraintBounds;
+
+	/**
+	 * The engine used by the last call to solve().
+	 */
+	private int mLastEngine;
+
+	/**
+	 * Creates a planner for the given attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes.
+	 */
+	public CompositionPlanner(QoSAttribute[] attributes) {
+		mQoSAttributes = attributes;
+		mConstraintAttributes = new ArrayList<Integer>();
+		mConstraintRelations = new ArrayList<Integer>();
+		mConstraintBounds = new ArrayList<Double>();
+		mLastEngine = -1;
+	}
+
+	/**
+	 * Adds a constraint over the aggregated value of an attribute.
+	 * 
+	 * @param attributeIndex
+	 *            The index of the attribute.
+	 * @param rel
+	 *            One of Simplex.GTE, Simplex.EQUALS and Simplex.LTE.
+	 * @param b
+	 *            The right-hand term of the constraint.
+	 */
+	public void addConstraintOnAttribute(int attributeIndex, int rel, double b) {
+		mConstraintAttributes.add(attributeIndex);
+		mConstraintRelations.add(rel);
+		mConstraintBounds.add(b);
+	}
+
+	/**
+	 * Returns the engine that solve() will use.
+	 * 
+	 * @return One of ENGINE_SEPARABLE, ENGINE_BRANCH_AND_BOUND and
+	 *         ENGINE_BRUTE_FORCE.
+	 */
+	public int chooseEngine() {
+		boolean isLinear = isSeparable(mQoSAttributes);
+
+		if (isLinear && mConstraintAttributes.isEmpty()) {
+			return ENGINE_SEPARABLE;
+		} else if (isLinear) {
+			return ENGINE_BRANCH_AND_BOUND;
+		}
+		return ENGINE_BRUTE_FORCE;
+	}
+
+	/**
+	 * Solves the request with the engine returned by chooseEngine().
+	 * 
+	 * @return A vector containing which concrete service should be selected for
+	 *         each abstract service, or null if the problem is infeasible.
+	 */
+	public int[] solve() {
+		mLastEngine = chooseEngine();
+
+		switch (mLastEngine) {
+		case ENGINE_SEPARABLE:
+			return solveSeparable(mQoSAttributes);
+		case ENGINE_BRANCH_AND_BOUND:
+			WscHelper helper = createHelper();
+			helper.solveProblem();
+			return helper.getSolution();
+		default:
+			BruteForce bruteForce = createBruteForce();
+			int[] composition = bruteForce.getBestComposition();
+			return bruteForce.hasSolution() ? composition : null;
+		}
+	}
+
+	@Override
+	public boolean isObjectiveExact() {
+		return chooseEngine() != ENGINE_BRANCH_AND_BOUND
+				|| createHelper().isObjectiveExact();
+	}
+
+	@Override
+	public SolverResult solve(Deadline deadline, CancellationToken token) {
+		mLastEngine = chooseEngine();
+
+		switch (mLastEngine) {
+		case ENGINE_SEPARABLE:
+			long start = System.nanoTime();
+			int[] composition = solveSeparable(mQoSAttributes);
+			double score = new CompositionScorer(mQoSAttributes)
+					.score(composition);
+			return new SolverResult(SolverResult.STATUS_OPTIMAL, composition,
+					score, score, score,
+					mQoSAttributes[0].getOffsets()[composition.length],
+					System.nanoTime() - start);
+		case ENGINE_BRANCH_AND_BOUND:
+			return new BranchAndBoundSolver(createHelper()).solve(deadline,
+					token);
+		default:
+			BruteForceSolver solver = new BruteForceSolver(mQoSAttributes);
+			solver.setPruning(true);
+			for (int c = 0; c < mConstraintAttributes.size(); c++) {
+				solver.addConstraintOnAttribute(mConstraintAttributes.get(c),
+						mConstraintRelations.get(c), mConstraintBounds.get(c));
+			}
+			return solver.solve(deadline, token);
+		}
+	}
+
+	/**
+	 * Creates a pruned Brute Force search with the constraints of this
+	 * planner.
+	 * 
+	 * @return The search.
+	 */
+	private BruteForce createBruteForce() {
+		BruteForce bruteForce = new BruteForce(mQoSAttributes);
+		bruteForce.setPruning(true);
+		for (int c = 0; c < mConstraintAttributes.size(); c++) {
+			bruteForce.addConstraintOnAttribute(mConstraintAttributes.get(c),
+					mConstraintRelations.get(c), mConstraintBounds.get(c));
+		}
+		return bruteForce;
+	}
+
+	/**
+	 * Creates a Branch and Bound helper with the constraints of this planner.
+	 * 
+	 * @return The helper.
+	 */
+	private WscHelper createHelper() {
+		WscHelper helper = new WscHelper(mQoSAttributes);
+		for (int c = 0; c < mConstraintAttributes.size(); c++) {
+			helper.addConstraintOnAttribute(mConstraintAttributes.get(c),
+					mConstraintRelations.get(c), mConstraintBounds.get(c));
+		}
+		return helper;
+	}
+
+	/**
+	 * 
+	 * @return The engine used by the last call to solve(), or -1 if it wasn't
+	 *         called yet.
+	 */
+	public int getLastEngine() {
+		return mLastEngine;
+	}
+
+	/**
+	 * Checks whether the aggregated QoS of the given attributes is separable,
+	 * i.e. whether all of them are aggregated by sum or by average.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes.
+	 * @return True if the aggregated QoS is separable; false otherwise.
+	 */
+	public static boolean isSeparable(QoSAttribute[] attributes) {
+		for (QoSAttribute attribute : attributes) {
+			if (attribute.getAggregationMethod() != QoSAttribute.AGGREGATE_BY_SUM
+					&& attribute.getAggregationMethod() != QoSAttribute.AGGREGATE_BY_AVERAGE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the optimal composition of a separable, unconstrained request,
+	 * choosing the concrete service with the largest contribution for each
+	 * abstract service, as given by QoSAttribute.calculateFlatContributions().
+	 * Branch and Bound maximizes the same contributions when there are
+	 * constraints.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes. All of them must be aggregated by sum or
+	 *            by average.
+	 * @return The optimal composition.
+	 */
+	public static int[] solveSeparable(QoSAttribute[] attributes) {
+		if (!isSeparable(attributes)) {
+			throw new IllegalArgumentException(
+					"Non-linear aggregation function.");
+		}
+
+		int[] offsets = attributes[0].getOffsets();
+		int noAbstractServices = offsets.length - 1;
+		for (QoSAttribute attribute : attributes) {
+			if (!Arrays.equals(attribute.getOffsets(), offsets)) {
+				throw new IllegalArgumentException(
+						"The attributes have different shapes.");
+			}
+		}
+		double[] contributions = QoSAttribute
+				.calculateFlatContributions(attributes);
+
+		int[] composition = new int[noAbstractServices];
+		for (int i = 0; i < noAbstractServices; i++) {
+			int best = offsets[i];
+			for (int k = offsets[i] + 1; k < offsets[i + 1]; k++) {
+				if (contributions[k] > contributions[best]) {
+					best = k;
+				}
+			}
+			composition[i] = best - offsets[i];
+		}
+
+		return composition;
+	}
+}
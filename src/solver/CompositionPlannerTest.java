@@ -0,0 +1,58 @@
+package solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.QoSAttribute;
+
+import org.junit.Test;
+
+import bb.Simplex;
+
+public class CompositionPlannerTest {
+
+	/*
+	 * Four abstract services with a sum and an average attribute. Selecting
+	 * the first service everywhere scores 0.4, and the last one 0.2.
+	 */
+	private static QoSAttribute[] createAttributes() {
+		double[][] sums = new double[4][];
+		double[][] averages = new double[4][];
+		for (int i = 0; i < 4; i++) {
+			sums[i] = new double[] { 0.5, 0 };
+			averages[i] = new double[] { 0, 1 };
+		}
+		return new QoSAttribute[] {
+				new QoSAttribute(sums, QoSAttribute.AGGREGATE_BY_SUM, 0.5),
+				new QoSAttribute(averages, QoSAttribute.AGGREGATE_BY_AVERAGE,
+						0.5) };
+	}
+
+	/* A constraint that always holds doesn't change the composition. */
+
+	@Test
+	public void test0() {
+		QoSAttribute[] attributes = createAttributes();
+		CompositionPlanner unconstrained = new CompositionPlanner(attributes);
+		CompositionPlanner constrained = new CompositionPlanner(attributes);
+		constrained.addConstraintOnAttribute(0, Simplex.LTE, 100);
+
+		int[] expected = unconstrained.solve();
+		assertEquals(CompositionPlanner.ENGINE_SEPARABLE,
+				unconstrained.getLastEngine());
+		assertArrayEquals(new int[] { 0, 0, 0, 0 }, expected);
+
+		assertArrayEquals(expected, constrained.solve());
+		assertEquals(CompositionPlanner.ENGINE_BRANCH_AND_BOUND,
+				constrained.getLastEngine());
+
+		SolverResult result = constrained.solve(Deadline.NONE,
+				CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_OPTIMAL, result.getStatus());
+		assertArrayEquals(expected, result.getComposition());
+		assertEquals(new CompositionScorer(attributes).score(expected),
+				result.getScore(), 1e-9);
+	}
+}
@@ -0,0 +1,45 @@
+package solver;
+
+import general.CancellationToken;
+import general.Deadline;
+
+/**
+ * A solver for the Web Service composition problem. Every engine is exposed
+ * through this interface, so that callers can run any of them under the same
+ * deadline and cancellation rules and compare their results.
+ * 
+ * Solvers check the deadline and the cancellation token cooperatively, at
+ * points that are cheap for each engine. When either of them fires, the solver
+ * returns the best composition found so far instead of raising an exception.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public interface CompositionSolver {
+
+	/**
+	 * Solves the composition problem.
+	 * 
+	 * @param deadline
+	 *            The deadline of the search. Use Deadline.NONE to run until
+	 *            completion.
+	 * @param token
+	 *            The token through which the search can be cancelled. Use
+	 *            CancellationToken.NONE if it can't be cancelled.
+	 * @return The result of the search.
+	 */
+	public SolverResult solve(Deadline deadline, CancellationToken token);
+
+	/**
+	 * Checks whether the objective function of this solver orders the
+	 * compositions as their score does, so that a composition it proves to be
+	 * optimal also has the best score. Solvers that optimize a surrogate of
+	 * the score must not override it.
+	 * 
+	 * @return True if the optimal results of this solver have the best score;
+	 *         false otherwise.
+	 */
+	public default boolean isObjectiveExact() {
+		return false;
+	}
+}
@@ -0,0 +1,104 @@
+package solver;
+
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.QoSAttribute;
+import general.SharedIncumbent;
+import dynprog.DynamicProgramming;
+
+/**
+ * Exposes Dynamic Programming as a CompositionSolver. Its objective function
+ * is the sum of the total QoS of the selected concrete services and of the
+ * weights of the edges between them. Compositions that use an edge whose
+ * weight is NaN are forbidden. The backward pass is greedy, so its results are
+ * never proven to be optimal, and it may find no composition even if there is
+ * one.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class DynamicProgrammingSolver implements IncumbentSharingSolver {
+
+	/**
+	 * The QoS attributes.
+	 */
+	private QoSAttribute[] mQoSAttributes;
+
+	/**
+	 * The weight of each edge, or null if all of them are zero.
+	 */
+	private double[][][] mEdgesWeights;
+
+	/**
+	 * The incumbent shared with other engines, or null if there's none.
+	 */
+	private SharedIncumbent mSharedIncumbent;
+
+	/**
+	 * Creates a solver for the given attributes.
+	 * 
+	 * @param attributes
+	 *            The QoS attributes.
+	 */
+	public DynamicProgrammingSolver(QoSAttribute[] attributes) {
+		mQoSAttributes = attributes;
+	}
+
+	/**
+	 * Sets the weight of all edges, as in DynamicProgramming.setEdgesWeights().
+	 * 
+	 * @param weights
+	 *            The edges weights, or null if all of them are zero.
+	 */
+	public void setEdgesWeights(double[][][] weights) {
+		mEdgesWeights = weights;
+	}
+
+	@Override
+	public void setSharedIncumbent(SharedIncumbent incumbent) {
+		mSharedIncumbent = incumbent;
+	}
+
+	@Override
+	public SolverResult solve(Deadline deadline, CancellationToken token) {
+		long start = System.nanoTime();
+
+		double[][] totalQoS = QoSAttribute.calculateTotalQoS(mQoSAttributes);
+		DynamicProgramming dynProg = new DynamicProgramming(totalQoS);
+		if (mEdgesWeights != null) {
+			dynProg.setEdgesWeights(mEdgesWeights);
+		}
+		dynProg.setDeadline(deadline);
+		dynProg.setCancellationToken(token);
+		dynProg.run();
+
+		int[] composition = dynProg.getSolution();
+		long elapsed = System.nanoTime() - start;
+		if (dynProg.isStopped()) {
+			return new SolverResult(SolverResult.STATUS_STOPPED, null,
+					Double.NaN, Double.NaN, Double.NaN, dynProg.getNoLevels(),
+					elapsed);
+		} else if (composition == null) {
+			/* The backward pass doesn't explore every path. */
+			return new SolverResult(SolverResult.STATUS_UNKNOWN, null,
+					Double.NaN, Double.NaN, Double.NaN, dynProg.getNoLevels(),
+					elapsed);
+		}
+
+		double objective = 0;
+		for (int i = 0; i < composition.length; i++) {
+			objective += totalQoS[i][composition[i]];
+			if (mEdgesWeights != null && i < composition.length - 1) {
+				objective += mEdgesWeights[i][composition[i]][composition[i + 1]];
+			}
+		}
+
+		double score = new CompositionScorer(mQoSAttributes).score(composition);
+		if (mSharedIncumbent != null) {
+			mSharedIncumbent.offer(composition, score);
+		}
+		return new SolverResult(SolverResult.STATUS_FEASIBLE, composition,
+				score, objective, Double.NaN, dynProg.getNoLevels(), elapsed);
+	}
+}
@@ -0,0 +1,81 @@
+package solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.CompositionScorer;
+import general.Deadline;
+import general.QoSAttribute;
+
+import org.junit.Test;
+
+public class DynamicProgrammingSolverTest {
+
+	public static final double[][] values = { { 1, 0.5f, 1 }, { 1, 0.5f },
+			{ 0.5f, 0.5f, 1 } };
+
+	private static QoSAttribute[] createAttributes() {
+		return new QoSAttribute[] {
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_SUM, 0.2f),
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_PRODUCT,
+						0.3f),
+				new QoSAttribute(values, QoSAttribute.AGGREGATE_BY_AVERAGE,
+						0.5f) };
+	}
+
+	/*
+	 * Without edges, the objective is the sum of the total QoS of the selected
+	 * services, and the result is feasible, without a bound.
+	 */
+
+	@Test
+	public void test0() {
+		QoSAttribute[] attributes = createAttributes();
+		SolverResult result = new DynamicProgrammingSolver(attributes).solve(
+				Deadline.NONE, CancellationToken.NONE);
+
+		assertEquals(SolverResult.STATUS_FEASIBLE, result.getStatus());
+		assertArrayEquals(new int[] { 0, 0, 2 }, result.getComposition());
+		assertEquals(3, result.getEffort());
+		assertTrue(Double.isNaN(result.getBound()));
+
+		double[][] totalQoS = QoSAttribute.calculateTotalQoS(attributes);
+		assertEquals(totalQoS[0][0] + totalQoS[1][0] + totalQoS[2][2],
+				result.getObjective(), 1e-12);
+		assertEquals(new CompositionScorer(attributes).score(result
+				.getComposition()), result.getScore(), 1e-12);
+	}
+
+	/* Edges whose weight is NaN are never used. */
+
+	@Test
+	public void test1() {
+		double nan = Double.NaN;
+		DynamicProgrammingSolver solver = new DynamicProgrammingSolver(
+				createAttributes());
+		solver.setEdgesWeights(new double[][][] {
+				{ { nan, nan }, { nan, nan }, { nan, nan } },
+				{ { 0, 0, 0 }, { 0, 0, 0 } } });
+
+		SolverResult result = solver.solve(Deadline.NONE,
+				CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_UNKNOWN, result.getStatus());
+		assertNull(result.getComposition());
+	}
+
+	/* A cancelled run is stopped. */
+
+	@Test
+	public void test2() {
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+
+		SolverResult result = new DynamicProgrammingSolver(createAttributes())
+				.solve(Deadline.NONE, token);
+		assertEquals(SolverResult.STATUS_STOPPED, result.getStatus());
+		assertNull(result.getComposition());
+		assertEquals(1, result.getEffort());
+	}
+}
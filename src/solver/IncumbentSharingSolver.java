@@ -0,0 +1,21 @@
+package solver;
+
+import general.SharedIncumbent;
+
+/**
+ * A CompositionSolver that can share its best composition with other engines
+ * running on the same request, and possibly prune its own search with theirs.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public interface IncumbentSharingSolver extends CompositionSolver {
+
+	/**
+	 * Sets the incumbent used by the next calls to solve().
+	 * 
+	 * @param incumbent
+	 *            The shared incumbent, or null if there's none.
+	 */
+	public void setSharedIncumbent(SharedIncumbent incumbent);
+}
@@ -0,0 +1,175 @@
+package solver;
+
+import general.CancellationToken;
+import general.Deadline;
+import general.SharedIncumbent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Races several engines on the same request, each one on its own thread of an
+ * executor, since which engine wins depends on the instance. The engines that
+ * implement IncumbentSharingSolver share a single incumbent, so that, for
+ * instance, the solutions found by ACO prune the queue of Branch and Bound.
+ * 
+ * All the engines must solve the same problem, i.e. honor the same
+ * constraints. The first result proven to be optimal by an engine whose
+ * objective agrees with the score (see CompositionSolver.isObjectiveExact()),
+ * or the problem proven to be infeasible, is returned, and the other engines
+ * are cancelled. The optimal results of the other engines only count as
+ * feasible ones. If no engine proves optimality before the deadline, or if
+ * the search is cancelled, the best composition found by any engine is
+ * returned.
+ * 
+ * solve() returns without waiting for the cancelled engines to stop, so the
+ * solvers of a portfolio must not be used by another run until they do.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class PortfolioSolver implements CompositionSolver {
+
+	/**
+	 * The maximum time, in milliseconds, between two checks of the
+	 * cancellation token of the portfolio.
+	 */
+	private static final long CANCELLATION_CHECK_PERIOD = 10;
+
+	/**
+	 * The engines.
+	 */
+	private CompositionSolver[] mSolvers;
+
+	/**
+	 * The executor on which the engines run.
+	 */
+	private Executor mExecutor;
+
+	/**
+	 * Creates a portfolio whose engines run on the shared racing executor, one
+	 * platform thread each.
+	 * 
+	 * @param solvers
+	 *            The engines.
+	 */
+	public PortfolioSolver(CompositionSolver... solvers) {
+		this(SolverExecutors.getRacingExecutor(), solvers);
+	}
+
+	/**
+	 * Creates a portfolio whose engines run on the given executor. It must be
+	 * able to run all of them at the same time.
+	 * 
+	 * @param executor
+	 *            The executor on which the engines run.
+	 * @param solvers
+	 *            The engines.
+	 */
+	public PortfolioSolver(Executor executor, CompositionSolver... solvers) {
+		if (solvers.length == 0) {
+			throw new IllegalArgumentException("No engines given.");
+		}
+
+		mExecutor = executor;
+		mSolvers = solvers;
+	}
+
+	@Override
+	public boolean isObjectiveExact() {
+		return true;
+	}
+
+	@Override
+	public SolverResult solve(final Deadline deadline, CancellationToken token) {
+		long start = System.nanoTime();
+
+		SharedIncumbent incumbent = new SharedIncumbent();
+		final CancellationToken[] tokens = new CancellationToken[mSolvers.length];
+		final Object[] outcomes = new Object[mSolvers.length];
+		final LinkedBlockingQueue<Integer> finished = new LinkedBlockingQueue<Integer>();
+
+		for (int k = 0; k < mSolvers.length; k++) {
+			final int index = k;
+			final CompositionSolver solver = mSolvers[k];
+			final CancellationToken engineToken = new CancellationToken();
+			tokens[k] = engineToken;
+
+			if (solver instanceof IncumbentSharingSolver) {
+				((IncumbentSharingSolver) solver).setSharedIncumbent(incumbent);
+			}
+
+			mExecutor.execute(() -> {
+				Object outcome;
+				try {
+					outcome = solver.solve(deadline, engineToken);
+				} catch (Throwable t) {
+					outcome = t;
+				}
+				outcomes[index] = outcome;
+				finished.add(index);
+			});
+		}
+
+		SolverResult best = null;
+		Throwable error = null;
+		int noFinished = 0;
+
+		try {
+			while (noFinished < mSolvers.length && !deadline.isExpired()
+					&& !token.isCancelled()) {
+				long timeOut = Math.min(TimeUnit.MILLISECONDS
+						.toNanos(CANCELLATION_CHECK_PERIOD), deadline
+						.getRemainingNanos());
+				Integer index = finished.poll(timeOut, TimeUnit.NANOSECONDS);
+				if (index == null) {
+					continue;
+				}
+				noFinished++;
+
+				Object outcome = outcomes[index];
+				if (outcome instanceof Throwable) {
+					if (error == null) {
+						error = (Throwable) outcome;
+					}
+					continue;
+				}
+
+				SolverResult result = (SolverResult) outcome;
+				if ((result.getStatus() == SolverResult.STATUS_OPTIMAL && mSolvers[index]
+						.isObjectiveExact())
+						|| result.getStatus() == SolverResult.STATUS_INFEASIBLE) {
+					return result;
+				} else if (result.hasComposition()
+						&& (best == null || result.getScore() > best.getScore())) {
+					best = result;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (CancellationToken engineToken : tokens) {
+				engineToken.cancel();
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		int[] composition = incumbent.getComposition();
+		if (composition != null
+				&& (best == null || incumbent.getScore() > best.getScore())) {
+			return new SolverResult(SolverResult.STATUS_FEASIBLE, composition,
+					incumbent.getScore(), incumbent.getScore(), Double.NaN,
+					noFinished, elapsed);
+		} else if (best != null) {
+			return new SolverResult(SolverResult.STATUS_FEASIBLE,
+					best.getComposition(), best.getScore(), best.getScore(),
+					Double.NaN, noFinished, elapsed);
+		} else if (error != null && noFinished == mSolvers.length) {
+			throw new IllegalStateException("All the engines failed.", error);
+		}
+
+		return new SolverResult(SolverResult.STATUS_STOPPED, null, Double.NaN,
+				Double.NaN, Double.NaN, noFinished, elapsed);
+	}
+}
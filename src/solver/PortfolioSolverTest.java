@@ -0,0 +1,59 @@
+package solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import general.CancellationToken;
+import general.Deadline;
+import general.QoSAttribute;
+
+import org.junit.Test;
+
+import bb.WscHelper;
+
+public class PortfolioSolverTest {
+
+	/*
+	 * A sum and a product attribute, whose best score, 0.403, is at [0, 0],
+	 * while the linear objective of Branch and Bound prefers [1, 1].
+	 */
+	private static QoSAttribute[] createAttributes() {
+		return new QoSAttribute[] {
+				new QoSAttribute(new double[][] { { 0.6, 0 }, { 0.6, 0 } },
+						QoSAttribute.AGGREGATE_BY_SUM, 0.5),
+				new QoSAttribute(new double[][] { { 0.1, 1 }, { 0.1, 1 } },
+						QoSAttribute.AGGREGATE_BY_PRODUCT, 0.5) };
+	}
+
+	/* Branch and Bound doesn't claim optimality for a surrogate objective. */
+
+	@Test
+	public void test0() {
+		BranchAndBoundSolver solver = new BranchAndBoundSolver(new WscHelper(
+				createAttributes()));
+		assertFalse(solver.isObjectiveExact());
+
+		SolverResult result = solver.solve(Deadline.NONE,
+				CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_FEASIBLE, result.getStatus());
+		assertTrue(Double.isNaN(result.getBound()));
+	}
+
+	/* The portfolio waits for an exact engine when the attributes are mixed. */
+
+	@Test
+	public void test1() {
+		QoSAttribute[] attributes = createAttributes();
+		PortfolioSolver portfolio = new PortfolioSolver(
+				new BranchAndBoundSolver(new WscHelper(attributes)),
+				new BruteForceSolver(attributes));
+
+		SolverResult result = portfolio.solve(Deadline.NONE,
+				CancellationToken.NONE);
+		assertEquals(SolverResult.STATUS_OPTIMAL, result.getStatus());
+		assertArrayEquals(new int[] { 0, 0 }, result.getComposition());
+		assertEquals(new BruteForceSolver(attributes).solve(Deadline.NONE,
+				CancellationToken.NONE).getScore(), result.getScore(), 1e-9);
+	}
+}
@@ -0,0 +1,135 @@
+package solver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factories for the executors used to solve composition requests
+ * asynchronously.
+ * 
+ * Requests are fanned out on the request executor, which uses one virtual
+ * thread per task when the runtime supports them (Java 21 and later), and a
+ * cached pool of daemon threads otherwise. The engines themselves are CPU
+ * bound, so they should run on a compute pool whose parallelism is bounded by
+ * the number of processors. Engines that race each other, on the other hand,
+ * need platform threads, so that the operating system time-slices them even
+ * when there are more engines than processors.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class SolverExecutors {
+
+	/**
+	 * The compute pool shared by all the callers that don't provide their
+	 * own.
+	 */
+	private static volatile ForkJoinPool sComputePool;
+
+	/**
+	 * The pool of platform threads shared by the engines that race each other.
+	 */
+	private static volatile ExecutorService sRacingExecutor;
+
+	private SolverExecutors() {
+	}
+
+	/**
+	 * Creates an executor suitable for fanning out requests: one virtual thread
+	 * per task if the runtime supports them, or a cached pool of daemon
+	 * threads otherwise. The tree is compiled for release 11, which has no
+	 * Executors.newVirtualThreadPerTaskExecutor(), so it's looked up
+	 * reflectively.
+	 * 
+	 * @return The executor. It must be shut down by the caller.
+	 */
+	public static ExecutorService newRequestExecutor() {
+		try {
+			Method factory = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			/* Virtual threads aren't available. */
+		}
+
+		return newDaemonPool("solver-request-");
+	}
+
+	/**
+	 * Creates a cached pool of daemon platform threads.
+	 * 
+	 * @param prefix
+	 *            The prefix of the names of the threads.
+	 * @return The pool.
+	 */
+	private static ExecutorService newDaemonPool(final String prefix) {
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, prefix + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Creates a compute pool with the given parallelism, whose threads are
+	 * daemons.
+	 * 
+	 * @param parallelism
+	 *            The maximum number of engines running at the same time.
+	 * @return The pool. It must be shut down by the caller.
+	 */
+	public static ForkJoinPool newComputePool(int parallelism) {
+		return new ForkJoinPool(parallelism,
+				ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+	}
+
+	/**
+	 * Returns the shared compute pool, whose parallelism is the number of
+	 * available processors. It's created on first use and never shut down.
+	 * 
+	 * @return The shared compute pool.
+	 */
+	public static ForkJoinPool getComputePool() {
+		ForkJoinPool pool = sComputePool;
+		if (pool == null) {
+			synchronized (SolverExecutors.class) {
+				pool = sComputePool;
+				if (pool == null) {
+					pool = newComputePool(Runtime.getRuntime()
+							.availableProcessors());
+					sComputePool = pool;
+				}
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Returns the cached pool of daemon platform threads shared by the engines
+	 * that race each other. It's created on first use and never shut down.
+	 * 
+	 * @return The shared racing executor.
+	 */
+	public static ExecutorService getRacingExecutor() {
+		ExecutorService executor = sRacingExecutor;
+		if (executor == null) {
+			synchronized (SolverExecutors.class) {
+				executor = sRacingExecutor;
+				if (executor == null) {
+					executor = newDaemonPool("solver-engine-");
+					sRacingExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+}
@@ -0,0 +1,50 @@
+package solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SolverExecutorsTest {
+
+	/* The shared pools are created once and bounded as documented. */
+
+	@Test
+	public void test0() {
+		ForkJoinPool pool = SolverExecutors.getComputePool();
+		assertSame(pool, SolverExecutors.getComputePool());
+		assertEquals(Runtime.getRuntime().availableProcessors(),
+				pool.getParallelism());
+		assertSame(SolverExecutors.getRacingExecutor(),
+				SolverExecutors.getRacingExecutor());
+	}
+
+	/* The request executor runs its tasks, whatever threads it uses. */
+
+	@Test
+	public void test1() throws Exception {
+		ExecutorService executor = SolverExecutors.newRequestExecutor();
+		try {
+			assertEquals(Integer.valueOf(42),
+					executor.submit(() -> 42).get(30, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test2() {
+		ForkJoinPool pool = SolverExecutors.newComputePool(3);
+		try {
+			assertEquals(3, pool.getParallelism());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
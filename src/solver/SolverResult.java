@@ -0,0 +1,203 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * The result of a CompositionSolver.
+ * 
+ * The score is always the aggregated QoS of the composition, normalized as in
+ * QoSAttribute.calculateAggregatedQoS(), so that the results of different
+ * engines can be compared. The objective value and the bound, on the other
+ * hand, are expressed in the units of the engine's own objective function,
+ * which may differ from the score.
+ * 
+ * @author Andre Luiz Verucci da Cunha
+ * 
+ */
+public class SolverResult {
+
+	/* The possible statuses of a result. */
+	/** The composition is proven to be optimal for the engine's objective. */
+	public static final int STATUS_OPTIMAL = 0x00;
+	/** A composition was found, but it isn't proven to be optimal. */
+	public static final int STATUS_FEASIBLE = 0x01;
+	/** The problem is proven to have no feasible composition. */
+	public static final int STATUS_INFEASIBLE = 0x02;
+	/** The search was stopped before any composition was found. */
+	public static final int STATUS_STOPPED = 0x03;
+	/**
+	 * The engine gave up without a composition, but it can't prove that the
+	 * problem is infeasible.
+	 */
+	public static final int STATUS_UNKNOWN = 0x04;
+
+	/**
+	 * The status of this result.
+	 */
+	private final int mStatus;
+
+	/**
+	 * The composition found, or null if none was found.
+	 */
+	private final int[] mComposition;
+
+	/**
+	 * The normalized aggregated QoS of the composition.
+	 */
+	private final double mScore;
+
+	/**
+	 * The objective value of the composition, in the engine's units.
+	 */
+	private final double mObjective;
+
+	/**
+	 * An upper bound on the optimal objective value, in the engine's units.
+	 */
+	private final double mBound;
+
+	/**
+	 * The amount of work done by the engine.
+	 */
+	private final long mEffort;
+
+	/**
+	 * The time spent by the engine, in nanoseconds.
+	 */
+	private final long mElapsedNanos;
+
+	/**
+	 * Creates a result.
+	 * 
+	 * @param status
+	 *            One of STATUS_OPTIMAL, STATUS_FEASIBLE, STATUS_INFEASIBLE,
+	 *            STATUS_STOPPED and STATUS_UNKNOWN.
+	 * @param composition
+	 *            The composition found, or null if none was found.
+	 * @param score
+	 *            The normalized aggregated QoS of the composition, or NaN if
+	 *            none was found.
+	 * @param objective
+	 *            The objective value of the composition, in the engine's
+	 *            units, or NaN if none was found.
+	 * @param bound
+	 *            An upper bound on the optimal objective value, in the
+	 *            engine's units, or NaN if the engine can't provide one.
+	 * @param effort
+	 *            The amount of work done by the engine.
+	 * @param elapsedNanos
+	 *            The time spent by the engine, in nanoseconds.
+	 */
+	public SolverResult(int status, int[] composition, double score,
+			double objective, double bound, long effort, long elapsedNanos) {
+		mStatus = status;
+		mComposition = composition;
+		mScore = score;
+		mObjective = objective;
+		mBound = bound;
+		mEffort = effort;
+		mElapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * 
+	 * @return One of STATUS_OPTIMAL, STATUS_FEASIBLE, STATUS_INFEASIBLE,
+	 *         STATUS_STOPPED and STATUS_UNKNOWN.
+	 */
+	public int getStatus() {
+		return mStatus;
+	}
+
+	/**
+	 * 
+	 * @return True if a composition was found; false otherwise.
+	 */
+	public boolean hasComposition() {
+		return mComposition != null;
+	}
+
+	/**
+	 * Returns the composition found. It must not be modified.
+	 * 
+	 * @return A vector containing which concrete service should be selected for
+	 *         each abstract service, or null if none was found.
+	 */
+	public int[] getComposition() {
+		return mComposition;
+	}
+
+	/**
+	 * 
+	 * @return The normalized aggregated QoS of the composition, or NaN if none
+	 *         was found.
+	 */
+	public double getScore() {
+		return mScore;
+	}
+
+	/**
+	 * 
+	 * @return The objective value of the composition, in the engine's units,
+	 *         or NaN if none was found.
+	 */
+	public double getObjective() {
+		return mObjective;
+	}
+
+	/**
+	 * 
+	 * @return An upper bound on the optimal objective value, in the engine's
+	 *         units, or NaN if the engine can't provide one.
+	 */
+	public double getBound() {
+		return mBound;
+	}
+
+	/**
+	 * Returns the relative gap between the bound and the objective value, i.e.
+	 * (bound - objective) / |bound|. It's zero for optimal compositions.
+	 * 
+	 * @return The relative gap, or NaN if either the bound or the objective
+	 *         value is unknown.
+	 */
+	public double getGap() {
+		if (mStatus == STATUS_OPTIMAL) {
+			return 0;
+		}
+		if (Double.isNaN(mBound) || Double.isNaN(mObjective)) {
+			return Double.NaN;
+		}
+		if (mBound == mObjective) {
+			return 0;
+		}
+		return (mBound - mObjective) / Math.abs(mBound);
+	}
+
+	/**
+	 * Returns the amount of work done by the engine. Its unit depends on the
+	 * engine: compositions evaluated by Brute Force, nodes analyzed by Branch
+	 * and Bound, iterations performed by ACO and levels added by Dynamic
+	 * Programming.
+	 * 
+	 * @return The amount of work done by the engine.
+	 */
+	public long getEffort() {
+		return mEffort;
+	}
+
+	/**
+	 * 
+	 * @return The time spent by the engine, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return mElapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"status=%d composition=%s score=%g objective=%g bound=%g effort=%d elapsed=%dns",
+				mStatus, Arrays.toString(mComposition), mScore,
+				mObjective, mBound, mEffort, mElapsedNanos);
+	}
+}
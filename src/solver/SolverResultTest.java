@@ -0,0 +1,51 @@
+package solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SolverResultTest {
+
+	/* An optimal result has no gap, even without a bound. */
+
+	@Test
+	public void test0() {
+		SolverResult result = new SolverResult(SolverResult.STATUS_OPTIMAL,
+				new int[] { 0, 1 }, 0.8, 2, Double.NaN, 10, 100);
+		assertTrue(result.hasComposition());
+		assertEquals(0, result.getGap(), 0);
+	}
+
+	/* The gap of a feasible result is relative to the bound. */
+
+	@Test
+	public void test1() {
+		SolverResult result = new SolverResult(SolverResult.STATUS_FEASIBLE,
+				new int[] { 0, 1 }, 0.8, 1.5, 2, 10, 100);
+		assertEquals(0.25, result.getGap(), 1e-12);
+
+		result = new SolverResult(SolverResult.STATUS_FEASIBLE, new int[] {
+				0, 1 }, 0.8, -3, -2, 10, 100);
+		assertEquals(0.5, result.getGap(), 1e-12);
+
+		result = new SolverResult(SolverResult.STATUS_FEASIBLE, new int[] {
+				0, 1 }, 0.8, 2, 2, 10, 100);
+		assertEquals(0, result.getGap(), 0);
+	}
+
+	/* Without a bound or a composition, the gap is unknown. */
+
+	@Test
+	public void test2() {
+		SolverResult result = new SolverResult(SolverResult.STATUS_FEASIBLE,
+				new int[] { 0, 1 }, 0.8, 1.5, Double.NaN, 10, 100);
+		assertTrue(Double.isNaN(result.getGap()));
+
+		result = new SolverResult(SolverResult.STATUS_STOPPED, null,
+				Double.NaN, Double.NaN, Double.NaN, 0, 100);
+		assertFalse(result.hasComposition());
+		assertTrue(Double.isNaN(result.getGap()));
+	}
+}